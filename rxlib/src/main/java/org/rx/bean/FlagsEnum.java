@@ -68,6 +68,15 @@ public final class FlagsEnum<T extends Enum<T> & NEnum<T>> implements NEnum<T> {
         flags = nEnum.getValue();
     }
 
+    private FlagsEnum(Class<T> type, int flags) {
+        this.type = type;
+        this.flags = flags;
+    }
+
+    public FlagsEnum<T> copy() {
+        return new FlagsEnum<>(type, flags);
+    }
+
     public FlagsEnum<T> add(FlagsEnum<T> fEnum) {
         if (fEnum != null) {
             flags |= fEnum.flags;
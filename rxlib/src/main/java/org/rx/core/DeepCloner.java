@@ -0,0 +1,358 @@
+package org.rx.core;
+
+import io.netty.channel.local.LocalAddress;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.rx.bean.FlagsEnum;
+import org.rx.io.JdkAndJsonSerializer;
+import org.springframework.cglib.reflect.FastClass;
+
+import java.io.Externalizable;
+import java.io.File;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import static org.rx.core.Constants.NON_RAW_TYPES;
+import static org.rx.core.Constants.NON_UNCHECKED;
+
+/**
+ * {@link Sys#deepClone(Object)} 的拷贝引擎，按运行时类型生成并缓存拷贝器。
+ * <p>
+ * 不可变类型直接返回原对象；数组、常用 JDK 集合与 Map 逐元素拷贝；有 public 无参构造且字段均非 final 的 bean
+ * 由 {@link FastClass} 调用无参构造，经预先解析的字段 {@link MethodHandle} 逐字段读写，不经过 getter/setter，
+ * 源对象上的懒加载 getter 不会被触发。
+ * 带自定义序列化钩子、不可见构造或 final 字段的类型退回 JDK/JSON 序列化。
+ * 同一次拷贝内按引用同一性记录已拷贝对象，共享引用与循环引用保持原有拓扑（退回序列化的子图内部除外）。
+ * <p>
+ * 与 JDK 序列化的差异：bean 通过无参构造创建，transient 字段取字段初始值而不是默认值。
+ */
+@Slf4j
+public final class DeepCloner {
+    interface Copier {
+        Object copy(DeepCloner cloner, Object src, Map<Object, Object> copied);
+    }
+
+    /**
+     * 逐字段深拷贝到新实例，字段为声明顺序（父类在前）。
+     */
+    static final class FieldCopier implements Copier {
+        final FastClass fastClass;
+        //(Object)Object
+        final MethodHandle[] getters;
+        //(Object,Object)void
+        final MethodHandle[] setters;
+
+        FieldCopier(FastClass fastClass, MethodHandle[] getters, MethodHandle[] setters) {
+            this.fastClass = fastClass;
+            this.getters = getters;
+            this.setters = setters;
+        }
+
+        @SneakyThrows
+        @Override
+        public Object copy(DeepCloner cloner, Object src, Map<Object, Object> copied) {
+            Object dst = fastClass.newInstance();
+            copied.put(src, dst);
+            for (int i = 0; i < getters.length; i++) {
+                Object value = (Object) getters[i].invokeExact(src);
+                setters[i].invokeExact(dst, cloner.copy(value, copied));
+            }
+            return dst;
+        }
+    }
+
+    public static final DeepCloner DEFAULT = new DeepCloner();
+    static final Set<Class<?>> IMMUTABLE_TYPES = new HashSet<>(java.util.Arrays.asList(
+            String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class,
+            BigInteger.class, BigDecimal.class, Class.class, UUID.class, URI.class, URL.class, File.class, Locale.class, Pattern.class,
+            InetSocketAddress.class, LocalAddress.class));
+    static final Copier IMMUTABLE = (cloner, src, copied) -> src;
+    static final Copier SERIALIZE = (cloner, src, copied) -> {
+        Object dst = JdkAndJsonSerializer.DEFAULT.deserialize(JdkAndJsonSerializer.DEFAULT.serialize(src));
+        copied.put(src, dst);
+        return dst;
+    };
+
+    final Map<Class<?>, Copier> copiers = new ConcurrentHashMap<>();
+
+    @SuppressWarnings(NON_UNCHECKED)
+    public <T> T clone(T obj) {
+        if (obj == null) {
+            return null;
+        }
+        Copier copier = copier(obj.getClass());
+        if (copier == IMMUTABLE) {
+            return obj;
+        }
+        return (T) copier.copy(this, obj, new IdentityHashMap<>());
+    }
+
+    Object copy(Object src, Map<Object, Object> copied) {
+        if (src == null) {
+            return null;
+        }
+        Copier copier = copier(src.getClass());
+        if (copier == IMMUTABLE) {
+            return src;
+        }
+        Object dst = copied.get(src);
+        if (dst != null) {
+            return dst;
+        }
+        return copier.copy(this, src, copied);
+    }
+
+    Copier copier(Class<?> type) {
+        Copier copier = copiers.get(type);
+        if (copier == null) {
+            copier = copiers.computeIfAbsent(type, DeepCloner::create);
+        }
+        return copier;
+    }
+
+    @SuppressWarnings(NON_RAW_TYPES)
+    static Copier create(Class<?> type) {
+        if (isImmutable(type)) {
+            return IMMUTABLE;
+        }
+        if (type.isArray()) {
+            return type.getComponentType().isPrimitive() ? primitiveArray(type) : DeepCloner::copyArray;
+        }
+        if (type == ArrayList.class) {
+            return collection(c -> new ArrayList<>(c.size()));
+        }
+        if (type == LinkedList.class) {
+            return collection(c -> new LinkedList<>());
+        }
+        if (type == ArrayDeque.class) {
+            return collection(c -> new ArrayDeque<>(Math.max(c.size(), 1)));
+        }
+        if (type == HashSet.class) {
+            return collection(c -> new HashSet<>(capacity(c.size())));
+        }
+        if (type == LinkedHashSet.class) {
+            return collection(c -> new LinkedHashSet<>(capacity(c.size())));
+        }
+        if (type == TreeSet.class) {
+            return collection(c -> new TreeSet<>(((TreeSet) c).comparator()));
+        }
+        if (type == ConcurrentLinkedQueue.class) {
+            return collection(c -> new ConcurrentLinkedQueue<>());
+        }
+        if (type == CopyOnWriteArrayList.class) {
+            return DeepCloner::copyCopyOnWriteList;
+        }
+        if (type == HashMap.class) {
+            return map(m -> new HashMap<>(capacity(m.size())));
+        }
+        //按插入顺序，accessOrder 不可读
+        if (type == LinkedHashMap.class) {
+            return map(m -> new LinkedHashMap<>(capacity(m.size())));
+        }
+        if (type == TreeMap.class) {
+            return map(m -> new TreeMap<>(((TreeMap) m).comparator()));
+        }
+        if (type == ConcurrentHashMap.class) {
+            return map(m -> new ConcurrentHashMap<>(capacity(m.size())));
+        }
+        if (type == ConcurrentSkipListMap.class) {
+            return map(m -> new ConcurrentSkipListMap<>(((ConcurrentSkipListMap) m).comparator()));
+        }
+        if (type == EnumMap.class) {
+            //key 为枚举，复制后再覆盖 value
+            return map(m -> new EnumMap((EnumMap) m));
+        }
+        if (EnumSet.class.isAssignableFrom(type)) {
+            return (cloner, src, copied) -> put(copied, src, ((EnumSet<?>) src).clone());
+        }
+        if (type == Date.class) {
+            return (cloner, src, copied) -> put(copied, src, ((Date) src).clone());
+        }
+        if (type == FlagsEnum.class) {
+            return (cloner, src, copied) -> put(copied, src, ((FlagsEnum<?>) src).copy());
+        }
+        Copier bean = bean(type);
+        return bean != null ? bean : SERIALIZE;
+    }
+
+    static boolean isImmutable(Class<?> type) {
+        if (type.isPrimitive() || Enum.class.isAssignableFrom(type) || IMMUTABLE_TYPES.contains(type)) {
+            return true;
+        }
+        return InetAddress.class.isAssignableFrom(type)
+                || Charset.class.isAssignableFrom(type)
+                || Path.class.isAssignableFrom(type)
+                || type.getName().startsWith("java.time.");
+    }
+
+    static Copier primitiveArray(Class<?> type) {
+        if (type == byte[].class) {
+            return (cloner, src, copied) -> put(copied, src, ((byte[]) src).clone());
+        }
+        if (type == int[].class) {
+            return (cloner, src, copied) -> put(copied, src, ((int[]) src).clone());
+        }
+        if (type == long[].class) {
+            return (cloner, src, copied) -> put(copied, src, ((long[]) src).clone());
+        }
+        if (type == char[].class) {
+            return (cloner, src, copied) -> put(copied, src, ((char[]) src).clone());
+        }
+        if (type == boolean[].class) {
+            return (cloner, src, copied) -> put(copied, src, ((boolean[]) src).clone());
+        }
+        if (type == short[].class) {
+            return (cloner, src, copied) -> put(copied, src, ((short[]) src).clone());
+        }
+        if (type == float[].class) {
+            return (cloner, src, copied) -> put(copied, src, ((float[]) src).clone());
+        }
+        return (cloner, src, copied) -> put(copied, src, ((double[]) src).clone());
+    }
+
+    static Object copyArray(DeepCloner cloner, Object src, Map<Object, Object> copied) {
+        Object[] dst = ((Object[]) src).clone();
+        copied.put(src, dst);
+        for (int i = 0; i < dst.length; i++) {
+            dst[i] = cloner.copy(dst[i], copied);
+        }
+        return dst;
+    }
+
+    static Copier collection(Function<Collection<?>, Collection<Object>> factory) {
+        return (cloner, src, copied) -> {
+            Collection<?> from = (Collection<?>) src;
+            Collection<Object> dst = factory.apply(from);
+            copied.put(src, dst);
+            for (Object item : from) {
+                dst.add(cloner.copy(item, copied));
+            }
+            return dst;
+        };
+    }
+
+    static Object copyCopyOnWriteList(DeepCloner cloner, Object src, Map<Object, Object> copied) {
+        CopyOnWriteArrayList<?> from = (CopyOnWriteArrayList<?>) src;
+        CopyOnWriteArrayList<Object> dst = new CopyOnWriteArrayList<>();
+        copied.put(src, dst);
+        List<Object> items = new ArrayList<>(from.size());
+        for (Object item : from) {
+            items.add(cloner.copy(item, copied));
+        }
+        //逐个 add 每次复制数组
+        dst.addAll(items);
+        return dst;
+    }
+
+    static Copier map(Function<Map<?, ?>, Map<Object, Object>> factory) {
+        return (cloner, src, copied) -> {
+            Map<?, ?> from = (Map<?, ?>) src;
+            Map<Object, Object> dst = factory.apply(from);
+            copied.put(src, dst);
+            for (Map.Entry<?, ?> entry : from.entrySet()) {
+                dst.put(cloner.copy(entry.getKey(), copied), cloner.copy(entry.getValue(), copied));
+            }
+            return dst;
+        };
+    }
+
+    /**
+     * @return 不满足生成条件时返回 null
+     */
+    static Copier bean(Class<?> type) {
+        int mod = type.getModifiers();
+        if (!Modifier.isPublic(mod) || Modifier.isAbstract(mod) || type.isInterface() || type.isSynthetic()
+                || (type.getEnclosingClass() != null && !Modifier.isStatic(mod))
+                || Externalizable.class.isAssignableFrom(type)
+                || type.getName().startsWith("java.") || type.getName().startsWith("javax.")) {
+            return null;
+        }
+        try {
+            type.getConstructor();
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+
+        LinkedList<Class<?>> hierarchy = new LinkedList<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            if (hasSerializationHook(c)) {
+                return null;
+            }
+            hierarchy.addFirst(c);
+        }
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> c : hierarchy) {
+            if (c.getName().startsWith("java.") || c.getName().startsWith("javax.")) {
+                return null;
+            }
+            for (Field field : c.getDeclaredFields()) {
+                int fieldMod = field.getModifiers();
+                if (Modifier.isStatic(fieldMod) || Modifier.isTransient(fieldMod)) {
+                    continue;
+                }
+                if (Modifier.isFinal(fieldMod) || field.isSynthetic()) {
+                    return null;
+                }
+                fields.add(field);
+            }
+        }
+        try {
+            MethodType getterType = MethodType.methodType(Object.class, Object.class);
+            MethodType setterType = MethodType.methodType(void.class, Object.class, Object.class);
+            MethodHandle[] getters = new MethodHandle[fields.size()], setters = new MethodHandle[fields.size()];
+            for (int i = 0; i < getters.length; i++) {
+                Field field = fields.get(i);
+                MethodHandles.Lookup lookup = Reflects.privateLookup(field.getDeclaringClass());
+                getters[i] = lookup.unreflectGetter(field).asType(getterType);
+                setters[i] = lookup.unreflectSetter(field).asType(setterType);
+            }
+            return new FieldCopier(FastClass.create(type), getters, setters);
+        } catch (Throwable e) {
+            log.warn("DeepCloner generate {} error: {}", type.getName(), e.toString());
+            return null;
+        }
+    }
+
+    static boolean hasSerializationHook(Class<?> type) {
+        return declaredMethod(type, "writeObject", ObjectOutputStream.class)
+                || declaredMethod(type, "readObject", ObjectInputStream.class)
+                || declaredMethod(type, "readObjectNoData")
+                || declaredMethod(type, "writeReplace")
+                || declaredMethod(type, "readResolve");
+    }
+
+    static boolean declaredMethod(Class<?> type, String name, Class<?>... parameterTypes) {
+        try {
+            type.getDeclaredMethod(name, parameterTypes);
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    static int capacity(int size) {
+        return Math.max((int) (size / 0.75f) + 1, 16);
+    }
+
+    static Object put(Map<Object, Object> copied, Object src, Object dst) {
+        copied.put(src, dst);
+        return dst;
+    }
+}
@@ -2,6 +2,8 @@ package org.rx.core;
 
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.ClassUtils;
 import org.rx.annotation.Metadata;
@@ -9,18 +11,81 @@ import org.rx.annotation.Subscribe;
 import org.rx.bean.Tuple;
 import org.rx.diagnostic.DiagnosticMetrics;
 import org.rx.exception.InvalidException;
+import org.rx.util.Lazy;
 import org.rx.util.function.BiAction;
+import org.rx.util.function.BiFunc;
 
 import java.io.Serializable;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
 
 @Slf4j
 public class EventBus {
     public static final EventBus DEFAULT = new EventBus();
     static final int TOPIC_MAP_INITIAL_CAPACITY = 4;
+    static final int ASYNC_QUEUE_CAPACITY = 4096;
+    //cached topics per event type, publishing with more distinct topics resolves without caching
+    static final int DISPATCH_TOPICS_CAPACITY = 64;
+    //dispatch table key when publish without topic
+    static final Object ALL_TOPICS = new Object();
+    static final Subscriber[] NO_SUBSCRIBERS = {};
+    //declaringClass -> method -> listener -> invoker, kept on the class itself so an unloaded classloader is not pinned
+    static final ClassValue<Map<Method, BiFunc<Object, Consumer<Object>>>> INVOKER_FACTORIES = new ClassValue<Map<Method, BiFunc<Object, Consumer<Object>>>>() {
+        @Override
+        protected Map<Method, BiFunc<Object, Consumer<Object>>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>(TOPIC_MAP_INITIAL_CAPACITY);
+        }
+    };
+
+    @RequiredArgsConstructor
+    static final class Subscriber {
+        final Object listener;
+        final Method method;
+        final Consumer<Object> invoker;
+    }
+
+    static BiFunc<Object, Consumer<Object>> invokerFactory(Method method) {
+        return INVOKER_FACTORIES.get(method.getDeclaringClass()).computeIfAbsent(method, EventBus::compileInvoker);
+    }
+
+    @SneakyThrows
+    static BiFunc<Object, Consumer<Object>> compileInvoker(Method method) {
+        Reflects.setAccess(method);
+        boolean isStatic = Modifier.isStatic(method.getModifiers());
+        Class<?> declaringClass = method.getDeclaringClass();
+        MethodHandles.Lookup lookup = Reflects.privateLookup(declaringClass);
+        MethodHandle impl = lookup.unreflect(method);
+        try {
+            MethodHandle factory = LambdaMetafactory.metafactory(lookup, "accept",
+                    isStatic ? MethodType.methodType(Consumer.class) : MethodType.methodType(Consumer.class, declaringClass),
+                    MethodType.methodType(void.class, Object.class), impl,
+                    MethodType.methodType(void.class, method.getParameterTypes()[0])).getTarget();
+            if (isStatic) {
+                Consumer<Object> invoker = (Consumer<Object>) factory.invoke();
+                return listener -> invoker;
+            }
+            return listener -> (Consumer<Object>) factory.invoke(listener);
+        } catch (Throwable e) {
+            //e.g. lookup without private access
+            log.debug("compileInvoker {} fallback to MethodHandle", method, e);
+        }
+        if (isStatic) {
+            MethodHandle handle = impl.asType(MethodType.methodType(void.class, Object.class));
+            BiAction<Object> invoker = handle::invokeExact;
+            return listener -> invoker;
+        }
+        MethodHandle handle = impl.asType(MethodType.methodType(void.class, Object.class, Object.class));
+        return listener -> (BiAction<Object>) event -> handle.invokeExact(listener, event);
+    }
 
     static <T> Serializable getTopic(T event) {
         Serializable topic = null;
@@ -39,6 +104,23 @@ public class EventBus {
     volatile BiAction<Object> onDeadEvent = e -> log.info("The event {} had no subscribers", e);
     //eventType -> topic -> eventMethodsInListener
     final Map<Class<?>, Map<Serializable, Set<Tuple<Object, Method>>>> subscribers = new ConcurrentHashMap<>();
+    //eventType -> topic -> resolved subscribers, replaced as a whole on register/unregister
+    //only live subscribers are cached, dead events and topics beyond DISPATCH_TOPICS_CAPACITY are resolved each time
+    volatile Map<Class<?>, Map<Object, Subscriber[]>> dispatchTable = new ConcurrentHashMap<>();
+    final Lazy<ThreadPool> defaultAsyncPool = new Lazy<>(() -> ThreadPool.fixed("EventBus", Math.max(2, Constants.CPU_THREADS / 2), ASYNC_QUEUE_CAPACITY));
+    volatile ThreadPool asyncPool;
+
+    public ThreadPool getAsyncPool() {
+        ThreadPool pool = asyncPool;
+        return pool != null ? pool : defaultAsyncPool.getValue();
+    }
+
+    /**
+     * @param asyncPool bounded pool for publishAsync, null to use the default one
+     */
+    public void setAsyncPool(ThreadPool asyncPool) {
+        this.asyncPool = asyncPool;
+    }
 
     public void setOnDeadEvent(BiAction<Object> onDeadEvent) {
         if (onDeadEvent == null) {
@@ -65,6 +147,7 @@ public class EventBus {
                 topicMap.computeIfAbsent(subEntry.getKey(), k -> new CopyOnWriteArraySet<>()).addAll(subEntry.getValue());
             }
         }
+        invalidate();
     }
 
     public <T> void unregister(T subscriber) {
@@ -90,6 +173,7 @@ public class EventBus {
                 }
             }
         }
+        invalidate();
         if (!exist) {
             throw new InvalidException("missing event subscriber for an annotated method. Is {}[{}] registered?", subscriber, topic);
         }
@@ -113,13 +197,8 @@ public class EventBus {
 
     public <T, TT extends Serializable> void publish(@NonNull T event, TT topic) {
         log.debug("publish[{}] {}", topic, event);
-        Class<?> type = event.getClass();
-        List<Class<?>> eventTypes = ClassUtils.getAllSuperclasses(type);
-        eventTypes.add(type);
-
-        Linq<Class<?>> q = Linq.from(eventTypes);
-        Set<Tuple<Object, Method>> eventSubscribers = topic == null ? q.selectMany(p -> subscribers.getOrDefault(p, Collections.emptyMap()).values()).selectMany(p -> p).toSet() : q.selectMany(p -> subscribers.getOrDefault(p, Collections.emptyMap()).getOrDefault(topic, Collections.emptySet())).toSet();
-        if (eventSubscribers.isEmpty()) {
+        Subscriber[] eventSubscribers = resolve(event.getClass(), topic);
+        if (eventSubscribers.length == 0) {
             if (DiagnosticMetrics.isEnabled()) {
                 DiagnosticMetrics.record(Constants.MetricName.DEAD_EVENT.name(), 1D, "event=" + event + ",topic=" + topic);
             }
@@ -127,8 +206,89 @@ public class EventBus {
             return;
         }
 
-        Extends.eachQuietly(eventSubscribers, p -> Reflects.invokeMethod(p.right, p.left, event));
+        for (Subscriber subscriber : eventSubscribers) {
+            try {
+                subscriber.invoker.accept(event);
+            } catch (Throwable e) {
+                log.error("each", e);
+            }
+            if (!ThreadPool.continueFlag(true)) {
+                break;
+            }
+        }
+    }
+
+    public <T> CompletableFuture<Void> publishAsync(T event) {
+        return publishAsync(event, getTopic(event));
+    }
+
+    public <T, TT extends Serializable> CompletableFuture<Void> publishAsync(@NonNull T event, TT topic) {
+        return getAsyncPool().runAsync(() -> publish(event, topic));
     }
 
+    void invalidate() {
+        dispatchTable = new ConcurrentHashMap<>();
+    }
+
+    Subscriber[] resolve(Class<?> type, Serializable topic) {
+        //read the table before subscribers, a concurrent register replaces it after its update
+        Map<Class<?>, Map<Object, Subscriber[]>> table = dispatchTable;
+        Map<Object, Subscriber[]> topicTable = table.get(type);
+        Object key = topic == null ? ALL_TOPICS : topic;
+        Subscriber[] eventSubscribers;
+        if (topicTable != null && (eventSubscribers = topicTable.get(key)) != null) {
+            return eventSubscribers;
+        }
+
+        eventSubscribers = build(type, topic);
+        if (eventSubscribers.length == 0) {
+            return eventSubscribers;
+        }
+        if (topicTable == null) {
+            topicTable = table.computeIfAbsent(type, k -> new ConcurrentHashMap<>(TOPIC_MAP_INITIAL_CAPACITY));
+        }
+        if (topicTable.size() < DISPATCH_TOPICS_CAPACITY) {
+            topicTable.putIfAbsent(key, eventSubscribers);
+        }
+        return eventSubscribers;
+    }
+
+    Subscriber[] build(Class<?> type, Serializable topic) {
+        List<Class<?>> eventTypes = ClassUtils.getAllSuperclasses(type);
+        eventTypes.add(type);
+
+        Set<Tuple<Object, Method>> eventSubscribers = new LinkedHashSet<>();
+        for (Class<?> eventType : eventTypes) {
+            Map<Serializable, Set<Tuple<Object, Method>>> topicMap = subscribers.get(eventType);
+            if (topicMap == null) {
+                continue;
+            }
+            if (topic == null) {
+                for (Set<Tuple<Object, Method>> topicSubscribers : topicMap.values()) {
+                    eventSubscribers.addAll(topicSubscribers);
+                }
+            } else {
+                eventSubscribers.addAll(topicMap.getOrDefault(topic, Collections.emptySet()));
+            }
+        }
+        if (eventSubscribers.isEmpty()) {
+            return NO_SUBSCRIBERS;
+        }
+
+        Subscriber[] result = new Subscriber[eventSubscribers.size()];
+        int i = 0;
+        for (Tuple<Object, Method> p : eventSubscribers) {
+            Consumer<Object> invoker;
+            try {
+                invoker = invokerFactory(p.right).apply(p.left);
+            } catch (Throwable e) {
+                //e.g. instance method registered by class, keep the reflection error on publish
+                log.debug("build invoker {} fail", p.right, e);
+                invoker = (BiAction<Object>) event -> Reflects.invokeMethod(p.right, p.left, event);
+            }
+            result[i++] = new Subscriber(p.left, p.right, invoker);
+        }
+        return result;
+    }
 
 }
@@ -31,12 +31,13 @@ import static org.rx.core.Extends.*;
 /**
  * https://msdn.microsoft.com/en-us/library/bb738550(v=vs.110).aspx
  * Eager query wrapper for reusable enumeration, not a lazy Stream replacement.
+ * Call {@link #lazy()} to fuse the following operators into one pull pipeline, which runs on terminal operations.
  */
 @Slf4j
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
 public final class Linq<T> implements Iterable<T>, Serializable {
     private static final long serialVersionUID = -7167070585936243198L;
-    static final Linq EMPTY = new Linq<>(Collections.emptyList(), false);
+    static final Linq EMPTY = new Linq<>(Collections.emptyList(), false, false);
 
     //region staticMembers
     public static boolean tryAsIterableType(Class<?> type) {
@@ -115,13 +116,13 @@ public final class Linq<T> implements Iterable<T>, Serializable {
         }
         if (iterable instanceof Linq) {
             Linq<T> linq = (Linq<T>) iterable;
-            return linq.parallel == isParallel ? linq : new Linq<>(linq.data, isParallel);
+            return linq.parallel == isParallel ? linq : new Linq<>(linq.data, isParallel, linq.lazy);
         }
         if (iterable instanceof Collection) {
-            return new Linq<>(iterable, isParallel);
+            return new Linq<>(iterable, isParallel, false);
         }
         try {
-            return new Linq<>(snapshot(iterable), isParallel);
+            return new Linq<>(snapshot(iterable), isParallel, false);
         } finally {
             if (iterable instanceof AutoCloseable) {
                 quietly(((AutoCloseable) iterable)::close);
@@ -133,15 +134,28 @@ public final class Linq<T> implements Iterable<T>, Serializable {
     //region Member
     private final Iterable<T> data;
     private final boolean parallel;
+    private final boolean lazy;
 
     private static int capacity(int size) {
         return size <= 0 ? 16 : Math.max((int) (size / 0.75F) + 1, 16);
     }
 
     public Stream<T> stream() {
+        if (data instanceof Pipeline) {
+            Stream<T> stream = ((Pipeline<T>) data).open();
+            return parallel ? stream.parallel() : stream;
+        }
         return StreamSupport.stream(data.spliterator(), parallel);
     }
 
+    public Linq<T> lazy() {
+        return lazy ? this : new Linq<>(data, parallel, true);
+    }
+
+    public Linq<T> eager() {
+        return lazy ? new Linq<>(data, parallel, false) : this;
+    }
+
     private <TR> List<TR> newList() {
         Collection<T> ts = asCollection();
         int count = ts != null ? ts.size() : 0;
@@ -188,7 +202,31 @@ public final class Linq<T> implements Iterable<T>, Serializable {
     }
 
     private <TR> Linq<TR> me(Iterable<TR> set) {
-        return from(set, parallel);
+        return lazy ? new Linq<>(set, parallel, true) : from(set, parallel);
+    }
+
+    private <TR> Linq<TR> defer(Func<Stream<TR>> pipeline) {
+        return new Linq<>(new Pipeline<>(pipeline), parallel, true);
+    }
+
+    //re-iterable, every pass opens a new stream from the source
+    @AllArgsConstructor
+    private static final class Pipeline<T> implements Iterable<T> {
+        private final Func<Stream<T>> factory;
+
+        Stream<T> open() {
+            return factory.get();
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return open().iterator();
+        }
+
+        @Override
+        public Spliterator<T> spliterator() {
+            return open().spliterator();
+        }
     }
 
     private <TR> Linq<TR> me(Stream<TR> stream) {
@@ -296,14 +334,20 @@ public final class Linq<T> implements Iterable<T>, Serializable {
         map.put(key, getCount(map, key) + 1);
     }
 
-    @SneakyThrows
-    private Linq<T> me(EachFunc<T> func, String prevMethod) {
+    //funcFactory is invoked per pass, so the lazy pipeline can be iterated again
+    private Linq<T> me(Func<EachFunc<T>> funcFactory, String prevMethod) {
+        if (lazy) {
+            return defer(() -> each(funcFactory.get()));
+        }
         if (parallel) {
             log.warn("Not support parallel {}", prevMethod);
         }
+        return me(each(funcFactory.get()));
+    }
 
+    private Stream<T> each(EachFunc<T> func) {
         Spliterator<T> spliterator = data.spliterator();
-        Stream<T> r = StreamSupport.stream(new Spliterators.AbstractSpliterator<T>(spliterator.estimateSize(), spliterator.characteristics()) {
+        return StreamSupport.stream(new Spliterators.AbstractSpliterator<T>(spliterator.estimateSize(), spliterator.characteristics()) {
             final AtomicBoolean breaker = new AtomicBoolean();
             final AtomicInteger counter = new AtomicInteger();
 
@@ -320,7 +364,6 @@ public final class Linq<T> implements Iterable<T>, Serializable {
                 }) && !breaker.get();
             }
         }, parallel);
-        return me(r);
     }
 
     @FunctionalInterface
@@ -331,6 +374,90 @@ public final class Linq<T> implements Iterable<T>, Serializable {
 
         int each(T item, int index);
     }
+
+    @FunctionalInterface
+    interface JoinEmitter<T, TI, TR> {
+        //matches is null when the outer item has no equal key
+        void emit(T item, List<TI> matches, Consumer<TR> output);
+    }
+
+    //null keys never match, same as the sql equi-join
+    private static <TK, TV> Map<TK, List<TV>> toLookup(Iterable<TV> items, BiFunc<TV, TK> keySelector, int count) {
+        Map<TK, List<TV>> lookup = new HashMap<>(capacity(count));
+        for (TV item : items) {
+            TK key = keySelector.apply(item);
+            if (key == null) {
+                continue;
+            }
+            List<TV> group = lookup.get(key);
+            if (group == null) {
+                lookup.put(key, group = new ArrayList<>(2));
+            }
+            group.add(item);
+        }
+        return lookup;
+    }
+
+    private static <TK, TV> List<TV> probe(Map<TK, List<TV>> lookup, TK key) {
+        return key == null ? null : lookup.get(key);
+    }
+
+    @SuppressWarnings(NON_UNCHECKED)
+    private <TI, TK, TR> Linq<TR> hashJoin(Iterable<TI> inner, BiFunc<T, TK> outerKeySelector, BiFunc<TI, TK> innerKeySelector, JoinEmitter<T, TI, TR> emitter) {
+        List<TI> right = snapshot(inner);
+        if (parallel) {
+            //the hash table is read-only after build, partitions of the probe side share it
+            Map<TK, List<TI>> lookup = toLookup(right, innerKeySelector, right.size());
+            return me(stream().flatMap(p -> {
+                List<TR> items = new ArrayList<>(2);
+                emitter.emit(p, probe(lookup, outerKeySelector.apply(p)), items::add);
+                return items.stream();
+            }));
+        }
+
+        List<TR> result = newList();
+        Consumer<TR> output = result::add;
+        int leftSize = sizeHint();
+        if (leftSize > 0 && leftSize < right.size()) {
+            //build on the smaller outer side, then emit in outer order
+            List<T> left = snapshot(data);
+            Map<TK, List<Integer>> lookup = new HashMap<>(capacity(left.size()));
+            for (int i = 0; i < left.size(); i++) {
+                TK key = outerKeySelector.apply(left.get(i));
+                if (key == null) {
+                    continue;
+                }
+                List<Integer> group = lookup.get(key);
+                if (group == null) {
+                    lookup.put(key, group = new ArrayList<>(2));
+                }
+                group.add(i);
+            }
+            List<TI>[] matches = new List[left.size()];
+            for (TI rightItem : right) {
+                List<Integer> group = probe(lookup, innerKeySelector.apply(rightItem));
+                if (group == null) {
+                    continue;
+                }
+                for (int i : group) {
+                    if (matches[i] == null) {
+                        matches[i] = new ArrayList<>(2);
+                    }
+                    matches[i].add(rightItem);
+                }
+            }
+            for (int i = 0; i < matches.length; i++) {
+                emitter.emit(left.get(i), matches[i], output);
+            }
+            return me(result);
+        }
+
+        Map<TK, List<TI>> lookup = toLookup(right, innerKeySelector, right.size());
+        for (T item : data) {
+            emitter.emit(item, probe(lookup, outerKeySelector.apply(item)), output);
+        }
+        return me(result);
+    }
     //endregion
 
     @Override
@@ -340,7 +467,7 @@ public final class Linq<T> implements Iterable<T>, Serializable {
 
     @Override
     public void forEach(Consumer<? super T> action) {
-        if (parallel) {
+        if (parallel || lazy) {
             stream().forEach(action);
             return;
         }
@@ -350,7 +477,7 @@ public final class Linq<T> implements Iterable<T>, Serializable {
     }
 
     public void forEachOrdered(Consumer<? super T> action) {
-        if (parallel) {
+        if (parallel || lazy) {
             stream().forEachOrdered(action);
             return;
         }
@@ -360,6 +487,9 @@ public final class Linq<T> implements Iterable<T>, Serializable {
     }
 
     public <TR> Linq<TR> select(BiFunc<T, TR> selector) {
+        if (lazy) {
+            return defer(() -> stream().map(selector));
+        }
         if (parallel) {
             return me(stream().map(selector));
         }
@@ -371,6 +501,12 @@ public final class Linq<T> implements Iterable<T>, Serializable {
     }
 
     public <TR> Linq<TR> select(BiFuncWithIndex<T, TR> selector) {
+        if (lazy) {
+            return defer(() -> {
+                AtomicInteger counter = new AtomicInteger();
+                return stream().map(p -> selector.apply(p, counter.getAndIncrement()));
+            });
+        }
         if (parallel) {
             AtomicInteger counter = new AtomicInteger();
             return me(stream().map(p -> selector.apply(p, counter.getAndIncrement())));
@@ -384,6 +520,9 @@ public final class Linq<T> implements Iterable<T>, Serializable {
     }
 
     public <TR> Linq<TR> selectMany(BiFunc<T, Iterable<TR>> selector) {
+        if (lazy) {
+            return defer(() -> stream().flatMap(p -> streamOf(selector.apply(p))));
+        }
         if (parallel) {
             return me(stream().flatMap(p -> streamOf(selector.apply(p))));
         }
@@ -397,6 +536,12 @@ public final class Linq<T> implements Iterable<T>, Serializable {
     }
 
     public <TR> Linq<TR> selectMany(BiFuncWithIndex<T, Iterable<TR>> selector) {
+        if (lazy) {
+            return defer(() -> {
+                AtomicInteger counter = new AtomicInteger();
+                return stream().flatMap(p -> streamOf(selector.apply(p, counter.getAndIncrement())));
+            });
+        }
         if (parallel) {
             AtomicInteger counter = new AtomicInteger();
             return me(stream().flatMap(p -> streamOf(selector.apply(p, counter.getAndIncrement()))));
@@ -412,6 +557,9 @@ public final class Linq<T> implements Iterable<T>, Serializable {
     }
 
     public Linq<T> where(PredicateFunc<T> predicate) {
+        if (lazy) {
+            return defer(() -> stream().filter(predicate));
+        }
         if (parallel) {
             return me(stream().filter(predicate));
         }
@@ -425,6 +573,12 @@ public final class Linq<T> implements Iterable<T>, Serializable {
     }
 
     public Linq<T> where(PredicateFuncWithIndex<T> predicate) {
+        if (lazy) {
+            return defer(() -> {
+                AtomicInteger counter = new AtomicInteger();
+                return stream().filter(p -> predicate.test(p, counter.getAndIncrement()));
+            });
+        }
         if (parallel) {
             AtomicInteger counter = new AtomicInteger();
             return me(stream().filter(p -> predicate.test(p, counter.getAndIncrement())));
@@ -440,6 +594,9 @@ public final class Linq<T> implements Iterable<T>, Serializable {
     }
 
     public <TI, TR> Linq<TR> join(Iterable<TI> inner, BiPredicate<T, TI> keySelector, TripleFunc<T, TI, TR> resultSelector) {
+        if (lazy) {
+            return defer(() -> eager().join(inner, keySelector, resultSelector).stream());
+        }
         List<TI> right = snapshot(inner);
         if (parallel) {
             return me(stream().flatMap(p -> right.stream().filter(p2 -> keySelector.test(p, p2)).map(p3 -> resultSelector.apply(p, p3))));
@@ -456,6 +613,9 @@ public final class Linq<T> implements Iterable<T>, Serializable {
     }
 
     public <TI, TR> Linq<TR> join(BiFunc<T, TI> innerSelector, BiPredicate<T, TI> keySelector, TripleFunc<T, TI, TR> resultSelector) {
+        if (lazy) {
+            return defer(() -> eager().join(innerSelector, keySelector, resultSelector).stream());
+        }
         List<TI> inner = new ArrayList<>(capacity(sizeHint()));
         for (T item : data) {
             inner.add(innerSelector.apply(item));
@@ -464,6 +624,9 @@ public final class Linq<T> implements Iterable<T>, Serializable {
     }
 
     public <TI, TR> Linq<TR> joinMany(BiFunc<T, Iterable<TI>> innerSelector, BiPredicate<T, TI> keySelector, TripleFunc<T, TI, TR> resultSelector) {
+        if (lazy) {
+            return defer(() -> eager().joinMany(innerSelector, keySelector, resultSelector).stream());
+        }
         List<TI> inner = new ArrayList<>();
         for (T item : data) {
             for (TI innerItem : innerSelector.apply(item)) {
@@ -474,6 +637,9 @@ public final class Linq<T> implements Iterable<T>, Serializable {
     }
 
     public <TI, TR> Linq<TR> leftJoin(Iterable<TI> right, BiPredicate<T, TI> keySelector, TripleFunc<T, TI, TR> resultSelector) {
+        if (lazy) {
+            return defer(() -> eager().leftJoin(right, keySelector, resultSelector).stream());
+        }
         List<TI> rightItems = snapshot(right);
         if (parallel) {
             return me(stream().flatMap(p -> {
@@ -506,6 +672,9 @@ public final class Linq<T> implements Iterable<T>, Serializable {
     }
 
     public <TI, TR> Linq<TR> leftJoin(BiFunc<T, TI> innerSelector, BiPredicate<T, TI> keySelector, TripleFunc<T, TI, TR> resultSelector) {
+        if (lazy) {
+            return defer(() -> eager().leftJoin(innerSelector, keySelector, resultSelector).stream());
+        }
         List<TI> inner = new ArrayList<>(capacity(sizeHint()));
         for (T item : data) {
             inner.add(innerSelector.apply(item));
@@ -514,6 +683,9 @@ public final class Linq<T> implements Iterable<T>, Serializable {
     }
 
     public <TI, TR> Linq<TR> leftJoinMany(BiFunc<T, Iterable<TI>> innerSelector, BiPredicate<T, TI> keySelector, TripleFunc<T, TI, TR> resultSelector) {
+        if (lazy) {
+            return defer(() -> eager().leftJoinMany(innerSelector, keySelector, resultSelector).stream());
+        }
         List<TI> inner = new ArrayList<>();
         for (T item : data) {
             for (TI innerItem : innerSelector.apply(item)) {
@@ -523,6 +695,43 @@ public final class Linq<T> implements Iterable<T>, Serializable {
         return leftJoin(inner, keySelector, resultSelector);
     }
 
+    public <TI, TK, TR> Linq<TR> join(Iterable<TI> inner, BiFunc<T, TK> outerKeySelector, BiFunc<TI, TK> innerKeySelector, TripleFunc<T, TI, TR> resultSelector) {
+        if (lazy) {
+            return defer(() -> eager().join(inner, outerKeySelector, innerKeySelector, resultSelector).stream());
+        }
+        return hashJoin(inner, outerKeySelector, innerKeySelector, (item, matches, output) -> {
+            if (matches == null) {
+                return;
+            }
+            for (TI rightItem : matches) {
+                output.accept(resultSelector.apply(item, rightItem));
+            }
+        });
+    }
+
+    public <TI, TK, TR> Linq<TR> leftJoin(Iterable<TI> inner, BiFunc<T, TK> outerKeySelector, BiFunc<TI, TK> innerKeySelector, TripleFunc<T, TI, TR> resultSelector) {
+        if (lazy) {
+            return defer(() -> eager().leftJoin(inner, outerKeySelector, innerKeySelector, resultSelector).stream());
+        }
+        return hashJoin(inner, outerKeySelector, innerKeySelector, (item, matches, output) -> {
+            if (matches == null) {
+                output.accept(resultSelector.apply(item, null));
+                return;
+            }
+            for (TI rightItem : matches) {
+                output.accept(resultSelector.apply(item, rightItem));
+            }
+        });
+    }
+
+    public <TI, TK, TR> Linq<TR> groupJoin(Iterable<TI> inner, BiFunc<T, TK> outerKeySelector, BiFunc<TI, TK> innerKeySelector, TripleFunc<T, Linq<TI>, TR> resultSelector) {
+        if (lazy) {
+            return defer(() -> eager().groupJoin(inner, outerKeySelector, innerKeySelector, resultSelector).stream());
+        }
+        return hashJoin(inner, outerKeySelector, innerKeySelector, (item, matches, output) ->
+                output.accept(resultSelector.apply(item, matches == null ? empty() : from(matches))));
+    }
+
     public boolean all(PredicateFunc<T> predicate) {
         if (parallel) {
             return stream().allMatch(predicate);
@@ -561,6 +770,9 @@ public final class Linq<T> implements Iterable<T>, Serializable {
     }
 
     public Linq<T> concat(Iterable<T> set) {
+        if (lazy) {
+            return defer(() -> Stream.concat(stream(), streamOf(set)));
+        }
         if (!iterator().hasNext()) {
             return me(snapshot(set));
         }
@@ -575,6 +787,9 @@ public final class Linq<T> implements Iterable<T>, Serializable {
     }
 
     public Linq<T> distinct() {
+        if (lazy) {
+            return defer(() -> stream().distinct());
+        }
         if (!parallel && data instanceof Set) {
             return this;
         }
@@ -586,6 +801,9 @@ public final class Linq<T> implements Iterable<T>, Serializable {
     }
 
     public Linq<T> except(Iterable<T> set) {
+        if (lazy) {
+            return defer(() -> eager().except(set).stream());
+        }
         Set<T> excluded = new HashSet<>(snapshot(set));
         List<T> result = newList();
         for (T item : data) {
@@ -597,6 +815,9 @@ public final class Linq<T> implements Iterable<T>, Serializable {
     }
 
     public Linq<T> intersection(Iterable<T> set) {
+        if (lazy) {
+            return defer(() -> eager().intersection(set).stream());
+        }
         Set<T> included = new HashSet<>(snapshot(set));
         List<T> result = newList();
         for (T item : data) {
@@ -608,6 +829,9 @@ public final class Linq<T> implements Iterable<T>, Serializable {
     }
 
     public Linq<T> difference(Iterable<T> set) {
+        if (lazy) {
+            return defer(() -> eager().difference(set).stream());
+        }
         List<T> right = snapshot(set);
         Map<T, Integer> rightCounts = new LinkedHashMap<>(capacity(right.size()));
         for (T item : right) {
@@ -635,6 +859,9 @@ public final class Linq<T> implements Iterable<T>, Serializable {
     }
 
     public Linq<T> union(Iterable<T> set) {
+        if (lazy) {
+            return defer(() -> eager().union(set).stream());
+        }
         List<T> right = snapshot(set);
         Map<T, Integer> rightCounts = new LinkedHashMap<>(capacity(right.size()));
         for (T item : right) {
@@ -662,6 +889,9 @@ public final class Linq<T> implements Iterable<T>, Serializable {
 
     //ListUtils.partition()
     public Linq<List<T>> partition(int size) {
+        if (lazy) {
+            return defer(() -> eager().partition(size).stream());
+        }
         if (size <= 0) {
             throw new IllegalArgumentException("size");
         }
@@ -677,12 +907,18 @@ public final class Linq<T> implements Iterable<T>, Serializable {
     }
 
     public Linq<T> orderByRand() {
+        if (lazy) {
+            return defer(() -> eager().orderByRand().stream());
+        }
         List<T> result = new ArrayList<>(snapshot(data));
         Collections.shuffle(result, ThreadLocalRandom.current());
         return me(result);
     }
 
     public <TK> Linq<T> orderBy(BiFunc<T, TK> keySelector) {
+        if (lazy) {
+            return defer(() -> eager().orderBy(keySelector).stream());
+        }
         List<SortEntry<T, TK>> entries = new ArrayList<>(capacity(sizeHint()));
         for (T item : data) {
             entries.add(new SortEntry<>(item, keySelector.apply(item)));
@@ -701,6 +937,9 @@ public final class Linq<T> implements Iterable<T>, Serializable {
     }
 
     public <TK> Linq<T> orderByDescending(BiFunc<T, TK> keySelector) {
+        if (lazy) {
+            return defer(() -> eager().orderByDescending(keySelector).stream());
+        }
         List<SortEntry<T, TK>> entries = new ArrayList<>(capacity(sizeHint()));
         for (T item : data) {
             entries.add(new SortEntry<>(item, keySelector.apply(item)));
@@ -714,6 +953,9 @@ public final class Linq<T> implements Iterable<T>, Serializable {
     }
 
     public Linq<T> orderByMany(BiFunc<T, List<Object>> keySelector) {
+        if (lazy) {
+            return defer(() -> eager().orderByMany(keySelector).stream());
+        }
         List<SortEntry<T, List<Object>>> entries = new ArrayList<>(capacity(sizeHint()));
         for (T item : data) {
             entries.add(new SortEntry<>(item, keySelector.apply(item)));
@@ -732,6 +974,9 @@ public final class Linq<T> implements Iterable<T>, Serializable {
     }
 
     public Linq<T> orderByDescendingMany(BiFunc<T, List<Object>> keySelector) {
+        if (lazy) {
+            return defer(() -> eager().orderByDescendingMany(keySelector).stream());
+        }
         List<SortEntry<T, List<Object>>> entries = new ArrayList<>(capacity(sizeHint()));
         for (T item : data) {
             entries.add(new SortEntry<>(item, keySelector.apply(item)));
@@ -745,6 +990,9 @@ public final class Linq<T> implements Iterable<T>, Serializable {
     }
 
     public Linq<T> reverse() {
+        if (lazy) {
+            return defer(() -> eager().reverse().stream());
+        }
         List<T> list = newList(sizeHint());
         for (T item : data) {
             list.add(item);
@@ -754,6 +1002,9 @@ public final class Linq<T> implements Iterable<T>, Serializable {
     }
 
     public <TK, TR> Linq<TR> groupBy(BiFunc<T, TK> keySelector, TripleFunc<TK, Linq<T>, TR> resultSelector) {
+        if (lazy) {
+            return defer(() -> eager().groupBy(keySelector, resultSelector).stream());
+        }
         Map<TK, List<T>> map = newMap();
         for (T item : data) {
             TK key = keySelector.apply(item);
@@ -790,6 +1041,9 @@ public final class Linq<T> implements Iterable<T>, Serializable {
     }
 
     public <TR> Linq<TR> groupByMany(BiFunc<T, List<Object>> keySelector, TripleFunc<List<Object>, Linq<T>, TR> resultSelector) {
+        if (lazy) {
+            return defer(() -> eager().groupByMany(keySelector, resultSelector).stream());
+        }
         Map<ManyKey, List<T>> map = newMap();
         for (T item : data) {
             ManyKey key = new ManyKey(keySelector.apply(item));
@@ -826,7 +1080,7 @@ public final class Linq<T> implements Iterable<T>, Serializable {
         if (ts != null) {
             return ts.size();
         }
-        if (parallel) {
+        if (parallel || lazy) {
             return (int) stream().count();
         }
         int count = 0;
@@ -1144,6 +1398,9 @@ public final class Linq<T> implements Iterable<T>, Serializable {
         if (count < 0) {
             throw new IllegalArgumentException("count");
         }
+        if (lazy) {
+            return defer(() -> stream().skip(count));
+        }
         if (parallel) {
             return me(stream().skip(count));
         }
@@ -1162,18 +1419,20 @@ public final class Linq<T> implements Iterable<T>, Serializable {
     }
 
     public Linq<T> skipWhile(PredicateFuncWithIndex<T> predicate) {
-        AtomicBoolean doAccept = new AtomicBoolean();
-        return me((p, i) -> {
-            int flags = EachFunc.NONE;
-            if (doAccept.get()) {
-                flags |= EachFunc.ACCEPT;
+        return me(() -> {
+            AtomicBoolean doAccept = new AtomicBoolean();
+            return (p, i) -> {
+                int flags = EachFunc.NONE;
+                if (doAccept.get()) {
+                    flags |= EachFunc.ACCEPT;
+                    return flags;
+                }
+                if (!predicate.test(p, i)) {
+                    doAccept.set(true);
+                    flags |= EachFunc.ACCEPT;
+                }
                 return flags;
-            }
-            if (!predicate.test(p, i)) {
-                doAccept.set(true);
-                flags |= EachFunc.ACCEPT;
-            }
-            return flags;
+            };
         }, "skipWhile");
     }
 
@@ -1181,6 +1440,9 @@ public final class Linq<T> implements Iterable<T>, Serializable {
         if (count < 0) {
             throw new IllegalArgumentException("count");
         }
+        if (lazy) {
+            return defer(() -> stream().limit(count));
+        }
         if (parallel) {
             return me(stream().limit(count));
         }
@@ -1203,7 +1465,7 @@ public final class Linq<T> implements Iterable<T>, Serializable {
     }
 
     public Linq<T> takeWhile(PredicateFuncWithIndex<T> predicate) {
-        return me((p, i) -> {
+        return me(() -> (p, i) -> {
             int flags = EachFunc.NONE;
             if (!predicate.test(p, i)) {
                 flags |= EachFunc.BREAK;
@@ -1275,6 +1537,10 @@ public final class Linq<T> implements Iterable<T>, Serializable {
         if (!parallel && data instanceof List) {
             return (List<T>) data;
         }
+        if (lazy) {
+            //push through the fused pipeline instead of pulling by iterator
+            return stream().collect(Collectors.toList());
+        }
         List<T> result = newList();
         for (T item : data) {
             result.add(item);
@@ -1320,11 +1586,11 @@ public final class Linq<T> implements Iterable<T>, Serializable {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Linq<?> linq = (Linq<?>) o;
-        return parallel == linq.parallel && Objects.equals(data, linq.data);
+        return parallel == linq.parallel && lazy == linq.lazy && Objects.equals(data, linq.data);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(data, parallel);
+        return Objects.hash(data, parallel, lazy);
     }
 }
@@ -457,20 +457,22 @@ public class Reflects extends ClassUtils {
         require(method, method.isDefault());
 
         Class<?> declaringClass = method.getDeclaringClass();
-        MethodHandle methodHandle;
-        if (privateLookupInMethod != null) {
-            MethodHandles.Lookup lookup = (MethodHandles.Lookup) privateLookupInMethod.invoke(null, declaringClass, MethodHandles.lookup());
-            methodHandle = lookup.unreflectSpecial(method, declaringClass);
-        } else if (lookupConstructor != null) {
-            methodHandle = lookupConstructor.newInstance(declaringClass, LOOKUP_FLAGS)
-                    .unreflectSpecial(method, declaringClass);
-        } else {
-            throw new InvalidException("No default method lookup strategy for {}", declaringClass.getName());
-        }
+        MethodHandle methodHandle = privateLookup(declaringClass).unreflectSpecial(method, declaringClass);
         return (T) methodHandle.bindTo(instance)
                 .invokeWithArguments(args);
     }
 
+    @SneakyThrows
+    static MethodHandles.Lookup privateLookup(Class<?> type) {
+        if (privateLookupInMethod != null) {
+            return (MethodHandles.Lookup) privateLookupInMethod.invoke(null, type, MethodHandles.lookup());
+        }
+        if (lookupConstructor != null) {
+            return lookupConstructor.newInstance(type, LOOKUP_FLAGS);
+        }
+        throw new InvalidException("No private lookup strategy for {}", type.getName());
+    }
+
     public static boolean invokeCloseMethod(Method method, Object instance) {
         if (!isCloseMethod(method)) {
             return false;
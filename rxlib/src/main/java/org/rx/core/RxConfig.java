@@ -78,6 +78,7 @@ public final class RxConfig {
         String DIAGNOSTIC_LEVEL = "app.diagnostic.level";
         String DIAGNOSTIC_RETENTION_DAYS = "app.diagnostic.retentionDays";
         String DIAGNOSTIC_SAMPLE_INTERVAL_MILLIS = "app.diagnostic.sample.intervalMillis";
+        String DIAGNOSTIC_METRIC_ROLLUP_INTERVAL_MILLIS = "app.diagnostic.metric.rollupIntervalMillis";
         String DIAGNOSTIC_RING_BUFFER_MAX_SAMPLES = "app.diagnostic.ringBuffer.maxSamples";
         String DIAGNOSTIC_H2_ENABLED = "app.diagnostic.h2.enabled";
         String DIAGNOSTIC_H2_JDBC_URL = "app.diagnostic.h2.jdbcUrl";
@@ -155,6 +156,12 @@ public final class RxConfig {
         String NET_GLOBAL_TRAFFIC_UDP_BACKPRESSURE_ENABLED = "app.net.globalTraffic.udpBackpressureEnabled";
         String NET_GLOBAL_TRAFFIC_UDP_MAX_PENDING_BYTES = "app.net.globalTraffic.udpMaxPendingBytes";
         String NET_GLOBAL_TRAFFIC_UDP_MAX_PENDING_PACKETS = "app.net.globalTraffic.udpMaxPendingPackets";
+        String NET_GLOBAL_TRAFFIC_USER_SHAPING_ENABLED = "app.net.globalTraffic.userShapingEnabled";
+        String NET_GLOBAL_TRAFFIC_USER_UPLOAD_KILOBYTES_PER_SECOND = "app.net.globalTraffic.userUploadKilobytesPerSecond";
+        String NET_GLOBAL_TRAFFIC_USER_DOWNLOAD_KILOBYTES_PER_SECOND = "app.net.globalTraffic.userDownloadKilobytesPerSecond";
+        String NET_GLOBAL_TRAFFIC_CONNECTION_UPLOAD_KILOBYTES_PER_SECOND = "app.net.globalTraffic.connectionUploadKilobytesPerSecond";
+        String NET_GLOBAL_TRAFFIC_CONNECTION_DOWNLOAD_KILOBYTES_PER_SECOND = "app.net.globalTraffic.connectionDownloadKilobytesPerSecond";
+        String NET_GLOBAL_TRAFFIC_SHAPING_BURST_MILLIS = "app.net.globalTraffic.shapingBurstMillis";
         String NET_HTTP_SERVER_PORT = "app.net.http.serverPort";
         String NET_HTTP_SERVER_TLS = "app.net.http.serverTls";
         String NET_HTTP_SERVER_CERTIFICATE_PATH = "app.net.http.serverCertificatePath";
@@ -187,6 +194,7 @@ public final class RxConfig {
         String DNS_CACHE_STORAGE = "app.net.dns.cacheStorage";
         String DNS_CACHE_MAXIMUM_SIZE = "app.net.dns.cacheMaximumSize";
         String DNS_CACHE_MAXIMUM_BYTES = "app.net.dns.cacheMaximumBytes";
+        String DNS_CACHE_WIRE_FORMAT = "app.net.dns.cacheWireFormat";
         String REST_LOG_MODE = "app.rest.logMode";
         String REST_LOG_NAME_LIST = "app.rest.logNameList";
         String REST_FORWARDS = "app.rest.forwards";
@@ -279,6 +287,10 @@ public final class RxConfig {
         DiagnosticLevel level = DiagnosticLevel.LIGHT;
         int retentionDays = 2;
         long sampleIntervalMillis = 15000L;
+        /**
+         * {@link org.rx.diagnostic.MetricRegistry} 聚合落库周期。
+         */
+        long metricRollupIntervalMillis = 10000L;
         int ringBufferMaxSamples = 4096;
 
         boolean h2Enabled = true;
@@ -349,6 +361,7 @@ public final class RxConfig {
         public void normalize() {
             retentionDays = Math.max(1, retentionDays);
             sampleIntervalMillis = positive(sampleIntervalMillis, 15000L);
+            metricRollupIntervalMillis = positive(metricRollupIntervalMillis, 10000L);
             ringBufferMaxSamples = Math.max(16, ringBufferMaxSamples);
             if (h2Settings == null) {
                 h2Settings = "";
@@ -514,6 +527,8 @@ public final class RxConfig {
         StorageMode storage = StorageMode.HYBRID;
         int maximumSize = 4096;
         long maximumBytes;
+        //新鲜命中直接复制编码后的报文并原地改写 ID/TTL，跳过 DnsResponse 构建与编码
+        boolean wireFormat = true;
 
         public boolean isResponseCacheEnabled() {
             return cacheEnabled || prefetch || serveExpired;
@@ -789,6 +804,7 @@ public final class RxConfig {
         diagnostic.level = getEnum(ConfigNames.DIAGNOSTIC_LEVEL, diagnostic.level);
         diagnostic.retentionDays = SystemPropertyUtil.getInt(ConfigNames.DIAGNOSTIC_RETENTION_DAYS, diagnostic.retentionDays);
         diagnostic.sampleIntervalMillis = SystemPropertyUtil.getLong(ConfigNames.DIAGNOSTIC_SAMPLE_INTERVAL_MILLIS, diagnostic.sampleIntervalMillis);
+        diagnostic.metricRollupIntervalMillis = SystemPropertyUtil.getLong(ConfigNames.DIAGNOSTIC_METRIC_ROLLUP_INTERVAL_MILLIS, diagnostic.metricRollupIntervalMillis);
         diagnostic.ringBufferMaxSamples = SystemPropertyUtil.getInt(ConfigNames.DIAGNOSTIC_RING_BUFFER_MAX_SAMPLES, diagnostic.ringBufferMaxSamples);
         diagnostic.h2Enabled = SystemPropertyUtil.getBoolean(ConfigNames.DIAGNOSTIC_H2_ENABLED, diagnostic.h2Enabled);
         diagnostic.h2JdbcUrl = SystemPropertyUtil.get(ConfigNames.DIAGNOSTIC_H2_JDBC_URL, diagnostic.h2JdbcUrl);
@@ -881,6 +897,18 @@ public final class RxConfig {
                 ConfigNames.NET_GLOBAL_TRAFFIC_UDP_MAX_PENDING_BYTES, net.globalTraffic.getUdpMaxPendingBytes()));
         net.globalTraffic.setUdpMaxPendingPackets(SystemPropertyUtil.getInt(
                 ConfigNames.NET_GLOBAL_TRAFFIC_UDP_MAX_PENDING_PACKETS, net.globalTraffic.getUdpMaxPendingPackets()));
+        net.globalTraffic.setUserShapingEnabled(SystemPropertyUtil.getBoolean(
+                ConfigNames.NET_GLOBAL_TRAFFIC_USER_SHAPING_ENABLED, net.globalTraffic.isUserShapingEnabled()));
+        net.globalTraffic.setUserUploadKilobytesPerSecond(SystemPropertyUtil.getLong(
+                ConfigNames.NET_GLOBAL_TRAFFIC_USER_UPLOAD_KILOBYTES_PER_SECOND, net.globalTraffic.getUserUploadKilobytesPerSecond()));
+        net.globalTraffic.setUserDownloadKilobytesPerSecond(SystemPropertyUtil.getLong(
+                ConfigNames.NET_GLOBAL_TRAFFIC_USER_DOWNLOAD_KILOBYTES_PER_SECOND, net.globalTraffic.getUserDownloadKilobytesPerSecond()));
+        net.globalTraffic.setConnectionUploadKilobytesPerSecond(SystemPropertyUtil.getLong(
+                ConfigNames.NET_GLOBAL_TRAFFIC_CONNECTION_UPLOAD_KILOBYTES_PER_SECOND, net.globalTraffic.getConnectionUploadKilobytesPerSecond()));
+        net.globalTraffic.setConnectionDownloadKilobytesPerSecond(SystemPropertyUtil.getLong(
+                ConfigNames.NET_GLOBAL_TRAFFIC_CONNECTION_DOWNLOAD_KILOBYTES_PER_SECOND, net.globalTraffic.getConnectionDownloadKilobytesPerSecond()));
+        net.globalTraffic.setShapingBurstMillis(SystemPropertyUtil.getLong(
+                ConfigNames.NET_GLOBAL_TRAFFIC_SHAPING_BURST_MILLIS, net.globalTraffic.getShapingBurstMillis()));
         net.http.serverPort = SystemPropertyUtil.getInt(ConfigNames.NET_HTTP_SERVER_PORT, net.http.serverPort);
         net.http.serverTls = SystemPropertyUtil.getBoolean(ConfigNames.NET_HTTP_SERVER_TLS, net.http.serverTls);
         net.http.serverCertificatePath = SystemPropertyUtil.get(ConfigNames.NET_HTTP_SERVER_CERTIFICATE_PATH, net.http.serverCertificatePath);
@@ -920,6 +948,7 @@ public final class RxConfig {
         net.dns.cache.storage = getEnum(ConfigNames.DNS_CACHE_STORAGE, net.dns.cache.storage);
         net.dns.cache.maximumSize = SystemPropertyUtil.getInt(ConfigNames.DNS_CACHE_MAXIMUM_SIZE, net.dns.cache.maximumSize);
         net.dns.cache.maximumBytes = SystemPropertyUtil.getLong(ConfigNames.DNS_CACHE_MAXIMUM_BYTES, net.dns.cache.maximumBytes);
+        net.dns.cache.wireFormat = SystemPropertyUtil.getBoolean(ConfigNames.DNS_CACHE_WIRE_FORMAT, net.dns.cache.wireFormat);
         net.dns.cache.normalize();
 
         rest.logMode = SystemPropertyUtil.getInt(ConfigNames.REST_LOG_MODE, rest.logMode);
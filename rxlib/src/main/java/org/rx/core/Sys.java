@@ -18,7 +18,6 @@ import org.rx.exception.FallbackException;
 import org.rx.exception.InvalidException;
 import org.rx.exception.LoggingAgent;
 import org.rx.exception.TraceHandler;
-import org.rx.io.JdkAndJsonSerializer;
 import org.rx.io.Serializer;
 import org.rx.net.AuthenticEndpoint;
 import org.rx.net.Sockets;
@@ -601,8 +600,13 @@ public final class Sys extends SystemUtils {
         return v + seconds[i];
     }
 
+    /**
+     * 见 {@link DeepCloner}，不支持生成拷贝器的类型退回 JDK/JSON 序列化。
+     * <p>
+     * 逐字段拷贝的 bean 由无参构造创建，transient 字段不拷贝，保留字段初始值；退回序列化的类型 transient 字段为默认值。
+     */
     public static <T> T deepClone(T obj) {
-        return JdkAndJsonSerializer.DEFAULT.deserialize(JdkAndJsonSerializer.DEFAULT.serialize(obj));
+        return DeepCloner.DEFAULT.clone(obj);
     }
 
     public static String fastCacheKey(String region, Object... args) {
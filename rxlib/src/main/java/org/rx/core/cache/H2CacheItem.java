@@ -71,6 +71,10 @@ public class H2CacheItem<K, V> extends CachePolicy implements Map.Entry<K, V> {
         return _key;
     }
 
+    byte[] keyBytes() {
+        return key;
+    }
+
     public void setKey(K key) {
         synchronized (this) {
             this._key = key;
@@ -9,12 +9,14 @@ import org.rx.bean.DataTable;
 import org.rx.bean.Tuple;
 import org.rx.codec.CodecUtil;
 import org.rx.core.*;
+import org.rx.diagnostic.DiagnosticMetrics;
 import org.rx.io.EntityDatabase;
 import org.rx.io.EntityQueryLambda;
 import org.rx.io.FurySerializer;
 import org.rx.io.Serializer;
 import org.rx.third.guava.AbstractSequentialIterator;
 
+import java.sql.Connection;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -32,6 +34,9 @@ public class H2StoreCache<TK, TV> implements Cache<TK, TV>, EventPublisher<H2Sto
     static final long DEFAULT_FLUSH_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
     static final long DEFAULT_RETRY_DELAY_MILLIS = 200;
     static final long DEFAULT_L1_CACHE_MAX_SIZE = 2048L;
+    static final int DEFAULT_FLUSH_BATCH_SIZE = 256;
+    static final long DEFAULT_FLUSH_BATCH_LATENCY_MILLIS = 0;
+    static final String DELETE_IF_MATCHED_SQL = "DELETE FROM %s WHERE id=? AND version<=? AND `key`=?";
     static final AtomicInteger CACHE_COUNTER = new AtomicInteger();
 
     static long furyHash(Object value) {
@@ -159,15 +164,42 @@ public class H2StoreCache<TK, TV> implements Cache<TK, TV>, EventPublisher<H2Sto
             worker.interrupt();
         }
 
+        //first key blocks, the rest are drained until the batch is full or the latency budget is spent,
+        //with zero latency only the keys already queued behind it are taken
+        void drain(List<Object> batch) throws InterruptedException {
+            batch.add(queue.take());
+            int batchSize = Math.max(1, flushBatchSize);
+            if (batchSize == 1) {
+                return;
+            }
+            queue.drainTo(batch, batchSize - batch.size());
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushBatchLatencyMillis);
+            long remaining;
+            while (batch.size() < batchSize && (remaining = deadline - System.nanoTime()) > 0) {
+                Object key;
+                try {
+                    key = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                if (key == null) {
+                    break;
+                }
+                batch.add(key);
+                queue.drainTo(batch, batchSize - batch.size());
+            }
+        }
+
         @Override
         public void run() {
+            List<Object> batch = new ArrayList<>();
             while (!stopped) {
-                Object key = null;
-                PendingOp op = null;
+                PendingOp[] ops = null;
                 try {
-                    key = queue.take();
-                    processingKeys.add(key);
-                    op = flushPendingKey(key);
+                    drain(batch);
+                    processingKeys.addAll(batch);
+                    ops = flushPendingKeys(batch);
                 } catch (InterruptedException e) {
                     if (stopped) {
                         return;
@@ -177,13 +209,15 @@ public class H2StoreCache<TK, TV> implements Cache<TK, TV>, EventPublisher<H2Sto
                 } catch (Throwable e) {
                     log.error("stripe[{}] worker error", index, e);
                 } finally {
-                    if (key != null) {
+                    for (int i = 0; i < batch.size(); i++) {
+                        Object key = batch.get(i);
                         processingKeys.remove(key);
                         queuedKeys.remove(key);
-                        if (shouldRequeue(key, op)) {
+                        if (shouldRequeue(key, ops == null ? null : ops[i])) {
                             offer(key);
                         }
                     }
+                    batch.clear();
                 }
             }
         }
@@ -340,6 +374,8 @@ public class H2StoreCache<TK, TV> implements Cache<TK, TV>, EventPublisher<H2Sto
                 return Collections.emptyList();
             }
 
+            //snapshot pending ops first, a key flushed while paging is still masked by its pending op
+            List<PendingOp> pendingOps = new ArrayList<>(pendingLatest.values());
             Map<Object, H2CacheItem> visibleByKey = new HashMap<>();
             Long cursor = null;
             int batchSize = pageBatchSize(Integer.MAX_VALUE);
@@ -365,7 +401,7 @@ public class H2StoreCache<TK, TV> implements Cache<TK, TV>, EventPublisher<H2Sto
             }
 
             long nowEpoch = epoch.get();
-            for (PendingOp op : new ArrayList<>(pendingLatest.values())) {
+            for (PendingOp op : pendingOps) {
                 if (op == null) {
                     continue;
                 }
@@ -524,6 +560,11 @@ public class H2StoreCache<TK, TV> implements Cache<TK, TV>, EventPublisher<H2Sto
     long flushTimeoutMillis = DEFAULT_FLUSH_TIMEOUT_MILLIS;
     @Setter
     long retryDelayMillis = DEFAULT_RETRY_DELAY_MILLIS;
+    @Setter
+    int flushBatchSize = DEFAULT_FLUSH_BATCH_SIZE;
+    @Setter
+    long flushBatchLatencyMillis = DEFAULT_FLUSH_BATCH_LATENCY_MILLIS;
+    volatile boolean batchWriteSupported = true;
     final EntrySetView setView = new EntrySetView();
     final MemoryCache<Object, H2CacheItem> l1Cache;
     final long l1CacheMaxSize;
@@ -1099,6 +1140,11 @@ public class H2StoreCache<TK, TV> implements Cache<TK, TV>, EventPublisher<H2Sto
             return op;
         }
 
+        onFlushed(key, op, deleteResult);
+        return op;
+    }
+
+    void onFlushed(Object key, PendingOp op, DeleteResult deleteResult) {
         if (op.type == PendingOpType.REMOVE && op.expiredEventEntry != null && deleteResult != DeleteResult.SKIPPED_NEWER) {
             publishEvent(onExpired, castEntry(op.expiredEventEntry));
         }
@@ -1112,7 +1158,129 @@ public class H2StoreCache<TK, TV> implements Cache<TK, TV>, EventPublisher<H2Sto
                 pendingLatest.remove(key, current);
             }
         }
-        return op;
+    }
+
+    PendingOp[] flushPendingKeys(List<Object> keys) {
+        int size = keys.size();
+        PendingOp[] ops = new PendingOp[size];
+        if (!batchWriteSupported) {
+            for (int i = 0; i < size; i++) {
+                ops[i] = flushPendingKey(keys.get(i));
+            }
+            return ops;
+        }
+
+        long startNanos = System.nanoTime();
+        List<Integer> candidates = new ArrayList<>(size);
+        long nowEpoch = epoch.get();
+        for (int i = 0; i < size; i++) {
+            Object key = keys.get(i);
+            PendingOp op = ops[i] = pendingLatest.get(key);
+            if (op == null) {
+                continue;
+            }
+            if (op.epoch != nowEpoch) {
+                pendingLatest.remove(key, op);
+                continue;
+            }
+            if (op.type != PendingOpType.REMOVE && op.itemSnapshot.isExpired()) {
+                scheduleExpiredRemove(key, op.itemSnapshot);
+                continue;
+            }
+            candidates.add(i);
+        }
+        if (candidates.isEmpty()) {
+            return ops;
+        }
+
+        List<PendingOp> puts = new ArrayList<>(candidates.size());
+        List<PendingOp> removes = new ArrayList<>();
+        int[] deleted = null;
+        dbLock.readLock().lock();
+        try {
+            nowEpoch = epoch.get();
+            for (int i : candidates) {
+                PendingOp op = ops[i];
+                if (op.epoch != nowEpoch) {
+                    continue;
+                }
+                PendingOp latest = pendingLatest.get(op.physicalKey);
+                if (latest != null && latest.epoch == op.epoch && latest.seq > op.seq) {
+                    continue;
+                }
+                if (op.type == PendingOpType.REMOVE) {
+                    removes.add(op);
+                } else {
+                    op.itemSnapshot.setTombstone(false);
+                    puts.add(op);
+                }
+            }
+            deleted = writeBatch(puts, removes);
+        } catch (UnsupportedOperationException e) {
+            batchWriteSupported = false;
+        } catch (Throwable e) {
+            log.warn("flush batch size={} error={}, fallback to single key", puts.size() + removes.size(), e.toString());
+        } finally {
+            dbLock.readLock().unlock();
+        }
+
+        if (deleted == null) {
+            //each key keeps its own retry schedule
+            for (int i : candidates) {
+                ops[i] = flushPendingKey(keys.get(i));
+            }
+            return ops;
+        }
+        for (PendingOp op : puts) {
+            onFlushed(op.physicalKey, op, DeleteResult.COMMITTED);
+        }
+        for (int i = 0; i < removes.size(); i++) {
+            PendingOp op = removes.get(i);
+            DeleteResult deleteResult = DeleteResult.COMMITTED;
+            if (deleted[i] == 0 && op.expiredEventEntry != null) {
+                H2CacheItem<TK, TV> item = findPersisted(op.physicalKey);
+                if (item != null && item.getVersion() > op.seq) {
+                    deleteResult = DeleteResult.SKIPPED_NEWER;
+                }
+            }
+            onFlushed(op.physicalKey, op, deleteResult);
+        }
+        recordFlushBatch(puts.size() + removes.size(), System.nanoTime() - startNanos);
+        return ops;
+    }
+
+    //one transaction, one MERGE batch and one versioned delete batch
+    int[] writeBatch(List<PendingOp> puts, List<PendingOp> removes) {
+        return db.transInvoke(Connection.TRANSACTION_READ_COMMITTED, () -> {
+            if (!puts.isEmpty()) {
+                List<H2CacheItem<Object, Object>> items = new ArrayList<>(puts.size());
+                for (PendingOp op : puts) {
+                    items.add(op.itemSnapshot);
+                }
+                db.mergeBatch(items);
+            }
+            if (removes.isEmpty()) {
+                return new int[0];
+            }
+            List<List<Object>> argsList = new ArrayList<>(removes.size());
+            for (PendingOp op : removes) {
+                List<Object> args = new ArrayList<>(3);
+                args.add(op.itemSnapshot.getId());
+                args.add(op.seq);
+                args.add(op.itemSnapshot.keyBytes());
+                argsList.add(args);
+            }
+            return db.executeBatch(String.format(DELETE_IF_MATCHED_SQL, db.tableName(H2CacheItem.class)), argsList);
+        });
+    }
+
+    void recordFlushBatch(int batchSize, long elapsedNanos) {
+        if (!DiagnosticMetrics.isEnabled()) {
+            return;
+        }
+        String tags = "cache=" + cacheId;
+        DiagnosticMetrics.record("rx.h2_cache.flush.batch.size", batchSize, tags);
+        DiagnosticMetrics.record("rx.h2_cache.flush.elapsed.millis", elapsedNanos / 1_000_000D, tags);
     }
 
     void scheduleRetry(Object key, PendingOp op, Throwable error) {
@@ -31,6 +31,10 @@ public final class DiagnosticMetrics {
                 && !Boolean.TRUE.equals(SUPPRESSED.get());
     }
 
+    /**
+     * 直接写入一行样本，不经预聚合，只用于低频事件与状态快照（连接开闭、配置变更、周期任务）；
+     * 逐包、逐请求的路径使用 {@link #counter}/{@link #gauge}/{@link #histogram} 句柄。
+     */
     public static void record(String name, double value) {
         record(name, value, null);
     }
@@ -57,6 +61,21 @@ public final class DiagnosticMetrics {
         }
     }
 
+    /**
+     * 预注册的聚合计数器，热路径持有句柄直接累加，由 {@link DiagnosticMonitor} 按区间落库。
+     */
+    public static MetricRegistry.Counter counter(String name, String tags) {
+        return MetricRegistry.DEFAULT.counter(name, tags);
+    }
+
+    public static MetricRegistry.Gauge gauge(String name, String tags) {
+        return MetricRegistry.DEFAULT.gauge(name, tags);
+    }
+
+    public static MetricRegistry.Histogram histogram(String name, String tags) {
+        return MetricRegistry.DEFAULT.histogram(name, tags);
+    }
+
     public static void setNetComponent(SocketConfig config, String component) {
         DiagnosticNetMetrics.setComponent(config, component);
     }
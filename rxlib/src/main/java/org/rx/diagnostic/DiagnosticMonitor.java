@@ -108,6 +108,32 @@ public class DiagnosticMonitor implements EventPublisher<DiagnosticMonitor>, Aut
                 }
             }
         }, 0L, config.getSampleIntervalMillis(), TimeUnit.MILLISECONDS);
+        long rollupMillis = config.getMetricRollupIntervalMillis();
+        scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                //MetricRegistry.DEFAULT 为全局，只由当前 DEFAULT 监控落库，避免多个实例瓜分区间增量
+                if (DEFAULT != DiagnosticMonitor.this) {
+                    return;
+                }
+                try {
+                    rollupMetrics();
+                } catch (Throwable e) {
+                    log.warn("diagnostic metric rollup failed", e);
+                }
+            }
+        }, rollupMillis, rollupMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 将 {@link MetricRegistry#DEFAULT} 的区间聚合写入 store。
+     */
+    public int rollupMetrics() {
+        List<DiagnosticMetric> metrics = MetricRegistry.DEFAULT.rollup(System.currentTimeMillis());
+        for (DiagnosticMetric metric : metrics) {
+            store.recordMetric(metric);
+        }
+        return metrics.size();
     }
 
     public boolean isRunning() {
@@ -237,6 +263,13 @@ public class DiagnosticMonitor implements EventPublisher<DiagnosticMonitor>, Aut
 
     @Override
     public void close() {
+        if (running.get() && DEFAULT == this) {
+            try {
+                rollupMetrics();
+            } catch (Throwable e) {
+                log.warn("diagnostic metric rollup failed", e);
+            }
+        }
         running.set(false);
         if (DEFAULT == this) {
             DEFAULT = null;
@@ -0,0 +1,310 @@
+package org.rx.diagnostic;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+
+/**
+ * 进程内预聚合指标：计数器、仪表、对数线性直方图。
+ * <p>
+ * 句柄按 name + tags 预先注册并由调用方持有，记录只是一次 LongAdder/数组原子自增，不拼接字符串也不产生对象；
+ * {@link DiagnosticMonitor} 按 metricRollupIntervalMillis 调用 {@link #rollup(long)}，每个区间每个序列只落一行聚合值。
+ */
+@Slf4j
+public final class MetricRegistry {
+    public static final MetricRegistry DEFAULT = new MetricRegistry();
+
+    static final class Key {
+        final String group;
+        final String name;
+        final String tags;
+
+        Key(String group, String name, String tags) {
+            this.group = group;
+            this.name = name;
+            this.tags = tags;
+        }
+
+        String fullName() {
+            return group == null ? name : group + "." + name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return name.equals(k.name) && Objects.equals(group, k.group) && Objects.equals(tags, k.tags);
+        }
+
+        @Override
+        public int hashCode() {
+            int h = name.hashCode();
+            h = 31 * h + (group == null ? 0 : group.hashCode());
+            return 31 * h + (tags == null ? 0 : tags.hashCode());
+        }
+    }
+
+    public abstract static class Metric {
+        final String name;
+        final String tags;
+
+        Metric(String name, String tags) {
+            this.name = name;
+            this.tags = tags;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getTags() {
+            return tags;
+        }
+
+        abstract void rollup(long timestampMillis, List<DiagnosticMetric> out);
+    }
+
+    /**
+     * 区间内累加值，落库为区间增量，无增量的区间不落库。
+     */
+    public static final class Counter extends Metric {
+        final LongAdder adder = new LongAdder();
+        long last;
+
+        Counter(String name, String tags) {
+            super(name, tags);
+        }
+
+        public void increment() {
+            adder.increment();
+        }
+
+        public void add(long delta) {
+            adder.add(delta);
+        }
+
+        public long sum() {
+            return adder.sum();
+        }
+
+        @Override
+        void rollup(long timestampMillis, List<DiagnosticMetric> out) {
+            long sum = adder.sum();
+            long delta = sum - last;
+            last = sum;
+            if (delta != 0L) {
+                out.add(new DiagnosticMetric(timestampMillis, name, delta, tags, null));
+            }
+        }
+    }
+
+    /**
+     * 最新值，未设置（NaN）时不落库。
+     */
+    public static final class Gauge extends Metric {
+        final DoubleSupplier supplier;
+        volatile double value = Double.NaN;
+
+        Gauge(String name, String tags, DoubleSupplier supplier) {
+            super(name, tags);
+            this.supplier = supplier;
+        }
+
+        public void set(double value) {
+            this.value = value;
+        }
+
+        public double get() {
+            return supplier != null ? supplier.getAsDouble() : value;
+        }
+
+        @Override
+        void rollup(long timestampMillis, List<DiagnosticMetric> out) {
+            double v = get();
+            if (!Double.isNaN(v)) {
+                out.add(new DiagnosticMetric(timestampMillis, name, v, tags, null));
+            }
+        }
+    }
+
+    /**
+     * 对数线性直方图：每个 2 的幂区间等分 {@link #SUB_BUCKETS} 个桶，相对误差不超过 1/SUB_BUCKETS，
+     * 桶数固定，覆盖 0 ~ Long.MAX_VALUE。落库 count/avg/p50/p90/p99/max，max 为所在桶上界。
+     */
+    public static final class Histogram extends Metric {
+        static final int SUB_BITS = 4;
+        static final int SUB_BUCKETS = 1 << SUB_BITS;
+        static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+        static int index(long value) {
+            if (value < SUB_BUCKETS) {
+                return value <= 0L ? 0 : (int) value;
+            }
+            int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+            return ((shift + 1) << SUB_BITS) + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+        }
+
+        static long lowerBound(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int shift = (index >>> SUB_BITS) - 1;
+            return (long) (SUB_BUCKETS + (index & (SUB_BUCKETS - 1))) << shift;
+        }
+
+        static long upperBound(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            return lowerBound(index) + (1L << ((index >>> SUB_BITS) - 1)) - 1L;
+        }
+
+        final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        final LongAdder sum = new LongAdder();
+        final long[] last = new long[BUCKETS];
+        long lastSum;
+
+        Histogram(String name, String tags) {
+            super(name, tags);
+        }
+
+        public void record(long value) {
+            buckets.incrementAndGet(index(value));
+            sum.add(value);
+        }
+
+        @Override
+        void rollup(long timestampMillis, List<DiagnosticMetric> out) {
+            long[] deltas = new long[BUCKETS];
+            long count = 0L;
+            int maxIndex = -1;
+            for (int i = 0; i < BUCKETS; i++) {
+                long v = buckets.get(i);
+                long d = v - last[i];
+                if (d != 0L) {
+                    last[i] = v;
+                    deltas[i] = d;
+                    count += d;
+                    maxIndex = i;
+                }
+            }
+            long s = sum.sum();
+            long sumDelta = s - lastSum;
+            lastSum = s;
+            if (count <= 0L) {
+                return;
+            }
+            out.add(new DiagnosticMetric(timestampMillis, name + ".count", count, tags, null));
+            out.add(new DiagnosticMetric(timestampMillis, name + ".avg", (double) sumDelta / count, tags, null));
+            out.add(new DiagnosticMetric(timestampMillis, name + ".p50", percentile(deltas, count, 0.50D), tags, null));
+            out.add(new DiagnosticMetric(timestampMillis, name + ".p90", percentile(deltas, count, 0.90D), tags, null));
+            out.add(new DiagnosticMetric(timestampMillis, name + ".p99", percentile(deltas, count, 0.99D), tags, null));
+            out.add(new DiagnosticMetric(timestampMillis, name + ".max", upperBound(maxIndex), tags, null));
+        }
+
+        static double percentile(long[] deltas, long count, double p) {
+            long rank = Math.max(1L, (long) Math.ceil(count * p));
+            long seen = 0L;
+            for (int i = 0; i < deltas.length; i++) {
+                seen += deltas[i];
+                if (seen >= rank) {
+                    //bucket midpoint
+                    return (lowerBound(i) + upperBound(i)) / 2D;
+                }
+            }
+            return 0D;
+        }
+    }
+
+    final Map<Key, Metric> metrics = new ConcurrentHashMap<>();
+    final List<Runnable> collectors = new CopyOnWriteArrayList<>();
+
+    public Counter counter(String name) {
+        return counter(null, name, null);
+    }
+
+    public Counter counter(String name, String tags) {
+        return counter(null, name, tags);
+    }
+
+    /**
+     * 按 group + "." + name 注册，查找时不拼接字符串，适合调用方只持有前缀与后缀的场景。
+     */
+    public Counter counter(String group, String name, String tags) {
+        return (Counter) register(new Key(group, name, tags), Counter.class, k -> new Counter(k.fullName(), k.tags));
+    }
+
+    public Gauge gauge(String name, String tags) {
+        return (Gauge) register(new Key(null, name, tags), Gauge.class, k -> new Gauge(k.name, k.tags, null));
+    }
+
+    public Gauge gauge(String name, String tags, DoubleSupplier supplier) {
+        return (Gauge) register(new Key(null, name, tags), Gauge.class, k -> new Gauge(k.name, k.tags, supplier));
+    }
+
+    public Histogram histogram(String name) {
+        return histogram(name, null);
+    }
+
+    public Histogram histogram(String name, String tags) {
+        return histogram(null, name, tags);
+    }
+
+    public Histogram histogram(String group, String name, String tags) {
+        return (Histogram) register(new Key(group, name, tags), Histogram.class, k -> new Histogram(k.fullName(), k.tags));
+    }
+
+    Metric register(Key key, Class<? extends Metric> type, Function<Key, Metric> factory) {
+        Metric metric = metrics.get(key);
+        if (metric == null) {
+            metric = metrics.computeIfAbsent(key, factory);
+        }
+        if (!type.isInstance(metric)) {
+            throw new IllegalArgumentException("Metric " + metric.name + " already registered as " + metric.getClass().getSimpleName());
+        }
+        return metric;
+    }
+
+    public int size() {
+        return metrics.size();
+    }
+
+    /**
+     * 每次 {@link #rollup(long)} 前调用，供按区间计算的指标（如速率）在落库前刷新 gauge。
+     */
+    public void addCollector(Runnable collector) {
+        collectors.add(collector);
+    }
+
+    /**
+     * 计算自上次调用以来的区间聚合，单线程调用。
+     */
+    public synchronized List<DiagnosticMetric> rollup(long timestampMillis) {
+        for (Runnable collector : collectors) {
+            try {
+                collector.run();
+            } catch (Throwable e) {
+                log.warn("metric collector failed", e);
+            }
+        }
+        List<DiagnosticMetric> out = new ArrayList<>(metrics.size());
+        for (Metric metric : metrics.values()) {
+            metric.rollup(timestampMillis, out);
+        }
+        return out;
+    }
+}
@@ -36,11 +36,10 @@ public final class CompositeLock {
 
     @SneakyThrows
     private <T> T lock(FileStream.Block block, boolean shared, @NonNull Func<T> fn) {
-        Lock lock = null;
+        ReadWriteLock rwLock = null;
         FileLock fLock = null;
         try {
             if (flags.has(Flags.READ_WRITE_LOCK)) {
-                ReadWriteLock rwLock;
                 synchronized (rwLocks) {
                     rwLock = rwLocks.computeIfAbsent(block, k -> {
                         ReadWriteLock t = overlaps(k.position, k.size);
@@ -51,8 +50,7 @@ public final class CompositeLock {
                     });
                 }
 //            log.info("Lock {} - {}", rwLock, block);
-                lock = shared ? rwLock.readLock() : rwLock.writeLock();
-                lock.lock();
+                lockOf(rwLock, shared).lock();
             }
 
             if (flags.has(Flags.FILE_LOCK)) {
@@ -64,12 +62,17 @@ public final class CompositeLock {
             if (fLock != null) {
                 fLock.release();
             }
-            if (lock != null) {
-                lock.unlock();
+            //unlock through rwLock, the map only keeps it weakly and a held Lock does not reference it
+            if (rwLock != null) {
+                lockOf(rwLock, shared).unlock();
             }
         }
     }
 
+    private static Lock lockOf(ReadWriteLock rwLock, boolean shared) {
+        return shared ? rwLock.readLock() : rwLock.writeLock();
+    }
+
     private ReadWriteLock overlaps(long position, long size) {
         for (Map.Entry<FileStream.Block, ReadWriteLock> entry : rwLocks.entrySet()) {
             FileStream.Block block = entry.getKey();
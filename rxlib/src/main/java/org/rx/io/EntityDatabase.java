@@ -61,6 +61,11 @@ public interface EntityDatabase extends AutoCloseable {
         throw new UnsupportedOperationException("Batch JDBC execution is not supported");
     }
 
+    // 按映射列整行 MERGE，多实体合并为一次 JDBC batch；null 列也会写入，不同于 save 的局部更新。
+    default <T> int[] mergeBatch(List<T> entities) {
+        throw new UnsupportedOperationException("Batch JDBC execution is not supported");
+    }
+
     // 统一收口索引创建：定义相同跳过，定义不同由实现负责重建。
     default void ensureIndex(String tableName, String indexName, boolean unique, String... columnNames) {
         throw new UnsupportedOperationException("Low-level JDBC index management is not supported");
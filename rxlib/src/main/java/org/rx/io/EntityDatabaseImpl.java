@@ -259,12 +259,7 @@ public class EntityDatabaseImpl extends Disposable implements EntityDatabase {
     int slowSqlElapsed = 200;
     @Setter
     boolean emitSlowSqlWarn = true;
-    final AtomicLong diagnosticSqlCount = new AtomicLong();
-    final AtomicLong diagnosticSlowSqlCount = new AtomicLong();
     final AtomicLong diagnosticPoolCreatedCount = new AtomicLong();
-    final AtomicLong diagnosticTxBeginCount = new AtomicLong();
-    final AtomicLong diagnosticTxCommitCount = new AtomicLong();
-    final AtomicLong diagnosticTxRollbackCount = new AtomicLong();
     String curFilePath;
     volatile JdbcConnectionPool connPool;
 
@@ -1273,6 +1268,24 @@ public class EntityDatabaseImpl extends Disposable implements EntityDatabase {
         }, sql, Collections.emptyList());
     }
 
+    @Override
+    @SneakyThrows
+    public <T> int[] mergeBatch(List<T> entities) {
+        if (entities == null || entities.isEmpty()) {
+            return new int[0];
+        }
+        SqlMeta meta = getMeta(entities.get(0).getClass());
+        List<List<Object>> argsList = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            List<Object> params = new ArrayList<>(meta.insertView.size());
+            for (Map.Entry<String, Tuple<Field, DbColumn>> col : meta.insertView) {
+                params.add(col.getValue().left.get(entity));
+            }
+            argsList.add(params);
+        }
+        return executeBatch(meta.insertSql, argsList);
+    }
+
     int executeUpdate(String sql, List<Object> params) {
         return invoke(conn -> {
             PreparedStatement stmt = conn.prepareStatement(sql);
@@ -1500,8 +1513,8 @@ public class EntityDatabaseImpl extends Disposable implements EntityDatabase {
         if (!DiagnosticMetrics.isEnabled()) {
             return;
         }
-        DiagnosticMetrics.record("rx.entity_db.connection.wait.millis",
-                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), diagnosticDbTags());
+        DiagnosticMetrics.histogram("rx.entity_db.connection.wait.millis", diagnosticDbTags())
+                .record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
     }
 
     private void recordPoolCreated() {
@@ -1519,10 +1532,11 @@ public class EntityDatabaseImpl extends Disposable implements EntityDatabase {
         }
         String dbTags = diagnosticDbTags();
         String opTags = dbTags + ",op=" + sqlOperation(sql) + ",tx=" + isInTransaction() + ",success=" + success;
-        DiagnosticMetrics.record("rx.entity_db.sql.elapsed.millis", elapsedMillis, opTags);
-        DiagnosticMetrics.record("rx.entity_db.sql.count", diagnosticSqlCount.incrementAndGet(), dbTags);
+        //逐条 SQL 的指标走预聚合句柄，按 rollup 区间落库
+        DiagnosticMetrics.histogram("rx.entity_db.sql.elapsed.millis", opTags).record(elapsedMillis);
+        DiagnosticMetrics.counter("rx.entity_db.sql.count", dbTags).increment();
         if (elapsedMillis > slowSqlElapsed) {
-            DiagnosticMetrics.record("rx.entity_db.slow_sql.count", diagnosticSlowSqlCount.incrementAndGet(), opTags);
+            DiagnosticMetrics.counter("rx.entity_db.slow_sql.count", opTags).increment();
         }
     }
 
@@ -1531,8 +1545,8 @@ public class EntityDatabaseImpl extends Disposable implements EntityDatabase {
             return;
         }
         String tags = diagnosticDbTags();
-        DiagnosticMetrics.record("rx.entity_db.tx.begin.count", diagnosticTxBeginCount.incrementAndGet(), tags);
-        DiagnosticMetrics.record("rx.entity_db.tx.depth.count", txDepth, tags);
+        DiagnosticMetrics.counter("rx.entity_db.tx.begin.count", tags).increment();
+        DiagnosticMetrics.gauge("rx.entity_db.tx.depth.count", tags).set(txDepth);
     }
 
     private void recordTxCommit(int txDepth) {
@@ -1540,8 +1554,8 @@ public class EntityDatabaseImpl extends Disposable implements EntityDatabase {
             return;
         }
         String tags = diagnosticDbTags();
-        DiagnosticMetrics.record("rx.entity_db.tx.commit.count", diagnosticTxCommitCount.incrementAndGet(), tags);
-        DiagnosticMetrics.record("rx.entity_db.tx.depth.count", txDepth - 1, tags);
+        DiagnosticMetrics.counter("rx.entity_db.tx.commit.count", tags).increment();
+        DiagnosticMetrics.gauge("rx.entity_db.tx.depth.count", tags).set(txDepth - 1);
     }
 
     private void recordTxRollback(int txDepth) {
@@ -1549,8 +1563,8 @@ public class EntityDatabaseImpl extends Disposable implements EntityDatabase {
             return;
         }
         String tags = diagnosticDbTags();
-        DiagnosticMetrics.record("rx.entity_db.tx.rollback.count", diagnosticTxRollbackCount.incrementAndGet(), tags);
-        DiagnosticMetrics.record("rx.entity_db.tx.depth.count", txDepth - 1, tags);
+        DiagnosticMetrics.counter("rx.entity_db.tx.rollback.count", tags).increment();
+        DiagnosticMetrics.gauge("rx.entity_db.tx.depth.count", tags).set(txDepth - 1);
     }
 
     private String diagnosticDbTags() {
@@ -7,6 +7,7 @@ import lombok.ToString;
 import org.rx.codec.CodecUtil;
 import org.rx.core.*;
 import org.rx.exception.InvalidException;
+import org.rx.util.function.BiAction;
 
 import java.io.EOFException;
 import java.io.File;
@@ -46,6 +47,21 @@ class ExternalSortingIndexer<TK> extends Disposable implements KeyIndexer<TK> {
             hashId = hash(key);
         }
 
+        private HashKey(TK key, long hashId) {
+            super(key);
+            this.hashId = hashId;
+        }
+
+        /**
+         * 分区数组内的独立副本，key 作为不可变对象共享。
+         */
+        HashKey<TK> copy() {
+            HashKey<TK> copy = new HashKey<>(key, hashId);
+            copy.keyPos = keyPos;
+            copy.logPosition = logPosition;
+            return copy;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -121,13 +137,10 @@ class ExternalSortingIndexer<TK> extends Disposable implements KeyIndexer<TK> {
                     if (wal.read(buf, 0, buf.length) != b) {
                         throw new EOFException();
                     }
-                    HashKey<TK> k = new HashKey<>();
-                    k.hashId = Bytes.readLong(buf, 0);
-                    if (k.hashId == 0) {
+                    HashKey<TK> k = readKey(buf);
+                    if (k == null) {
                         break;
                     }
-                    k.logPosition = Bytes.readLong(buf, 8);
-                    k.keyPos = Bytes.readLong(buf, 16);
                     keys.add(k);
                 }
 
@@ -146,6 +159,75 @@ class ExternalSortingIndexer<TK> extends Disposable implements KeyIndexer<TK> {
             return ks;
         }
 
+        HashKey<TK> readKey(byte[] buf) {
+            long hashId = Bytes.readLong(buf, 0);
+            if (hashId == 0) {
+                return null;
+            }
+            HashKey<TK> k = new HashKey<>();
+            k.hashId = hashId;
+            k.logPosition = Bytes.readLong(buf, 8);
+            k.keyPos = Bytes.readLong(buf, 16);
+            return k;
+        }
+
+        /**
+         * Copy keys [from, from + count) under the partition lock. Uncached keys of a sized partition are read
+         * by range instead of loading the whole partition, so a full cursor scan stays linear.
+         */
+        List<HashKey<TK>> slice(int from, int count) {
+            return wal.lock.readInvoke(() -> {
+                WeakReference<HashKey<TK>[]> r = ref;
+                HashKey<TK>[] ks = r != null ? r.get() : null;
+                int keySize = this.keySize;
+                if (ks == null && keySize == Constants.IO_EOF) {
+                    ks = unsafeLoad();
+                }
+                if (ks != null) {
+                    int to = Math.min(ks.length, from + count);
+                    List<HashKey<TK>> copies = new ArrayList<>(Math.max(0, to - from));
+                    for (int i = from; i < to; i++) {
+                        copies.add(ks[i].copy());
+                    }
+                    return copies;
+                }
+
+                int to = Math.min(keySize, from + count);
+                List<HashKey<TK>> copies = new ArrayList<>(Math.max(0, to - from));
+                if (from >= to) {
+                    return copies;
+                }
+                wal.setReaderPosition(position + (long) from * HashKey.BYTES);
+                byte[] buf = new byte[HashKey.BYTES];
+                for (int i = from; i < to; i++) {
+                    if (wal.read(buf, 0, buf.length) != buf.length) {
+                        throw new EOFException();
+                    }
+                    HashKey<TK> k = readKey(buf);
+                    if (k == null) {
+                        break;
+                    }
+                    copies.add(k);
+                }
+                return copies;
+            }, position, size);
+        }
+
+        List<HashKey<TK>> snapshot() {
+            return wal.lock.readInvoke(() -> {
+                HashKey<TK>[] keys = unsafeLoad();
+                List<HashKey<TK>> copies = new ArrayList<>(keys.length);
+                for (HashKey<TK> k : keys) {
+                    HashKey<TK> c = new HashKey<>();
+                    c.hashId = k.hashId;
+                    c.logPosition = k.logPosition;
+                    c.keyPos = k.keyPos;
+                    copies.add(c);
+                }
+                return copies;
+            }, position, size);
+        }
+
         boolean find(HashKey<TK> ktf) {
             return wal.lock.readInvoke(() -> {
                 HashKey<TK>[] keys = unsafeLoad();
@@ -160,10 +242,13 @@ class ExternalSortingIndexer<TK> extends Disposable implements KeyIndexer<TK> {
             });
         }
 
-        boolean save(HashKey<TK> ktf) {
+        /**
+         * @param insert false only updates an existing key in place, true skips the lookup and inserts
+         */
+        boolean save(HashKey<TK> ktf, boolean insert) {
             long newLogPos = ktf.logPosition;
             return wal.lock.writeInvoke(() -> {
-                if (find(ktf)) {
+                if (!insert && find(ktf)) {
 //                    if (ktf.logPosition > t.logPosition) {
 //                        return true;
 //                    }
@@ -184,13 +269,16 @@ class ExternalSortingIndexer<TK> extends Disposable implements KeyIndexer<TK> {
                     }
                     return true;
                 }
+                if (!insert) {
+                    return false;
+                }
 
                 long wPos = wal.getPosition();
                 if (wPos < endPos) {
                     HashKey<TK>[] oks = unsafeLoad();
                     HashKey<TK>[] ks = new HashKey[oks.length + 1];
                     System.arraycopy(oks, 0, ks, 0, oks.length);
-                    ks[ks.length - 1] = Sys.deepClone(ktf);
+                    ks[ks.length - 1] = ktf.copy();
                     Arrays.parallelSort(ks);
                     wal.setPosition(position);
                     byte[] buf = new byte[HashKey.BYTES];
@@ -263,9 +351,16 @@ class ExternalSortingIndexer<TK> extends Disposable implements KeyIndexer<TK> {
     @Override
     public void save(@NonNull KeyEntity<TK> key) {
         HashKey<TK> fk = (HashKey<TK>) key;
+        //update in place first, an insert into another partition would shadow the existing key
+        //the insert pass does not look the key up again
         for (Partition partition : route(fk)) {
-            if (partition.save(fk)) {
-                break;
+            if (partition.save(fk, false)) {
+                return;
+            }
+        }
+        for (Partition partition : route(fk)) {
+            if (partition.save(fk, true)) {
+                return;
             }
         }
     }
@@ -281,6 +376,37 @@ class ExternalSortingIndexer<TK> extends Disposable implements KeyIndexer<TK> {
         return null;
     }
 
+    @Override
+    public void forEach(@NonNull BiAction<KeyEntity<TK>> fn) {
+        for (Partition partition : partitions) {
+            //copy under the partition lock, visit outside it
+            for (HashKey<TK> k : partition.snapshot()) {
+                fn.accept(k);
+            }
+        }
+    }
+
+    /**
+     * The cursor is partition index(high 32 bits) + key index in the partition, a partition insert may shift keys.
+     * Each call copies only the visited range of one partition.
+     * <p>
+     * Keys are in hash order, so a key range can only be answered by filtering a full scan.
+     */
+    @Override
+    public long scan(long cursor, int count, @NonNull BiAction<KeyEntity<TK>> fn) {
+        int p = (int) (cursor >>> 32), from = (int) cursor;
+        if (p >= partitions.size()) {
+            return Constants.IO_EOF;
+        }
+        Partition partition = partitions.get(p);
+        List<HashKey<TK>> keys = partition.slice(from, count);
+        for (HashKey<TK> k : keys) {
+            fn.accept(k);
+        }
+        int to = from + keys.size();
+        return keys.size() == count && to < partition.keySize ? ((long) p << 32) | to : (long) (p + 1) << 32;
+    }
+
     Iterable<Partition> route(HashKey<TK> fk) {
         if (partitions.size() <= 5) {
             return partitions;
@@ -308,6 +434,11 @@ class ExternalSortingIndexer<TK> extends Disposable implements KeyIndexer<TK> {
         });
     }
 
+    @Override
+    public void flush() {
+        wal.flush();
+    }
+
     @Override
     public String toString() {
         return "ExternalSortingIndexer{" +
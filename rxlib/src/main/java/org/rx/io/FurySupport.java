@@ -68,6 +68,13 @@ public final class FurySupport {
     }
 
     public static Fury newFury(Class<?> ownerType, List<String> allowedPrefixes, Consumer<Fury> registerAction) {
+        return newFury(ownerType, allowedPrefixes, CompatibleMode.SCHEMA_CONSISTENT, registerAction);
+    }
+
+    /**
+     * @param compatibleMode SCHEMA_CONSISTENT requires identical classes on both sides, COMPATIBLE matches fields by name so peers may add or drop fields
+     */
+    public static Fury newFury(Class<?> ownerType, List<String> allowedPrefixes, CompatibleMode compatibleMode, Consumer<Fury> registerAction) {
         ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
         if (classLoader == null) {
             classLoader = ownerType.getClassLoader();
@@ -76,7 +83,7 @@ public final class FurySupport {
                 .withLanguage(Language.JAVA)
                 .withClassLoader(classLoader)
                 .withRefTracking(true)
-                .withCompatibleMode(CompatibleMode.SCHEMA_CONSISTENT)
+                .withCompatibleMode(compatibleMode)
                 .withBufferSizeLimitBytes(Constants.MAX_HEAP_BUF_SIZE)
                 .withAsyncCompilation(true)
                 .requireClassRegistration(false)
@@ -91,7 +98,12 @@ public final class FurySupport {
 
     public static FastThreadLocal<Fury> sharedFuryLocal(Class<?> ownerType, String purpose,
             List<String> allowedPrefixes, Consumer<Fury> registerAction) {
-        final FuryLocalKey key = new FuryLocalKey(ownerType, purpose, allowedPrefixes);
+        return sharedFuryLocal(ownerType, purpose, allowedPrefixes, CompatibleMode.SCHEMA_CONSISTENT, registerAction);
+    }
+
+    public static FastThreadLocal<Fury> sharedFuryLocal(Class<?> ownerType, String purpose,
+            List<String> allowedPrefixes, CompatibleMode compatibleMode, Consumer<Fury> registerAction) {
+        final FuryLocalKey key = new FuryLocalKey(ownerType, purpose, allowedPrefixes, compatibleMode);
         FastThreadLocal<Fury> local = SHARED_LOCALS.get(key);
         if (local != null) {
             return local;
@@ -100,7 +112,7 @@ public final class FurySupport {
         FastThreadLocal<Fury> created = new FastThreadLocal<Fury>() {
             @Override
             protected Fury initialValue() {
-                return newFury(ownerType, key.allowedPrefixes, registerAction);
+                return newFury(ownerType, key.allowedPrefixes, compatibleMode, registerAction);
             }
         };
         FastThreadLocal<Fury> old = SHARED_LOCALS.putIfAbsent(key, created);
@@ -300,13 +312,15 @@ public final class FurySupport {
         final String ownerName;
         final String purpose;
         final List<String> allowedPrefixes;
+        final CompatibleMode compatibleMode;
         final int hash;
 
-        FuryLocalKey(Class<?> ownerType, String purpose, List<String> allowedPrefixes) {
+        FuryLocalKey(Class<?> ownerType, String purpose, List<String> allowedPrefixes, CompatibleMode compatibleMode) {
             this.ownerName = ownerType == null ? "" : ownerType.getName();
             this.purpose = purpose == null ? "" : purpose;
             this.allowedPrefixes = Collections.unmodifiableList(new ArrayList<String>(allowedPrefixes));
-            this.hash = Objects.hash(ownerName, this.purpose, this.allowedPrefixes);
+            this.compatibleMode = compatibleMode;
+            this.hash = Objects.hash(ownerName, this.purpose, this.allowedPrefixes, compatibleMode);
         }
 
         @Override
@@ -320,7 +334,8 @@ public final class FurySupport {
             FuryLocalKey that = (FuryLocalKey) obj;
             return ownerName.equals(that.ownerName)
                     && purpose.equals(that.purpose)
-                    && allowedPrefixes.equals(that.allowedPrefixes);
+                    && allowedPrefixes.equals(that.allowedPrefixes)
+                    && compatibleMode == that.compatibleMode;
         }
 
         @Override
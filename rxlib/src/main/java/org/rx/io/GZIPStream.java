@@ -24,7 +24,7 @@ public class GZIPStream extends DuplexStream {
     @SneakyThrows
     private GZIPInputStream reader() {
         if (reader == null) {
-            reader = new GZIPInputStream(baseStream, Constants.HEAP_BUF_SIZE);
+            reader = new GZIPInputStream(leaveOpen ? baseStream.asInputStream() : baseStream, Constants.HEAP_BUF_SIZE);
         }
         return reader;
     }
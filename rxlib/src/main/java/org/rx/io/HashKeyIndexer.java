@@ -1,282 +1,357 @@
-//package org.rx.io;
-//
-//import io.netty.buffer.ByteBuf;
-//import lombok.EqualsAndHashCode;
-//import lombok.NonNull;
-//import lombok.RequiredArgsConstructor;
-//import lombok.ToString;
-//import lombok.extern.slf4j.Slf4j;
-//import org.rx.codec.CodecUtil;
-//import org.rx.core.Cache;
-//import org.rx.core.Constants;
-//import org.rx.core.Disposable;
-//import org.rx.core.Strings;
-//import org.rx.core.cache.MemoryCache;
-//
-//import java.io.File;
-//import java.nio.channels.FileChannel;
-//
-//import static org.rx.core.Extends.require;
-//import static org.rx.core.Extends.tryClose;
-//
-///**
-// * only cache key position
-// *
-// * @param <TK>
-// */
-//@Slf4j
-//final class HashKeyIndexer<TK> extends Disposable implements KeyIndexer<TK> {
-//    @EqualsAndHashCode(callSuper = true)
-//    @ToString
-//    static class KeyData<TK> extends KeyEntity<TK> {
-//        private long position = Constants.IO_EOF;
-//        final long hashId;
-//
-//        public KeyData(TK key) {
-//            super(key);
-//            hashId = CodecUtil.hash64(Serializer.DEFAULT.serializeToBytes(key));
-//        }
-//    }
-//
-//    @RequiredArgsConstructor
-//    static class Slot {
-//        private final HashKeyIndexer<?> owner;
-//        private final FileStream main;
-//        private final CompositeLock lock;
-//        private long _wroteBytes = HEADER_SIZE;
-//        private DuplexStream writer, reader;
-//
-//        Slot(HashKeyIndexer<?> owner, File indexFile) {
-//            this.owner = owner;
-//            main = new FileStream(indexFile, FileMode.READ_WRITE, Constants.NON_BUF);
-//            lock = main.getLock();
-//            if (!ensureGrow()) {
-//                createStream();
-//            }
-//            loadSize();
-//        }
-//
-//        private void createStream() {
-//            lock.writeInvoke(() -> {
-//                long length = main.getLength();
-//                writer = main.mmap(FileChannel.MapMode.READ_WRITE, 0, length);
-//                reader = main.mmap(FileChannel.MapMode.READ_ONLY, 0, length);
-//            });
-//        }
-//
-//        private void releaseStream() {
-//            lock.writeInvoke(() -> {
-//                tryClose(writer);
-//                tryClose(reader);
-//            });
-//        }
-//
-//        private boolean ensureGrow() {
-//            return lock.writeInvoke(() -> {
-//                long length = main.getLength();
-//                if (length < owner.growSize
-//                        || (float) getWroteBytes() / length > WALFileStream.GROW_FACTOR) {
-////                    assert wroteBytes != 0;
-//                    long resize = length + owner.growSize;
-//                    log.debug("growSize {} {}->{}", main.getName(), length, resize);
-//                    releaseStream();
-//                    main.setLength(resize);
-//                    createStream();
-//                    return true;
-//                }
-//                return false;
-//            });
-//        }
-//
-//        public synchronized long getWroteBytes() {
-//            return _wroteBytes;
-//        }
-//
-//        public synchronized void incrementWroteBytes() {
-//            _wroteBytes += KEY_SIZE;
-//            saveSize();
-//        }
-//
-//        public synchronized void resetWroteBytes() {
-//            _wroteBytes = HEADER_SIZE;
-//        }
-//
-//        void saveSize() {
-//            ByteBuf buf = Bytes.directBuffer(HEADER_SIZE);
-//            try {
-//                lock.writeInvoke(() -> {
-//                    writer.setPosition(0);
-//                    int size = (int) ((getWroteBytes() - HEADER_SIZE) / KEY_SIZE);
-//                    buf.writeInt(size);
-//                    writer.write(buf);
-////                    writer.flush();
-//                }, 0, HEADER_SIZE);
-//            } finally {
-//                buf.release();
-//            }
-//        }
-//
-//        void loadSize() {
-//            ByteBuf buf = Bytes.directBuffer(HEADER_SIZE);
-//            try {
-//                lock.readInvoke(() -> {
-//                    reader.setPosition(0);
-//                    if (reader.read(buf) > 0) {
-//                        int size = buf.readInt();
-//                        _wroteBytes = HEADER_SIZE + (long) size * KEY_SIZE;
-//                    }
-//                }, 0, HEADER_SIZE);
-//            } finally {
-//                buf.release();
-//            }
-//        }
-//    }
-//
-//    static final boolean HEX_DUMP = false;
-//    static final int HEADER_SIZE = 4;
-//    static final int KEY_SIZE = 16;
-//    //    static final int READ_PAGE_CACHE_SIZE = (int) Math.floor(1024d * 4 / KEY_SIZE) * KEY_SIZE;
-//    static final int HASH_BITS = 0x7fffffff;
-//
-//    static int spread(int h) {
-//        return (h ^ (h >>> 16)) & HASH_BITS;
-//    }
-//
-//    private final File directory;
-//    private final int growSize;
-//    private final Slot[] slots;
-//    private final Cache<TK, KeyData<TK>> cache = new MemoryCache<>(b -> MemoryCache.weightBuilder(b, 0.2f, 16 * 2 + 8 + 8 + 8));
-//
-//    public HashKeyIndexer(@NonNull File directory, long slotSize, int growSize) {
-//        require(slotSize, slotSize > 0);
-//        this.growSize = growSize;
-//        this.directory = directory;
-//
-//        int slotCount = (int) Math.ceil((double) Integer.MAX_VALUE * KEY_SIZE / slotSize);
-//        slots = new Slot[slotCount];
-//    }
-//
-//    @Override
-//    protected void freeObjects() {
-//        for (Slot slot : slots) {
-//            if (slot == null) {
-//                continue;
-//            }
-//
-//            slot.releaseStream();
-//            slot.main.close();
-//        }
-//    }
-//
-//    public void clear() {
-//        synchronized (slots) {
-//            for (Slot slot : slots) {
-//                if (slot == null) {
-//                    continue;
-//                }
-//
-//                slot.resetWroteBytes();
-//            }
-//        }
-//    }
-//
-//    private Slot slot(long hashId) {
-//        int hashCode = Long.hashCode(hashId);
-//        int i = (slots.length - 1) & spread(hashCode);
-//        synchronized (slots) {
-//            Slot slot = slots[i];
-//            if (slot == null) {
-//                directory.mkdirs();
-//                slots[i] = slot = new Slot(this, new File(directory, String.format("%s", i)));
-//            }
-//            return slot;
-//        }
-//    }
-//
-//    @Override
-//    public KeyEntity<TK> newKey(TK key) {
-//        return new KeyData<>(key);
-//    }
-//
-//    @Override
-//    public void save(@NonNull KeyEntity<TK> k) {
-//        checkNotClosed();
-//        KeyData<TK> key = (KeyData<TK>) k;
-//        require(key, key.position >= Constants.IO_EOF);
-//
-//        Slot slot = slot(key.hashId);
-//        slot.lock.writeInvoke(() -> {
-//            slot.ensureGrow();
-//
-//            DuplexStream out = slot.writer;
-//            long pos = key.position == Constants.IO_EOF ? slot.getWroteBytes() : key.position;
-//            out.setPosition(pos);
-//
-//            ByteBuf buf = Bytes.directBuffer(KEY_SIZE);
-//            try {
-//                buf.writeLong(key.hashId);
-//                buf.writeLong(key.logPosition);
-//                out.write(buf);
-////                out.flush();
-//            } finally {
-//                buf.release();
-//            }
-////            log.info("saveKey {} -> {} pos={}{}", slot.main.getName(), key, pos, dump(buf));
-//
-//            if (key.position == Constants.IO_EOF) {
-//                slot.incrementWroteBytes();
-////                log.info("wroteBytes {} -> {} pos={}/{}", slot.main.getName(), key, pos, slot.getWroteBytes());
-//            }
-//
-//            if (key.key != null) {
-////                cache.remove(key.key);
-//                key.position = pos;
-//                cache.put(key.key, key); //hang?
-//            }
-//        }, HEADER_SIZE);
-//    }
-//
-//    @Override
-//    public KeyData<TK> find(@NonNull TK k) {
-//        return cache.get(k, x -> {
-//            KeyData<TK> keyData = new KeyData<>(k);
-//            long hashId = keyData.hashId;
-//            Slot slot = slot(hashId);
-//
-//            return slot.lock.readInvoke(() -> {
-//                DuplexStream in = slot.reader;
-//
-//                in.setPosition(HEADER_SIZE);
-//                long pos = in.getPosition();
-//                long endPos = slot.getWroteBytes();
-//                ByteBuf buf = Bytes.directBuffer(KEY_SIZE);
-//                try {
-//                    while (pos < endPos && in.read(buf, KEY_SIZE) > 0) {
-////                    log.debug("findKey {} -> {} pos={}{}", slot.main.getName(), hashCode, pos, dump(buf));
-//                        long hash = buf.readLong();
-//                        if (hash != hashId) {
-//                            pos += KEY_SIZE;
-//                            buf.clear();
-//                            continue;
-//                        }
-//
-//                        keyData.position = in.getPosition() - KEY_SIZE;
-//                        keyData.logPosition = buf.readLong();
-//                        return keyData;
-//                    }
-//                } finally {
-//                    buf.release();
-//                }
-////                log.debug("findKey fail {} -> {} pos={}/{}{}", slot.main.getName(), hashCode, pos, endPos, dump(buf));
-//                return null;
-//            }, HEADER_SIZE);
-//        });
-//    }
-//
-//    private String dump(ByteBuf buf) {
-//        if (!HEX_DUMP) {
-//            return Strings.EMPTY;
-//        }
-//        return "\n" + Bytes.hexDump(buf);
-//    }
-//}
+package org.rx.io;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.rx.core.Constants;
+import org.rx.core.Disposable;
+import org.rx.util.function.BiAction;
+
+import java.io.File;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Open addressing with linear probing over a memory-mapped table, no object is kept per key.
+ *
+ * <p>index
+ * magic(4) + capacity(8) + size(8) ... header(64) + slot * capacity
+ *
+ * <p>slot
+ * hashId(8) + logPos(8), hashId 0 is an empty slot
+ *
+ * @param <TK>
+ */
+@Slf4j
+class HashKeyIndexer<TK> extends Disposable implements KeyIndexer<TK> {
+    @ToString(callSuper = true)
+    static class HashEntity<TK> extends KeyIndexer.KeyEntity<TK> {
+        private static final long serialVersionUID = 4510247003924785362L;
+        final long hashId;
+        long slot = Constants.IO_EOF;
+
+        HashEntity(TK key, long hashId) {
+            super(key);
+            this.hashId = hashId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            return hashId == ((HashEntity<?>) o).hashId;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hashId);
+        }
+    }
+
+    static final int MAGIC = 0x52584849;
+    static final int HEADER_SIZE = 64, SLOT_SIZE = 16;
+    static final int CAPACITY_OFFSET = 4, SIZE_OFFSET = 12;
+    //1G per mapping, a slot never spans two mappings
+    static final int SEGMENT_SLOT_BITS = 26;
+    static final long SEGMENT_SLOT_MASK = (1L << SEGMENT_SLOT_BITS) - 1;
+    static final long MIN_CAPACITY = 1 << 10;
+    static final float LOAD_FACTOR = 0.6f;
+    static final int FOREACH_BATCH = 4096;
+    static final long EMPTY_HASH = 0, EMPTY_HASH_SUBSTITUTE = Long.MIN_VALUE;
+    static final byte[] ZEROS = new byte[Constants.KB * 64];
+
+    static <TK> long hash(TK key) {
+        long h = ExternalSortingIndexer.HashKey.hash(key);
+        return h == EMPTY_HASH ? EMPTY_HASH_SUBSTITUTE : h;
+    }
+
+    final File file;
+    final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    FileChannel channel;
+    MappedByteBuffer header;
+    MappedByteBuffer[] table;
+    long capacity;
+    long size;
+
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param initialBytes initial table size, rounded up to a power of two slots
+     */
+    @SneakyThrows
+    public HashKeyIndexer(@NonNull File file, long initialBytes) {
+        this.file = file;
+        File rehashFile = rehashFile();
+        if (rehashFile.exists()) {
+            log.warn("drop unfinished rehash {}", rehashFile);
+            Files.delete(rehashFile.getPath());
+        }
+
+        channel = open(file);
+        if (channel.size() >= HEADER_SIZE) {
+            header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            if (header.getInt(0) == MAGIC) {
+                capacity = header.getLong(CAPACITY_OFFSET);
+                size = header.getLong(SIZE_OFFSET);
+                table = mapTable(channel, capacity);
+                return;
+            }
+            Bytes.release(header);
+        }
+        capacity = Math.max(MIN_CAPACITY, HashCommon.nextPowerOfTwo(initialBytes / SLOT_SIZE));
+        header = mapHeader(channel, capacity);
+        table = mapTable(channel, capacity);
+    }
+
+    @Override
+    protected void dispose() throws Throwable {
+        lock.writeLock().lock();
+        try {
+            unmap();
+            channel.close();
+            table = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    File rehashFile() {
+        return new File(file.getPath() + ".rehash");
+    }
+
+    @SneakyThrows
+    static FileChannel open(File file) {
+        return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    @SneakyThrows
+    static MappedByteBuffer mapHeader(FileChannel channel, long capacity) {
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        header.putInt(0, MAGIC);
+        header.putLong(CAPACITY_OFFSET, capacity);
+        header.putLong(SIZE_OFFSET, 0);
+        return header;
+    }
+
+    @SneakyThrows
+    static MappedByteBuffer[] mapTable(FileChannel channel, long capacity) {
+        long segmentSlots = SEGMENT_SLOT_MASK + 1;
+        int n = (int) ((capacity + segmentSlots - 1) / segmentSlots);
+        MappedByteBuffer[] table = new MappedByteBuffer[n];
+        for (int i = 0; i < n; i++) {
+            long slots = Math.min(segmentSlots, capacity - i * segmentSlots);
+            table[i] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + i * segmentSlots * SLOT_SIZE, slots * SLOT_SIZE);
+        }
+        return table;
+    }
+
+    void unmap() {
+        Bytes.release(header);
+        for (MappedByteBuffer buf : table) {
+            Bytes.release(buf);
+        }
+    }
+
+    static long hashAt(MappedByteBuffer[] table, long slot) {
+        return table[(int) (slot >>> SEGMENT_SLOT_BITS)].getLong((int) ((slot & SEGMENT_SLOT_MASK) * SLOT_SIZE));
+    }
+
+    static long positionAt(MappedByteBuffer[] table, long slot) {
+        return table[(int) (slot >>> SEGMENT_SLOT_BITS)].getLong((int) ((slot & SEGMENT_SLOT_MASK) * SLOT_SIZE) + 8);
+    }
+
+    static void put(MappedByteBuffer[] table, long slot, long hashId, long logPosition) {
+        MappedByteBuffer buf = table[(int) (slot >>> SEGMENT_SLOT_BITS)];
+        int offset = (int) ((slot & SEGMENT_SLOT_MASK) * SLOT_SIZE);
+        //position first, a torn insert stays an empty slot
+        buf.putLong(offset + 8, logPosition);
+        buf.putLong(offset, hashId);
+    }
+
+    static long probe(MappedByteBuffer[] table, long capacity, long hashId) {
+        long mask = capacity - 1;
+        long slot = HashCommon.mix(hashId) & mask;
+        long h;
+        while ((h = hashAt(table, slot)) != EMPTY_HASH && h != hashId) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    @SneakyThrows
+    void rehash(long newCapacity) {
+        long startTime = System.currentTimeMillis();
+        File rehashFile = rehashFile();
+        FileChannel newChannel = open(rehashFile);
+        MappedByteBuffer newHeader = mapHeader(newChannel, newCapacity);
+        MappedByteBuffer[] newTable = mapTable(newChannel, newCapacity);
+        for (long slot = 0; slot < capacity; slot++) {
+            long h = hashAt(table, slot);
+            if (h == EMPTY_HASH) {
+                continue;
+            }
+            put(newTable, probe(newTable, newCapacity, h), h, positionAt(table, slot));
+        }
+        newHeader.putLong(SIZE_OFFSET, size);
+        newHeader.force();
+        for (MappedByteBuffer buf : newTable) {
+            buf.force();
+        }
+
+        unmap();
+        channel.close();
+        //the open channel follows the moved file
+        WALFileStream.replaceFile(rehashFile, file);
+        channel = newChannel;
+        header = newHeader;
+        table = newTable;
+        log.info("rehash {} {}->{} size={} elapsed {}ms", file.getName(), capacity, newCapacity, size, System.currentTimeMillis() - startTime);
+        capacity = newCapacity;
+    }
+
+    @Override
+    public KeyEntity<TK> newKey(TK key) {
+        return new HashEntity<>(key, hash(key));
+    }
+
+    @Override
+    public void save(@NonNull KeyEntity<TK> key) {
+        checkNotClosed();
+        HashEntity<TK> e = (HashEntity<TK>) key;
+        lock.writeLock().lock();
+        try {
+            long slot = e.slot;
+            if (slot < 0 || slot >= capacity || hashAt(table, slot) != e.hashId) {
+                slot = probe(table, capacity, e.hashId);
+                if (hashAt(table, slot) == EMPTY_HASH) {
+                    if (size + 1 > capacity * LOAD_FACTOR) {
+                        rehash(capacity << 1);
+                        slot = probe(table, capacity, e.hashId);
+                    }
+                    size++;
+                    header.putLong(SIZE_OFFSET, size);
+                }
+                e.slot = slot;
+            }
+            put(table, slot, e.hashId, e.logPosition);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public KeyEntity<TK> find(@NonNull TK k) {
+        checkNotClosed();
+        long hashId = hash(k);
+        lock.readLock().lock();
+        try {
+            long slot = probe(table, capacity, hashId);
+            if (hashAt(table, slot) == EMPTY_HASH) {
+                return null;
+            }
+            HashEntity<TK> e = new HashEntity<>(k, hashId);
+            e.slot = slot;
+            e.logPosition = positionAt(table, slot);
+            return e;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Weakly consistent, a concurrent rehash may skip or repeat keys.
+     */
+    @Override
+    public void forEach(@NonNull BiAction<KeyEntity<TK>> fn) {
+        long cursor = 0;
+        while (cursor != Constants.IO_EOF) {
+            cursor = scan(cursor, FOREACH_BATCH, fn);
+        }
+    }
+
+    /**
+     * The cursor is a slot, at most max(count, {@link #FOREACH_BATCH}) slots are probed per call so a sparse table may yield no key.
+     */
+    @Override
+    public long scan(long cursor, int count, @NonNull BiAction<KeyEntity<TK>> fn) {
+        List<HashEntity<TK>> batch = new ArrayList<>(Math.min(count, FOREACH_BATCH));
+        long next;
+        lock.readLock().lock();
+        try {
+            long slot = cursor, to = Math.min(capacity, cursor + Math.max(count, FOREACH_BATCH));
+            for (; slot < to && batch.size() < count; slot++) {
+                long h = hashAt(table, slot);
+                if (h == EMPTY_HASH) {
+                    continue;
+                }
+                HashEntity<TK> e = new HashEntity<>(null, h);
+                e.slot = slot;
+                e.logPosition = positionAt(table, slot);
+                batch.add(e);
+            }
+            next = slot < capacity ? slot : Constants.IO_EOF;
+        } finally {
+            lock.readLock().unlock();
+        }
+        for (HashEntity<TK> e : batch) {
+            fn.accept(e);
+        }
+        return next;
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            for (MappedByteBuffer buf : table) {
+                buf.clear();
+                while (buf.hasRemaining()) {
+                    buf.put(ZEROS, 0, Math.min(ZEROS.length, buf.remaining()));
+                }
+                buf.clear();
+            }
+            size = 0;
+            header.putLong(SIZE_OFFSET, 0);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void flush() {
+        lock.readLock().lock();
+        try {
+            if (table == null) {
+                return;
+            }
+            for (MappedByteBuffer buf : table) {
+                buf.force();
+            }
+            header.force();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "HashKeyIndexer{" +
+                "name=" + file.getName() +
+                ", capacity=" + capacity +
+                ", size=" + size +
+                '}';
+    }
+}
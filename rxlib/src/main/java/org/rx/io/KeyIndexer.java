@@ -3,6 +3,7 @@ package org.rx.io;
 import lombok.EqualsAndHashCode;
 import lombok.RequiredArgsConstructor;
 import lombok.ToString;
+import org.rx.util.function.BiAction;
 
 import java.io.Serializable;
 
@@ -22,5 +23,24 @@ public interface KeyIndexer<TK> extends AutoCloseable {
 
     KeyEntity<TK> find(TK k);
 
+    /**
+     * Visit a detached copy of every indexed key, the key object is absent if the indexer only keeps its hash.
+     * A visited entity can be passed back to {@link #save(KeyEntity)} to move its log position.
+     */
+    void forEach(BiAction<KeyEntity<TK>> fn);
+
+    /**
+     * Visit up to count detached keys in index order, weakly consistent with concurrent saves.
+     *
+     * @param cursor 0 for the first call, then the returned cursor
+     * @return cursor for the next call, {@link org.rx.core.Constants#IO_EOF} after the last key
+     */
+    long scan(long cursor, int count, BiAction<KeyEntity<TK>> fn);
+
     void clear();
+
+    /**
+     * Force saved keys to disk.
+     */
+    void flush();
 }
@@ -2,6 +2,9 @@ package org.rx.io;
 
 import com.alibaba.fastjson2.JSONArray;
 import com.alibaba.fastjson2.JSONObject;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.concurrent.FastThreadLocal;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.IteratorUtils;
@@ -13,26 +16,34 @@ import org.rx.core.*;
 import org.rx.core.StringBuilder;
 import org.rx.exception.ExceptionLevel;
 import org.rx.exception.InvalidException;
+import org.rx.net.http.HttpResponseStream;
 import org.rx.net.http.HttpServer;
 import org.rx.net.http.ServerRequest;
+import org.rx.net.http.ServerResponse;
 import org.rx.third.guava.AbstractSequentialIterator;
+import org.rx.util.function.PredicateFunc;
 
 import java.io.*;
 import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
 
 import static org.rx.bean.$.$;
 import static org.rx.core.Extends.*;
 import static org.rx.core.Sys.fromJson;
 import static org.rx.core.Sys.toJsonObject;
+import static org.rx.core.Sys.toJsonString;
 
 /**
  * meta
  * logPosition + size
  *
  * <p>log
- * status(1) + key + value + size(4)
+ * status(1) + magic(4) + length(4) + crc32(4) + key + value + size(4)
  */
 @Slf4j
 public class KeyValueStore<TK, TV> extends Disposable implements AbstractMap<TK, TV> {
@@ -51,6 +62,14 @@ public class KeyValueStore<TK, TV> extends Disposable implements AbstractMap<TK,
         private void readObject(ObjectInputStream in) throws IOException {
             try {
                 key = (TK) in.readObject();
+                PredicateFunc<Object> filter = KEY_FILTER.get();
+                if (filter != null) {
+                    //entries nested in the value are not filtered
+                    KEY_FILTER.remove();
+                    if (!filter.test(key)) {
+                        throw KEY_FILTERED;
+                    }
+                }
                 value = (TV) in.readObject();
             } catch (ClassNotFoundException e) {
                 log.error("readObject {}", e.getMessage());
@@ -81,11 +100,78 @@ public class KeyValueStore<TK, TV> extends Disposable implements AbstractMap<TK,
         int remaining;
     }
 
-    //0 NORMAL, 1 DELETE
-    static final byte TOMB_MARK = 1;
+    /**
+     * Puts and removes applied in order by one group commit, records are serialized on the caller thread before the log lock.
+     */
+    public final class WriteBatch {
+        final List<Entry<TK, TV>> ops = new ArrayList<>();
+        final BitSet removes = new BitSet();
+        MemoryStream buf;
+        int[] offsets;
+        long basePos;
+        volatile boolean done;
+        Throwable error;
+
+        public int size() {
+            return ops.size();
+        }
+
+        public WriteBatch put(@NonNull TK k, TV v) {
+            checkNotCommitted();
+            ops.add(new Entry<>(k, v));
+            return this;
+        }
+
+        public WriteBatch remove(@NonNull TK k) {
+            checkNotCommitted();
+            removes.set(ops.size());
+            ops.add(new Entry<>(k, null));
+            return this;
+        }
+
+        public void commit() {
+            checkNotCommitted();
+            KeyValueStore.this.commit(this);
+        }
+
+        void checkNotCommitted() {
+            if (offsets != null) {
+                throw new InvalidException("WriteBatch already committed");
+            }
+        }
+
+        void serialize() {
+            buf = new MemoryStream(Constants.HEAP_BUF_SIZE, false);
+            offsets = new int[ops.size()];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = (int) buf.getPosition();
+                writeRecord(buf, ops.get(i), removes.get(i) ? REMOVE_MARK : 0);
+            }
+        }
+    }
+
+    static final class KeyFilteredException extends RuntimeException {
+        private static final long serialVersionUID = 2956317048471396473L;
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    //0 NORMAL, 1 DELETE, 2 REMOVE record appended by a remove so that replay re-applies it
+    static final byte TOMB_MARK = 1, REMOVE_MARK = 2;
     static final int DEFAULT_ITERATOR_SIZE = 50;
     static final String KEY_TYPE_FIELD = "_KEY_TYPE", VALUE_TYPE_FIELD = "_VAL_TYPE";
+    static final String APPLICATION_NDJSON = "application/x-ndjson; charset=UTF-8";
+    static final String COMPACT_EXT = "compact", REINDEX_EXT = "reindex", CHECKPOINT_EXT = "ckp";
+    static final int CHECKPOINT_SIZE = 16;
+    //record: status(1) magic(4) payload length(4) payload crc32(4) payload, then the record length(4) for backward reads
+    static final int RECORD_FORMAT = 1, RECORD_MAGIC = 0x4B565231, RECORD_HEADER_SIZE = 13;
     static final Map<Class<?>, KeyValueStore> instances = new ConcurrentHashMap<>();
+    //skip the value of a record once its key is rejected
+    static final FastThreadLocal<PredicateFunc<Object>> KEY_FILTER = new FastThreadLocal<>();
+    static final KeyFilteredException KEY_FILTERED = new KeyFilteredException();
 
     public static <TK, TV> KeyValueStore<TK, TV> getInstance(Class<TK> keyType, Class<TV> valueType) {
         return instances.computeIfAbsent(keyType, k -> new KeyValueStore<>(KeyValueStoreConfig.newConfig(keyType, valueType)));
@@ -97,15 +183,22 @@ public class KeyValueStore<TK, TV> extends Disposable implements AbstractMap<TK,
     final WALFileStream wal;
     final KeyIndexer<TK> indexer;
     final Serializer serializer;
+    final AtomicBoolean compacting = new AtomicBoolean();
+    final Queue<WriteBatch> commitQueue = new ConcurrentLinkedQueue<>();
     //    transient EntrySetView entrySet;
     transient HttpServer apiServer;
+    ScheduledFuture<?> compactTask, checkpointTask;
+    long recoveryMillis;
+    long recoveryBytes;
+    //unframed records of a log written before RECORD_FORMAT, only read while upgrading it
+    boolean legacyRecords;
 
     String getTypeId() {
         return String.format("%s:%s", config.getKeyType().getName(), config.getValueType().getName());
     }
 
     public KeyValueStore(KeyValueStoreConfig config) {
-        this(config, JdkAndJsonSerializer.DEFAULT);
+        this(config, Serializer.DEFAULT);
     }
 
     @SneakyThrows
@@ -122,47 +215,247 @@ public class KeyValueStore<TK, TV> extends Disposable implements AbstractMap<TK,
         wal.file.setAttribute("typeId", typeId);
         this.serializer = serializer;
 
-        String idxName = Files.changeExtension(logName, "idx");
-        indexer = new ExternalSortingIndexer<>(new File(String.format("%s/%s", config.getDirectoryPath(), idxName)), config.getIndexBufferSize(), config.getIndexReaderCount());
+        boolean hashIndex = config.getIndexerType() == KeyValueStoreConfig.IndexerType.HASH;
+        String idxName = Files.changeExtension(logName, hashIndex ? "hidx" : "idx");
+        File idxFile = new File(String.format("%s/%s", config.getDirectoryPath(), idxName));
+        boolean newIndex = !idxFile.exists();
+        indexer = hashIndex ? new HashKeyIndexer<>(idxFile, config.getIndexBufferSize())
+                : new ExternalSortingIndexer<>(idxFile, config.getIndexBufferSize(), config.getIndexReaderCount());
+
+        File segmentFile = segmentFile(COMPACT_EXT), reindexFile = segmentFile(REINDEX_EXT);
+        if (segmentFile.exists()) {
+            log.warn("drop unfinished compact segment {}", segmentFile);
+            Files.delete(segmentFile.getPath());
+        }
+        if (wal.getFormatVersion() < RECORD_FORMAT) {
+            upgradeLog(newIndex || reindexFile.exists());
+            newIndex = false;
+        }
+        if (reindexFile.exists()) {
+            log.warn("rebuild index {} after an interrupted compaction", idxName);
+            rebuildIndex();
+            Files.delete(reindexFile.getPath());
+        } else if (newIndex && wal.getPosition() > WALFileStream.HEADER_SIZE) {
+            log.info("build index {} from existing log", idxName);
+            rebuildIndex();
+        }
+        if (wal.getAppendCount() < wal.getSize()) {
+            wal.setSize(wal.getSize(), wal.getSize());
+        }
 
-        wal.lock.writeInvoke(() -> {
-            long pos = wal.getPosition();
-            Entry<TK, TV> val;
-            $<Long> endPos = $();
-            while ((val = unsafeRead(pos, null, endPos)) != null) {
-                boolean incr = false;
-                TK k = val.key;
-                KeyIndexer.KeyEntity<TK> key = indexer.find(k);
-                if (key == null) {
-                    key = indexer.newKey(k);
-                    incr = true;
+        recover();
+
+        if (config.getApiPort() > 0) {
+            startApiServer(config.getApiPort());
+        }
+        if (config.getCompactPeriodMillis() > 0) {
+            compactTask = Tasks.schedulePeriod(this::compactQuietly, config.getCompactPeriodMillis());
+        }
+        if (config.getCheckpointPeriodMillis() > 0) {
+            checkpointTask = Tasks.schedulePeriod(this::checkpointQuietly, config.getCheckpointPeriodMillis());
+        }
+    }
+
+    @Override
+    protected void dispose() throws Throwable {
+        if (compactTask != null) {
+            compactTask.cancel(false);
+        }
+        if (checkpointTask != null) {
+            checkpointTask.cancel(false);
+        }
+        checkpointQuietly();
+        indexer.close();
+        wal.close();
+    }
+
+    /**
+     * Rewrite a log written before records were framed, the live records are copied by a compaction.
+     * <p>
+     * Unframed records can not be scanned forward safely, but their trailing lengths bound every record exactly,
+     * so the index is first rebuilt by walking the log backwards. A missing or stale index and tombstones written
+     * after the last checkpoint are honoured. Only a log whose lengths do not chain back to the header is upgraded
+     * through the existing index as is.
+     */
+    private void upgradeLog(boolean indexMissing) {
+        long endPos = wal.getPosition();
+        if (endPos > WALFileStream.HEADER_SIZE) {
+            log.info("upgrade {} to record format {}", logName, RECORD_FORMAT);
+            if (isLegacyChainIntact(endPos)) {
+                rebuildLegacyIndex(endPos);
+            } else if (indexMissing) {
+                throw new InvalidException("Log {} predates record framing, its records do not chain back and it has no index", logName);
+            } else {
+                log.warn("upgrade {} through the existing index, record lengths do not chain back", logName);
+            }
+            legacyRecords = true;
+            try {
+                unsafeCompact();
+            } finally {
+                legacyRecords = false;
+            }
+        }
+        wal.setFormatVersion(RECORD_FORMAT);
+    }
+
+    //unframed record: status(1) payload, then the length of both(4)
+    private boolean isLegacyChainIntact(long endPos) {
+        long pos = endPos;
+        try {
+            while (pos > WALFileStream.HEADER_SIZE) {
+                if (pos - 4 < WALFileStream.HEADER_SIZE) {
+                    return false;
                 }
-                if (key.logPosition == TOMB_MARK) {
-                    incr = true;
+                wal.setReaderPosition(pos - 4);
+                int len = wal.readInt();
+                pos -= 4L + len;
+                if (len < 2 || pos < WALFileStream.HEADER_SIZE) {
+                    return false;
                 }
+            }
+            return true;
+        } finally {
+            wal.getReaderPosition(true);
+        }
+    }
 
-                key.logPosition = pos;
-                wal.setPosition(endPos.v);
+    /**
+     * The newest record of a key decides it, older ones are superseded or removed.
+     */
+    @SneakyThrows
+    private void rebuildLegacyIndex(long endPos) {
+        indexer.clear();
+        long pos = endPos, size = 0, count = 0;
+        try {
+            while (pos > WALFileStream.HEADER_SIZE) {
+                wal.setReaderPosition(pos - 4);
+                int len = wal.readInt();
+                pos -= 4L + len;
+                byte[] record = new byte[len];
+                wal.setReaderPosition(pos);
+                readFully(wal, record);
+                count++;
+
+                Entry<TK, TV> val = serializer.deserialize(new MemoryStream(record, 1, len - 1), true);
+                if (indexer.find(val.key) != null) {
+                    continue;
+                }
+                KeyIndexer.KeyEntity<TK> key = indexer.newKey(val.key);
+                if (record[0] == TOMB_MARK) {
+                    key.logPosition = TOMB_MARK;
+                } else {
+                    key.logPosition = pos;
+                    size++;
+                }
                 indexer.save(key);
+            }
+        } finally {
+            wal.getReaderPosition(true);
+        }
+        wal.setSize(size, count);
+        log.info("rebuild index {} from unframed log size={} records={}", logName, size, count);
+    }
+
+    File segmentFile(String ext) {
+        return new File(String.format("%s/%s", config.getDirectoryPath(), Files.changeExtension(logName, ext)));
+    }
+
+    //region checkpoint
+    public long getRecoveryMillis() {
+        return recoveryMillis;
+    }
+
+    public long getRecoveryBytes() {
+        return recoveryBytes;
+    }
 
-                if (incr) {
-                    wal.setSize(wal.getSize() + 1);
+    /**
+     * Replay the log after the last checkpoint, or after the persisted log position if there is none.
+     * Records up to the checkpoint are already in the durable index, removes after it are replayed from their remove records.
+     */
+    private void recover() {
+        long startTime = System.currentTimeMillis();
+        long checkpointPos = loadCheckpoint();
+        wal.lock.writeInvoke(() -> {
+            long logPos = wal.getPosition();
+            long startPos = checkpointPos >= WALFileStream.HEADER_SIZE ? checkpointPos : logPos;
+            long pos = startPos, size = wal.getSize(), count = wal.getAppendCount();
+            $<Byte> status = $();
+            $<Long> nextPos = $();
+            Entry<TK, TV> val;
+            while ((val = unsafeScan(pos, status, nextPos)) != null) {
+                int incr = replay(pos, val, status.v);
+                //records before the persisted position are already counted in the meta
+                if (pos >= logPos) {
+                    count++;
+                    size += incr;
                 }
-                log.debug("recover {}", key);
-                pos = endPos.v;
+                pos = nextPos.v;
             }
+            if (pos < logPos) {
+                log.warn("recover {} stopped at {} before log end {}", logName, pos, logPos);
+            } else if (pos > logPos) {
+                wal.setPosition(pos);
+            }
+            wal.setSize(size, Math.max(size, count));
+            recoveryBytes = pos - startPos;
         });
+        recoveryMillis = System.currentTimeMillis() - startTime;
+        log.info("recover {} from {} replayed {} bytes in {}ms", logName, checkpointPos, recoveryBytes, recoveryMillis);
+    }
 
-        if (config.getApiPort() > 0) {
-            startApiServer(config.getApiPort());
+    void checkpointQuietly() {
+        try {
+            checkpoint();
+        } catch (Throwable e) {
+            log.warn("checkpoint {} fail", logName, e);
         }
     }
 
-    @Override
-    protected void dispose() throws Throwable {
-        indexer.close();
-        wal.close();
+    /**
+     * Force the log and index to disk and persist the log position they are consistent at.
+     */
+    public void checkpoint() {
+        wal.lock.writeInvoke(() -> {
+            long pos = wal.getPosition();
+            wal.flush();
+            indexer.flush();
+            saveCheckpoint(pos);
+        });
+    }
+
+    @SneakyThrows
+    private void saveCheckpoint(long logPosition) {
+        byte[] buf = new byte[CHECKPOINT_SIZE];
+        Bytes.writeLong(buf, 0, logPosition);
+        Bytes.writeLong(buf, 8, DuplexStream.checksum(Bytes.toBytes(logPosition)));
+        File tmp = segmentFile(CHECKPOINT_EXT + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(buf);
+            out.getFD().sync();
+        }
+        WALFileStream.replaceFile(tmp, segmentFile(CHECKPOINT_EXT));
+    }
+
+    @SneakyThrows
+    private long loadCheckpoint() {
+        File file = segmentFile(CHECKPOINT_EXT);
+        if (!file.exists()) {
+            return Constants.IO_EOF;
+        }
+        byte[] buf = java.nio.file.Files.readAllBytes(file.toPath());
+        if (buf.length != CHECKPOINT_SIZE) {
+            log.warn("checkpoint {} invalid length {}", file, buf.length);
+            return Constants.IO_EOF;
+        }
+        long pos = Bytes.readLong(buf, 0);
+        if (Bytes.readLong(buf, 8) != DuplexStream.checksum(Bytes.toBytes(pos))) {
+            log.warn("checkpoint {} checksum mismatch", file);
+            return Constants.IO_EOF;
+        }
+        return pos;
     }
+    //endregion
 
     public void fastPut(@NonNull TK k, TV v) {
         checkNotClosed();
@@ -179,31 +472,100 @@ public class KeyValueStore<TK, TV> extends Disposable implements AbstractMap<TK,
                 incr = true;
             }
 
-            long pos = wal.getPosition();
             if (key.logPosition >= WALFileStream.HEADER_SIZE) {
-                KeyIndexer.KeyEntity<TK> finalKey = key;
-//                wal.lock.writeInvoke(() -> {
-                wal.setPosition(finalKey.logPosition);
-                wal.write(TOMB_MARK);
-                wal.setPosition(pos);
-                log.debug("fastPut mark TOMB {} <- {}", finalKey.logPosition, pos);
-//                }, key.logPosition, 1);
+                markTomb(wal, key.logPosition);
+                log.debug("fastPut mark TOMB {} <- {}", key.logPosition, wal.getPosition());
             }
 
-            key.logPosition = pos;
-            wal.write(0);
-            serializer.serialize(val, wal);
-            int size = (int) (wal.getPosition() - key.logPosition);
-            wal.writeInt(size);
+            key.logPosition = appendEntry(wal, val);
 //            log.debug("fastPut {} {}", key, val);
 
             indexer.save(key);
-            if (incr) {
-                wal.setSize(wal.getSize() + 1);
-            }
+            wal.setSize(incr ? wal.getSize() + 1 : wal.getSize(), wal.getAppendCount() + 1);
         }, WALFileStream.HEADER_SIZE);
     }
 
+    private long appendEntry(WALFileStream segment, Entry<TK, TV> val) {
+        long pos = segment.getPosition();
+        writeRecord(segment, val, 0);
+        return pos;
+    }
+
+    private void writeRecord(DuplexStream out, Entry<TK, TV> val, int status) {
+        byte[] payload = serializer.serializeToBytes(val);
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        byte[] header = new byte[RECORD_HEADER_SIZE];
+        header[0] = (byte) status;
+        Bytes.writeInt(header, 1, RECORD_MAGIC);
+        Bytes.writeInt(header, 5, payload.length);
+        Bytes.writeInt(header, 9, (int) crc.getValue());
+        out.write(header);
+        out.write(payload);
+        out.writeInt(RECORD_HEADER_SIZE + payload.length);
+    }
+
+    /**
+     * Read the record at the reader position of in, the payload is only decoded after its length and checksum match.
+     *
+     * @param status   receives the record status
+     * @param skipTomb return null for a tombstoned or remove record without reading its payload
+     * @throws EOFException             zeroed bytes after the log end
+     * @throws StreamCorruptedException a torn or overwritten record
+     */
+    private Entry<TK, TV> readRecord(DuplexStream in, long logPosition, $<Byte> status, boolean skipTomb) throws IOException {
+        byte[] header = new byte[RECORD_HEADER_SIZE];
+        readFully(in, header);
+        int magic = Bytes.readInt(header, 1), len = Bytes.readInt(header, 5);
+        if (magic != RECORD_MAGIC) {
+            if (magic == 0 && header[0] == 0) {
+                throw new EOFException(String.format("No record at %s", logPosition));
+            }
+            throw new StreamCorruptedException(String.format("Bad record magic at %s", logPosition));
+        }
+        if (header[0] < 0 || header[0] > REMOVE_MARK
+                || len < 0 || logPosition + RECORD_HEADER_SIZE + len + 4 > in.getLength()) {
+            throw new StreamCorruptedException(String.format("Bad record header at %s", logPosition));
+        }
+        if (status != null) {
+            status.v = header[0];
+        }
+        if (header[0] != 0 && skipTomb) {
+            return null;
+        }
+
+        byte[] payload = new byte[len];
+        readFully(in, payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, len);
+        if ((int) crc.getValue() != Bytes.readInt(header, 9) || in.readInt() != RECORD_HEADER_SIZE + len) {
+            throw new StreamCorruptedException(String.format("Record checksum mismatch at %s", logPosition));
+        }
+        return serializer.deserialize(new MemoryStream(payload, 0, len), true);
+    }
+
+    private Entry<TK, TV> readLegacyRecord() {
+        if (wal.read() == TOMB_MARK) {
+            return null;
+        }
+        return serializer.deserialize(wal, true);
+    }
+
+    static void readFully(DuplexStream in, byte[] buf) throws EOFException {
+        for (int n = 0, r; n < buf.length; n += r) {
+            if ((r = in.read(buf, n, buf.length - n)) <= 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private void markTomb(WALFileStream segment, long logPosition) {
+        long pos = segment.getPosition();
+        segment.setPosition(logPosition);
+        segment.write(TOMB_MARK);
+        segment.setPosition(pos);
+    }
+
     public void fastRemove(@NonNull TK k) {
         checkNotClosed();
 
@@ -213,18 +575,118 @@ public class KeyValueStore<TK, TV> extends Disposable implements AbstractMap<TK,
                 return;
             }
 
-            long pos = wal.getPosition();
-            wal.setPosition(key.logPosition);
-            wal.write(TOMB_MARK);
-            wal.setPosition(pos);
+            markTomb(wal, key.logPosition);
+            //the tombstone is written in place before the checkpoint, recovery replays the remove record instead
+            writeRecord(wal, new Entry<>(k, null), REMOVE_MARK);
             log.debug("fastRemove {}", key);
 
             key.logPosition = TOMB_MARK;
             indexer.save(key);
-            wal.setSize(wal.getSize() - 1);
+            wal.setSize(wal.getSize() - 1, wal.getAppendCount() + 1);
         }, WALFileStream.HEADER_SIZE);
     }
 
+    //region batch
+    public WriteBatch newBatch() {
+        return new WriteBatch();
+    }
+
+    /**
+     * Batches queued while another writer holds the lock are committed by that writer in the same log write.
+     */
+    @SneakyThrows
+    void commit(WriteBatch batch) {
+        checkNotClosed();
+        if (batch.ops.isEmpty()) {
+            return;
+        }
+
+        try {
+            batch.serialize();
+            commitQueue.offer(batch);
+            wal.lock.writeInvoke(() -> {
+                if (batch.done) {
+                    return;
+                }
+
+                List<WriteBatch> group = new ArrayList<>();
+                WriteBatch b;
+                while ((b = commitQueue.poll()) != null) {
+                    group.add(b);
+                }
+                try {
+                    groupCommit(group);
+                } catch (Throwable e) {
+                    for (WriteBatch g : group) {
+                        g.error = e;
+                    }
+                } finally {
+                    for (WriteBatch g : group) {
+                        g.done = true;
+                    }
+                }
+            }, WALFileStream.HEADER_SIZE);
+        } finally {
+            if (batch.buf != null) {
+                batch.buf.close();
+            }
+        }
+        if (batch.error != null) {
+            throw batch.error;
+        }
+    }
+
+    private void groupCommit(List<WriteBatch> group) {
+        long pos = wal.getPosition();
+        ByteBuf[] bufs = new ByteBuf[group.size()];
+        int total = 0;
+        for (int i = 0; i < bufs.length; i++) {
+            WriteBatch b = group.get(i);
+            int len = (int) b.buf.getLength();
+            b.basePos = pos + total;
+            bufs[i] = b.buf.getBuffer().slice(0, len);
+            total += len;
+        }
+        if (total > 0) {
+            wal.reserve(total);
+            //components are owned by the batch streams
+            wal.write(Unpooled.wrappedBuffer(bufs), 0, total);
+        }
+
+        long size = wal.getSize(), count = wal.getAppendCount();
+        for (WriteBatch b : group) {
+            for (int i = 0; i < b.offsets.length; i++) {
+                TK k = b.ops.get(i).key;
+                KeyIndexer.KeyEntity<TK> key = indexer.find(k);
+                count++;
+                if (b.removes.get(i)) {
+                    if (key == null || key.logPosition == TOMB_MARK) {
+                        continue;
+                    }
+                    markTomb(wal, key.logPosition);
+                    key.logPosition = TOMB_MARK;
+                    indexer.save(key);
+                    size--;
+                    continue;
+                }
+
+                if (key == null) {
+                    key = indexer.newKey(k);
+                    size++;
+                } else if (key.logPosition == TOMB_MARK) {
+                    size++;
+                } else if (key.logPosition >= WALFileStream.HEADER_SIZE) {
+                    markTomb(wal, key.logPosition);
+                }
+                key.logPosition = b.basePos + b.offsets[i];
+                indexer.save(key);
+            }
+        }
+        wal.setSize(size, count);
+        log.debug("groupCommit {} batches {} bytes", group.size(), total);
+    }
+    //endregion
+
     protected TV read(@NonNull TK k) {
         Entry<TK, TV> val = wal.lock.readInvoke(() -> {
             KeyIndexer.KeyEntity<TK> key = indexer.find(k);
@@ -237,17 +699,33 @@ public class KeyValueStore<TK, TV> extends Disposable implements AbstractMap<TK,
         return val != null ? val.value : null;
     }
 
-    @SneakyThrows
     private Entry<TK, TV> unsafeRead(long logPosition, TK k, $<Long> position) {
+        return unsafeRead(logPosition, k, position, null);
+    }
+
+    @SneakyThrows
+    private Entry<TK, TV> unsafeRead(long logPosition, TK k, $<Long> position, PredicateFunc<TK> keyFilter) {
 //        log.debug("readValue {} {}", k, logPosition);
         Entry<TK, TV> val;
         wal.setReaderPosition(logPosition);
         try {
-            int status = wal.read();
-            if (status == TOMB_MARK) {
+            if (keyFilter != null) {
+                KEY_FILTER.set((PredicateFunc<Object>) keyFilter);
+            }
+            try {
+                val = legacyRecords ? readLegacyRecord() : readRecord(wal, logPosition, null, true);
+            } finally {
+                if (keyFilter != null) {
+                    KEY_FILTER.remove();
+                }
+            }
+            if (val == null) {
+                return null;
+            }
+            //json wrapped entries are decoded as a whole
+            if (keyFilter != null && !keyFilter.test(val.key)) {
                 return null;
             }
-            val = serializer.deserialize(wal, true);
 
             if (k != null && !k.equals(val.key)) {
                 String msg = new StringBuilder()
@@ -259,7 +737,10 @@ public class KeyValueStore<TK, TV> extends Disposable implements AbstractMap<TK,
             }
             return val;
         } catch (Exception e) {
-            if (e instanceof StreamCorruptedException) {
+            if (e == KEY_FILTERED) {
+                return null;
+            }
+            if (e instanceof StreamCorruptedException || e instanceof EOFException) {
                 log.warn("readValue {} {} {}", k == null ? "[INIT]" : k, logPosition, e.getMessage());
                 return null;
             }
@@ -272,6 +753,354 @@ public class KeyValueStore<TK, TV> extends Disposable implements AbstractMap<TK,
         }
     }
 
+    /**
+     * Apply one scanned record to the index.
+     *
+     * @return the size change
+     */
+    private int replay(long logPosition, Entry<TK, TV> val, byte status) {
+        if (status == TOMB_MARK) {
+            return 0;
+        }
+        KeyIndexer.KeyEntity<TK> key = indexer.find(val.key);
+        if (status == REMOVE_MARK) {
+            //already applied, or the key was put again after the remove
+            if (key == null || key.logPosition == TOMB_MARK || key.logPosition > logPosition) {
+                return 0;
+            }
+            markTomb(wal, key.logPosition);
+            key.logPosition = TOMB_MARK;
+            indexer.save(key);
+            log.debug("replay remove {}", key);
+            return -1;
+        }
+
+        int incr = 0;
+        if (key == null || key.logPosition == TOMB_MARK) {
+            if (key == null) {
+                key = indexer.newKey(val.key);
+            }
+            incr = 1;
+        }
+        if (key.logPosition != logPosition) {
+            key.logPosition = logPosition;
+            indexer.save(key);
+        }
+        log.debug("replay {}", key);
+        return incr;
+    }
+
+    /**
+     * Forward read which also decodes tombstoned and remove records, so the caller can step over them.
+     * Returns null at the log end or at the first record that fails its framing check.
+     */
+    @SneakyThrows
+    private Entry<TK, TV> unsafeScan(long logPosition, $<Byte> status, $<Long> position) {
+        wal.setReaderPosition(logPosition);
+        try {
+            return readRecord(wal, logPosition, status, false);
+        } catch (Exception e) {
+            if (e instanceof EOFException) {
+                //zeroed bytes after the log end
+                log.debug("scan {} {}", logPosition, e.getMessage());
+                return null;
+            }
+            if (e instanceof StreamCorruptedException) {
+                log.warn("scan {} {}", logPosition, e.getMessage());
+                return null;
+            }
+            throw e;
+        } finally {
+            long readerPosition = wal.getReaderPosition(true);
+            if (position != null) {
+                position.v = readerPosition;
+            }
+        }
+    }
+
+    private void rebuildIndex() {
+        wal.lock.writeInvoke(() -> {
+            indexer.clear();
+            long pos = WALFileStream.HEADER_SIZE, endPos = wal.getPosition(), size = 0, count = 0;
+            $<Byte> status = $();
+            $<Long> nextPos = $();
+            Entry<TK, TV> val;
+            while (pos < endPos && (val = unsafeScan(pos, status, nextPos)) != null) {
+                count++;
+                size += replay(pos, val, status.v);
+                pos = nextPos.v;
+            }
+            if (pos < endPos) {
+                log.warn("rebuild index {} stopped at {} before log end {}", logName, pos, endPos);
+            }
+            wal.setSize(size, count);
+            checkpoint();
+            log.info("rebuild index {} size={} records={}", logName, size, count);
+        });
+    }
+
+    //region compact
+    public long getLogBytes() {
+        return wal.getPosition() - WALFileStream.HEADER_SIZE;
+    }
+
+    /**
+     * Superseded and removed records / all records, dead records are only marked and stay in the log until compaction.
+     */
+    public float getDeadRatio() {
+        long count = wal.getAppendCount();
+        if (count <= 0) {
+            return 0;
+        }
+        return Math.max(0, count - wal.getSize()) / (float) count;
+    }
+
+    /**
+     * Estimated from {@link #getDeadRatio()}, record lengths are not indexed.
+     */
+    public long getDeadBytes() {
+        return (long) (getLogBytes() * getDeadRatio());
+    }
+
+    public long getLiveBytes() {
+        return getLogBytes() - getDeadBytes();
+    }
+
+    void compactQuietly() {
+        try {
+            if (isClosed() || getLogBytes() < config.getCompactMinBytes() || getDeadRatio() < config.getCompactDeadRatio()) {
+                return;
+            }
+            compact();
+        } catch (Throwable e) {
+            log.warn("compact {} fail", logName, e);
+        }
+    }
+
+    /**
+     * Copy live entries into a fresh segment while readers and writers keep going,
+     * then replay the entries changed meanwhile, swap the segment in and move the index positions under the write lock.
+     *
+     * @return reclaimed bytes, 0 if another compaction is running
+     */
+    public long compact() {
+        checkNotClosed();
+        if (!compacting.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            return unsafeCompact();
+        } finally {
+            compacting.set(false);
+        }
+    }
+
+    @SneakyThrows
+    private long unsafeCompact() {
+        long startTime = System.currentTimeMillis();
+        long snapshotPos = wal.getPosition();
+        File segmentFile = segmentFile(COMPACT_EXT), reindexFile = segmentFile(REINDEX_EXT);
+        if (segmentFile.exists()) {
+            Files.delete(segmentFile.getPath());
+        }
+
+        //records before snapshotPos can only be tombstoned, never rewritten
+        Map<KeyIndexer.KeyEntity<TK>, long[]> copied = new HashMap<>();
+        WALFileStream segment = new WALFileStream(segmentFile, config.getLogGrowSize(), 1, serializer);
+        try {
+            indexer.forEach(key -> {
+                long pos = key.logPosition;
+                if (pos < WALFileStream.HEADER_SIZE || pos >= snapshotPos) {
+                    return;
+                }
+                Entry<TK, TV> val = wal.lock.readInvoke(() -> unsafeRead(pos, null, null), WALFileStream.HEADER_SIZE);
+                if (val == null) {
+                    return;
+                }
+                copied.put(key, new long[]{pos, appendEntry(segment, val)});
+            });
+
+            long reclaimed = wal.lock.writeInvoke(() -> {
+                long endPos = wal.getPosition();
+                if (endPos < snapshotPos) {
+                    log.warn("compact {} abort, log cleared", logName);
+                    return 0L;
+                }
+
+                List<KeyIndexer.KeyEntity<TK>> moved = new ArrayList<>(copied.size());
+                $<Long> count = $((long) copied.size());
+                indexer.forEach(key -> {
+                    long pos = key.logPosition;
+                    long[] p = copied.get(key);
+                    if (p != null) {
+                        if (p[0] == pos) {
+                            key.logPosition = p[1];
+                            moved.add(key);
+                            return;
+                        }
+                        //superseded or removed after the snapshot
+                        markTomb(segment, p[1]);
+                    }
+                    if (pos < WALFileStream.HEADER_SIZE) {
+                        return;
+                    }
+                    Entry<TK, TV> val = unsafeRead(pos, null, null);
+                    if (val == null) {
+                        return;
+                    }
+                    key.logPosition = appendEntry(segment, val);
+                    count.v++;
+                    moved.add(key);
+                });
+                segment.setSize(moved.size(), count.v);
+                segment.setFormatVersion(RECORD_FORMAT);
+                segment.flush();
+                segment.close();
+
+                //index positions are stale until the loop below finishes
+                if (!reindexFile.createNewFile()) {
+                    log.warn("reindex marker {} exists", reindexFile);
+                }
+                wal.swap(segmentFile);
+                wal.file.setAttribute("typeId", getTypeId());
+                for (KeyIndexer.KeyEntity<TK> key : moved) {
+                    indexer.save(key);
+                }
+                checkpoint();
+                Files.delete(reindexFile.getPath());
+                return endPos - wal.getPosition();
+            });
+            log.info("compact {} reclaimed {} bytes, live {} bytes, elapsed {}ms", logName, reclaimed, getLogBytes(), System.currentTimeMillis() - startTime);
+            return reclaimed;
+        } finally {
+            segment.close();
+            if (segmentFile.exists()) {
+                Files.delete(segmentFile.getPath());
+            }
+        }
+    }
+    //endregion
+
+    //region scan
+    /**
+     * Forward iterator over live entries in index order, reading {@link KeyValueStoreConfig#getIteratorPrefetchCount()} keys at a time.
+     * Weakly consistent, entries written or compacted during the scan may be missed.
+     */
+    public Iterator<Map.Entry<TK, TV>> scan() {
+        return scan(null);
+    }
+
+    /**
+     * @param keyFilter tested as soon as the key is decoded, values of rejected keys are not deserialized
+     */
+    public Iterator<Map.Entry<TK, TV>> scan(PredicateFunc<TK> keyFilter) {
+        return new ScanIterator(keyFilter);
+    }
+
+    /**
+     * Filters a full scan, see {@link #scanRange(Object, Object)}.
+     */
+    public Iterator<Map.Entry<TK, TV>> scanPrefix(@NonNull String prefix) {
+        return scan(k -> k instanceof String && ((String) k).startsWith(prefix));
+    }
+
+    /**
+     * The index is ordered by key hash, not by key, so this visits every key and keeps the ones in range:
+     * the cost is that of a full {@link #scan()} whatever the range width, and entries are not in key order.
+     * Only the values of keys in range are deserialized.
+     *
+     * @param from inclusive, null for unbounded
+     * @param to   exclusive, null for unbounded
+     */
+    public Iterator<Map.Entry<TK, TV>> scanRange(TK from, TK to) {
+        return scan(k -> (from == null || ((Comparable<TK>) k).compareTo(from) >= 0)
+                && (to == null || ((Comparable<TK>) k).compareTo(to) < 0));
+    }
+
+    class ScanIterator implements Iterator<Map.Entry<TK, TV>> {
+        final PredicateFunc<TK> keyFilter;
+        final int prefetchCount = config.getIteratorPrefetchCount();
+        final Queue<Entry<TK, TV>> buf = new ArrayDeque<>(prefetchCount);
+        long cursor;
+        Entry<TK, TV> current;
+
+        ScanIterator(PredicateFunc<TK> keyFilter) {
+            this.keyFilter = keyFilter;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (buf.isEmpty() && cursor != Constants.IO_EOF) {
+                fill();
+            }
+            return !buf.isEmpty();
+        }
+
+        @Override
+        public Map.Entry<TK, TV> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current = buf.poll();
+        }
+
+        @Override
+        public void remove() {
+            if (current == null) {
+                throw new IllegalStateException();
+            }
+            fastRemove(current.key);
+            current = null;
+        }
+
+        void fill() {
+            checkNotClosed();
+            //positions stay valid until the read lock is released
+            wal.lock.readInvoke(() -> {
+                cursor = indexer.scan(cursor, prefetchCount, key -> {
+                    long pos = key.logPosition;
+                    if (pos < WALFileStream.HEADER_SIZE) {
+                        return;
+                    }
+                    Entry<TK, TV> val = unsafeRead(pos, null, null, keyFilter);
+                    if (val != null) {
+                        buf.add(val);
+                    }
+                });
+            }, WALFileStream.HEADER_SIZE);
+        }
+    }
+
+    /**
+     * One json object per line, produced batch by batch on a Tasks thread only while the channel drains,
+     * so the disk reads never run on the event loop.
+     */
+    class ScanStreamWriter implements ServerResponse.StreamWriter {
+        final Iterator<Map.Entry<TK, TV>> it;
+        final int limit;
+        int count;
+
+        ScanStreamWriter(Iterator<Map.Entry<TK, TV>> it, int limit) {
+            this.it = it;
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean write(HttpResponseStream stream) {
+            for (int i = 0; i < config.getIteratorPrefetchCount() && count < limit && it.hasNext(); i++) {
+                Map.Entry<TK, TV> entry = it.next();
+                JSONObject line = new JSONObject();
+                line.put("key", entry.getKey());
+                apiPutValue(line, VALUE_TYPE_FIELD, entry.getValue());
+                stream.write(toJsonString(line));
+                stream.write("\n");
+                count++;
+            }
+            return count < limit && it.hasNext();
+        }
+    }
+    //endregion
+
     private boolean readBackwards(IteratorContext ctx, int prefetchCount) {
         wal.setReaderPosition(ctx.logPos); //4 lock
         return wal.readObjectBackwards(reader -> {
@@ -289,16 +1118,18 @@ public class KeyValueStore<TK, TV> extends Disposable implements AbstractMap<TK,
                     p1 = logPos;
                     reader.setPosition(logPos);
                     size = reader.readInt();
+                    if (size < RECORD_HEADER_SIZE || logPos - size < WALFileStream.HEADER_SIZE) {
+                        throw new StreamCorruptedException(String.format("Bad record length %s at %s", size, logPos));
+                    }
 
                     logPos -= size;
                     p2 = logPos;
                     reader.setPosition(logPos);
-                    status = reader.read();
-                    if (status == TOMB_MARK) {
+                    Entry<TK, TV> val = readRecord(reader, logPos, null, true);
+                    if (val == null) {
+                        status = TOMB_MARK;
                         continue;
                     }
-
-                    Entry<TK, TV> val = serializer.deserialize(reader, true);
 //                    log.debug("readBackwards {}", val);
                     ctx.buf[ctx.writePos++] = val;
                     i++;
@@ -349,7 +1180,23 @@ public class KeyValueStore<TK, TV> extends Disposable implements AbstractMap<TK,
                     TK k = apiDeserialize(reqJson, KEY_TYPE_FIELD, key);
                     apiSerialize(resJson, VALUE_TYPE_FIELD, get(k));
                     response.jsonBody(resJson);
-                })).requestMapping("/set", (request, response) -> {
+                })).requestMapping("/scan", (request, response) -> {
+                    apiCheck(request);
+                    JSONObject reqJson = toJsonObject(request.jsonBody());
+                    String prefix = reqJson.getString("prefix");
+                    Object from = reqJson.get("from"), to = reqJson.get("to");
+                    Iterator<Map.Entry<TK, TV>> it;
+                    if (prefix != null) {
+                        it = scanPrefix(prefix);
+                    } else if (from != null || to != null) {
+                        it = scanRange(from == null ? null : apiDeserialize(reqJson, KEY_TYPE_FIELD, from),
+                                to == null ? null : apiDeserialize(reqJson, KEY_TYPE_FIELD, to));
+                    } else {
+                        it = scan();
+                    }
+                    int limit = ifNull(reqJson.getInteger("limit"), Integer.MAX_VALUE);
+                    response.streamBody(APPLICATION_NDJSON, new ScanStreamWriter(it, limit));
+                }).requestMapping("/set", (request, response) -> {
                     apiCheck(request);
                     JSONObject reqJson = toJsonObject(request.jsonBody());
                     JSONObject resJson = new JSONObject();
@@ -405,6 +1252,10 @@ public class KeyValueStore<TK, TV> extends Disposable implements AbstractMap<TK,
 
     private void apiSerialize(JSONObject resJson, String typeField, Object obj) {
         resJson.put("code", 0);
+        apiPutValue(resJson, typeField, obj);
+    }
+
+    private void apiPutValue(JSONObject resJson, String typeField, Object obj) {
         if (obj == null) {
             return;
         }
@@ -453,6 +1304,21 @@ public class KeyValueStore<TK, TV> extends Disposable implements AbstractMap<TK,
         return old;
     }
 
+    /**
+     * 同 put，值未变化的键不写入，其余键合并为一次 group commit
+     */
+    @Override
+    public void putAll(Map<? extends TK, ? extends TV> m) {
+        WriteBatch batch = newBatch();
+        for (Map.Entry<? extends TK, ? extends TV> e : m.entrySet()) {
+            if (eq(read(e.getKey()), e.getValue())) {
+                continue;
+            }
+            batch.put(e.getKey(), e.getValue());
+        }
+        batch.commit();
+    }
+
     @Override
     public TV remove(Object key) {
         TK k = (TK) key;
@@ -466,6 +1332,7 @@ public class KeyValueStore<TK, TV> extends Disposable implements AbstractMap<TK,
         wal.lock.writeInvoke(() -> {
             indexer.clear();
             wal.clear();
+            checkpoint();
         });
     }
 
@@ -15,6 +15,17 @@ import org.rx.core.Constants;
 @Setter
 @ToString
 public class KeyValueStoreConfig {
+    public enum IndexerType {
+        /**
+         * sorted partitions, loaded on demand
+         */
+        EXTERNAL_SORTING,
+        /**
+         * memory-mapped open addressing table, O(1) insert and lookup
+         */
+        HASH
+    }
+
     public static <TK, TV> KeyValueStoreConfig newConfig(Class<TK> keyType, Class<TV> valueType) {
         KeyValueStoreConfig conf = new KeyValueStoreConfig(keyType, valueType);
         conf.setLogGrowSize(Constants.MB * 16);
@@ -38,9 +49,27 @@ public class KeyValueStoreConfig {
     private long flushDelayMillis = 1000;
     private int iteratorPrefetchCount = 2;
 
+    private IndexerType indexerType = IndexerType.EXTERNAL_SORTING;
+    /**
+     * partition size, or the initial table size for {@link IndexerType#HASH}
+     */
     private int indexBufferSize = Constants.MB * 64;
     private int indexReaderCount = 1;
 
+    /**
+     * recovery only replays the log written after the last checkpoint, 0 to disable
+     */
+    private long checkpointPeriodMillis = 60 * 1000;
+    /**
+     * background compaction check period, 0 to disable
+     */
+    private long compactPeriodMillis = 60 * 1000;
+    /**
+     * compact when dead records / all records reach this ratio
+     */
+    private float compactDeadRatio = 0.5f;
+    private long compactMinBytes = Constants.MB * 16;
+
     private int apiPort = -1;
     private String apiPassword;
     private boolean apiSsl;
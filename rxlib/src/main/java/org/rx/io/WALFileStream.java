@@ -13,6 +13,8 @@ import org.rx.util.function.BiFunc;
 
 import java.io.*;
 import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.StandardCopyOption;
 import java.util.concurrent.LinkedTransferQueue;
 
 import static org.rx.core.Extends.require;
@@ -50,29 +52,48 @@ public final class WALFileStream extends DuplexStream implements EventPublisher<
         private void writeObject(ObjectOutputStream out) throws IOException {
             out.writeLong(logPos);
             out.writeLong(size);
+            out.writeLong(appendCount);
+            out.writeInt(formatVersion);
         }
 
         private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
             logPos = in.readLong();
             size = in.readLong();
+            try {
+                appendCount = in.readLong();
+            } catch (EOFException | OptionalDataException e) {
+                //header written before appendCount
+                appendCount = size;
+                return;
+            }
+            try {
+                formatVersion = in.readInt();
+            } catch (EOFException | OptionalDataException e) {
+                //header written before formatVersion
+                formatVersion = 0;
+            }
         }
 
         long logPos = HEADER_SIZE;
         long size;
+        //live + dead records in this segment
+        long appendCount;
+        //record layout version of the owner, 0 for segments written before it was tracked
+        int formatVersion;
     }
 
     static final float GROW_FACTOR = 0.75f;
     static final int HEADER_SIZE = 256;
     static final FastThreadLocal<Long> readerPosition = new FastThreadLocal<>();
     public transient final Delegate<WALFileStream, EventArgs> onGrow = Delegate.create();
-    final FileStream file;
+    FileStream file;
     final CompositeLock lock;
     final long growSize;
     final int readerCount;
     private CompositeMmap writer;
     private final LinkedTransferQueue<DuplexStream> readers = new LinkedTransferQueue<>();
     private final Serializer serializer;
-    private final MetaHeader meta;
+    private MetaHeader meta;
     @Setter
     long flushDelayMillis = 1000;
 
@@ -136,6 +157,29 @@ public final class WALFileStream extends DuplexStream implements EventPublisher<
         }, 0, HEADER_SIZE);
     }
 
+    public long getAppendCount() {
+        return lock.readInvoke(() -> meta.appendCount);
+    }
+
+    public int getFormatVersion() {
+        return lock.readInvoke(() -> meta.formatVersion);
+    }
+
+    public void setFormatVersion(int formatVersion) {
+        lock.writeInvoke(() -> {
+            meta.formatVersion = formatVersion;
+            saveMeta();
+        }, 0, HEADER_SIZE);
+    }
+
+    public void setSize(long size, long appendCount) {
+        lock.writeInvoke(() -> {
+            meta.size = size;
+            meta.appendCount = appendCount;
+            saveMeta();
+        }, 0, HEADER_SIZE);
+    }
+
     public WALFileStream(File file, long growSize, int readerCount, @NonNull Serializer serializer) {
         this.growSize = growSize;
         this.readerCount = readerCount;
@@ -159,10 +203,57 @@ public final class WALFileStream extends DuplexStream implements EventPublisher<
     public void clear() {
         lock.writeInvoke(() -> {
             meta.size = 0;
+            meta.appendCount = 0;
             setPosition(HEADER_SIZE);
         });
     }
 
+    /**
+     * Grow ahead of a write larger than the usual growth step.
+     */
+    void reserve(long length) {
+        lock.writeInvoke(() -> {
+            long need = meta.logPos + length;
+            if (need / (float) file.getLength() <= GROW_FACTOR) {
+                return;
+            }
+            long resize = (long) (need / GROW_FACTOR) + growSize;
+            log.info("growSize {} {}->{}", getName(), file.getLength(), resize);
+            _setLength(resize);
+            publishEvent(onGrow, EventArgs.EMPTY);
+        });
+    }
+
+    /**
+     * Replace the current segment with a compacted one, the segment file is moved over this file path.
+     * Positions taken from the old segment are invalid afterwards.
+     */
+    @SneakyThrows
+    void swap(@NonNull File segment) {
+        lock.writeInvoke(() -> {
+            File target = new File(file.getPath());
+            releaseReaderAndWriter();
+            file.close();
+            replaceFile(segment, target);
+
+            //keep the lock instance, callers are waiting on it
+            file = new FileStream(target, FileMode.READ_WRITE, Constants.NON_BUF);
+            createReaderAndWriter();
+            meta = loadMeta();
+            log.info("swap segment {} length={} logPos={}", getName(), file.getLength(), meta.logPos);
+        });
+    }
+
+    @SneakyThrows
+    static void replaceFile(File src, File dest) {
+        try {
+            java.nio.file.Files.move(src.toPath(), dest.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            log.warn("ATOMIC_MOVE not supported for {}, fallback to normal move", dest);
+            java.nio.file.Files.move(src.toPath(), dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
     void saveMeta() {
 //        checkNotClosed();
         lock.writeInvoke(() -> {
@@ -360,6 +451,12 @@ public final class WALFileStream extends DuplexStream implements EventPublisher<
 
     @Override
     public void flush() {
-        lock.writeInvoke(() -> writer.flush());
+        lock.writeInvoke(() -> {
+            //delayed flush may fire after close
+            if (isClosed()) {
+                return;
+            }
+            writer.flush();
+        });
     }
 }
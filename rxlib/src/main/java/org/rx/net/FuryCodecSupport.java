@@ -3,6 +3,7 @@ package org.rx.net;
 import io.netty.buffer.ByteBuf;
 import io.netty.util.concurrent.FastThreadLocal;
 import org.apache.fury.Fury;
+import org.apache.fury.config.CompatibleMode;
 import org.apache.fury.memory.MemoryBuffer;
 import org.rx.io.FurySupport;
 
@@ -35,11 +36,20 @@ public final class FuryCodecSupport {
         return FurySupport.newFury(ownerType, allowedPrefixes, registerAction);
     }
 
+    public static Fury newFury(Class<?> ownerType, List<String> allowedPrefixes, CompatibleMode compatibleMode, Consumer<Fury> registerAction) {
+        return FurySupport.newFury(ownerType, allowedPrefixes, compatibleMode, registerAction);
+    }
+
     public static FastThreadLocal<Fury> sharedFuryLocal(Class<?> ownerType, String purpose,
             List<String> allowedPrefixes, Consumer<Fury> registerAction) {
         return FurySupport.sharedFuryLocal(ownerType, purpose, allowedPrefixes, registerAction);
     }
 
+    public static FastThreadLocal<Fury> sharedFuryLocal(Class<?> ownerType, String purpose,
+            List<String> allowedPrefixes, CompatibleMode compatibleMode, Consumer<Fury> registerAction) {
+        return FurySupport.sharedFuryLocal(ownerType, purpose, allowedPrefixes, compatibleMode, registerAction);
+    }
+
     public static void registerDateTime(Fury fury, short registerId) {
         FurySupport.registerDateTime(fury, registerId);
     }
@@ -21,6 +21,16 @@ public class NetworkTrafficConfig implements Serializable {
     private boolean udpBackpressureEnabled = true;
     private int udpMaxPendingBytes;
     private int udpMaxPendingPackets;
+    /**
+     * 代理中继按用户、再按连接的分层令牌桶限速；全局一层仍由 GlobalChannelTrafficShapingHandler 承担。
+     * 用户级限速可被 {@link org.rx.net.socks.TrafficUser} 自身配置覆盖，0 表示不限速。
+     */
+    private boolean userShapingEnabled;
+    private long userUploadKilobytesPerSecond;
+    private long userDownloadKilobytesPerSecond;
+    private long connectionUploadKilobytesPerSecond;
+    private long connectionDownloadKilobytesPerSecond;
+    private long shapingBurstMillis = 200L;
 
     public NetworkTrafficConfig() {
     }
@@ -36,6 +46,12 @@ public class NetworkTrafficConfig implements Serializable {
             udpBackpressureEnabled = source.udpBackpressureEnabled;
             udpMaxPendingBytes = source.udpMaxPendingBytes;
             udpMaxPendingPackets = source.udpMaxPendingPackets;
+            userShapingEnabled = source.userShapingEnabled;
+            userUploadKilobytesPerSecond = source.userUploadKilobytesPerSecond;
+            userDownloadKilobytesPerSecond = source.userDownloadKilobytesPerSecond;
+            connectionUploadKilobytesPerSecond = source.connectionUploadKilobytesPerSecond;
+            connectionDownloadKilobytesPerSecond = source.connectionDownloadKilobytesPerSecond;
+            shapingBurstMillis = source.shapingBurstMillis;
         }
         normalize();
     }
@@ -67,9 +83,14 @@ public class NetworkTrafficConfig implements Serializable {
         maxDelayMillis = maxDelayMillis > 0L ? maxDelayMillis : 200L;
         udpMaxPendingBytes = Math.max(0, udpMaxPendingBytes);
         udpMaxPendingPackets = Math.max(0, udpMaxPendingPackets);
+        userUploadKilobytesPerSecond = Math.max(0L, userUploadKilobytesPerSecond);
+        userDownloadKilobytesPerSecond = Math.max(0L, userDownloadKilobytesPerSecond);
+        connectionUploadKilobytesPerSecond = Math.max(0L, connectionUploadKilobytesPerSecond);
+        connectionDownloadKilobytesPerSecond = Math.max(0L, connectionDownloadKilobytesPerSecond);
+        shapingBurstMillis = shapingBurstMillis > 0L ? shapingBurstMillis : 200L;
     }
 
-    private static long kilobytesToBytes(long kilobytes) {
+    public static long kilobytesToBytes(long kilobytes) {
         if (kilobytes <= 0L) {
             return 0L;
         }
@@ -24,6 +24,10 @@ import java.util.List;
 @Setter
 @ToString
 public class SocketConfig implements Serializable {
+    public enum TcpRelayFlushMode {
+        IMMEDIATE, READ_COMPLETE
+    }
+
     private static final long serialVersionUID = 5312790348211652335L;
 
     public static final AttributeKey<SocketConfig> ATTR_CONF = AttributeKey.valueOf("conf");
@@ -58,6 +62,15 @@ public class SocketConfig implements Serializable {
      * 最终 UDP datagram payload 字节上限，不含 IP/UDP header；0 表示关闭 MTU 限制。
      */
     private int udpMtu;
+    /**
+     * epoll UDP 出口单次批量写入的最大包数，同一轮事件循环内的写入合并为一次 flush(sendmmsg)；0 表示关闭。
+     */
+    private int udpEgressBatchPackets = 64;
+    /**
+     * 同目的地连续等长包合并为 UDP GSO 分段发送，仅 epoll 且内核支持 UDP_SEGMENT 时生效；默认关闭。
+     * 部分网卡/隧道不支持 GSO 卸载，首次发送失败后才退回多包 flush，确认链路支持后再开启。
+     */
+    private boolean udpGso;
     /**
      * UDP 多倍发包配置。
      * 取值范围 [1, 5]，默认 1。
@@ -78,6 +91,19 @@ public class SocketConfig implements Serializable {
      * -1 表示保持 Netty 默认值，其余取值范围为 [0, 9]。
      */
     private int tcpCompressionLevel = -1;
+    /**
+     * TCP 中继（SOCKS/Shadowsocks/RRP）写出时机。
+     * IMMEDIATE: 每次读取即 writeAndFlush；READ_COMPLETE: 同一轮读取只 write，channelReadComplete 时合并 flush。
+     */
+    private TcpRelayFlushMode tcpRelayFlushMode = TcpRelayFlushMode.IMMEDIATE;
+    /**
+     * READ_COMPLETE 下未 flush 字节达到该值时提前 flush；0 表示不限。
+     */
+    private int tcpRelayFlushBytes;
+    /**
+     * READ_COMPLETE 下写入时若距首个未 flush 写入已超过该微秒数则提前 flush，用于延迟敏感流量；0 表示不限。
+     */
+    private int tcpRelayFlushDelayMicros;
     // 1 = AES, 2 = XChaCha20Poly1305
     private short cipher = 2;
     private byte[] cipherKey;
@@ -89,6 +115,18 @@ public class SocketConfig implements Serializable {
         return transportFlags;
     }
 
+    public void setTcpRelayFlushMode(TcpRelayFlushMode tcpRelayFlushMode) {
+        this.tcpRelayFlushMode = tcpRelayFlushMode != null ? tcpRelayFlushMode : TcpRelayFlushMode.IMMEDIATE;
+    }
+
+    public void setTcpRelayFlushBytes(int tcpRelayFlushBytes) {
+        this.tcpRelayFlushBytes = Math.max(0, tcpRelayFlushBytes);
+    }
+
+    public void setTcpRelayFlushDelayMicros(int tcpRelayFlushDelayMicros) {
+        this.tcpRelayFlushDelayMicros = Math.max(0, tcpRelayFlushDelayMicros);
+    }
+
     public byte[] getCipherKey() {
         if (cipherKey == null) {
             RxConfig.NetConfig conf = RxConfig.INSTANCE.getNet();
@@ -329,6 +367,10 @@ public class SocketConfig implements Serializable {
         this.udpMtu = Math.max(0, udpMtu);
     }
 
+    public void setUdpEgressBatchPackets(int udpEgressBatchPackets) {
+        this.udpEgressBatchPackets = Math.max(0, udpEgressBatchPackets);
+    }
+
     public SocketConfig() {
         RxConfig.NetConfig conf = RxConfig.INSTANCE.getNet();
 //        debug = conf.isEnableLog();
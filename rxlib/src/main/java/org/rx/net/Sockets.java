@@ -33,6 +33,7 @@ import io.netty.resolver.DefaultAddressResolverGroup;
 import io.netty.resolver.ResolvedAddressTypes;
 import io.netty.resolver.dns.DnsAddressResolverGroup;
 import io.netty.resolver.dns.DnsNameResolverBuilder;
+import io.netty.util.Attribute;
 import io.netty.util.AttributeKey;
 import io.netty.util.NetUtil;
 import io.netty.util.ReferenceCountUtil;
@@ -62,6 +63,7 @@ import org.rx.net.socks.ShadowsocksConfig;
 import org.rx.net.socks.SocksConfig;
 import org.rx.net.support.EndpointTracer;
 import org.rx.net.udp.UdpBackpressureDecision;
+import org.rx.net.udp.UdpEgressBatchHandler;
 import org.rx.net.udp.UdpFinalEgressGuardHandler;
 import org.rx.net.udp.UdpMtuProbeDatagramPacket;
 import org.rx.net.udp.UdpPeerAttributes;
@@ -220,6 +222,7 @@ public final class Sockets {
     public static final String ZIP_ENCODER = "ZIP_ENCODER";
     public static final String ZIP_DECODER = "ZIP_DECODER";
     public static final String UDP_FINAL_EGRESS_GUARD = "UDP_FINAL_EGRESS_GUARD";
+    public static final String UDP_EGRESS_BATCH = "UDP_EGRESS_BATCH";
     public static final LengthFieldPrepender INT_LENGTH_FIELD_ENCODER = new LengthFieldPrepender(4);
     public static final AttributeKey<InetSocketAddress> ATTR_ORIGIN_REMOTE_ADDR = AttributeKey.valueOf("originRemoteAddr");
     static final AttributeKey<SocketAddress> ATTR_CONNECT_HINT = AttributeKey.valueOf("connectHint");
@@ -1173,6 +1176,7 @@ public final class Sockets {
         final SocketConfig finalConfig = config;
         b.attr(SocketConfig.ATTR_INIT_FN, (BiAction<Channel>) ch -> {
             addUdpHandler(ch, finalConfig);
+            addUdpEgressBatchHandler(ch, finalConfig);
             if (initChannel != null) {
                 initChannel.accept((DatagramChannel) ch);
             }
@@ -1198,6 +1202,19 @@ public final class Sockets {
         return channel;
     }
 
+    /**
+     * epoll channel 安装出口批量写入，NIO 逐包发送没有批量收益，保持原有逐包 flush。
+     */
+    public static void addUdpEgressBatchHandler(Channel channel, SocketConfig config) {
+        if (config == null || config.getUdpEgressBatchPackets() <= 1 || !(channel instanceof EpollDatagramChannel)
+                || channel.pipeline().get(UdpEgressBatchHandler.class) != null) {
+            return;
+        }
+        boolean gso = config.isUdpGso() && EpollDatagramChannel.isSegmentedDatagramPacketSupported();
+        channel.pipeline().addFirst(UDP_EGRESS_BATCH,
+                new UdpEgressBatchHandler(config.getUdpEgressBatchPackets(), gso, udpFinalMetricPrefix(config)));
+    }
+
     /**
      * 为已确认支持当前 UDP 能力的对端登记优化功能。
      * <p>
@@ -1440,8 +1457,10 @@ public final class Sockets {
                             finalPendingBytes, finalPendingPackets, finalLimitPackets);
                 }
                 if (!f.isSuccess() && !finalGuard) {
-                    recordUdpMetric(metricPrefix, "drop.count",
-                            appendUdpMetricTags(tags, "reason=write-fail,limitBucket=" + udpLimitBucket(finalLimitBytes)));
+                    UdpMetrics metrics = UdpMetrics.of(metricPrefix, tags);
+                    if (metrics != null) {
+                        metrics.recordDrop("write-fail", finalLimitBytes, 0, 0, 0);
+                    }
                     log.warn("UDP write fail channel={} recipient={}", channel, packet.recipient(), f.cause());
                 }
                 if (completionListener != null) {
@@ -1539,37 +1558,42 @@ public final class Sockets {
     public static void releaseUdpPacket(DatagramPacket packet, String metricPrefix, String tags,
                                         String reason, int queuedBytes, int limitBytes,
                                         int queuedPackets, int limitPackets) {
+        releaseUdpPacket(packet, UdpMetrics.of(metricPrefix, tags), reason, queuedBytes, limitBytes, queuedPackets, limitPackets);
+    }
+
+    public static void releaseUdpPacket(DatagramPacket packet, UdpMetrics metrics,
+                                        String reason, int queuedBytes, int limitBytes,
+                                        int queuedPackets, int limitPackets) {
         Bytes.release(packet);
-        String metricTags = appendUdpMetricTags(tags, udpDropLimitTags(reason, limitBytes, limitPackets));
-        recordUdpMetric(metricPrefix, "drop.count",
-                metricTags);
-        if (queuedBytes > 0) {
-            recordUdpMetric(metricPrefix, "pending.write.bytes", metricTags, queuedBytes);
-        }
-        if (queuedPackets > 0) {
-            recordUdpMetric(metricPrefix, "pending.write.packets", metricTags, queuedPackets);
+        if (metrics != null) {
+            metrics.recordDrop(reason, limitBytes, limitPackets, queuedBytes, queuedPackets);
         }
     }
 
     public static void releaseUdpPacketByMtu(DatagramPacket packet, String metricPrefix, String tags,
                                              int bytes, int udpMtu) {
+        releaseUdpPacketByMtu(packet, UdpMetrics.of(metricPrefix, tags), bytes, udpMtu);
+    }
+
+    public static void releaseUdpPacketByMtu(DatagramPacket packet, UdpMetrics metrics, int bytes, int udpMtu) {
         Bytes.release(packet);
-        String metricTags = appendUdpMetricTags(tags,
-                "reason=mtu-exceeded,mtuBucket=" + udpMtuBucket(udpMtu));
-        recordUdpMetric(metricPrefix, "drop.count", metricTags);
-        recordUdpMetric(metricPrefix, "mtu.drop.count", metricTags);
-        recordUdpMetric(metricPrefix, "mtu.drop.bytes", metricTags, bytes);
+        if (metrics != null) {
+            metrics.recordMtuDrop(udpMtu, bytes);
+        }
     }
 
     public static void recordUdpMetric(String metricPrefix, String suffix, String tags) {
         recordUdpMetric(metricPrefix, suffix, tags, 1D);
     }
 
+    /**
+     * 低频路径使用；热路径应持有 {@link UdpMetrics} 或其句柄。
+     */
     public static void recordUdpMetric(String metricPrefix, String suffix, String tags, double value) {
-        if (metricPrefix == null) {
+        if (metricPrefix == null || !DiagnosticMetrics.isEnabled()) {
             return;
         }
-        DiagnosticMetrics.record(metricPrefix + "." + suffix, value, tags);
+        UdpMetrics.of(metricPrefix, tags).counter(suffix).add(Math.round(value));
     }
 
     public static String appendUdpMetricTags(String tags, String extra) {
@@ -1582,14 +1606,6 @@ public final class Sockets {
         return tags + "," + extra;
     }
 
-    private static String udpDropLimitTags(String reason, int limitBytes, int limitPackets) {
-        if (limitPackets <= 0) {
-            return "reason=" + reason + ",limitBucket=" + udpLimitBucket(limitBytes);
-        }
-        return "reason=" + reason + ",limitBucket=" + udpLimitBucket(limitBytes)
-                + ",packetLimitBucket=" + udpPacketLimitBucket(limitPackets);
-    }
-
     public static String udpMetricTags(String component, String path, String flow, String result, String reason) {
         StringBuilder b = new StringBuilder(64);
         appendUdpMetricTag(b, "component", component);
@@ -1611,48 +1627,65 @@ public final class Sockets {
     }
 
     public static String udpLimitBucket(int limitBytes) {
-        if (limitBytes <= 64 * 1024) {
-            return "lte64k";
-        }
-        if (limitBytes <= 256 * 1024) {
-            return "lte256k";
-        }
-        if (limitBytes <= 1024 * 1024) {
-            return "lte1m";
-        }
-        return "gt1m";
+        return UdpMetrics.LIMIT_BUCKETS[UdpMetrics.limitBucket(limitBytes)];
     }
 
-    private static String udpPacketLimitBucket(int limitPackets) {
-        if (limitPackets <= 0) {
-            return "disabled";
-        }
-        if (limitPackets <= 32) {
-            return "lte32";
-        }
-        if (limitPackets <= 128) {
-            return "lte128";
-        }
-        if (limitPackets <= 512) {
-            return "lte512";
-        }
-        return "gt512";
+    public static final int READ_PAUSE_BACKPRESSURE = 1;
+    public static final int READ_PAUSE_SHAPING = 1 << 1;
+    public static final int READ_PAUSE_SPLICE = 1 << 2;
+    static final AttributeKey<AtomicInteger> ATTR_READ_PAUSE_REASONS = AttributeKey.valueOf("readPauseReasons");
+
+    /**
+     * 按原因暂停 read，多个原因（背压、限速）共用一个掩码，全部解除后才恢复 autoRead。
+     * autoRead 的切换在 channel 的 EventLoop 上按当时的掩码执行，并发的暂停与恢复最终一致。
+     */
+    public static void pauseRead(Channel ch, int reason) {
+        AtomicInteger reasons = readPauseMask(ch);
+        reasons.getAndUpdate(r -> r | reason);
+        applyReadPause(ch, reasons);
     }
 
-    private static String udpMtuBucket(int udpMtu) {
-        if (udpMtu <= 1200) {
-            return "lte1200";
-        }
-        if (udpMtu <= 1300) {
-            return "lte1300";
+    /**
+     * @return 已无其它暂停原因时返回 true
+     */
+    public static boolean resumeRead(Channel ch, int reason) {
+        AtomicInteger reasons = readPauseMask(ch);
+        int next = reasons.updateAndGet(r -> r & ~reason);
+        if (next != 0) {
+            return false;
         }
-        if (udpMtu <= 1400) {
-            return "lte1400";
+        applyReadPause(ch, reasons);
+        return true;
+    }
+
+    public static int getReadPauseReasons(Channel ch) {
+        AtomicInteger reasons = ch.attr(ATTR_READ_PAUSE_REASONS).get();
+        return reasons == null ? 0 : reasons.get();
+    }
+
+    static AtomicInteger readPauseMask(Channel ch) {
+        Attribute<AtomicInteger> attr = ch.attr(ATTR_READ_PAUSE_REASONS);
+        AtomicInteger reasons = attr.get();
+        if (reasons == null) {
+            AtomicInteger old = attr.setIfAbsent(reasons = new AtomicInteger());
+            if (old != null) {
+                reasons = old;
+            }
         }
-        if (udpMtu <= 1500) {
-            return "lte1500";
+        return reasons;
+    }
+
+    static void applyReadPause(Channel ch, AtomicInteger reasons) {
+        EventLoop loop = ch.eventLoop();
+        if (loop.inEventLoop()) {
+            if (reasons.get() == 0) {
+                enableAutoRead(ch);
+            } else {
+                disableAutoRead(ch);
+            }
+            return;
         }
-        return "gt1500";
+        loop.execute(() -> applyReadPause(ch, reasons));
     }
 
     /**
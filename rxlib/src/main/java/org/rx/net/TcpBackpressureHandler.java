@@ -27,9 +27,9 @@ public class TcpBackpressureHandler extends ChannelInboundHandlerAdapter {
 
     public static void install(Channel inbound, Channel outbound) {
         install(inbound, outbound, (in, out) -> {
-            Sockets.disableAutoRead(in);
+            Sockets.pauseRead(in, Sockets.READ_PAUSE_BACKPRESSURE);
         }, (in, out, e) -> {
-            Sockets.enableAutoRead(in);
+            Sockets.resumeRead(in, Sockets.READ_PAUSE_BACKPRESSURE);
         });
     }
 
@@ -40,9 +40,9 @@ public class TcpBackpressureHandler extends ChannelInboundHandlerAdapter {
 
     public static boolean installIfAbsent(Channel inbound, Channel outbound) {
         return install0(inbound, outbound, (in, out) -> {
-            Sockets.disableAutoRead(in);
+            Sockets.pauseRead(in, Sockets.READ_PAUSE_BACKPRESSURE);
         }, (in, out, e) -> {
-            Sockets.enableAutoRead(in);
+            Sockets.resumeRead(in, Sockets.READ_PAUSE_BACKPRESSURE);
         }, true);
     }
 
@@ -177,9 +177,9 @@ public class TcpBackpressureHandler extends ChannelInboundHandlerAdapter {
 
     @Override
     public void channelActive(ChannelHandlerContext ctx) throws Exception {
-        // outbound 刚连上时恢复 captured inbound 读取
+        // outbound 刚连上时恢复 captured inbound 读取，限速暂停中则由限速到期恢复
         if (inbound != null && inbound.isOpen()) {
-            Sockets.enableAutoRead(inbound);
+            Sockets.resumeRead(inbound, Sockets.READ_PAUSE_BACKPRESSURE);
         }
         super.channelActive(ctx);
     }
@@ -0,0 +1,82 @@
+package org.rx.net;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁令牌桶，GCRA 实现：只维护理论到达时间 tat，一次 CAS 完成取令牌。
+ * <p>
+ * 允许欠账：字节总会被计入，返回值为按速率应等待的纳秒数，由调用方暂停读取来偿还。
+ */
+public final class TokenBucket {
+    static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    final AtomicLong tat = new AtomicLong(System.nanoTime());
+    final LongAdder consumedBytes = new LongAdder();
+    volatile long bytesPerSecond;
+    volatile long burstNanos;
+
+    public TokenBucket(long bytesPerSecond, long burstMillis) {
+        configure(bytesPerSecond, burstMillis);
+    }
+
+    /**
+     * @param bytesPerSecond 0 表示不限速
+     * @param burstMillis    空闲后可立即放行的突发量，按速率折算为毫秒
+     */
+    public void configure(long bytesPerSecond, long burstMillis) {
+        this.bytesPerSecond = Math.max(0L, bytesPerSecond);
+        this.burstNanos = Math.max(0L, burstMillis) * 1_000_000L;
+    }
+
+    public boolean isLimited() {
+        return bytesPerSecond > 0L;
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    public long consumedBytes() {
+        return consumedBytes.sum();
+    }
+
+    /**
+     * 不取令牌，查询当前欠账按速率还需等待的纳秒数。
+     */
+    public long delay(long nowNanos) {
+        if (bytesPerSecond <= 0L) {
+            return 0L;
+        }
+        long delay = tat.get() - nowNanos - burstNanos;
+        return delay > 0L ? delay : 0L;
+    }
+
+    public long consume(long bytes) {
+        return consume(bytes, System.nanoTime());
+    }
+
+    /**
+     * @return 需要等待的纳秒数，0 表示在速率与突发额度内
+     */
+    public long consume(long bytes, long nowNanos) {
+        if (bytes <= 0L) {
+            return 0L;
+        }
+        consumedBytes.add(bytes);
+        long rate = bytesPerSecond;
+        if (rate <= 0L) {
+            return 0L;
+        }
+        long cost = bytes >= Long.MAX_VALUE / NANOS_PER_SECOND ? Long.MAX_VALUE / 2 : bytes * NANOS_PER_SECOND / rate;
+        long burst = burstNanos;
+        for (; ; ) {
+            long t = tat.get();
+            long next = (t - nowNanos < 0L ? nowNanos : t) + cost;
+            if (tat.compareAndSet(t, next)) {
+                long delay = next - nowNanos - burst;
+                return delay > 0L ? delay : 0L;
+            }
+        }
+    }
+}
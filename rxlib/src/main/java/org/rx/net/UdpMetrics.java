@@ -0,0 +1,195 @@
+package org.rx.net;
+
+import org.rx.diagnostic.DiagnosticMetrics;
+import org.rx.diagnostic.MetricRegistry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按 metricPrefix + 基础 tags 预先解析的 UDP 指标句柄。
+ * <p>
+ * 丢包 reason 与限额分桶的组合有限，首次出现时拼接 tags 并注册到 {@link MetricRegistry#DEFAULT}，
+ * 之后按 reason 与分桶下标取已注册的句柄，热路径不拼接字符串、不分配 key。
+ * 记录前检查 {@link DiagnosticMetrics#isEnabled()}，监控未运行时不累加。
+ */
+public final class UdpMetrics {
+    public static final class DropMetrics {
+        public final MetricRegistry.Counter drops;
+        //丢包时的队列深度快照
+        public final MetricRegistry.Histogram pendingBytes;
+        public final MetricRegistry.Histogram pendingPackets;
+
+        DropMetrics(String prefix, String tags) {
+            drops = MetricRegistry.DEFAULT.counter(prefix, "drop.count", tags);
+            pendingBytes = MetricRegistry.DEFAULT.histogram(prefix, "pending.write.bytes", tags);
+            pendingPackets = MetricRegistry.DEFAULT.histogram(prefix, "pending.write.packets", tags);
+        }
+    }
+
+    public static final class MtuDropMetrics {
+        public final MetricRegistry.Counter drops;
+        public final MetricRegistry.Counter mtuDrops;
+        public final MetricRegistry.Counter mtuDropBytes;
+
+        MtuDropMetrics(String prefix, String tags) {
+            drops = MetricRegistry.DEFAULT.counter(prefix, "drop.count", tags);
+            mtuDrops = MetricRegistry.DEFAULT.counter(prefix, "mtu.drop.count", tags);
+            mtuDropBytes = MetricRegistry.DEFAULT.counter(prefix, "mtu.drop.bytes", tags);
+        }
+    }
+
+    static final String[] LIMIT_BUCKETS = {"lte64k", "lte256k", "lte1m", "gt1m"};
+    //下标 0 表示未配置包数限制，tags 中不带 packetLimitBucket
+    static final String[] PACKET_LIMIT_BUCKETS = {null, "lte32", "lte128", "lte512", "gt512"};
+    static final String[] MTU_BUCKETS = {"lte1200", "lte1300", "lte1400", "lte1500", "gt1500"};
+    static final String NO_TAGS = "";
+    static final Map<String, Map<String, UdpMetrics>> SCOPES = new ConcurrentHashMap<>();
+
+    /**
+     * @return metricPrefix 为 null 时返回 null
+     */
+    public static UdpMetrics of(String metricPrefix, String tags) {
+        if (metricPrefix == null) {
+            return null;
+        }
+        String key = tags == null ? NO_TAGS : tags;
+        Map<String, UdpMetrics> byTags = SCOPES.get(metricPrefix);
+        if (byTags == null) {
+            byTags = SCOPES.computeIfAbsent(metricPrefix, k -> new ConcurrentHashMap<>());
+        }
+        UdpMetrics metrics = byTags.get(key);
+        if (metrics == null) {
+            metrics = byTags.computeIfAbsent(key, k -> new UdpMetrics(metricPrefix, tags));
+        }
+        return metrics;
+    }
+
+    static int limitBucket(int limitBytes) {
+        if (limitBytes <= 64 * 1024) {
+            return 0;
+        }
+        if (limitBytes <= 256 * 1024) {
+            return 1;
+        }
+        if (limitBytes <= 1024 * 1024) {
+            return 2;
+        }
+        return 3;
+    }
+
+    static int packetLimitBucket(int limitPackets) {
+        if (limitPackets <= 0) {
+            return 0;
+        }
+        if (limitPackets <= 32) {
+            return 1;
+        }
+        if (limitPackets <= 128) {
+            return 2;
+        }
+        if (limitPackets <= 512) {
+            return 3;
+        }
+        return 4;
+    }
+
+    static int mtuBucket(int udpMtu) {
+        if (udpMtu <= 1200) {
+            return 0;
+        }
+        if (udpMtu <= 1300) {
+            return 1;
+        }
+        if (udpMtu <= 1400) {
+            return 2;
+        }
+        if (udpMtu <= 1500) {
+            return 3;
+        }
+        return 4;
+    }
+
+    final String prefix;
+    final String tags;
+    final Map<String, MetricRegistry.Counter> counters = new ConcurrentHashMap<>();
+    final Map<String, MetricRegistry.Histogram> histograms = new ConcurrentHashMap<>();
+    //reason -> [limitBucket * PACKET_LIMIT_BUCKETS.length + packetLimitBucket]
+    final Map<String, DropMetrics[]> drops = new ConcurrentHashMap<>();
+    final MtuDropMetrics[] mtuDrops = new MtuDropMetrics[MTU_BUCKETS.length];
+
+    UdpMetrics(String prefix, String tags) {
+        this.prefix = prefix;
+        this.tags = tags;
+    }
+
+    public MetricRegistry.Counter counter(String suffix) {
+        MetricRegistry.Counter counter = counters.get(suffix);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(suffix, k -> MetricRegistry.DEFAULT.counter(prefix, k, tags));
+        }
+        return counter;
+    }
+
+    public MetricRegistry.Histogram histogram(String suffix) {
+        MetricRegistry.Histogram histogram = histograms.get(suffix);
+        if (histogram == null) {
+            histogram = histograms.computeIfAbsent(suffix, k -> MetricRegistry.DEFAULT.histogram(prefix, k, tags));
+        }
+        return histogram;
+    }
+
+    public void add(String suffix, long delta) {
+        if (DiagnosticMetrics.isEnabled()) {
+            counter(suffix).add(delta);
+        }
+    }
+
+    public void recordDrop(String reason, int limitBytes, int limitPackets, int queuedBytes, int queuedPackets) {
+        if (!DiagnosticMetrics.isEnabled()) {
+            return;
+        }
+        DropMetrics m = dropMetrics(reason, limitBytes, limitPackets);
+        m.drops.increment();
+        if (queuedBytes > 0) {
+            m.pendingBytes.record(queuedBytes);
+        }
+        if (queuedPackets > 0) {
+            m.pendingPackets.record(queuedPackets);
+        }
+    }
+
+    public void recordMtuDrop(int udpMtu, int bytes) {
+        if (!DiagnosticMetrics.isEnabled()) {
+            return;
+        }
+        int bucket = mtuBucket(udpMtu);
+        MtuDropMetrics m = mtuDrops[bucket];
+        if (m == null) {
+            //并发首次注册得到同一组句柄，句柄字段均为 final，覆盖写无害
+            mtuDrops[bucket] = m = new MtuDropMetrics(prefix, Sockets.appendUdpMetricTags(tags,
+                    "reason=mtu-exceeded,mtuBucket=" + MTU_BUCKETS[bucket]));
+        }
+        m.drops.increment();
+        m.mtuDrops.increment();
+        m.mtuDropBytes.add(bytes);
+    }
+
+    public DropMetrics dropMetrics(String reason, int limitBytes, int limitPackets) {
+        DropMetrics[] slots = drops.get(reason);
+        if (slots == null) {
+            slots = drops.computeIfAbsent(reason, k -> new DropMetrics[LIMIT_BUCKETS.length * PACKET_LIMIT_BUCKETS.length]);
+        }
+        int limitBucket = limitBucket(limitBytes), packetBucket = packetLimitBucket(limitPackets);
+        int i = limitBucket * PACKET_LIMIT_BUCKETS.length + packetBucket;
+        DropMetrics m = slots[i];
+        if (m == null) {
+            String extra = "reason=" + reason + ",limitBucket=" + LIMIT_BUCKETS[limitBucket];
+            if (packetBucket > 0) {
+                extra += ",packetLimitBucket=" + PACKET_LIMIT_BUCKETS[packetBucket];
+            }
+            slots[i] = m = new DropMetrics(prefix, Sockets.appendUdpMetricTags(tags, extra));
+        }
+        return m;
+    }
+}
@@ -1,13 +1,17 @@
 package org.rx.net.dns;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.DatagramPacket;
 import io.netty.handler.codec.dns.DatagramDnsQuery;
+import io.netty.handler.codec.dns.DatagramDnsResponseEncoder;
 import io.netty.handler.codec.dns.DefaultDnsQuery;
 import io.netty.handler.codec.dns.DefaultDnsResponse;
 import io.netty.handler.codec.dns.DnsResponseCode;
+import io.netty.handler.codec.dns.TcpDnsResponseEncoder;
 import io.netty.util.concurrent.Promise;
 import lombok.extern.slf4j.Slf4j;
 import org.rx.net.Sockets;
@@ -41,6 +45,12 @@ public class DnsHandler extends SimpleChannelInboundHandler<DefaultDnsQuery> {
         }
         DnsClient upstream = Sockets.getAttr(ch, DnsServer.ATTR_UPSTREAM);
 
+        ByteBuf wire = DnsResolveCore.resolveCachedWire(server, upstream, query, isTcp, ctx.alloc());
+        if (wire != null) {
+            writeWire(ctx, query, wire);
+            return;
+        }
+
         query.retain();
         Promise<DefaultDnsResponse> promise = DnsResolveCore.resolve(server, upstream, srcIp, query, isTcp, ctx.executor());
         promise.addListener(f -> {
@@ -57,6 +67,18 @@ public class DnsHandler extends SimpleChannelInboundHandler<DefaultDnsQuery> {
         });
     }
 
+    //已编码报文从 encoder 之前的位置写出，绕过 DnsResponse 编码器
+    static void writeWire(ChannelHandlerContext ctx, DefaultDnsQuery query, ByteBuf wire) {
+        if (query instanceof DatagramDnsQuery) {
+            DatagramDnsQuery udpQuery = (DatagramDnsQuery) query;
+            ChannelHandlerContext encoderCtx = ctx.pipeline().context(DatagramDnsResponseEncoder.class);
+            (encoderCtx != null ? encoderCtx : ctx).writeAndFlush(new DatagramPacket(wire, udpQuery.sender(), udpQuery.recipient()));
+            return;
+        }
+        ChannelHandlerContext encoderCtx = ctx.pipeline().context(TcpDnsResponseEncoder.class);
+        (encoderCtx != null ? encoderCtx : ctx).writeAndFlush(wire);
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
         Throwable e = cause;
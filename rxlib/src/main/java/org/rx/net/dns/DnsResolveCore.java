@@ -1,5 +1,7 @@
 package org.rx.net.dns;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.AddressedEnvelope;
 import io.netty.handler.codec.dns.*;
 import io.netty.util.concurrent.DefaultPromise;
@@ -113,6 +115,47 @@ public final class DnsResolveCore {
         return promise;
     }
 
+    /**
+     * 响应缓存新鲜命中的 wire 快速路径，返回可直接写出的报文；不适用时返回 null，由 {@link #resolve} 处理。
+     * 与 resolve 相同的前置判定：hosts、fake host 与拦截器域名不走响应缓存。
+     */
+    public static ByteBuf resolveCachedWire(DnsServer server, DnsClient upstream, DefaultDnsQuery query,
+                                            boolean lengthPrefixed, ByteBufAllocator alloc) {
+        if (server.responseCache == null || !RxConfig.INSTANCE.getNet().getDns().getCache().isWireFormat()) {
+            return null;
+        }
+        DefaultDnsQuestion question = query.recordAt(DnsSection.QUESTION);
+        if (question == null) {
+            return null;
+        }
+        String domain = normalizeDomain(question.name());
+        DnsRecordType queryType = question.type();
+        if (domain.endsWith(SocksRpcContract.FAKE_HOST_SUFFIX) || !server.getHosts(domain).isEmpty()
+                || (server.interceptors != null && !domain.endsWith(".lan")
+                && (queryType == DnsRecordType.A || queryType == DnsRecordType.AAAA))) {
+            return null;
+        }
+
+        String cacheKey = server.responseCacheKey(domain, queryType, question.dnsClass());
+        DnsResponseCacheEntry cached = getCachedResponse(server, cacheKey, domain);
+        long now = System.currentTimeMillis();
+        if (cached == null || !cached.isFresh(now)) {
+            return null;
+        }
+        ByteBuf wire = cached.writeFreshWire(alloc, query, lengthPrefixed, now);
+        if (wire == null) {
+            return null;
+        }
+        server.responseCacheFreshHits.incrementAndGet();
+        server.responseCacheWireHits.incrementAndGet();
+        RxConfig.DnsCacheConfig config = RxConfig.INSTANCE.getNet().getDns().getCache();
+        if (cached.shouldPrefetch(config, now)) {
+            refreshUpstream(server, upstream, copyQuestion(question), cacheKey, domain, "prefetch");
+        }
+        logQuery(null, domain, Integer.valueOf(cached.answers.size()), "CACHE_WIRE");
+        return wire;
+    }
+
     static List<InetAddress> getCachedInterceptorIps(Cache<String, List<InetAddress>> cache, String cacheKey,
                                                      InetAddress srcIp, String domain) {
         try {
@@ -171,6 +171,7 @@ abstract class DnsResolverSupport extends Disposable {
     final Map<String, Promise<DnsResponseCacheEntry>> responseRefreshPromises = new ConcurrentHashMap<>();
     final Map<DnsResolveInterceptor, Long> interceptorBreakerUntil = new ConcurrentHashMap<>();
     final AtomicLong responseCacheFreshHits = new AtomicLong();
+    final AtomicLong responseCacheWireHits = new AtomicLong();
     final AtomicLong responseCacheStaleHits = new AtomicLong();
     final AtomicLong responseCacheMisses = new AtomicLong();
     final AtomicLong responseCachePrefetchStarted = new AtomicLong();
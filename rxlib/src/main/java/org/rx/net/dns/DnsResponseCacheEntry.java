@@ -1,6 +1,7 @@
 package org.rx.net.dns;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.dns.*;
 import io.netty.util.ReferenceCounted;
@@ -9,6 +10,7 @@ import org.rx.core.RxConfig;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -16,6 +18,7 @@ import java.util.List;
 final class DnsResponseCacheEntry implements Serializable {
     private static final long serialVersionUID = -6384440696278742988L;
     static final int NEGATIVE_TTL_SOA_PARSE_FAILED = -1;
+    static final WireTemplate WIRE_UNSUPPORTED = new WireTemplate(null, 0, null, null, null);
 
     static final class RecordEntry implements Serializable {
         private static final long serialVersionUID = -1476093579681822406L;
@@ -39,6 +42,25 @@ final class DnsResponseCacheEntry implements Serializable {
         }
     }
 
+    /**
+     * 编码后的应答报文，事务 ID 为 0；ttlOffsets 指向各记录 TTL 字段，命中时按 ttls 减去已过秒数原地改写。
+     */
+    static final class WireTemplate {
+        final String questionName;
+        final int questionNameBytes;
+        final byte[] bytes;
+        final int[] ttlOffsets;
+        final long[] ttls;
+
+        WireTemplate(String questionName, int questionNameBytes, byte[] bytes, int[] ttlOffsets, long[] ttls) {
+            this.questionName = questionName;
+            this.questionNameBytes = questionNameBytes;
+            this.bytes = bytes;
+            this.ttlOffsets = ttlOffsets;
+            this.ttls = ttls;
+        }
+    }
+
     final long createdMillis;
     final int freshTtlSeconds;
     final int opCode;
@@ -51,6 +73,7 @@ final class DnsResponseCacheEntry implements Serializable {
     final List<RecordEntry> answers;
     final List<RecordEntry> authorities;
     final List<RecordEntry> additionals;
+    transient volatile WireTemplate wireTemplate;
 
     DnsResponseCacheEntry(long createdMillis, int freshTtlSeconds, DnsResponse response,
                           List<RecordEntry> answers, List<RecordEntry> authorities,
@@ -329,6 +352,113 @@ final class DnsResponseCacheEntry implements Serializable {
         }
     }
 
+    /**
+     * 新鲜命中的 wire 路径：复制模板到池化 buffer，原地写入事务 ID、问题名大小写与递减后的 TTL。
+     *
+     * @param lengthPrefixed TCP 需要 2 字节长度前缀
+     * @return null 表示无法走 wire 路径，调用方回退到 {@link #newResponse}
+     */
+    ByteBuf writeFreshWire(ByteBufAllocator alloc, DefaultDnsQuery query, boolean lengthPrefixed, long nowMillis) {
+        DefaultDnsQuestion question = query.recordAt(DnsSection.QUESTION);
+        WireTemplate template = wireTemplate;
+        if (template == null) {
+            wireTemplate = template = buildWireTemplate(question);
+        }
+        if (template == WIRE_UNSUPPORTED) {
+            return null;
+        }
+
+        byte[] bytes = template.bytes;
+        ByteBuf buf = alloc.buffer((lengthPrefixed ? 2 : 0) + bytes.length);
+        if (lengthPrefixed) {
+            buf.writeShort(bytes.length);
+        }
+        int start = buf.writerIndex();
+        buf.writeBytes(bytes);
+        buf.setShort(start, query.id());
+        if (!template.questionName.equals(question.name()) && !patchQuestionName(buf, start, template, question.name())) {
+            buf.release();
+            return null;
+        }
+
+        long elapsedSeconds = Math.max(0L, (nowMillis - createdMillis) / 1000L);
+        int[] offsets = template.ttlOffsets;
+        long[] ttls = template.ttls;
+        for (int i = 0; i < offsets.length; i++) {
+            long remain = ttls[i] - elapsedSeconds;
+            buf.setInt(start + offsets[i], remain <= 0 ? 1 : remain > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) remain);
+        }
+        return buf;
+    }
+
+    //缓存 key 忽略大小写，问题名按本次查询原样回写（0x20 随机大小写校验）
+    static boolean patchQuestionName(ByteBuf buf, int start, WireTemplate template, String name) {
+        int end = buf.writerIndex();
+        int nameStart = start + DoHMessageCodec.DNS_HEADER_BYTES;
+        buf.writerIndex(nameStart);
+        try {
+            DoHMessageCodec.writeName(buf, name);
+            return buf.writerIndex() - nameStart == template.questionNameBytes;
+        } catch (IllegalArgumentException e) {
+            return false;
+        } finally {
+            buf.writerIndex(end);
+        }
+    }
+
+    WireTemplate buildWireTemplate(DnsQuestion question) {
+        int recordCount = answers.size() + authorities.size() + additionals.size();
+        ByteBuf out = Unpooled.buffer(DoHMessageCodec.DNS_HEADER_BYTES + 64 + (recordCount << 5));
+        try {
+            out.writeShort(0);
+            out.writeShort(DoHMessageCodec.responseFlags(opCode, authoritativeAnswer, truncated, recursionDesired,
+                    recursionAvailable, z, responseCode));
+            out.writeShort(1);
+            out.writeShort(answers.size());
+            out.writeShort(authorities.size());
+            out.writeShort(additionals.size());
+            DoHMessageCodec.writeName(out, question.name());
+            int questionNameBytes = out.writerIndex() - DoHMessageCodec.DNS_HEADER_BYTES;
+            out.writeShort(question.type().intValue());
+            out.writeShort(question.dnsClass());
+
+            int[] ttlOffsets = new int[recordCount];
+            long[] ttls = new long[recordCount];
+            int n = writeWireRecords(out, answers, ttlOffsets, ttls, 0);
+            n = writeWireRecords(out, authorities, ttlOffsets, ttls, n);
+            n = writeWireRecords(out, additionals, ttlOffsets, ttls, n);
+            byte[] bytes = new byte[out.readableBytes()];
+            out.getBytes(out.readerIndex(), bytes);
+            return new WireTemplate(question.name(), questionNameBytes, bytes,
+                    n == recordCount ? ttlOffsets : Arrays.copyOf(ttlOffsets, n), n == recordCount ? ttls : Arrays.copyOf(ttls, n));
+        } catch (IllegalArgumentException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("dns response cache wire template unsupported {}: {}", question.name(), e.getMessage());
+            }
+            return WIRE_UNSUPPORTED;
+        } finally {
+            out.release();
+        }
+    }
+
+    static int writeWireRecords(ByteBuf out, List<RecordEntry> records, int[] ttlOffsets, long[] ttls, int n) {
+        for (int i = 0; i < records.size(); i++) {
+            RecordEntry record = records.get(i);
+            DoHMessageCodec.writeName(out, record.name);
+            out.writeShort(record.type);
+            out.writeShort(record.dnsClass);
+            //OPT 的 TTL 字段承载扩展 rcode/flags，不能当作 TTL 递减
+            if (record.type != DnsRecordType.OPT.intValue()) {
+                ttlOffsets[n] = out.writerIndex();
+                ttls[n++] = record.ttl;
+            }
+            out.writeInt((int) record.ttl);
+            out.writeShort(record.content.length);
+            out.writeBytes(record.content);
+        }
+        return n;
+    }
+
     int sizeInBytes(String key) {
         int bytes = 96 + (key == null ? 0 : (key.length() << 1));
         bytes += recordsSize(answers);
@@ -152,22 +152,28 @@ public final class DoHMessageCodec {
     }
 
     private static int responseFlags(DnsResponse response) {
+        return responseFlags(response.opCode().byteValue(), response.isAuthoritativeAnswer(), response.isTruncated(),
+                response.isRecursionDesired(), response.isRecursionAvailable(), response.z(), response.code().intValue());
+    }
+
+    static int responseFlags(int opCode, boolean authoritativeAnswer, boolean truncated, boolean recursionDesired,
+                             boolean recursionAvailable, int z, int responseCode) {
         int flags = 0x8000;
-        flags |= (response.opCode().byteValue() & 0x0f) << 11;
-        if (response.isAuthoritativeAnswer()) {
+        flags |= (opCode & 0x0f) << 11;
+        if (authoritativeAnswer) {
             flags |= 0x0400;
         }
-        if (response.isTruncated()) {
+        if (truncated) {
             flags |= 0x0200;
         }
-        if (response.isRecursionDesired()) {
+        if (recursionDesired) {
             flags |= 0x0100;
         }
-        if (response.isRecursionAvailable()) {
+        if (recursionAvailable) {
             flags |= 0x0080;
         }
-        flags |= (response.z() & 0x07) << 4;
-        flags |= response.code().intValue() & 0x0f;
+        flags |= (z & 0x07) << 4;
+        flags |= responseCode & 0x0f;
         return flags;
     }
 
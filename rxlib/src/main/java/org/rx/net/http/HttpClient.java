@@ -1330,7 +1330,7 @@ public class HttpClient implements AutoCloseable {
                     }
                 }
                 if (state.cache != null && state.cacheStoreAllowed && state.cache.storeable(responseUrl, state.response)) {
-                    state.cache.store(responseUrl, state.response, state.body);
+                    state.cache.store(responseUrl, state.requestHeaders, state.response, state.body);
                 }
                 Response content = new Response(state.client, state.request, responseUrl, state.response, state.body, elapsedNanos);
                 completeResponse(state, content, elapsedNanos, false);
@@ -1730,16 +1730,16 @@ public class HttpClient implements AutoCloseable {
         return execute(request);
     }
 
-    private void completeCacheHit(Request request, Request currentRequest, URI uri, CompletableFuture<Response> future,
-                                  HttpClientCache cache, HttpClientCache.CacheEntry cacheEntry, long startNanos, int redirectCount) {
+    private boolean completeCacheHit(Request request, Request currentRequest, URI uri, CompletableFuture<Response> future,
+                                     HttpClientCache cache, HttpClientCache.CacheEntry cacheEntry, long startNanos, int redirectCount) {
         if (future.isDone()) {
-            return;
+            return true;
         }
         long elapsedNanos = System.nanoTime() - startNanos;
         String responseUrl = redirectCount == 0 ? request.url() : uri.toString();
         Response response = cache.createCachedResponse(this, request, responseUrl, cacheEntry, null, elapsedNanos);
         if (response == null) {
-            return;
+            return false;
         }
         activeResponses.add(response);
         SUCCESS_UPDATER.incrementAndGet(this);
@@ -1757,6 +1757,36 @@ public class HttpClient implements AutoCloseable {
                     requestLogText(currentRequest), responseLogText(response));
         }
         future.complete(response);
+        return true;
+    }
+
+    /**
+     * stale-while-revalidate 命中后按原请求头后台刷新，同一条目同时只刷新一次；
+     * 刷新请求带 Cache-Control: no-cache，走条件请求或整体重新获取并写回缓存。
+     */
+    private void refreshCacheEntry(Request currentRequest, HttpClientConfig cfg, HttpClientCache cache, HttpClientCache.CacheEntry cacheEntry) {
+        if (!cache.beginRefresh(cacheEntry)) {
+            return;
+        }
+        Request refresh = new Request(HttpMethod.GET, currentRequest.url);
+        HttpHeaders headers = new DefaultHttpHeaders(false);
+        if (currentRequest.headers != null) {
+            headers.set(currentRequest.headers);
+        }
+        headers.set(HttpHeaderNames.CACHE_CONTROL, HttpHeaderValues.NO_CACHE);
+        refresh.headers = headers;
+        refresh.timeoutMillis = currentRequest.timeoutMillis;
+        refresh.proxy = currentRequest.proxy;
+        refresh.enableCookie = currentRequest.enableCookie;
+        refresh.followRedirects = currentRequest.followRedirects;
+        refresh.maxRedirects = currentRequest.maxRedirects;
+        refresh.enableLog = currentRequest.enableLog;
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        future.whenComplete((r, e) -> {
+            cache.endRefresh(cacheEntry);
+            tryClose(r);
+        });
+        executeAsync0(refresh, refresh, cfg, future, System.nanoTime(), 0);
     }
 
     void executeAsync0(Request request, Request currentRequest, HttpClientConfig cfg,
@@ -1786,14 +1816,25 @@ public class HttpClient implements AutoCloseable {
         HttpClientCache.CacheEntry cacheEntry = null;
         boolean cacheStoreAllowed = cacheStoreAllowed(currentRequest);
         if (cache != null && cacheLookupAllowed(currentRequest, cookieEnabled) && !cacheBypass(requestHeaders)) {
-            cacheEntry = cache.get(uri.toString());
-            if (cacheEntry != null) {
-                boolean forceRevalidate = forceCacheRevalidate(requestHeaders);
-                if (!forceRevalidate && cacheEntry.isFresh(System.currentTimeMillis())) {
-                    completeCacheHit(request, currentRequest, uri, future, cache, cacheEntry, startNanos, redirectCount);
-                    tryClose(content);
-                    return;
+            cacheEntry = cache.get(uri.toString(), requestHeaders);
+            boolean forceRevalidate = cacheEntry != null && forceCacheRevalidate(requestHeaders);
+            if (cacheEntry != null && !forceRevalidate) {
+                long now = System.currentTimeMillis();
+                boolean fresh = cacheEntry.isFresh(now);
+                if (fresh || cacheEntry.isStaleWhileRevalidate(now)) {
+                    if (completeCacheHit(request, currentRequest, uri, future, cache, cacheEntry, startNanos, redirectCount)) {
+                        if (!fresh) {
+                            refreshCacheEntry(currentRequest, cfg, cache, cacheEntry);
+                        }
+                        tryClose(content);
+                        return;
+                    }
+                    //body 文件已不存在
+                    cache.invalidate(cacheEntry);
+                    cacheEntry = null;
                 }
+            }
+            if (cacheEntry != null) {
                 if (cacheEntry.canRevalidate()) {
                     cache.applyValidators(ensureMutableHeaders(currentRequest), cacheEntry);
                     requestHeaders = currentRequest.headers;
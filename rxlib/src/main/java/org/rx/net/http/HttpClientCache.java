@@ -3,6 +3,7 @@ package org.rx.net.http;
 import com.alibaba.fastjson2.JSON;
 import io.netty.handler.codec.DateFormatter;
 import io.netty.handler.codec.http.*;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.experimental.Accessors;
@@ -12,14 +13,13 @@ import org.rx.core.Strings;
 import org.rx.io.Files;
 import org.rx.io.HybridStream;
 
-import java.io.File;
-import java.io.Serializable;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @Getter
@@ -30,11 +30,21 @@ import java.util.concurrent.atomic.AtomicInteger;
  * FileChannel -> ByteBuf -> Channel(OutputStream)，不是 Netty {@code FileRegion}/{@code sendfile}
  * 这种内核零拷贝；也就是“程序读文件再写出”，只是避免了额外 byte[] 中转。
  * 若后续需要真正零拷贝，只能在明文 TCP 场景单独走 FileRegion，TLS/HTTPS 仍需经过用户态加密链路。
+ * <p>
+ * 条目元数据、大小与访问顺序保存在按目录共享的内存索引 {@link Index} 中，由目录下追加写的 journal 持久化，
+ * 命中不再 stat/反序列化 meta 文件，淘汰与容量统计为 O(1)；响应带 Vary 时按所列请求头取值区分变体，
+ * 带 stale-while-revalidate 时过期窗口内先返回旧内容再由 {@link HttpClient} 后台刷新。
  */
 public final class HttpClientCache {
     static final String DEFAULT_DIR_NAME = "rx-http-cache";
     private static final String META_FILE_NAME = "meta.json";
     private static final String BODY_FILE_NAME = "body.bin";
+    static final String JOURNAL_FILE_NAME = "journal";
+    private static final String JOURNAL_HEADER = "rx-http-cache 1";
+    private static final String TEMP_MARK = ".tmp-";
+    //冗余记录超过该值且多于存活条目数时重写 journal
+    static final int JOURNAL_COMPACT_THRESHOLD = 2000;
+    private static final Map<String, Index> INDEXES = new ConcurrentHashMap<>();
     private static final Set<String> STATIC_FILE_EXTENSIONS = new HashSet<>(Arrays.asList(
             "js", "css", "png", "jpg", "jpeg", "gif", "svg", "ico", "woff", "woff2", "ttf", "eot",
             "mp3", "mp4", "m4a", "webm", "wav", "pdf", "zip", "rar", "7z", "tar", "gz", "bz2",
@@ -42,8 +52,8 @@ public final class HttpClientCache {
 
     private File directory;
     private long maxBytes;
-    private final AtomicBoolean trimming = new AtomicBoolean();
-    private final ConcurrentHashMap<String, AtomicInteger> inUseEntries = new ConcurrentHashMap<>();
+    @Getter(AccessLevel.NONE)
+    private volatile Index index;
 
     public HttpClientCache() {
         this(new File(".", DEFAULT_DIR_NAME), 512L * Constants.MB);
@@ -64,6 +74,7 @@ public final class HttpClientCache {
 
     public HttpClientCache setDirectory(File directory) {
         this.directory = (directory != null ? directory : new File(".", DEFAULT_DIR_NAME)).getAbsoluteFile();
+        index = null;
         return this;
     }
 
@@ -73,23 +84,61 @@ public final class HttpClientCache {
     }
 
     CacheEntry get(String url) {
+        return get(url, null);
+    }
+
+    CacheEntry get(String url, HttpHeaders requestHeaders) {
         if (Strings.isEmpty(url)) {
             return null;
         }
-        File entryDir = entryDirectory(url);
+        Index index = index();
+        String urlKey = entryKey(url);
+        List<String> vary = index.varyNames(urlKey);
+        String key = vary == null ? urlKey : variantKey(url, vary, requestHeaders);
+        Node node = index.access(key);
+        if (node == null) {
+            return null;
+        }
+        File entryDir = new File(index.root, key);
         File metaFile = new File(entryDir, META_FILE_NAME);
         File bodyFile = new File(entryDir, BODY_FILE_NAME);
-        if (!metaFile.isFile() || !bodyFile.isFile()) {
-            deleteEntry(entryDir);
+        EntryMetadata metadata = node.metadata;
+        if (metadata == null) {
+            //索引由 journal 重放而来，首次命中时加载一次元数据
+            metadata = bodyFile.isFile() ? readMetadata(metaFile) : null;
+            if (metadata == null) {
+                invalidate(index, key, entryDir);
+                return null;
+            }
+            node.metadata = metadata;
+        }
+        if (!Strings.equals(metadata.url, url)) {
             return null;
         }
-        EntryMetadata metadata = readMetadata(metaFile);
-        if (metadata == null || !Strings.equals(metadata.url, url)) {
+        return new CacheEntry(url, key, entryDir, metaFile, bodyFile, metadata);
+    }
+
+    void invalidate(CacheEntry entry) {
+        if (entry != null) {
+            invalidate(index(), entry.key, entry.entryDir);
+        }
+    }
+
+    private void invalidate(Index index, String key, File entryDir) {
+        index.remove(key);
+        if (!index.isInUse(key)) {
             deleteEntry(entryDir);
-            return null;
         }
-        touch(entryDir, metaFile, bodyFile);
-        return new CacheEntry(url, entryKey(url), entryDir, metaFile, bodyFile, metadata);
+    }
+
+    boolean beginRefresh(CacheEntry entry) {
+        return entry != null && index().refreshing.add(entry.key);
+    }
+
+    void endRefresh(CacheEntry entry) {
+        if (entry != null) {
+            index().refreshing.remove(entry.key);
+        }
     }
 
     void applyValidators(@NonNull HttpHeaders headers, CacheEntry entry) {
@@ -119,37 +168,52 @@ public final class HttpClientCache {
         if (hasDirective(cacheControl, "no-store") || hasDirective(cacheControl, "private")) {
             return false;
         }
+        List<String> vary = varyNames(headers);
+        if (vary != null && vary.contains("*")) {
+            return false;
+        }
         return hasExplicitCaching(headers) || isStaticAsset(url, headers.get(HttpHeaderNames.CONTENT_TYPE));
     }
 
     void store(String url, HttpResponse response, HybridStream body) {
+        store(url, null, response, body);
+    }
+
+    void store(String url, HttpHeaders requestHeaders, HttpResponse response, HybridStream body) {
         if (Strings.isEmpty(url) || response == null || body == null) {
             return;
         }
-        File root = ensureDirectory();
-        String key = entryKey(url);
+        Index index = index();
+        if (!index.journalFile.isFile()) {
+            //目录在进程运行期间被外部删除
+            index = reopenIndex(index);
+        }
+        File root = index.root;
+        String urlKey = entryKey(url);
+        List<String> vary = varyNames(response.headers());
+        String key = vary == null ? urlKey : variantKey(url, vary, requestHeaders);
         File entryDir = new File(root, key);
-        File tempDir = new File(root, key + ".tmp-" + Long.toHexString(ThreadLocalRandom.current().nextLong()));
+        File tempDir = new File(root, key + TEMP_MARK + Long.toHexString(ThreadLocalRandom.current().nextLong()));
         try {
             java.nio.file.Files.createDirectories(tempDir.toPath());
             File bodyFile = new File(tempDir, BODY_FILE_NAME);
             java.nio.file.Files.copy(body.rewind().asInputStream(), bodyFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
 
             EntryMetadata metadata = buildMetadata(url, response, bodyFile.length());
-            File metaFile = new File(tempDir, META_FILE_NAME);
-            java.nio.file.Files.write(metaFile.toPath(), JSON.toJSONBytes(metadata), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-            touch(tempDir, metaFile, bodyFile);
+            metadata.vary = vary;
+            byte[] meta = JSON.toJSONBytes(metadata);
+            java.nio.file.Files.write(new File(tempDir, META_FILE_NAME).toPath(), meta, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
 
             if (entryDir.exists() && !deleteEntry(entryDir)) {
                 deleteEntry(tempDir);
                 return;
             }
-            if (entryDir.exists()) {
-                deleteEntry(entryDir);
-            }
             Files.move(tempDir, entryDir);
-            touch(entryDir, new File(entryDir, META_FILE_NAME), new File(entryDir, BODY_FILE_NAME));
-            trim(entryDir);
+            String replaced = index.put(key, metadata.bodyLength + meta.length, metadata, urlKey, vary);
+            if (replaced != null) {
+                deleteEntry(new File(root, replaced));
+            }
+            trim(index, key);
         } catch (Throwable e) {
             deleteEntry(tempDir);
         }
@@ -161,41 +225,73 @@ public final class HttpClientCache {
         }
         HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.valueOf(entry.metadata.statusCode));
         HttpHeaders headers = response.headers();
-        restoreHeaders(headers, entry.metadata.headers);
         if (networkResponse != null) {
-            mergeValidationHeaders(entry.metadata.headers, networkResponse.headers());
+            //元数据为索引内共享对象，合并到副本
+            Map<String, List<String>> merged = new LinkedHashMap<>(entry.metadata.headers);
+            mergeValidationHeaders(merged, networkResponse.headers());
+            restoreHeaders(headers, merged);
+        } else {
             restoreHeaders(headers, entry.metadata.headers);
         }
-        headers.set(HttpHeaderNames.CONTENT_LENGTH, entry.bodyFile.length());
+        headers.set(HttpHeaderNames.CONTENT_LENGTH, entry.metadata.bodyLength);
         HybridStream cachedBody = new HybridStream(HybridStream.NON_MEMORY_SIZE, false, entry.bodyFile.getAbsolutePath());
-        retain(entry.key);
-        return new CachedResponse(owner, request, responseUrl, response, cachedBody, elapsedNanos, this, entry.key);
+        Index index = index();
+        index.retain(entry.key);
+        return new CachedResponse(owner, request, responseUrl, response, cachedBody, elapsedNanos, index, entry.key);
     }
 
     void revalidate(CacheEntry entry, HttpResponse response) {
-        if (entry == null || response == null || !entry.metaFile.isFile()) {
+        if (entry == null || response == null) {
             return;
         }
+        Index index = index();
         try {
-            EntryMetadata metadata = entry.metadata;
+            EntryMetadata metadata = entry.metadata.copy();
             mergeValidationHeaders(metadata.headers, response.headers());
             metadata.storedAt = System.currentTimeMillis();
             metadata.etag = firstHeader(metadata.headers, HttpHeaderNames.ETAG);
             metadata.lastModified = firstHeader(metadata.headers, HttpHeaderNames.LAST_MODIFIED);
             metadata.expiresAt = resolveExpiresAt(metadata.headers, metadata.storedAt);
-            java.nio.file.Files.write(entry.metaFile.toPath(), JSON.toJSONBytes(metadata), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-            touch(entry.entryDir, entry.metaFile, entry.bodyFile);
+            metadata.staleUntil = resolveStaleUntil(firstHeader(metadata.headers, HttpHeaderNames.CACHE_CONTROL), metadata.expiresAt, metadata.storedAt);
+            byte[] meta = JSON.toJSONBytes(metadata);
+            java.nio.file.Files.write(entry.metaFile.toPath(), meta, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            index.update(entry.key, metadata.bodyLength + meta.length, metadata);
         } catch (Throwable e) {
-            deleteEntry(entry.entryDir);
+            invalidate(index, entry.key, entry.entryDir);
         }
     }
 
     long totalBytes() {
-        return fileTreeBytes(ensureDirectory());
+        return index().totalBytes();
+    }
+
+    Index index() {
+        Index index = this.index;
+        if (index == null) {
+            File dir = canonicalFile(directory != null ? directory : new File(".", DEFAULT_DIR_NAME));
+            this.index = index = INDEXES.computeIfAbsent(dir.getPath(), k -> Index.open(ensureDirectory(dir)));
+        }
+        return index;
     }
 
-    private File ensureDirectory() {
-        File dir = directory != null ? directory : new File(".", DEFAULT_DIR_NAME);
+    private Index reopenIndex(Index stale) {
+        INDEXES.remove(stale.root.getPath(), stale);
+        stale.close();
+        this.index = null;
+        return index();
+    }
+
+    /**
+     * 关闭共享索引，下次访问时从 journal 重新加载。
+     */
+    void closeIndex() {
+        Index index = index();
+        INDEXES.remove(index.root.getPath(), index);
+        index.close();
+        this.index = null;
+    }
+
+    private static File ensureDirectory(File dir) {
         try {
             java.nio.file.Files.createDirectories(dir.toPath());
         } catch (Throwable e) {
@@ -212,6 +308,7 @@ public final class HttpClientCache {
         metadata.statusCode = response.status().code();
         metadata.storedAt = now;
         metadata.expiresAt = resolveExpiresAt(responseHeaders, now);
+        metadata.staleUntil = resolveStaleUntil(responseHeaders.get(HttpHeaderNames.CACHE_CONTROL), metadata.expiresAt, now);
         metadata.etag = responseHeaders.get(HttpHeaderNames.ETAG);
         metadata.lastModified = responseHeaders.get(HttpHeaderNames.LAST_MODIFIED);
         metadata.bodyLength = Math.max(0L, bodyLength);
@@ -259,6 +356,20 @@ public final class HttpClientCache {
         return 0L;
     }
 
+    /**
+     * stale-while-revalidate 窗口的截止时间，no-cache/must-revalidate 时不允许返回过期内容。
+     */
+    private static long resolveStaleUntil(String cacheControl, long expiresAt, long now) {
+        if (hasDirective(cacheControl, "no-cache") || hasDirective(cacheControl, "must-revalidate")) {
+            return 0L;
+        }
+        Long seconds = directiveSeconds(cacheControl, "stale-while-revalidate");
+        if (seconds == null || seconds <= 0L) {
+            return 0L;
+        }
+        return Math.max(expiresAt, now) + seconds * 1000L;
+    }
+
     private boolean hasExplicitCaching(HttpHeaders headers) {
         if (headers == null || headers.isEmpty()) {
             return false;
@@ -394,17 +505,22 @@ public final class HttpClientCache {
     }
 
     private static Long maxAgeSeconds(String cacheControl) {
+        return directiveSeconds(cacheControl, "max-age");
+    }
+
+    private static Long directiveSeconds(String cacheControl, String directive) {
         if (Strings.isEmpty(cacheControl)) {
             return null;
         }
+        String prefix = directive + "=";
         String[] tokens = cacheControl.split(",");
         for (String token : tokens) {
             String value = token.trim();
-            if (!Strings.startsWithIgnoreCase(value, "max-age=")) {
+            if (!Strings.startsWithIgnoreCase(value, prefix)) {
                 continue;
             }
             try {
-                return Long.parseLong(value.substring("max-age=".length()).trim());
+                return Long.parseLong(value.substring(prefix.length()).trim());
             } catch (NumberFormatException e) {
                 return null;
             }
@@ -412,6 +528,49 @@ public final class HttpClientCache {
         return null;
     }
 
+    /**
+     * 响应 Vary 列出的请求头名，小写排序；无 Vary 返回 null。
+     */
+    static List<String> varyNames(HttpHeaders headers) {
+        if (headers == null) {
+            return null;
+        }
+        List<String> values = headers.getAll(HttpHeaderNames.VARY);
+        if (values.isEmpty()) {
+            return null;
+        }
+        TreeSet<String> names = new TreeSet<>();
+        for (String value : values) {
+            for (String part : value.split(",")) {
+                String name = part.trim().toLowerCase(Locale.ROOT);
+                if (name.equals("*")) {
+                    return Collections.singletonList(name);
+                }
+                if (!name.isEmpty()) {
+                    names.add(name);
+                }
+            }
+        }
+        return names.isEmpty() ? null : new ArrayList<>(names);
+    }
+
+    static String variantKey(String url, List<String> varyNames, HttpHeaders requestHeaders) {
+        StringBuilder buf = new StringBuilder(url);
+        for (String name : varyNames) {
+            buf.append('\n').append(name).append(':');
+            if (requestHeaders != null) {
+                List<String> values = requestHeaders.getAll(name);
+                for (int i = 0; i < values.size(); i++) {
+                    if (i > 0) {
+                        buf.append(',');
+                    }
+                    buf.append(values.get(i).trim());
+                }
+            }
+        }
+        return CodecUtil.hexMd5(buf.toString());
+    }
+
     private static EntryMetadata readMetadata(File metaFile) {
         try {
             return JSON.parseObject(java.nio.file.Files.readAllBytes(metaFile.toPath()), EntryMetadata.class);
@@ -420,89 +579,28 @@ public final class HttpClientCache {
         }
     }
 
-    private String entryKey(String url) {
+    static String entryKey(String url) {
         return CodecUtil.hexMd5(url);
     }
 
-    private File entryDirectory(String url) {
-        return new File(ensureDirectory(), entryKey(url));
-    }
-
-    private void retain(String key) {
-        inUseEntries.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
-    }
-
-    private void release(String key) {
-        AtomicInteger counter = inUseEntries.get(key);
-        if (counter == null) {
-            return;
-        }
-        if (counter.decrementAndGet() <= 0) {
-            inUseEntries.remove(key, counter);
-        }
-    }
-
-    private void trim(File protectedDir) {
+    private void trim(Index index, String protectedKey) {
         long limit = maxBytes;
-        if (limit <= 0L || !trimming.compareAndSet(false, true)) {
+        if (limit <= 0L) {
             return;
         }
-        try {
-            File root = ensureDirectory();
-            File[] children = root.listFiles();
-            if (children == null || children.length == 0) {
-                return;
-            }
-            long used = fileTreeBytes(root);
-            if (used <= limit) {
-                return;
-            }
-            Arrays.sort(children, new Comparator<File>() {
-                @Override
-                public int compare(File left, File right) {
-                    return Long.compare(left.lastModified(), right.lastModified());
-                }
-            });
-            File protectedCanonical = canonicalFile(protectedDir);
-            for (File child : children) {
-                if (used <= limit) {
-                    break;
-                }
-                File canonical = canonicalFile(child);
-                if (canonical == null || !canonical.isDirectory() || sameFile(canonical, protectedCanonical)) {
-                    continue;
-                }
-                if (inUseEntries.containsKey(canonical.getName())) {
-                    continue;
-                }
-                long childBytes = fileTreeBytes(canonical);
-                if (deleteEntry(canonical)) {
-                    used -= childBytes;
-                }
-            }
-        } finally {
-            trimming.set(false);
+        for (String key : index.evict(limit, protectedKey)) {
+            deleteEntry(new File(index.root, key));
         }
     }
 
     private static File canonicalFile(File file) {
-        if (file == null) {
-            return null;
-        }
         try {
             return file.getCanonicalFile();
         } catch (Throwable e) {
-            return null;
+            return file.getAbsoluteFile();
         }
     }
 
-    private static boolean sameFile(File left, File right) {
-        if (left == null || right == null) {
-            return false;
-        }
-        return Strings.equals(left.getAbsolutePath(), right.getAbsolutePath());
-    }
-
     private static long fileTreeBytes(File file) {
         if (file == null || !file.exists()) {
             return 0L;
@@ -533,18 +631,6 @@ public final class HttpClientCache {
         }
     }
 
-    private static void touch(File... files) {
-        long now = System.currentTimeMillis();
-        if (files == null) {
-            return;
-        }
-        for (File file : files) {
-            if (file != null && file.exists()) {
-                file.setLastModified(now);
-            }
-        }
-    }
-
     static final class CacheEntry {
         final String url;
         final String key;
@@ -563,7 +649,14 @@ public final class HttpClientCache {
         }
 
         boolean isFresh(long now) {
-            return metadata != null && metadata.expiresAt > now && bodyFile.isFile();
+            return metadata != null && metadata.expiresAt > now;
+        }
+
+        /**
+         * 已过期但仍在 stale-while-revalidate 窗口内，可先返回旧内容并后台刷新。
+         */
+        boolean isStaleWhileRevalidate(long now) {
+            return metadata != null && metadata.expiresAt <= now && metadata.staleUntil > now;
         }
 
         boolean canRevalidate() {
@@ -578,20 +671,445 @@ public final class HttpClientCache {
         public int statusCode;
         public long storedAt;
         public long expiresAt;
+        public long staleUntil;
         public long bodyLength;
         public String etag;
         public String lastModified;
+        public List<String> vary;
         public Map<String, List<String>> headers;
+
+        EntryMetadata copy() {
+            EntryMetadata copy = new EntryMetadata();
+            copy.url = url;
+            copy.statusCode = statusCode;
+            copy.storedAt = storedAt;
+            copy.expiresAt = expiresAt;
+            copy.staleUntil = staleUntil;
+            copy.bodyLength = bodyLength;
+            copy.etag = etag;
+            copy.lastModified = lastModified;
+            copy.vary = vary;
+            copy.headers = new LinkedHashMap<>();
+            if (headers != null) {
+                for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+                    copy.headers.put(entry.getKey(), entry.getValue() == null ? null : new ArrayList<>(entry.getValue()));
+                }
+            }
+            return copy;
+        }
+    }
+
+    static final class Node {
+        final String key;
+        long size;
+        volatile EntryMetadata metadata;
+
+        Node(String key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * 同一缓存目录共享的内存索引，LinkedHashMap 按访问顺序维护 LRU，size 为条目文件与 journal 的字节总和。
+     * <p>
+     * journal 为追加写文本，每行一条记录：C key size 新增/更新、R key 删除、A key 访问、V urlKey names 变体头；
+     * 打开时重放恢复索引并删除未入索引的条目目录（写完目录、追加 C 记录前中断的残留），缺失 journal 时扫描目录一次重建。
+     * 访问记录只在 LRU 顺序实际变化（命中的不是最近访问的条目）时追加且不立即 flush，丢失只影响 LRU 顺序。
+     */
+    static final class Index {
+        final File root;
+        final File journalFile;
+        final LinkedHashMap<String, Node> entries = new LinkedHashMap<>(64, 0.75f, true);
+        final Map<String, List<String>> varyByUrl = new HashMap<>();
+        final Map<String, AtomicInteger> inUse = new ConcurrentHashMap<>();
+        final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+        long entryBytes;
+        long journalBytes;
+        int redundantOps;
+        Writer journal;
+        //LRU 队尾，即最近访问或写入的条目
+        Node mru;
+
+        private Index(File root) {
+            this.root = root;
+            this.journalFile = new File(root, JOURNAL_FILE_NAME);
+        }
+
+        static Index open(File root) {
+            Index index = new Index(root);
+            synchronized (index) {
+                if (!index.readJournal()) {
+                    index.rebuild();
+                }
+            }
+            return index;
+        }
+
+        private boolean readJournal() {
+            if (!journalFile.isFile()) {
+                return false;
+            }
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(journalFile), StandardCharsets.US_ASCII))) {
+                if (!JOURNAL_HEADER.equals(reader.readLine())) {
+                    return false;
+                }
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    try {
+                        replay(line);
+                    } catch (NumberFormatException e) {
+                        //进程中断导致的半行
+                    }
+                }
+            } catch (Throwable e) {
+                entries.clear();
+                varyByUrl.clear();
+                entryBytes = 0L;
+                redundantOps = 0;
+                return false;
+            }
+            journalBytes = journalFile.length();
+            File[] children = root.listFiles();
+            deleteTempEntries(children);
+            deleteOrphanEntries(children);
+            return openWriter();
+        }
+
+        private void replay(String line) {
+            String[] parts = line.split(" ");
+            if (parts.length < 2) {
+                return;
+            }
+            String key = parts[1];
+            switch (parts[0]) {
+                case "C":
+                    if (parts.length < 3) {
+                        return;
+                    }
+                    Node node = entries.get(key);
+                    if (node == null) {
+                        entries.put(key, node = new Node(key));
+                    } else {
+                        entryBytes -= node.size;
+                        redundantOps++;
+                    }
+                    node.size = Long.parseLong(parts[2]);
+                    entryBytes += node.size;
+                    break;
+                case "A":
+                    entries.get(key);
+                    redundantOps++;
+                    break;
+                case "R":
+                    Node removed = entries.remove(key);
+                    if (removed != null) {
+                        entryBytes -= removed.size;
+                    }
+                    redundantOps += 2;
+                    break;
+                case "V":
+                    List<String> old = parts.length < 3 || parts[2].equals("-")
+                            ? varyByUrl.remove(key)
+                            : varyByUrl.put(key, Arrays.asList(parts[2].split(",")));
+                    if (old != null) {
+                        redundantOps++;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        /**
+         * 无 journal（首次使用或旧版本目录）时按文件修改时间重建索引。
+         */
+        private void rebuild() {
+            File[] children = root.listFiles();
+            deleteTempEntries(children);
+            if (children != null) {
+                Arrays.sort(children, Comparator.comparingLong(File::lastModified));
+                for (File child : children) {
+                    if (!child.isDirectory() || child.getName().contains(TEMP_MARK)) {
+                        continue;
+                    }
+                    File bodyFile = new File(child, BODY_FILE_NAME);
+                    EntryMetadata metadata = bodyFile.isFile() ? readMetadata(new File(child, META_FILE_NAME)) : null;
+                    if (metadata == null) {
+                        deleteEntry(child);
+                        continue;
+                    }
+                    Node node = new Node(child.getName());
+                    node.size = fileTreeBytes(child);
+                    node.metadata = metadata;
+                    entries.put(node.key, node);
+                    entryBytes += node.size;
+                    if (metadata.vary != null && !metadata.vary.isEmpty() && metadata.url != null) {
+                        varyByUrl.put(entryKey(metadata.url), metadata.vary);
+                    }
+                }
+            }
+            compact();
+        }
+
+        private static void deleteTempEntries(File[] children) {
+            if (children == null) {
+                return;
+            }
+            for (File child : children) {
+                if (child.getName().contains(TEMP_MARK)) {
+                    deleteEntry(child);
+                }
+            }
+        }
+
+        private void deleteOrphanEntries(File[] children) {
+            if (children == null) {
+                return;
+            }
+            for (File child : children) {
+                if (child.isDirectory() && !child.getName().contains(TEMP_MARK) && !entries.containsKey(child.getName())) {
+                    deleteEntry(child);
+                }
+            }
+        }
+
+        private boolean openWriter() {
+            try {
+                journal = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(journalFile, true), StandardCharsets.US_ASCII));
+                return true;
+            } catch (Throwable e) {
+                journal = null;
+                return false;
+            }
+        }
+
+        synchronized List<String> varyNames(String urlKey) {
+            return varyByUrl.get(urlKey);
+        }
+
+        synchronized Node access(String key) {
+            Node node = entries.get(key);
+            if (node != null && node != mru) {
+                mru = node;
+                redundantOps++;
+                append("A", key, null, false);
+            }
+            return node;
+        }
+
+        /**
+         * @return 被变体条目取代、需要删除目录的旧无 Vary 条目 key
+         */
+        synchronized String put(String key, long size, EntryMetadata metadata, String urlKey, List<String> vary) {
+            String replaced = null;
+            List<String> oldVary = vary == null ? varyByUrl.remove(urlKey) : varyByUrl.put(urlKey, vary);
+            if (!Objects.equals(oldVary, vary)) {
+                append("V", urlKey, vary == null ? "-" : String.join(",", vary), false);
+                if (oldVary == null && !key.equals(urlKey) && removeNode(urlKey) && !isInUse(urlKey)) {
+                    replaced = urlKey;
+                }
+            }
+            Node node = entries.get(key);
+            if (node == null) {
+                entries.put(key, node = new Node(key));
+            } else {
+                entryBytes -= node.size;
+                redundantOps++;
+            }
+            node.size = size;
+            node.metadata = metadata;
+            entryBytes += size;
+            mru = node;
+            append("C", key, String.valueOf(size), true);
+            return replaced;
+        }
+
+        synchronized void update(String key, long size, EntryMetadata metadata) {
+            Node node = entries.get(key);
+            if (node == null) {
+                return;
+            }
+            entryBytes += size - node.size;
+            node.size = size;
+            node.metadata = metadata;
+            mru = node;
+            redundantOps++;
+            append("C", key, String.valueOf(size), true);
+        }
+
+        synchronized void remove(String key) {
+            removeNode(key);
+        }
+
+        private boolean removeNode(String key) {
+            Node node = entries.remove(key);
+            if (node == null) {
+                return false;
+            }
+            if (node == mru) {
+                mru = null;
+            }
+            entryBytes -= node.size;
+            redundantOps += 2;
+            append("R", key, null, true);
+            return true;
+        }
+
+        /**
+         * 从最久未访问的条目开始移出索引直到不超过 limit，跳过刚写入与正在读取的条目。
+         *
+         * @return 需要删除目录的 key
+         */
+        synchronized List<String> evict(long limit, String protectedKey) {
+            if (entryBytes + journalBytes <= limit) {
+                return Collections.emptyList();
+            }
+            List<String> evicted = new ArrayList<>();
+            Iterator<Node> it = entries.values().iterator();
+            while (entryBytes + journalBytes > limit && it.hasNext()) {
+                Node node = it.next();
+                if (node.key.equals(protectedKey) || isInUse(node.key)) {
+                    continue;
+                }
+                it.remove();
+                if (node == mru) {
+                    mru = null;
+                }
+                entryBytes -= node.size;
+                redundantOps += 2;
+                evicted.add(node.key);
+            }
+            for (String key : evicted) {
+                append("R", key, null, false);
+            }
+            flush();
+            if (entryBytes + journalBytes > limit && redundantOps > 0) {
+                compact();
+            }
+            return evicted;
+        }
+
+        synchronized long totalBytes() {
+            return entryBytes + journalBytes;
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+
+        void retain(String key) {
+            inUse.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+        }
+
+        void release(String key) {
+            AtomicInteger counter = inUse.get(key);
+            if (counter == null) {
+                return;
+            }
+            if (counter.decrementAndGet() <= 0) {
+                inUse.remove(key, counter);
+            }
+        }
+
+        boolean isInUse(String key) {
+            return inUse.containsKey(key);
+        }
+
+        private void append(String op, String key, String arg, boolean flush) {
+            Writer w = journal;
+            if (w == null) {
+                return;
+            }
+            String line = arg == null ? op + " " + key + "\n" : op + " " + key + " " + arg + "\n";
+            try {
+                w.write(line);
+                if (flush) {
+                    w.flush();
+                }
+                journalBytes += line.length();
+            } catch (IOException e) {
+                closeWriter();
+                return;
+            }
+            if (redundantOps >= JOURNAL_COMPACT_THRESHOLD && redundantOps >= entries.size()) {
+                compact();
+            }
+        }
+
+        private void flush() {
+            Writer w = journal;
+            if (w == null) {
+                return;
+            }
+            try {
+                w.flush();
+            } catch (IOException e) {
+                closeWriter();
+            }
+        }
+
+        /**
+         * 按当前 LRU 顺序重写 journal，只保留存活条目与变体头。
+         */
+        synchronized void compact() {
+            closeWriter();
+            File temp = new File(root, JOURNAL_FILE_NAME + TEMP_MARK + Long.toHexString(ThreadLocalRandom.current().nextLong()));
+            long bytes = 0L;
+            try (Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.US_ASCII))) {
+                String line = JOURNAL_HEADER + "\n";
+                w.write(line);
+                bytes += line.length();
+                for (Map.Entry<String, List<String>> entry : varyByUrl.entrySet()) {
+                    line = "V " + entry.getKey() + " " + String.join(",", entry.getValue()) + "\n";
+                    w.write(line);
+                    bytes += line.length();
+                }
+                for (Node node : entries.values()) {
+                    line = "C " + node.key + " " + node.size + "\n";
+                    w.write(line);
+                    bytes += line.length();
+                }
+            } catch (Throwable e) {
+                temp.delete();
+                openWriter();
+                return;
+            }
+            try {
+                java.nio.file.Files.move(temp.toPath(), journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (Throwable e) {
+                temp.delete();
+                openWriter();
+                return;
+            }
+            journalBytes = bytes;
+            redundantOps = 0;
+            openWriter();
+        }
+
+        private void closeWriter() {
+            Writer w = journal;
+            journal = null;
+            if (w != null) {
+                try {
+                    w.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+
+        synchronized void close() {
+            closeWriter();
+        }
     }
 
     static final class CachedResponse extends HttpClient.Response {
-        private final HttpClientCache cache;
+        private final Index index;
         private final String cacheKey;
 
         CachedResponse(HttpClient owner, HttpClient.Request request, String url, HttpResponse response, HybridStream body, long elapsedNanos,
-                       HttpClientCache cache, String cacheKey) {
+                       Index index, String cacheKey) {
             super(owner, request, url, response, body, elapsedNanos);
-            this.cache = cache;
+            this.index = index;
             this.cacheKey = cacheKey;
         }
 
@@ -600,8 +1118,8 @@ public final class HttpClientCache {
             try {
                 super.close();
             } finally {
-                if (cache != null) {
-                    cache.release(cacheKey);
+                if (index != null) {
+                    index.release(cacheKey);
                 }
             }
         }
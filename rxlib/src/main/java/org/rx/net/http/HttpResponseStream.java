@@ -0,0 +1,181 @@
+package org.rx.net.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.stream.ChunkedInput;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.rx.core.Tasks;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * 分步生成的分块响应体，经 {@link ServerResponse#streamBody(String, ChunkedInput)} 同一条 ChunkedWriteHandler 路径发送。
+ * <p>
+ * ChunkedWriteHandler 仅在 channel 可写时拉取 chunk；队列中就绪的 chunk 少于 {@link #PREFETCH_CHUNKS} 时
+ * 在 Tasks 线程上调用一次 {@link ServerResponse.StreamWriter#write(HttpResponseStream)} 生成下一段，
+ * 完成后 resumeTransfer。每个打开的流不占用线程，writer 可以执行阻塞读取而不阻塞 EventLoop，
+ * 待发送数据最多为 PREFETCH_CHUNKS 段。
+ */
+@Slf4j
+public final class HttpResponseStream implements ChunkedInput<ByteBuf> {
+    static final int PREFETCH_CHUNKS = 2;
+
+    final ServerResponse.StreamWriter writer;
+    final Queue<ByteBuf> ready = new ArrayDeque<>(PREFETCH_CHUNKS + 1);
+    ChannelHandlerContext ctx;
+    ChunkedWriteHandler handler;
+    //仅在 writer 调用期间非 null
+    ByteBuf current;
+    boolean producing;
+    boolean finished;
+    boolean closed;
+    Throwable failure;
+    long progress;
+
+    HttpResponseStream(ServerResponse.StreamWriter writer) {
+        this.writer = writer;
+    }
+
+    void bind(ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+        handler = ctx.pipeline().get(ChunkedWriteHandler.class);
+    }
+
+    public void write(CharSequence text) {
+        buffer(ByteBufUtil.utf8MaxBytes(text)).writeCharSequence(text, CharsetUtil.UTF_8);
+    }
+
+    public void write(byte[] buffer, int offset, int length) {
+        buffer(length).writeBytes(buffer, offset, length);
+    }
+
+    /**
+     * 写入并释放 buf。
+     */
+    public void write(ByteBuf buf) {
+        try {
+            buffer(buf.readableBytes()).writeBytes(buf);
+        } finally {
+            buf.release();
+        }
+    }
+
+    ByteBuf buffer(int minWritable) {
+        ByteBuf buf = current;
+        if (buf == null) {
+            throw new IllegalStateException("HttpResponseStream can only be written inside StreamWriter.write");
+        }
+        return buf.ensureWritable(minWritable);
+    }
+
+    @Override
+    public synchronized boolean isEndOfInput() throws Exception {
+        if (failure != null) {
+            throw new Exception(failure);
+        }
+        return finished && ready.isEmpty();
+    }
+
+    @Deprecated
+    @Override
+    public ByteBuf readChunk(ChannelHandlerContext ctx) throws Exception {
+        return readChunk(ctx.alloc());
+    }
+
+    /**
+     * @return 下一段尚未生成时返回 null，生成后 resumeTransfer
+     */
+    @Override
+    public synchronized ByteBuf readChunk(ByteBufAllocator allocator) throws Exception {
+        if (failure != null) {
+            throw new Exception(failure);
+        }
+        ByteBuf chunk = ready.poll();
+        if (chunk != null) {
+            progress += chunk.readableBytes();
+        }
+        if (!finished && !producing && ready.size() < PREFETCH_CHUNKS) {
+            producing = true;
+            Tasks.run(this::produce);
+        }
+        return chunk;
+    }
+
+    void produce() {
+        ByteBuf buf = ctx.alloc().buffer();
+        boolean more;
+        Throwable error = null;
+        current = buf;
+        try {
+            more = writer.write(this);
+        } catch (Throwable e) {
+            more = false;
+            error = e;
+        } finally {
+            current = null;
+        }
+        synchronized (this) {
+            producing = false;
+            if (closed) {
+                buf.release();
+                closeWriter();
+                return;
+            }
+            if (error != null) {
+                failure = error;
+                buf.release();
+            } else if (buf.isReadable()) {
+                ready.add(buf);
+            } else {
+                buf.release();
+            }
+            if (error != null || !more) {
+                finished = true;
+            }
+        }
+        handler.resumeTransfer();
+    }
+
+    @Override
+    public long length() {
+        return -1;
+    }
+
+    @Override
+    public synchronized long progress() {
+        return progress;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        finished = true;
+        ByteBuf buf;
+        while ((buf = ready.poll()) != null) {
+            ReferenceCountUtil.release(buf);
+        }
+        //正在生成时由 produce 结束后关闭
+        if (!producing) {
+            closeWriter();
+        }
+    }
+
+    void closeWriter() {
+        if (writer instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) writer).close();
+            } catch (Throwable e) {
+                log.warn("close stream writer", e);
+            }
+        }
+    }
+}
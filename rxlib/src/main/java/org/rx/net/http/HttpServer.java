@@ -6,6 +6,8 @@ import io.netty.buffer.Unpooled;
 import io.netty.channel.*;
 import io.netty.handler.codec.http.*;
 import io.netty.handler.codec.http.multipart.*;
+import io.netty.handler.stream.ChunkedFile;
+import io.netty.handler.stream.ChunkedInput;
 import io.netty.handler.stream.ChunkedWriteHandler;
 import io.netty.util.CharsetUtil;
 import lombok.Getter;
@@ -23,7 +25,9 @@ import org.rx.io.Bytes;
 import org.rx.io.DuplexStream;
 import org.rx.net.Sockets;
 
+import java.io.File;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
@@ -37,6 +41,7 @@ import static org.rx.core.Extends.ifNull;
 @Slf4j
 public class HttpServer extends Disposable {
     static final String ASYNC_HANDLER_HEADER = "X-Http-Async-Handler";
+    static final int FILE_CHUNK_SIZE = 64 * 1024;
     static volatile HttpServer DEFAULT;
 
     static final class RequestState {
@@ -56,6 +61,41 @@ public class HttpServer extends Disposable {
         }
     }
 
+    static final class ChunkedResponse extends DefaultHttpResponse {
+        final ChunkedInput<ByteBuf> body;
+
+        ChunkedResponse(HttpVersion version, HttpResponseStatus status, ChunkedInput<ByteBuf> body) {
+            super(version, status);
+            this.body = body;
+        }
+    }
+
+    static final class FileResponse extends DefaultHttpResponse {
+        final RandomAccessFile file;
+        final long length;
+        //sent by sendfile, the bytes never pass through the pipeline
+        boolean zeroCopy;
+
+        FileResponse(HttpVersion version, HttpResponseStatus status, RandomAccessFile file, long length) {
+            super(version, status);
+            this.file = file;
+            this.length = length;
+        }
+    }
+
+    /**
+     * sendfile 的文件响应不经过压缩，直接透传而不是写 Content-Encoding: identity。
+     */
+    static final class ServerContentCompressor extends HttpContentCompressor {
+        @Override
+        protected Result beginEncode(HttpResponse response, String acceptEncoding) throws Exception {
+            if (response instanceof FileResponse && ((FileResponse) response).zeroCopy) {
+                return null;
+            }
+            return super.beginEncode(response, acceptEncoding);
+        }
+    }
+
     class ServerHandler extends SimpleChannelInboundHandler<HttpObject> {
         RequestState state;
 
@@ -69,10 +109,16 @@ public class HttpServer extends Disposable {
                     return;
                 }
                 QueryStringDecoder queryStringDecoder = new QueryStringDecoder(request.uri());
-                Mapping mapping = HttpServer.this.mapping.get(queryStringDecoder.path());
+                String path = queryStringDecoder.path();
+                Mapping mapping = HttpServer.this.mapping.get(path);
+                RouteTrie.Match route = null;
                 if (mapping == null) {
-                    sendError(ctx, request, null, NOT_FOUND, false);
-                    return;
+                    route = routes.match(path);
+                    if (route == null) {
+                        sendError(ctx, request, null, NOT_FOUND, false);
+                        return;
+                    }
+                    mapping = route.mapping;
                 }
                 Handler handler = mapping.handler;
                 HttpMethod[] method = handler.method();
@@ -88,6 +134,9 @@ public class HttpServer extends Disposable {
                 this.state = state;
                 ServerRequest req = state.req;
                 req.getHeaders().setAll(request.headers());
+                if (route != null) {
+                    req.setPathParams(route.params);
+                }
 
                 Map<String, List<String>> params = queryStringDecoder.parameters();
                 if (!params.isEmpty()) {
@@ -169,7 +218,7 @@ public class HttpServer extends Disposable {
                         ctx.channel().config().setAutoRead(false);
                         final RequestState current = state;
                         Tasks.run(() -> {
-                            FullHttpResponse response = null;
+                            HttpResponse response = null;
                             try {
                                 response = invokeHandler(current);
                             } catch (Throwable e) {
@@ -178,13 +227,13 @@ public class HttpServer extends Disposable {
                             } finally {
                                 Bytes.release(current.req.getContent());
                             }
-                            final FullHttpResponse finalResponse = response;
+                            final HttpResponse finalResponse = response;
                             ctx.executor().execute(() -> sendResponse(ctx, current.request, current.decoder, finalResponse, true));
                         });
                         return;
                     }
 
-                    FullHttpResponse response;
+                    HttpResponse response;
                     try {
                         response = invokeHandler(state);
                     } catch (Throwable e) {
@@ -199,7 +248,7 @@ public class HttpServer extends Disposable {
             }
         }
 
-        private FullHttpResponse invokeHandler(RequestState state) throws Throwable {
+        private HttpResponse invokeHandler(RequestState state) throws Throwable {
             ServerResponse res = new ServerResponse();
             state.mapping.handler.handle(state.req, res);
             if (res.getHeaders().contains(HttpHeaderNames.LOCATION)) {
@@ -208,8 +257,23 @@ public class HttpServer extends Disposable {
                 response.headers().setAll(res.getHeaders());
                 return response;
             }
-            DefaultFullHttpResponse response = new DefaultFullHttpResponse(state.request.protocolVersion(),
-                    ifNull(res.getStatus(), OK), ifNull(res.getContent(), Unpooled.EMPTY_BUFFER));
+            HttpResponse response;
+            if (res.getChunkedContent() != null) {
+                Bytes.release(res.getContent());
+                response = new ChunkedResponse(state.request.protocolVersion(), ifNull(res.getStatus(), OK), res.getChunkedContent());
+                HttpUtil.setTransferEncodingChunked(response, true);
+            } else if (res.getFile() != null) {
+                Bytes.release(res.getContent());
+                File file = res.getFile();
+                if (!file.isFile()) {
+                    return newErrorResponse(state.request, NOT_FOUND);
+                }
+                RandomAccessFile raf = new RandomAccessFile(file, "r");
+                response = new FileResponse(state.request.protocolVersion(), ifNull(res.getStatus(), OK), raf, raf.length());
+            } else {
+                response = new DefaultFullHttpResponse(state.request.protocolVersion(),
+                        ifNull(res.getStatus(), OK), ifNull(res.getContent(), Unpooled.EMPTY_BUFFER));
+            }
             response.headers().setAll(res.getHeaders());
             if (state.mapping.async) {
                 response.headers().set(ASYNC_HANDLER_HEADER, "1");
@@ -230,27 +294,51 @@ public class HttpServer extends Disposable {
         }
 
         private void sendResponse(ChannelHandlerContext ctx, HttpRequest request, HttpPostRequestDecoder decoder,
-                                  FullHttpResponse response, boolean resumeRead) {
+                                  HttpResponse response, boolean resumeRead) {
             if (!ctx.channel().isActive()) {
                 try {
-                    response.release();
+                    release(response);
                 } finally {
                     destroyDecoder(decoder);
                 }
                 return;
             }
             boolean keepAlive = HttpUtil.isKeepAlive(request);
-            HttpUtil.setContentLength(response, response.content().readableBytes());
+            if (response instanceof FullHttpResponse) {
+                HttpUtil.setContentLength(response, ((FullHttpResponse) response).content().readableBytes());
+            } else if (response instanceof FileResponse) {
+                HttpUtil.setContentLength(response, ((FileResponse) response).length);
+            }
             if (keepAlive) {
                 response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
             } else {
                 response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
             }
-            ChannelFuture future = ctx.writeAndFlush(response);
+            ChannelFuture future;
+            if (response instanceof ChunkedResponse) {
+                ChunkedInput<ByteBuf> body = ((ChunkedResponse) response).body;
+                if (body instanceof HttpResponseStream) {
+                    ((HttpResponseStream) body).bind(ctx);
+                }
+                ctx.write(response);
+                //ChunkedWriteHandler closes the input once it is drained or failed
+                future = ctx.writeAndFlush(new HttpChunkedInput(body));
+            } else if (response instanceof FileResponse) {
+                future = writeFile(ctx, (FileResponse) response);
+            } else {
+                future = ctx.writeAndFlush(response);
+            }
+            boolean finalResumeRead = resumeRead;
             future.addListener(f -> {
                 destroyDecoder(decoder);
                 Channel channel = ctx.channel();
-                if (resumeRead && channel.isActive()) {
+                if (!f.isSuccess() && response instanceof ChunkedResponse) {
+                    //headers already sent, only closing tells the client the body is incomplete
+                    log.warn("chunked response failed", f.cause());
+                    channel.close();
+                    return;
+                }
+                if (finalResumeRead && channel.isActive()) {
                     channel.config().setAutoRead(true);
                     channel.read();
                 }
@@ -260,6 +348,30 @@ public class HttpServer extends Disposable {
             });
         }
 
+        @SneakyThrows
+        private ChannelFuture writeFile(ChannelHandlerContext ctx, FileResponse response) {
+            if (tls) {
+                //SslHandler needs the bytes in user space, fall back to chunked reads
+                ctx.write(response);
+                return ctx.writeAndFlush(new HttpChunkedInput(new ChunkedFile(response.file, 0, response.length, FILE_CHUNK_SIZE)));
+            }
+            response.zeroCopy = true;
+            ctx.write(response);
+            ctx.write(new DefaultFileRegion(response.file.getChannel(), 0, response.length));
+            return ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+        }
+
+        @SneakyThrows
+        private void release(HttpResponse response) {
+            if (response instanceof ChunkedResponse) {
+                ((ChunkedResponse) response).body.close();
+            } else if (response instanceof FileResponse) {
+                ((FileResponse) response).file.close();
+            } else if (response instanceof FullHttpResponse) {
+                ((FullHttpResponse) response).release();
+            }
+        }
+
         private void destroyDecoder(HttpPostRequestDecoder decoder) {
             if (decoder != null) {
                 decoder.destroy();
@@ -347,6 +459,7 @@ public class HttpServer extends Disposable {
     final io.netty.handler.ssl.SslContext sslContext;
     @Getter
     final Map<String, Mapping> mapping = new ConcurrentHashMap<>();
+    final RouteTrie routes = new RouteTrie();
 
     @SneakyThrows
     public HttpServer(int port, boolean tls) {
@@ -367,7 +480,7 @@ public class HttpServer extends Disposable {
             DiagnosticMetrics.installNetIoHandler(p, DiagnosticMetrics.NET_HTTP_SERVER);
             p.addLast(new HttpServerCodec(),
                     new HttpServerExpectContinueHandler(),
-                    new HttpContentCompressor(),
+                    new ServerContentCompressor(),
                     new ChunkedWriteHandler(),
                     new ServerHandler());
         });
@@ -394,11 +507,28 @@ public class HttpServer extends Disposable {
         return requestMapping(path, handler, false);
     }
 
+    /**
+     * @param path 精确路径，或含 {name} 参数段 / 以 /** 结尾的模板，模板经路由树匹配，精确路径优先
+     */
     public HttpServer requestMapping(String path, Handler handler, boolean async) {
-        mapping.put(normalize(path), new Mapping(handler, async));
+        path = normalize(path);
+        Mapping m = new Mapping(handler, async);
+        if (RouteTrie.isTemplate(path)) {
+            routes.add(path, m);
+        } else {
+            mapping.put(path, m);
+        }
         return this;
     }
 
+    /**
+     * 将 prefix 下的所有路径挂载到 handler，剩余路径由 {@link ServerRequest#getPathParam(String)} 以 "**" 取得。
+     */
+    public HttpServer requestMount(String prefix, Handler handler) {
+        prefix = normalize(prefix);
+        return requestMapping((prefix.length() == 1 ? prefix : prefix + "/") + RouteTrie.WILDCARD, handler, false);
+    }
+
     public HttpServer requestAsync(String path, Handler handler) {
         return requestMapping(path, handler, true);
     }
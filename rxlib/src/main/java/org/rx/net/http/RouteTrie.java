@@ -0,0 +1,121 @@
+package org.rx.net.http;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按路径段组织的路由树，支持静态段、{name} 参数段与尾部 /** 前缀挂载。
+ * <p>
+ * 匹配优先级：静态段 > 参数段 > 最深的前缀挂载，静态/参数分支失败时回溯。
+ * 挂载匹配到的剩余路径放入参数 {@link #WILDCARD}。
+ */
+final class RouteTrie {
+    static final String WILDCARD = "**";
+
+    static final class Match {
+        final HttpServer.Mapping mapping;
+        final Map<String, String> params;
+
+        Match(HttpServer.Mapping mapping, Map<String, String> params) {
+            this.mapping = mapping;
+            this.params = params;
+        }
+    }
+
+    static final class Node {
+        final Map<String, Node> children = new ConcurrentHashMap<>();
+        volatile Node param;
+        volatile String paramName;
+        volatile HttpServer.Mapping mapping;
+        volatile HttpServer.Mapping mount;
+    }
+
+    final Node root = new Node();
+
+    static boolean isTemplate(String path) {
+        return path.indexOf('{') >= 0 || path.endsWith("/" + WILDCARD);
+    }
+
+    /**
+     * @param path 已 normalize 的路径模板
+     */
+    synchronized void add(String path, HttpServer.Mapping mapping) {
+        Node node = root;
+        String[] segments = path.substring(1).split("/", -1);
+        int n = path.length() == 1 ? 0 : segments.length;
+        for (int i = 0; i < n; i++) {
+            String seg = segments[i];
+            if (WILDCARD.equals(seg)) {
+                if (i != n - 1) {
+                    throw new IllegalArgumentException("'/**' must be the last segment: " + path);
+                }
+                node.mount = mapping;
+                return;
+            }
+            if (seg.length() > 2 && seg.charAt(0) == '{' && seg.charAt(seg.length() - 1) == '}') {
+                String name = seg.substring(1, seg.length() - 1);
+                if (node.param == null) {
+                    node.paramName = name;
+                    node.param = new Node();
+                } else if (!node.paramName.equals(name)) {
+                    throw new IllegalArgumentException("Conflicting path parameter {" + name + "} with {" + node.paramName + "}: " + path);
+                }
+                node = node.param;
+                continue;
+            }
+            node = node.children.computeIfAbsent(seg, k -> new Node());
+        }
+        node.mapping = mapping;
+    }
+
+    Match match(String path) {
+        Map<String, String> params = new HashMap<>(4);
+        HttpServer.Mapping mapping = match(root, path, 1, params);
+        if (mapping == null) {
+            return null;
+        }
+        return new Match(mapping, params.isEmpty() ? Collections.emptyMap() : params);
+    }
+
+    static HttpServer.Mapping match(Node node, String path, int from, Map<String, String> params) {
+        if (from >= path.length()) {
+            if (node.mapping != null) {
+                return node.mapping;
+            }
+            if (node.mount != null) {
+                params.put(WILDCARD, "");
+                return node.mount;
+            }
+            return null;
+        }
+        int end = path.indexOf('/', from);
+        if (end < 0) {
+            end = path.length();
+        }
+        String seg = path.substring(from, end);
+        Node child = node.children.get(seg);
+        if (child != null) {
+            HttpServer.Mapping m = match(child, path, end + 1, params);
+            if (m != null) {
+                return m;
+            }
+        }
+        Node param = node.param;
+        if (param != null && !seg.isEmpty()) {
+            String name = node.paramName;
+            HttpServer.Mapping m = match(param, path, end + 1, params);
+            if (m != null) {
+                params.put(name, seg);
+                return m;
+            }
+        }
+        HttpServer.Mapping mount = node.mount;
+        if (mount != null) {
+            params.put(WILDCARD, path.substring(from));
+            return mount;
+        }
+        return null;
+    }
+}
@@ -18,6 +18,7 @@ import org.rx.core.Strings;
 
 import java.net.InetSocketAddress;
 import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
 
 import static org.rx.core.Extends.ifNull;
@@ -32,6 +33,11 @@ public final class ServerRequest {
     @Getter(lazy = true)
     private final Set<Cookie> cookies = cookiesLazy();
     private final MultiValueMap<String, String> queryString = new MultiValueMap<>();
+    /**
+     * 路径模板 {name} 段的值，前缀挂载 /** 的剩余路径键为 "**"
+     */
+    @Setter(AccessLevel.PROTECTED)
+    private Map<String, String> pathParams = Collections.emptyMap();
 
     @Setter(AccessLevel.PROTECTED)
     private MultiValueMap<String, String> form;
@@ -50,6 +56,10 @@ public final class ServerRequest {
         return ServerCookieDecoder.STRICT.decode(cookie);
     }
 
+    public String getPathParam(String name) {
+        return pathParams.get(name);
+    }
+
     public String getContentType() {
         return headers.get(HttpHeaderNames.CONTENT_TYPE);
     }
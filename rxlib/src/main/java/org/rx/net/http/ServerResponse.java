@@ -3,10 +3,12 @@ package org.rx.net.http;
 import io.netty.buffer.ByteBuf;
 import io.netty.handler.codec.http.DefaultHttpHeaders;
 import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.cookie.Cookie;
 import io.netty.handler.codec.http.cookie.ServerCookieEncoder;
+import io.netty.handler.stream.ChunkedInput;
 import io.netty.util.AsciiString;
 import io.netty.util.CharsetUtil;
 import lombok.Getter;
@@ -14,11 +16,25 @@ import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import org.rx.io.Bytes;
 
+import java.io.File;
+
 import static org.rx.core.Sys.toJsonString;
 
 @RequiredArgsConstructor
 @Getter
 public class ServerResponse {
+    /**
+     * 可实现 AutoCloseable，流结束或连接断开后关闭。
+     */
+    public interface StreamWriter {
+        /**
+         * 在 Tasks 线程上按需反复调用，每次写入下一段（建议不超过数十 KB）。
+         *
+         * @return false 表示响应体结束
+         */
+        boolean write(HttpResponseStream stream) throws Throwable;
+    }
+
     public static final AsciiString APPLICATION_JSON = AsciiString.cached("application/json; charset=UTF-8");
     public static final AsciiString TEXT_HTML = AsciiString.cached("text/html; charset=UTF-8");
     private final HttpHeaders headers = new DefaultHttpHeaders();
@@ -36,6 +52,10 @@ public class ServerResponse {
 
     @Setter
     private ByteBuf content;
+    @Setter
+    private ChunkedInput<ByteBuf> chunkedContent;
+    @Setter
+    private File file;
 
     public void jsonBody(Object json) {
         setContentType(APPLICATION_JSON.toString());
@@ -49,6 +69,34 @@ public class ServerResponse {
         content.writeCharSequence(html, CharsetUtil.UTF_8);
     }
 
+    /**
+     * Chunked body, the input is pulled only while the channel is writable and closed after the last chunk.
+     */
+    public void streamBody(String contentType, ChunkedInput<ByteBuf> input) {
+        setContentType(contentType);
+        chunkedContent = input;
+    }
+
+    /**
+     * Chunked body generated step by step by the writer on Tasks threads, sent through the same
+     * ChunkedWriteHandler path as {@link #streamBody(String, ChunkedInput)}.
+     */
+    public void streamBody(String contentType, StreamWriter writer) {
+        streamBody(contentType, new HttpResponseStream(writer));
+    }
+
+    /**
+     * File body, sent by DefaultFileRegion (sendfile) on plain connections and by ChunkedFile over TLS.
+     */
+    public void fileBody(File file) {
+        fileBody(file, HttpHeaderValues.APPLICATION_OCTET_STREAM.toString());
+    }
+
+    public void fileBody(File file, String contentType) {
+        setContentType(contentType);
+        this.file = file;
+    }
+
     public void redirect(String newUri) {
         headers.set(HttpHeaderNames.LOCATION, newUri);
     }
@@ -9,6 +9,7 @@ import io.netty.handler.codec.MessageToMessageDecoder;
 import io.netty.util.concurrent.FastThreadLocal;
 import lombok.NoArgsConstructor;
 import org.apache.fury.Fury;
+import org.apache.fury.config.CompatibleMode;
 import org.apache.fury.memory.MemoryBuffer;
 import org.rx.core.EventArgs;
 import org.rx.core.NEventArgs;
@@ -31,7 +32,10 @@ import java.util.Set;
 public class FuryRemotingCodecFactory implements RemotingCodecFactory {
     private static final long serialVersionUID = 5637987785585559036L;
     static final short FRAME_MAGIC = FuryCodecSupport.FRAME_MAGIC;
-    static final byte FRAME_VERSION = FuryCodecSupport.FRAME_VERSION;
+    //2: COMPATIBLE schema, a peer still on the schema consistent frames is rejected by version instead of misreading fields
+    static final byte FRAME_VERSION = 2;
+    //messages are matched by field name, so a client and a server of different versions can add protocol fields
+    static final CompatibleMode COMPATIBLE_MODE = CompatibleMode.COMPATIBLE;
     static final byte CODEC_ID_FURY = FuryCodecSupport.CODEC_ID_FURY;
     static final short REGISTER_BASE_ID = 3000;
 
@@ -65,7 +69,7 @@ public class FuryRemotingCodecFactory implements RemotingCodecFactory {
         }
 
         Fury newFury() {
-            return FuryCodecSupport.newFury(FuryRemotingCodecFactory.class, allowedPrefixes, this::registerTypes);
+            return FuryCodecSupport.newFury(FuryRemotingCodecFactory.class, allowedPrefixes, COMPATIBLE_MODE, this::registerTypes);
         }
 
         void registerTypes(Fury fury) {
@@ -92,7 +96,7 @@ public class FuryRemotingCodecFactory implements RemotingCodecFactory {
         FuryHandlerSupport(FuryRemotingSupport support, String purpose) {
             this.support = support;
             this.furyLocal = FuryCodecSupport.sharedFuryLocal(FuryRemotingCodecFactory.class, purpose,
-                    support.allowedPrefixes, support::registerTypes);
+                    support.allowedPrefixes, COMPATIBLE_MODE, support::registerTypes);
         }
     }
 
@@ -175,7 +179,7 @@ public class FuryRemotingCodecFactory implements RemotingCodecFactory {
                 if (local == null) {
                     final FuryRemotingSupport support = new FuryRemotingSupport(allowedPrefixes);
                     local = FuryCodecSupport.sharedFuryLocal(FuryRemotingCodecFactory.class, "remoting-udp",
-                            allowedPrefixes, support::registerTypes);
+                            allowedPrefixes, COMPATIBLE_MODE, support::registerTypes);
                     furyLocal = local;
                 }
             }
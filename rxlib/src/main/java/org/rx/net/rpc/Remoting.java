@@ -23,6 +23,7 @@ import org.rx.core.StringBuilder;
 import org.rx.core.Sys;
 import org.rx.core.ThreadPool;
 import org.rx.core.Tasks;
+import org.rx.core.TimeoutFuture;
 import org.rx.diagnostic.DiagnosticMetrics;
 import org.rx.exception.InvalidException;
 import org.rx.net.Sockets;
@@ -42,6 +43,7 @@ import org.rx.net.transport.protocol.ErrorPacket;
 import org.rx.util.BeanMapper;
 import org.rx.util.IdGenerator;
 import org.rx.util.Snowflake;
+import org.rx.util.function.Action;
 import org.rx.util.function.TripleAction;
 
 import java.lang.reflect.Method;
@@ -54,6 +56,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeoutException;
@@ -74,6 +79,11 @@ public final class Remoting {
     public static class ClientBean {
         final ResetEventWait syncRoot = new ResetEventWait();
         MethodMessage pack;
+        //contract method, null for ping and event packets
+        Method method;
+        //async contract method, completed on the receive path
+        CompletableFuture<Object> future;
+        boolean deferRelease;
     }
 
     static final class ClientRef {
@@ -107,10 +117,13 @@ public final class Remoting {
 
         final RpcServerConfig config;
         final HybridServer server;
+        final RemotingMethodTable methodTable;
         final Map<String, EventBean> eventBeans = new ConcurrentHashMap<String, EventBean>();
     }
 
     static final AttributeKey<MetadataMessage> HANDSHAKE_META_KEY = AttributeKey.valueOf("HandshakeMeta");
+    //client side, method signature -> server method id
+    static final AttributeKey<Map<String, Integer>> METHOD_IDS_KEY = AttributeKey.valueOf("RemotingMethodIds");
     static final String M_0 = "publishEvent", M_1 = "publishEventAsync", M_2 = "attachEvent";
     static final String M_PING = "__remotingPing";
     static final Map<Object, ServerBean> serverBeans = new ConcurrentHashMap<Object, ServerBean>();
@@ -340,7 +353,11 @@ public final class Remoting {
             }
 
             if (pack == null) {
+                clientBean.method = m;
                 pack = clientBean.pack = new MethodMessage(generator.increment(), m.getName(), args, ThreadPool.traceId());
+                if (isAsyncMethod(m)) {
+                    clientBean.future = new CompletableFuture<>();
+                }
             }
             RpcHybridClientPool pool = resolveClientPool(config);
 
@@ -354,20 +371,29 @@ public final class Remoting {
             int requestId = clientBean.pack == null ? -1 : clientBean.pack.id;
             try {
                 if (isMethodCall) {
-                    return Sys.callLog(contract, methodMessage.methodName,
-                            () -> String.format("Client %s.%s [%s -> %s]", contract.getSimpleName(), methodMessage.methodName,
+                    return Sys.callLog(contract, m.getName(),
+                            () -> String.format("Client %s.%s [%s -> %s]", contract.getSimpleName(), m.getName(),
                                     currentLocalEndpoint(client), Sockets.toString(currentRemoteEndpoint(client))),
                             methodMessage.parameters, () -> {
                                 HybridSession requestSession = resolveSession(client, session);
                                 Map<Integer, ClientBean> waitMap = getClientBeans(client);
                                 waitMap.put(clientBean.pack.id, clientBean);
                                 try {
-                                    sendRequest(client, requestSession, methodMessage);
+                                    sendRequest(client, requestSession, bindMethodId(requestSession, clientBean));
                                 } catch (ClientDisconnectedException e) {
                                     if (!client.getConfig().getTcpClientConfig().isEnableReconnect()) {
                                         throw e;
                                     }
                                 }
+                                if (clientBean.future != null) {
+                                    clientBean.deferRelease = true;
+                                    return awaitMethodResponseAsync(config, client, clientBean, () -> {
+                                        removeWaitBean(client, session, requestId);
+                                        if (releaseClient(client) && (!config.isUsePool() || !hasPendingWaitBeans(client))) {
+                                            recycleClient(pool, ref.sync, client);
+                                        }
+                                    });
+                                }
                                 return awaitMethodResponse(config, client, clientBean);
                             });
                 }
@@ -390,11 +416,14 @@ public final class Remoting {
                     throw e;
                 }
             } finally {
-                if (requestId >= 0) {
-                    removeWaitBean(client, session, requestId);
-                }
-                if (releaseClient(client) && (!config.isUsePool() || !hasPendingWaitBeans(client))) {
-                    recycleClient(pool, ref.sync, client);
+                //async calls release on completion
+                if (!clientBean.deferRelease) {
+                    if (requestId >= 0) {
+                        removeWaitBean(client, session, requestId);
+                    }
+                    if (releaseClient(client) && (!config.isUsePool() || !hasPendingWaitBeans(client))) {
+                        recycleClient(pool, ref.sync, client);
+                    }
                 }
             }
             return clientBean.pack != null ? clientBean.pack.returnValue : null;
@@ -606,7 +635,7 @@ public final class Remoting {
             return;
         }
 
-        session.send(new MetadataMessage(config.getEventVersion()), RemotingHybridOptions.CONTROL);
+        session.send(new MetadataMessage(config.getEventVersion(), new String[0]), RemotingHybridOptions.CONTROL);
         List<String> replayEvents = new ArrayList<String>(subscribedEvents);
         if (initHandlerInvoked.compareAndSet(false, true)) {
             TripleAction<Object, HybridClient> initHandler = (TripleAction<Object, HybridClient>) config.getInitHandler();
@@ -654,6 +683,14 @@ public final class Remoting {
         })) {
             return;
         }
+        if (tryAs(value, MetadataMessage.class, x -> {
+            HybridSession current = resolveSession(client, session);
+            if (current != null && x.getMethods() != null) {
+                current.attr(METHOD_IDS_KEY, RemotingMethodTable.toIdMap(x.getMethods()));
+            }
+        })) {
+            return;
+        }
 
         MethodMessage svrPack = (MethodMessage) value;
         ClientBean clientBean = getClientBeans(client).get(svrPack.id);
@@ -662,6 +699,18 @@ public final class Remoting {
             return;
         }
         clientBean.pack = svrPack;
+        CompletableFuture<Object> future = clientBean.future;
+        if (future != null) {
+            //dependent stages of the caller run on the completing thread, keep them off the event loop
+            Tasks.executor().execute(() -> {
+                if (svrPack.errorMessage != null) {
+                    future.completeExceptionally(new RemotingException(svrPack.errorMessage));
+                } else {
+                    future.complete(svrPack.returnValue);
+                }
+            });
+            return;
+        }
         clientBean.syncRoot.set();
     }
 
@@ -671,15 +720,41 @@ public final class Remoting {
 
     private static void resendPending(HybridClient client, HybridSession oldSession, HybridSession newSession) {
         for (ClientBean value : getClientBeans(client).values()) {
-            log.info("clientSide resent pack[{}] {}", value.pack.id, value.pack.methodName);
+            log.info("clientSide resent pack[{}] {}", value.pack.id, methodName(value));
             try {
-                newSession.send(value.pack, RemotingHybridOptions.CONTROL);
+                //the new session may be another server, ids are bound again
+                newSession.send(bindMethodId(newSession, value), RemotingHybridOptions.CONTROL);
             } catch (ClientDisconnectedException ex) {
                 log.warn("clientSide resent pack[{}] fail", value.pack.id);
             }
         }
     }
 
+    static boolean isAsyncMethod(Method method) {
+        Class<?> returnType = method.getReturnType();
+        return returnType != Object.class && returnType.isAssignableFrom(CompletableFuture.class);
+    }
+
+    //no thread waits, the timer fails the future if no reply
+    //the reply completes the future on a Tasks thread, never on the netty I/O thread
+    private static CompletableFuture<Object> awaitMethodResponseAsync(RpcClientConfig<?> config, HybridClient client, ClientBean clientBean,
+            Action onComplete) {
+        CompletableFuture<Object> future = clientBean.future;
+        int timeoutMillis = resolveRequestTimeout(config, client);
+        TimeoutFuture<?> timer = Tasks.setTimeout(() -> {
+            if (!client.isConnected()) {
+                future.completeExceptionally(new ClientDisconnectedException(currentRemoteEndpoint(client)));
+                return;
+            }
+            future.completeExceptionally(new TimeoutException(String.format("The method %s read timeout", methodName(clientBean))));
+        }, timeoutMillis);
+        future.whenComplete((r, e) -> {
+            timer.cancel(false);
+            onComplete.run();
+        });
+        return future;
+    }
+
     @SneakyThrows
     private static Object awaitMethodResponse(RpcClientConfig<?> config, HybridClient client, ClientBean clientBean) {
         int timeoutMillis = resolveRequestTimeout(config, client);
@@ -688,7 +763,7 @@ public final class Remoting {
                 throw new ClientDisconnectedException(currentRemoteEndpoint(client));
             }
             if (clientBean.pack.returnValue == null) {
-                throw new TimeoutException(String.format("The method %s read timeout", clientBean.pack.methodName));
+                throw new TimeoutException(String.format("The method %s read timeout", methodName(clientBean)));
             }
         }
         clientBean.syncRoot.reset();
@@ -748,7 +823,7 @@ public final class Remoting {
         }
     }
 
-    private static boolean hasPendingWaitBeans(HybridClient client) {
+    static boolean hasPendingWaitBeans(HybridClient client) {
         if (client == null) {
             return false;
         }
@@ -798,6 +873,30 @@ public final class Remoting {
         return client == null ? null : client.getConfig().getTcpClientConfig().getServerEndpoint();
     }
 
+    private static String methodName(ClientBean clientBean) {
+        return clientBean.method != null ? clientBean.method.getName() : clientBean.pack.methodName;
+    }
+
+    //call by method id when the session has the server method table, otherwise by name
+    private static MethodMessage bindMethodId(HybridSession session, ClientBean clientBean) {
+        MethodMessage pack = clientBean.pack;
+        if (clientBean.method == null) {
+            return pack;
+        }
+        Map<String, Integer> ids = session == null ? null : session.attr(METHOD_IDS_KEY);
+        Integer methodId = ids == null ? null : ids.get(RemotingMethodTable.signature(clientBean.method));
+        if (methodId == null) {
+            if (pack.methodName != null) {
+                return pack;
+            }
+            return clientBean.pack = new MethodMessage(pack.id, clientBean.method.getName(), pack.parameters, pack.traceId);
+        }
+        if (pack.methodId == methodId) {
+            return pack;
+        }
+        return clientBean.pack = new MethodMessage(pack.id, methodId, pack.parameters, pack.traceId);
+    }
+
     private static void sendRequest(HybridClient client, HybridSession session, MethodMessage message) {
         activeSession(client, session).send(message, RemotingHybridOptions.METHOD);
     }
@@ -887,7 +986,7 @@ public final class Remoting {
     private static ServerBean doRegister(@NonNull Object contractInstance, @NonNull RpcServerConfig config) {
         ensureServerCodec(config);
         DiagnosticMetrics.setNetComponent(config.getTcpConfig(), DiagnosticMetrics.NET_RPC_SERVER);
-        ServerBean bean = new ServerBean(config, new HybridServer(config.getHybridConfig()));
+        ServerBean bean = new ServerBean(config, new HybridServer(config.getHybridConfig()), RemotingMethodTable.of(contractInstance.getClass()));
         bean.server.onClosed.add((s, e) -> serverBeans.remove(contractInstance));
         bean.server.onDisconnected.add((s, e) -> cleanupSubscriptions(bean, e.getValue()));
         bean.server.onError.add((s, e) -> e.setCancel(true));
@@ -970,7 +1069,12 @@ public final class Remoting {
         })) {
             return;
         }
-        if (tryAs(e.getValue(), MetadataMessage.class, p -> session.attr(HANDSHAKE_META_KEY, p))) {
+        if (tryAs(e.getValue(), MetadataMessage.class, p -> {
+            session.attr(HANDSHAKE_META_KEY, p);
+            if (p.getMethods() != null) {
+                session.send(new MetadataMessage(p.getEventVersion(), bean.methodTable.signatures), RemotingHybridOptions.CONTROL);
+            }
+        })) {
             log.debug("Handshake: {}", toJsonString(e.getValue()));
             return;
         }
@@ -986,9 +1090,9 @@ public final class Remoting {
             return;
         }
         if (executor == null) {
-            invokeAndReply(contractInstance, s, session, pack);
+            invokeAndReply(contractInstance, bean.methodTable, s, session, pack);
         } else {
-            executor.execute(() -> invokeAndReply(contractInstance, s, session, pack));
+            executor.execute(() -> invokeAndReply(contractInstance, bean.methodTable, s, session, pack));
         }
     }
 
@@ -997,10 +1101,13 @@ public final class Remoting {
         session.send(pack, RemotingHybridOptions.response(pack));
     }
 
-    private static void invokeAndReply(Object contractInstance, HybridServer s, HybridSession session, MethodMessage pack) {
+    private static void invokeAndReply(Object contractInstance, RemotingMethodTable methodTable, HybridServer s, HybridSession session, MethodMessage pack) {
+        //an older client has no methodId field, it decodes as 0 and the call goes by its name
+        boolean byId = pack.methodName == null;
+        String methodName = byId ? methodTable.methodName(pack.methodId) : pack.methodName;
         try {
-            pack.returnValue = Sys.callLog(contractInstance.getClass(), pack.methodName,
-                    () -> String.format("Server %s.%s [%s -> %s]", contractInstance.getClass().getSimpleName(), pack.methodName,
+            pack.returnValue = Sys.callLog(contractInstance.getClass(), methodName,
+                    () -> String.format("Server %s.%s [%s -> %s]", contractInstance.getClass().getSimpleName(), methodName,
                             s.getConfig().getTcpServerConfig().getListenPort(), Sockets.toString(session.tcpRemoteEndpoint())),
                     pack.parameters, () -> RemotingContext.invoke(() -> {
                         String traceName = RxConfig.INSTANCE.getThreadPool().getTraceName();
@@ -1008,15 +1115,38 @@ public final class Remoting {
                             ThreadPool.startTrace(pack.traceId, true);
                         }
                         try {
-                            return Reflects.invokeMethod(contractInstance, pack.methodName, pack.parameters);
+                            return byId ? methodTable.invoke(pack.methodId, contractInstance, pack.parameters)
+                                    : Reflects.invokeMethod(contractInstance, pack.methodName, pack.parameters);
                         } finally {
                             ThreadPool.endTrace();
                         }
                     }, s, session));
         } catch (Throwable ex) {
-            Throwable cause = ifNull(ex.getCause(), ex);
-            pack.errorMessage = String.format("%s %s", cause.getClass().getSimpleName(), cause.getMessage());
+            pack.errorMessage = errorMessage(ifNull(ex.getCause(), ex));
+        }
+
+        if (pack.returnValue instanceof CompletionStage) {
+            //reply on completion, the executor thread is released now
+            CompletionStage<?> stage = (CompletionStage<?>) pack.returnValue;
+            pack.returnValue = null;
+            stage.whenComplete((r, e) -> {
+                if (e != null) {
+                    pack.errorMessage = errorMessage(e instanceof CompletionException ? ifNull(e.getCause(), e) : e);
+                } else {
+                    pack.returnValue = r;
+                }
+                reply(session, pack);
+            });
+            return;
         }
+        reply(session, pack);
+    }
+
+    private static String errorMessage(Throwable cause) {
+        return String.format("%s %s", cause.getClass().getSimpleName(), cause.getMessage());
+    }
+
+    private static void reply(HybridSession session, MethodMessage pack) {
         if (pack.parameters != null) {
             Arrays.fill(pack.parameters, null);
         }
@@ -0,0 +1,115 @@
+package org.rx.net.rpc;
+
+import lombok.SneakyThrows;
+import org.apache.commons.lang3.ClassUtils;
+import org.rx.core.Reflects;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Method id table of a contract implementation, ids are assigned by the server and exchanged at handshake.
+ * Ids come from the contract interfaces the implementation declares, helper methods of the implementation class do not shift them.
+ * Overloads are resolved by the exact signature once, the invokers are precompiled MethodHandles.
+ */
+final class RemotingMethodTable {
+    static final Map<Class<?>, RemotingMethodTable> TABLES = new ConcurrentHashMap<>();
+    static final Map<Method, String> SIGNATURES = new ConcurrentHashMap<>();
+    static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+    static final Object[] EMPTY_ARGS = {};
+
+    static RemotingMethodTable of(Class<?> type) {
+        return TABLES.computeIfAbsent(type, RemotingMethodTable::new);
+    }
+
+    static String signature(Method method) {
+        return SIGNATURES.computeIfAbsent(method, m -> {
+            StringBuilder buf = new StringBuilder(m.getName()).append('(');
+            Class<?>[] parameterTypes = m.getParameterTypes();
+            for (int i = 0; i < parameterTypes.length; i++) {
+                if (i > 0) {
+                    buf.append(',');
+                }
+                buf.append(parameterTypes[i].getName());
+            }
+            return buf.append(')').toString();
+        });
+    }
+
+    //client side, signature -> id
+    static Map<String, Integer> toIdMap(String[] signatures) {
+        Map<String, Integer> ids = new HashMap<>(signatures.length * 2);
+        for (int i = 0; i < signatures.length; i++) {
+            ids.put(signatures[i], i);
+        }
+        return ids;
+    }
+
+    final String[] signatures;
+    final Method[] methods;
+    final MethodHandle[] invokers;
+
+    @SneakyThrows
+    RemotingMethodTable(Class<?> type) {
+        //sorted by signature, the same contract version gets the same ids on every node
+        TreeMap<String, Method> sorted = new TreeMap<>();
+        for (Method method : contractMethods(type)) {
+            if (method.getDeclaringClass() == Object.class || Modifier.isStatic(method.getModifiers()) || method.isSynthetic()) {
+                continue;
+            }
+            sorted.putIfAbsent(signature(method), method);
+        }
+
+        int size = sorted.size();
+        signatures = sorted.keySet().toArray(new String[size]);
+        methods = sorted.values().toArray(new Method[size]);
+        invokers = new MethodHandle[size];
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        for (int i = 0; i < size; i++) {
+            Method method = methods[i];
+            Reflects.setAccess(method);
+            invokers[i] = lookup.unreflect(method)
+                    .asSpreader(Object[].class, method.getParameterCount())
+                    .asType(INVOKER_TYPE);
+        }
+    }
+
+    static List<Method> contractMethods(Class<?> type) {
+        List<Class<?>> contracts = ClassUtils.getAllInterfaces(type);
+        if (contracts.isEmpty()) {
+            return Arrays.asList(type.getMethods());
+        }
+        List<Method> methods = new ArrayList<>();
+        for (Class<?> contract : contracts) {
+            Collections.addAll(methods, contract.getMethods());
+        }
+        return methods;
+    }
+
+    int size() {
+        return methods.length;
+    }
+
+    String methodName(int methodId) {
+        return methodId >= 0 && methodId < methods.length ? methods[methodId].getName() : "#" + methodId;
+    }
+
+    Object invoke(int methodId, Object instance, Object[] args) throws InvocationTargetException {
+        if (methodId < 0 || methodId >= invokers.length) {
+            throw new RemotingException(String.format("Unknown method id %s of %s", methodId, instance.getClass().getName()));
+        }
+        Object[] arguments = args == null ? EMPTY_ARGS : args;
+        try {
+            return (Object) invokers[methodId].invokeExact(instance, arguments);
+        } catch (Throwable e) {
+            //same shape as reflection, the reply takes the cause
+            throw new InvocationTargetException(e);
+        }
+    }
+}
@@ -12,4 +12,10 @@ import java.io.Serializable;
 public class MetadataMessage implements Serializable {
     private static final long serialVersionUID = -3218524051027224831L;
     private int eventVersion;
+    //client sends an empty array to request the method table, server replies the signatures in id order
+    private String[] methods;
+
+    public MetadataMessage(int eventVersion) {
+        this.eventVersion = eventVersion;
+    }
 }
@@ -1,24 +1,41 @@
 package org.rx.net.rpc.protocol;
 
-import lombok.RequiredArgsConstructor;
-
 import java.io.Serializable;
 import java.util.Arrays;
 
-@RequiredArgsConstructor
 public class MethodMessage implements Serializable {
     private static final long serialVersionUID = -1424164254938438910L;
+    public static final int NO_METHOD_ID = -1;
     public final int id;
+    //null when called by methodId
     public final String methodName;
+    //assigned by the server method table at handshake
+    public final int methodId;
     public final Object[] parameters;
     public final String traceId;
     public Object returnValue;
     public String errorMessage;
 
+    public MethodMessage(int id, String methodName, Object[] parameters, String traceId) {
+        this(id, methodName, NO_METHOD_ID, parameters, traceId);
+    }
+
+    public MethodMessage(int id, int methodId, Object[] parameters, String traceId) {
+        this(id, null, methodId, parameters, traceId);
+    }
+
+    MethodMessage(int id, String methodName, int methodId, Object[] parameters, String traceId) {
+        this.id = id;
+        this.methodName = methodName;
+        this.methodId = methodId;
+        this.parameters = parameters;
+        this.traceId = traceId;
+    }
+
     @Override
     public String toString() {
         return "MethodMessage[" + id + "]{" +
-                "methodName='" + methodName + '\'' +
+                "methodName='" + (methodName != null ? methodName : "#" + methodId) + '\'' +
                 ", parameters=" + Arrays.toString(parameters) +
                 ", returnValue='" + returnValue + '\'' +
                 '}';
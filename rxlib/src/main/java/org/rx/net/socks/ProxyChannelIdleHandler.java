@@ -2,6 +2,7 @@ package org.rx.net.socks;
 
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
 import io.netty.handler.timeout.IdleStateHandler;
 import lombok.extern.slf4j.Slf4j;
@@ -17,6 +18,10 @@ public class ProxyChannelIdleHandler extends IdleStateHandler {
     @Override
     protected void channelIdle(ChannelHandlerContext ctx, IdleStateEvent evt) throws Exception {
         Channel channel = ctx.channel();
+        long idleMillis = evt.state() == IdleState.WRITER_IDLE ? getWriterIdleTimeInMillis() : getReaderIdleTimeInMillis();
+        if (SocksTcpSpliceRelay.isActiveWithin(channel, idleMillis)) {
+            return;
+        }
         log.info("{} {} idle: {}", Sockets.protocolName(channel), channel, evt.state());
         super.channelIdle(ctx, evt);
         Sockets.closeOnFlushed(channel);
@@ -101,6 +101,11 @@ public class ProxyManageHandler extends ChannelTrafficShapingHandler {
         TrafficCounter trafficCounter = trafficCounter();
         long readBytes = trafficCounter.cumulativeReadBytes();
         long writeBytes = trafficCounter.cumulativeWrittenBytes();
+        long[] spliced = SocksTcpSpliceRelay.splicedBytes(ctx.channel());
+        if (spliced != null) {
+            readBytes += spliced[0];
+            writeBytes += spliced[1];
+        }
 
         if (info != null) {
             DateTime now = DateTime.now();
@@ -13,6 +13,7 @@ import org.rx.core.Disposable;
 import org.rx.core.Sys;
 import org.rx.io.FurySerializer;
 import org.rx.io.Serializer;
+import org.rx.net.SocketConfig;
 import org.rx.net.Sockets;
 import org.rx.net.TransportFlags;
 import org.rx.net.transport.AbstractTcpReconnectClient;
@@ -46,6 +47,10 @@ public class RrpClient extends AbstractTcpReconnectClient {
         final AtomicInteger draining = new AtomicInteger();
 
         boolean offer(Channel channel, ByteBuf payload) {
+            return offer(channel, payload, null);
+        }
+
+        boolean offer(Channel channel, ByteBuf payload, TcpRelayFlusher flusher) {
             if (!canQueue(channel)) {
                 io.netty.util.ReferenceCountUtil.release(payload);
                 onRejected(channel);
@@ -62,7 +67,7 @@ public class RrpClient extends AbstractTcpReconnectClient {
             }
 
             pendingWrites.offer(payload);
-            scheduleDrain(channel);
+            scheduleDrain(channel, flusher);
             onQueueStateChanged(channel);
             return true;
         }
@@ -80,27 +85,39 @@ public class RrpClient extends AbstractTcpReconnectClient {
         }
 
         void scheduleDrain(Channel channel) {
+            scheduleDrain(channel, null);
+        }
+
+        //flusher is only used when the reading channel shares the target event loop
+        void scheduleDrain(Channel channel, TcpRelayFlusher flusher) {
             if (!canWrite(channel) || !draining.compareAndSet(0, 1)) {
                 return;
             }
             if (channel.eventLoop().inEventLoop()) {
-                drain(channel);
+                drain(channel, flusher);
                 return;
             }
-            channel.eventLoop().execute(() -> drain(channel));
+            channel.eventLoop().execute(() -> drain(channel, null));
         }
 
-        void drain(Channel channel) {
+        void drain(Channel channel, TcpRelayFlusher flusher) {
+            int written = 0;
             boolean flushed = false;
             try {
                 ByteBuf payload;
                 while (canWrite(channel) && (payload = pendingWrites.poll()) != null) {
-                    pendingBytes.addAndGet(-payload.readableBytes());
+                    int bytes = payload.readableBytes();
+                    pendingBytes.addAndGet(-bytes);
+                    written += bytes;
                     channel.write(payload).addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
                     flushed = true;
                 }
                 if (flushed) {
-                    channel.flush();
+                    if (flusher != null && flusher.coalesce) {
+                        flusher.written(channel, written);
+                    } else {
+                        channel.flush();
+                    }
                 }
             } finally {
                 draining.set(0);
@@ -321,10 +338,17 @@ public class RrpClient extends AbstractTcpReconnectClient {
                 ServerRelayBuffer oldBuffer = localChannel.attr(ATTR_SERVER_RELAY_BUF).setIfAbsent(newBuffer);
                 relayBuffer = oldBuffer == null ? newBuffer : oldBuffer;
             }
-            relayBuffer.offer(serverChannel, Unpooled.wrappedBuffer(buf, (ByteBuf) msg));
+            relayBuffer.offer(serverChannel, Unpooled.wrappedBuffer(buf, (ByteBuf) msg),
+                    TcpRelayFlusher.of(localChannel, localChannel.attr(SocketConfig.ATTR_CONF).get()));
             log.debug("RrpClient step5 {}({}) {} -> serverChannel", proxyCtx.serverChannel, channelId, localChannel);
         }
 
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx) {
+            TcpRelayFlusher.flush(ctx.channel());
+            ctx.fireChannelReadComplete();
+        }
+
         @Override
         public void channelInactive(ChannelHandlerContext ctx) throws Exception {
             Channel localChannel = ctx.channel();
@@ -490,7 +514,7 @@ public class RrpClient extends AbstractTcpReconnectClient {
                         LocalRelayBuffer oldBuffer = localChannel.attr(ATTR_LOCAL_RELAY_BUF).setIfAbsent(newBuffer);
                         relayBuffer = oldBuffer == null ? newBuffer : oldBuffer;
                     }
-                    relayBuffer.offer(localChannel, payload);
+                    relayBuffer.offer(localChannel, payload, TcpRelayFlusher.of(serverChannel, config));
                     log.debug("RrpClient step4 {}({}) serverChannel -> {}", serverChannel, channelId, localChannel);
                 } else if (action == RrpConfig.ACTION_SYNC_CLOSE) {
                     //step8
@@ -506,6 +530,12 @@ public class RrpClient extends AbstractTcpReconnectClient {
             }
         }
 
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx) {
+            TcpRelayFlusher.flush(ctx.channel());
+            ctx.fireChannelReadComplete();
+        }
+
         @Override
         public void channelInactive(ChannelHandlerContext ctx) {
             Channel serverChannel = ctx.channel();
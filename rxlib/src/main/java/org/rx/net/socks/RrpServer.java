@@ -51,6 +51,10 @@ public class RrpServer extends Disposable {
         final AtomicInteger draining = new AtomicInteger();
 
         boolean offer(Channel channel, ByteBuf payload) {
+            return offer(channel, payload, null);
+        }
+
+        boolean offer(Channel channel, ByteBuf payload, TcpRelayFlusher flusher) {
             if (!channel.isActive()) {
                 io.netty.util.ReferenceCountUtil.release(payload);
                 return false;
@@ -67,32 +71,44 @@ public class RrpServer extends Disposable {
             }
 
             pendingWrites.offer(payload);
-            scheduleDrain(channel);
+            scheduleDrain(channel, flusher);
             return true;
         }
 
         void scheduleDrain(Channel channel) {
+            scheduleDrain(channel, null);
+        }
+
+        //flusher is only used when the reading channel shares the target event loop
+        void scheduleDrain(Channel channel, TcpRelayFlusher flusher) {
             if (!channel.isActive() || !draining.compareAndSet(0, 1)) {
                 return;
             }
             if (channel.eventLoop().inEventLoop()) {
-                drain(channel);
+                drain(channel, flusher);
                 return;
             }
-            channel.eventLoop().execute(() -> drain(channel));
+            channel.eventLoop().execute(() -> drain(channel, null));
         }
 
-        void drain(Channel channel) {
+        void drain(Channel channel, TcpRelayFlusher flusher) {
+            int written = 0;
             boolean flushed = false;
             try {
                 ByteBuf payload;
                 while (channel.isActive() && channel.isWritable() && (payload = pendingWrites.poll()) != null) {
-                    pendingBytes.addAndGet(-payload.readableBytes());
+                    int bytes = payload.readableBytes();
+                    pendingBytes.addAndGet(-bytes);
+                    written += bytes;
                     channel.write(payload).addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
                     flushed = true;
                 }
                 if (flushed) {
-                    channel.flush();
+                    if (flusher != null && flusher.coalesce) {
+                        flusher.written(channel, written);
+                    } else {
+                        channel.flush();
+                    }
                 }
             } finally {
                 draining.set(0);
@@ -225,10 +241,16 @@ public class RrpServer extends Disposable {
             buf.writeInt(bytes.length);
             buf.writeBytes(bytes);
 
-            outbound.writeAndFlush(Unpooled.wrappedBuffer(buf, (ByteBuf) msg));
+            TcpRelayFlusher.of(inbound, rpClient.server.config).write(outbound, Unpooled.wrappedBuffer(buf, (ByteBuf) msg));
             log.debug("RrpServer step3 {}({}) -> clientChannel", rpClient.clientChannel, channelId);
         }
 
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx) {
+            TcpRelayFlusher.flush(ctx.channel());
+            ctx.fireChannelReadComplete();
+        }
+
         @Override
         public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
             Channel inbound = ctx.channel();
@@ -358,7 +380,7 @@ public class RrpServer extends Disposable {
                             RemoteRelayBuffer oldBuffer = remoteChannel.attr(ATTR_REMOTE_RELAY_BUF).setIfAbsent(newBuffer);
                             relayBuffer = oldBuffer == null ? newBuffer : oldBuffer;
                         }
-                        relayBuffer.offer(remoteChannel, payload);
+                        relayBuffer.offer(remoteChannel, payload, TcpRelayFlusher.of(clientChannel, server.config));
                     }
                     log.debug("RrpServer step6 {}({}) clientChannel -> {}", clientChannel, channelId, remoteChannel);
                 } else if (action == RrpConfig.ACTION_SYNC_CLOSE) {
@@ -393,6 +415,12 @@ public class RrpServer extends Disposable {
             }
         }
 
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx) {
+            TcpRelayFlusher.flush(ctx.channel());
+            ctx.fireChannelReadComplete();
+        }
+
         @Override
         public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
             Channel clientChannel = ctx.channel();
@@ -434,6 +434,7 @@ public class Socks5CommandRequestHandler extends SimpleChannelInboundHandler<Def
                 }
             }
             maybeBypassTcpCompression(inbound, outbound, e, config);
+            SocksTcpSpliceRelay.tryStart(inbound, outbound, e, server);
             log.info("socks5[{}] TCP {} => {} connected, dstEp={}[{}]", config.getListenPort(), inbound.localAddress(), outbound.remoteAddress(), dstEp, e.getFirstDestination());
         });
     }
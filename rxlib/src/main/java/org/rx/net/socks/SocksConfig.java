@@ -46,6 +46,11 @@ public class SocksConfig extends SocketConfig {
      * DIRECT/REMOTE: 使用 Netty 异步 DNS，并分别走直连/远程 DNS Client。
      */
     private TcpAsyncDnsMode tcpAsyncDnsMode = TcpAsyncDnsMode.DIRECT;
+    /**
+     * epoll 下无 cipher/压缩/限速的纯字节 TCP 隧道改用 splice 转发，数据不再经过用户态 ByteBuf。
+     * 要求入站与出站 channel 同一 EventLoop。
+     */
+    private boolean tcpSplice;
 
     // 访问控制
     /**
@@ -112,6 +112,8 @@ public final class SocksContext extends EventArgs {
 
     transient Channel inbound;
     transient ChannelFuture outbound;
+    transient volatile SocksUserTraffic.Accumulator accumulator;
+    transient volatile UserTrafficShaper.ConnectionBuckets shaping;
 
     private SocksContext(InetSocketAddress srcEp, InetSocketAddress dstEp) {
         this.source = srcEp;
@@ -51,6 +51,7 @@ public class SocksProxyServer extends Disposable implements EventPublisher<Socks
     private final UdpRelayGroupManager udpRelayGroupManager;
     private final Udp2rawServerEntryManager udp2rawEntryManager;
     final AtomicInteger activeChannels = new AtomicInteger();
+    final AtomicInteger splicedChannels = new AtomicInteger();
     // 只有压缩时一定要用
     @Setter
     private PredicateFunc<InetSocketAddress> cipherRouter;
@@ -74,6 +75,10 @@ public class SocksProxyServer extends Disposable implements EventPublisher<Socks
         return activeChannels.get();
     }
 
+    public int splicedChannelCount() {
+        return splicedChannels.get();
+    }
+
     // public Integer getBindPort() {
     // InetSocketAddress ep = (InetSocketAddress) tcpChannel.localAddress();
     // return ep != null ? ep.getPort() : null;
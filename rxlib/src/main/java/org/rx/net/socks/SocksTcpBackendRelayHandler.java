@@ -1,5 +1,6 @@
 package org.rx.net.socks;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
@@ -7,6 +8,7 @@ import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.handler.proxy.ProxyConnectException;
 import lombok.extern.slf4j.Slf4j;
 import org.rx.core.Strings;
+import org.rx.net.SocketConfig;
 import org.rx.net.Sockets;
 
 @Slf4j
@@ -20,7 +22,16 @@ public class SocksTcpBackendRelayHandler extends ChannelInboundHandlerAdapter {
         SocksContext sc = SocksContext.ctx(outbound);
         SocksUserTraffic.recordRead(sc, msg);
         log.debug("TCP RELAY {}[{}] => {}", outbound.remoteAddress(), outbound.localAddress(), sc.inbound.remoteAddress());
-        sc.inbound.writeAndFlush(msg);
+        long bytes = msg instanceof ByteBuf ? ((ByteBuf) msg).readableBytes() : 0L;
+        TcpRelayFlusher.of(outbound, sc.inbound.attr(SocketConfig.ATTR_CONF).get()).write(sc.inbound, msg);
+        UserTrafficShaper.DEFAULT.onRead(sc, outbound, false, bytes);
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) {
+        TcpRelayFlusher.flush(ctx.channel());
+        SocksTcpSpliceRelay.onReadComplete(ctx.channel());
+        ctx.fireChannelReadComplete();
     }
 
     @Override
@@ -1,7 +1,9 @@
 package org.rx.net.socks;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.*;
 import lombok.extern.slf4j.Slf4j;
+import org.rx.net.SocketConfig;
 import org.rx.net.Sockets;
 
 @Slf4j
@@ -28,7 +30,16 @@ public class SocksTcpFrontendRelayHandler extends ChannelInboundHandlerAdapter {
 
         Channel outbound = sc.outbound.channel();
         log.debug("TCP RELAY {} => {}[{}]", inbound.remoteAddress(), outbound.localAddress(), outbound.remoteAddress());
-        outbound.writeAndFlush(msg);
+        long bytes = msg instanceof ByteBuf ? ((ByteBuf) msg).readableBytes() : 0L;
+        TcpRelayFlusher.of(inbound, inbound.attr(SocketConfig.ATTR_CONF).get()).write(outbound, msg);
+        UserTrafficShaper.DEFAULT.onRead(sc, inbound, true, bytes);
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) {
+        TcpRelayFlusher.flush(ctx.channel());
+        SocksTcpSpliceRelay.onReadComplete(ctx.channel());
+        ctx.fireChannelReadComplete();
     }
 
     @Override
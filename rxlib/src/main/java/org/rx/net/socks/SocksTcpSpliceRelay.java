@@ -0,0 +1,281 @@
+package org.rx.net.socks;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.epoll.*;
+import io.netty.handler.codec.socksx.v5.Socks5ServerEncoder;
+import io.netty.util.AttributeKey;
+import io.netty.util.Version;
+import lombok.extern.slf4j.Slf4j;
+import org.rx.diagnostic.DiagnosticMetrics;
+import org.rx.net.GlobalChannelHandler;
+import org.rx.net.Sockets;
+import org.rx.net.TcpBackpressureHandler;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * epoll 下纯字节 TCP 隧道的 splice 转发，数据经内核 pipe 在两端 socket 间搬运，不再读入用户态 ByteBuf。
+ * <p>
+ * 仅在两端 pipeline 只剩透传 handler（无 cipher、压缩、限速、伪装头）时启用；
+ * 流量统计在每轮读取完成时按 netty splice 任务剩余长度的差值补记，
+ * 背压由 netty splice 保证：写入目标端未完成前源端暂停读取。
+ * <p>
+ * 任务剩余长度取自 netty 私有字段 spliceQueue / SpliceInTask.len，只在 {@link #VERIFIED_NETTY_VERSIONS} 上反射读取，
+ * 其它版本不启用 splice。某方向开始 splice 前先暂停源端读取，等目标端用户态出站缓冲（如服务端先发的 banner）
+ * 全部写出，避免内核 pipe 中的数据越过尚未 flush 的字节。
+ */
+@Slf4j
+final class SocksTcpSpliceRelay {
+    static final AttributeKey<SocksTcpSpliceRelay> ATTR = AttributeKey.valueOf("socksTcpSplice");
+    //netty only counts down a finite len, MAX_VALUE means endless without progress
+    static final int SPLICE_LEN = Integer.MAX_VALUE - 1;
+    static final String NETTY_EPOLL_ARTIFACT = "netty-transport-classes-epoll";
+    //私有字段布局已核对的 netty 版本前缀，升级 netty 后需重新核对再加入
+    static final String[] VERIFIED_NETTY_VERSIONS = {"4.2."};
+    static final Field SPLICE_QUEUE;
+    static final Field TASK_LEN;
+
+    static {
+        Field queue = null, len = null;
+        try {
+            String version = nettyEpollVersion();
+            if (!isVerifiedNettyVersion(version)) {
+                throw new IllegalStateException("unverified netty epoll version " + version);
+            }
+            queue = AbstractEpollStreamChannel.class.getDeclaredField("spliceQueue");
+            len = Class.forName(AbstractEpollStreamChannel.class.getName() + "$SpliceInTask").getDeclaredField("len");
+            if (!Queue.class.isAssignableFrom(queue.getType()) || len.getType() != int.class) {
+                throw new IllegalStateException("unexpected splice field layout");
+            }
+            queue.setAccessible(true);
+            len.setAccessible(true);
+        } catch (Throwable e) {
+            log.warn("TCP splice progress unavailable, splice relay disabled {}", e.toString());
+            queue = null;
+            len = null;
+        }
+        SPLICE_QUEUE = queue;
+        TASK_LEN = len;
+    }
+
+    static String nettyEpollVersion() {
+        Version version = Version.identify(AbstractEpollStreamChannel.class.getClassLoader()).get(NETTY_EPOLL_ARTIFACT);
+        return version != null ? version.artifactVersion() : null;
+    }
+
+    static boolean isVerifiedNettyVersion(String version) {
+        if (version == null) {
+            return false;
+        }
+        for (String prefix : VERIFIED_NETTY_VERSIONS) {
+            if (version.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    final SocksContext sc;
+    final AbstractEpollStreamChannel inbound;
+    final AbstractEpollStreamChannel outbound;
+    final Direction upstream;
+    final Direction downstream;
+    long lastTransferNanos;
+    long splicedReadBytes;
+    long splicedWriteBytes;
+
+    SocksTcpSpliceRelay(SocksContext sc, AbstractEpollStreamChannel inbound, AbstractEpollStreamChannel outbound) {
+        this.sc = sc;
+        this.inbound = inbound;
+        this.outbound = outbound;
+        upstream = new Direction(inbound, outbound, true);
+        downstream = new Direction(outbound, inbound, false);
+    }
+
+    final class Direction {
+        final AbstractEpollStreamChannel source;
+        final AbstractEpollStreamChannel target;
+        final boolean fromInbound;
+        Object task;
+        int remaining;
+
+        Direction(AbstractEpollStreamChannel source, AbstractEpollStreamChannel target, boolean fromInbound) {
+            this.source = source;
+            this.target = target;
+            this.fromInbound = fromInbound;
+        }
+
+        void start() {
+            if (!source.isActive() || !target.isActive()) {
+                Sockets.resumeRead(source, Sockets.READ_PAUSE_SPLICE);
+                return;
+            }
+            ChannelOutboundBuffer buffer = target.unsafe().outboundBuffer();
+            if (buffer != null && buffer.totalPendingWriteBytes() > 0L) {
+                //源端暂停期间已读入的数据仍会写入目标端，空写完成时其前面的字节均已写出，再次检查
+                Sockets.pauseRead(source, Sockets.READ_PAUSE_SPLICE);
+                target.writeAndFlush(Unpooled.EMPTY_BUFFER).addListener((ChannelFutureListener) f -> {
+                    if (f.isSuccess()) {
+                        start();
+                    } else {
+                        Sockets.resumeRead(source, Sockets.READ_PAUSE_SPLICE);
+                    }
+                });
+                return;
+            }
+            source.spliceTo(target, SPLICE_LEN).addListener((ChannelFutureListener) f -> {
+                collect();
+                task = null;
+                if (f.isSuccess()) {
+                    //the finished task leaves the queue once the current read returns
+                    source.eventLoop().execute(this::start);
+                }
+            });
+            task = peekTask(source);
+            remaining = SPLICE_LEN;
+            Sockets.resumeRead(source, Sockets.READ_PAUSE_SPLICE);
+        }
+
+        void collect() {
+            Object t = task;
+            if (t == null) {
+                return;
+            }
+            int len = taskLen(t);
+            long bytes = remaining - len;
+            if (bytes <= 0) {
+                return;
+            }
+            remaining = len;
+            lastTransferNanos = System.nanoTime();
+            if (fromInbound) {
+                SocksUserTraffic.recordWrite(sc, bytes, 1);
+                splicedReadBytes += bytes;
+            } else {
+                SocksUserTraffic.recordRead(sc, bytes, 1);
+                splicedWriteBytes += bytes;
+            }
+        }
+    }
+
+    static boolean tryStart(Channel inbound, Channel outbound, SocksContext sc, SocksProxyServer server) {
+        SocksConfig config = server.getConfig();
+        if (!config.isTcpSplice() || !isPlainPipe(inbound, outbound)) {
+            return false;
+        }
+        SocksTcpSpliceRelay relay = new SocksTcpSpliceRelay(sc, (AbstractEpollStreamChannel) inbound, (AbstractEpollStreamChannel) outbound);
+        inbound.attr(ATTR).set(relay);
+        outbound.attr(ATTR).set(relay);
+        relay.upstream.start();
+        relay.downstream.start();
+        server.splicedChannels.incrementAndGet();
+        inbound.closeFuture().addListener(f -> server.splicedChannels.updateAndGet(v -> v > 0 ? v - 1 : 0));
+        if (DiagnosticMetrics.isEnabled()) {
+            DiagnosticMetrics.record("socks.tcp.splice.count", 1D, "port=" + config.getListenPort());
+        }
+        if (config.isDebug()) {
+            log.info("socks5[{}] TCP {} => {} SPLICE", config.getListenPort(), inbound.remoteAddress(), outbound.remoteAddress());
+        }
+        return true;
+    }
+
+    static boolean isPlainPipe(Channel inbound, Channel outbound) {
+        if (SPLICE_QUEUE == null || !Epoll.isAvailable()
+                || !(inbound instanceof AbstractEpollStreamChannel) || !(outbound instanceof AbstractEpollStreamChannel)
+                || !isLevelTriggered(inbound) || !isLevelTriggered(outbound)
+                || inbound.eventLoop() != outbound.eventLoop()
+                || !inbound.isActive() || !outbound.isActive()
+                || UserTrafficShaper.DEFAULT.isEnabled()) {
+            return false;
+        }
+        return isPassThrough(inbound) && isPassThrough(outbound);
+    }
+
+    //netty spliceTo requires LEVEL_TRIGGERED on both ends, netty 4.2 epoll is always level triggered and
+    //ignores EPOLL_MODE, so no channel is switched for splice, an edge triggered one only skips it
+    static boolean isLevelTriggered(Channel channel) {
+        return ((EpollChannelConfig) channel.config()).getEpollMode() == EpollMode.LEVEL_TRIGGERED;
+    }
+
+    //any other handler may transform or shape the byte stream
+    static boolean isPassThrough(Channel channel) {
+        for (Map.Entry<String, ChannelHandler> entry : channel.pipeline()) {
+            ChannelHandler handler = entry.getValue();
+            if (handler instanceof ProxyManageHandler) {
+                ProxyManageHandler manageHandler = (ProxyManageHandler) handler;
+                if (manageHandler.getReadLimit() != 0 || manageHandler.getWriteLimit() != 0) {
+                    return false;
+                }
+                continue;
+            }
+            if (handler instanceof GlobalChannelHandler
+                    || handler instanceof ProxyChannelIdleHandler
+                    || handler instanceof Socks5ServerEncoder
+                    || handler instanceof SocksTcpFrontendRelayHandler
+                    || handler instanceof SocksTcpBackendRelayHandler
+                    || handler instanceof TcpBackpressureHandler) {
+                continue;
+            }
+            return false;
+        }
+        return true;
+    }
+
+    static void onReadComplete(Channel channel) {
+        SocksTcpSpliceRelay relay = channel.attr(ATTR).get();
+        if (relay == null) {
+            return;
+        }
+        if (channel == relay.inbound) {
+            relay.upstream.collect();
+        } else {
+            relay.downstream.collect();
+        }
+    }
+
+    /**
+     * splice 数据不经过 pipeline，idle 检测以最近一次 splice 进度为准。
+     */
+    static boolean isActiveWithin(Channel channel, long millis) {
+        SocksTcpSpliceRelay relay = channel.attr(ATTR).get();
+        return relay != null && relay.lastTransferNanos != 0
+                && System.nanoTime() - relay.lastTransferNanos < millis * 1000_000L;
+    }
+
+    /**
+     * 已 splice 的 [客户端读入, 写回客户端] 字节数。
+     */
+    static long[] splicedBytes(Channel channel) {
+        SocksTcpSpliceRelay relay = channel.attr(ATTR).get();
+        if (relay == null) {
+            return null;
+        }
+        relay.upstream.collect();
+        relay.downstream.collect();
+        return new long[]{relay.splicedReadBytes, relay.splicedWriteBytes};
+    }
+
+    static Object peekTask(AbstractEpollStreamChannel channel) {
+        try {
+            Queue<?> queue = (Queue<?>) SPLICE_QUEUE.get(channel);
+            Object task = queue != null ? queue.peek() : null;
+            return task != null && TASK_LEN.getInt(task) == SPLICE_LEN ? task : null;
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    static int taskLen(Object task) {
+        try {
+            return TASK_LEN.getInt(task);
+        } catch (IllegalAccessException e) {
+            return 0;
+        }
+    }
+}
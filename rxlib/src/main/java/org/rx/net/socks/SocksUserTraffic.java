@@ -6,6 +6,7 @@ import io.netty.util.AttributeKey;
 import org.rx.net.Sockets;
 
 import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.atomic.AtomicReference;
 
 public final class SocksUserTraffic {
@@ -22,6 +23,89 @@ public final class SocksUserTraffic {
 
         default void recordSession(TrafficUser user, InetSocketAddress remoteAddress, String protocol, long activeSeconds) {
         }
+
+        /**
+         * 为 true 时 TCP 连接流量先累加到连接级 {@link Accumulator}，热路径不再调用 {@link #record}；
+         * recorder 需在周期 flush 时对已 {@link #track} 的累加器调用 {@link Accumulator#drainTo}，连接关闭时会自动 drain 并 {@link #untrack}。
+         */
+        default boolean isAccumulating() {
+            return false;
+        }
+
+        default void track(Accumulator accumulator) {
+        }
+
+        default void untrack(Accumulator accumulator) {
+        }
+    }
+
+    /**
+     * 单连接流量计数，热路径只做字段自增；drain 时按与上次 drain 的差值汇总给 recorder。
+     */
+    public static final class Accumulator {
+        static final AtomicLongFieldUpdater<Accumulator> READ_BYTES = AtomicLongFieldUpdater.newUpdater(Accumulator.class, "readBytes");
+        static final AtomicLongFieldUpdater<Accumulator> WRITE_BYTES = AtomicLongFieldUpdater.newUpdater(Accumulator.class, "writeBytes");
+        static final AtomicLongFieldUpdater<Accumulator> READ_PACKETS = AtomicLongFieldUpdater.newUpdater(Accumulator.class, "readPackets");
+        static final AtomicLongFieldUpdater<Accumulator> WRITE_PACKETS = AtomicLongFieldUpdater.newUpdater(Accumulator.class, "writePackets");
+
+        final TrafficUser user;
+        final InetSocketAddress remoteAddress;
+        final String protocol;
+        final Recorder recorder;
+        volatile long readBytes;
+        volatile long writeBytes;
+        volatile long readPackets;
+        volatile long writePackets;
+        volatile boolean closed;
+        long drainedReadBytes;
+        long drainedWriteBytes;
+        long drainedReadPackets;
+        long drainedWritePackets;
+
+        Accumulator(TrafficUser user, InetSocketAddress remoteAddress, String protocol, Recorder recorder) {
+            this.user = user;
+            this.remoteAddress = remoteAddress;
+            this.protocol = protocol;
+            this.recorder = recorder;
+        }
+
+        void add(long readBytes, long writeBytes, long readPackets, long writePackets) {
+            if (readBytes != 0L) {
+                READ_BYTES.addAndGet(this, readBytes);
+            }
+            if (writeBytes != 0L) {
+                WRITE_BYTES.addAndGet(this, writeBytes);
+            }
+            if (readPackets != 0L) {
+                READ_PACKETS.addAndGet(this, readPackets);
+            }
+            if (writePackets != 0L) {
+                WRITE_PACKETS.addAndGet(this, writePackets);
+            }
+            // 与 close 并发时最终 drain 可能已先完成，补 drain 一次，避免尾部流量丢失。
+            if (closed) {
+                drainTo(recorder);
+            }
+        }
+
+        public synchronized void drainTo(Recorder recorder) {
+            long rb = readBytes, wb = writeBytes, rp = readPackets, wp = writePackets;
+            long dRb = rb - drainedReadBytes, dWb = wb - drainedWriteBytes, dRp = rp - drainedReadPackets, dWp = wp - drainedWritePackets;
+            if ((dRb | dWb | dRp | dWp) == 0L) {
+                return;
+            }
+            drainedReadBytes = rb;
+            drainedWriteBytes = wb;
+            drainedReadPackets = rp;
+            drainedWritePackets = wp;
+            recorder.record(user, remoteAddress, protocol, dRb, dWb, dRp, dWp);
+        }
+
+        void close() {
+            closed = true;
+            recorder.untrack(this);
+            drainTo(recorder);
+        }
     }
 
     public static final String PROTOCOL_TCP = "tcp";
@@ -141,9 +225,38 @@ public final class SocksUserTraffic {
         }
 
         Recorder recorder = RECORDER.get();
-        if (recorder != null) {
-            recorder.record(user, context.getSource(), protocol, readBytes, writeBytes, readPackets, writePackets);
+        if (recorder == null) {
+            return;
+        }
+        if (recorder.isAccumulating() && context.inbound != null && PROTOCOL_TCP.equals(protocol)) {
+            Accumulator accumulator = context.accumulator;
+            if (accumulator == null || accumulator.user != user || accumulator.recorder != recorder) {
+                accumulator = accumulator(context, user, recorder);
+            }
+            if (!accumulator.closed) {
+                accumulator.add(readBytes, writeBytes, readPackets, writePackets);
+                return;
+            }
+        }
+        recorder.record(user, context.getSource(), protocol, readBytes, writeBytes, readPackets, writePackets);
+    }
+
+    private static Accumulator accumulator(SocksContext context, TrafficUser user, Recorder recorder) {
+        Accumulator old, accumulator;
+        synchronized (context) {
+            old = context.accumulator;
+            if (old != null && old.user == user && old.recorder == recorder) {
+                return old;
+            }
+            accumulator = new Accumulator(user, context.getSource(), PROTOCOL_TCP, recorder);
+            context.accumulator = accumulator;
+        }
+        if (old != null) {
+            old.close();
         }
+        recorder.track(accumulator);
+        context.inbound.closeFuture().addListener(f -> accumulator.close());
+        return accumulator;
     }
 
     private static long readableBytes(Object msg) {
@@ -0,0 +1,115 @@
+package org.rx.net.socks;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+import org.rx.net.SocketConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按源 channel 的读取批次合并 TCP 中继 flush。
+ * <p>
+ * READ_COMPLETE 下源 channel 一轮读取内对目标 channel 只 write，channelReadComplete 时统一 flush，
+ * 可选字节/时间阈值提前 flush；状态只在源 channel 的 EventLoop 内访问。
+ */
+final class TcpRelayFlusher {
+    static final AttributeKey<TcpRelayFlusher> ATTR = AttributeKey.valueOf("tcpRelayFlusher");
+    static final TcpRelayFlusher IMMEDIATE = new TcpRelayFlusher(false, 0, 0);
+
+    static TcpRelayFlusher of(Channel source, SocketConfig config) {
+        TcpRelayFlusher flusher = source.attr(ATTR).get();
+        if (flusher == null) {
+            flusher = config == null || config.getTcpRelayFlushMode() != SocketConfig.TcpRelayFlushMode.READ_COMPLETE
+                    ? IMMEDIATE
+                    : new TcpRelayFlusher(true, config.getTcpRelayFlushBytes(), config.getTcpRelayFlushDelayMicros() * 1000L);
+            source.attr(ATTR).set(flusher);
+        }
+        return flusher;
+    }
+
+    static void flush(Channel source) {
+        TcpRelayFlusher flusher = source.attr(ATTR).get();
+        if (flusher != null && flusher.coalesce) {
+            flusher.flush();
+        }
+    }
+
+    static int bytes(Object msg) {
+        if (msg instanceof ByteBuf) {
+            return ((ByteBuf) msg).readableBytes();
+        }
+        if (msg instanceof ByteBufHolder) {
+            return ((ByteBufHolder) msg).content().readableBytes();
+        }
+        return 0;
+    }
+
+    final boolean coalesce;
+    final int flushBytes;
+    final long flushDelayNanos;
+    Channel target;
+    //RRP 主连接一轮读取会写向多个 channel
+    List<Channel> moreTargets;
+    long pendingBytes;
+    long firstPendingNanos;
+
+    TcpRelayFlusher(boolean coalesce, int flushBytes, long flushDelayNanos) {
+        this.coalesce = coalesce;
+        this.flushBytes = flushBytes;
+        this.flushDelayNanos = flushDelayNanos;
+    }
+
+    void write(Channel target, Object msg) {
+        if (!coalesce) {
+            target.writeAndFlush(msg);
+            return;
+        }
+        int bytes = bytes(msg);
+        target.write(msg);
+        written(target, bytes);
+    }
+
+    /**
+     * 目标 channel 已 write 未 flush，由本批次负责 flush。
+     */
+    void written(Channel target, int bytes) {
+        if (this.target == null) {
+            this.target = target;
+            if (flushDelayNanos > 0) {
+                firstPendingNanos = System.nanoTime();
+            }
+        } else if (this.target != target) {
+            if (moreTargets == null) {
+                moreTargets = new ArrayList<>(2);
+            }
+            if (!moreTargets.contains(target)) {
+                moreTargets.add(target);
+            }
+        }
+        pendingBytes += bytes;
+        if ((flushBytes > 0 && pendingBytes >= flushBytes)
+                || (flushDelayNanos > 0 && System.nanoTime() - firstPendingNanos >= flushDelayNanos)) {
+            flush();
+        }
+    }
+
+    void flush() {
+        Channel t = target;
+        if (t == null) {
+            return;
+        }
+        target = null;
+        pendingBytes = 0;
+        t.flush();
+        List<Channel> more = moreTargets;
+        if (more != null && !more.isEmpty()) {
+            for (Channel ch : more) {
+                ch.flush();
+            }
+            more.clear();
+        }
+    }
+}
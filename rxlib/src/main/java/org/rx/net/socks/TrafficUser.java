@@ -51,6 +51,20 @@ public interface TrafficUser {
 
     boolean isAnonymous();
 
+    /**
+     * 用户级上行限速，0 表示使用 {@link org.rx.net.NetworkTrafficConfig#getUserUploadKilobytesPerSecond()}。
+     */
+    default long getUploadKilobytesPerSecond() {
+        return 0L;
+    }
+
+    /**
+     * 用户级下行限速，0 表示使用 {@link org.rx.net.NetworkTrafficConfig#getUserDownloadKilobytesPerSecond()}。
+     */
+    default long getDownloadKilobytesPerSecond() {
+        return 0L;
+    }
+
     default long getTotalReadBytes() {
         return (long) Linq.from(getLoginIps().values()).sum(p -> p.getTotalReadBytes().get());
     }
@@ -0,0 +1,253 @@
+package org.rx.net.socks;
+
+import io.netty.channel.Channel;
+import lombok.Data;
+import org.rx.diagnostic.MetricRegistry;
+import org.rx.net.NetworkFlowControl;
+import org.rx.net.NetworkTrafficConfig;
+import org.rx.net.Sockets;
+import org.rx.net.TokenBucket;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 代理中继的分层令牌桶限速：全局（GlobalChannelTrafficShapingHandler）→ 用户 → 连接。
+ * <p>
+ * 每次中继读取按字节从用户桶与连接桶取令牌，欠账时暂停源 channel 的 autoRead 并在 EventLoop 上定时恢复，
+ * 读取被节流后写往对端的速率随之受限，不单独延迟写出。桶为无锁 GCRA，热路径只有 CAS。
+ * 仅作用于 socks/shadowsocks 的 TCP 中继；RRP 多路复用隧道没有用户归属，不经过此限速。
+ * <p>
+ * 暂停与 {@link org.rx.net.TcpBackpressureHandler} 共用 {@link Sockets#pauseRead(Channel, int)} 的原因掩码，
+ * 两者都解除后才恢复读取。各用户速率在每次指标 rollup 时刷新为 net.shaping.user.*.bps gauge。
+ */
+public final class UserTrafficShaper {
+    public static final UserTrafficShaper DEFAULT = new UserTrafficShaper(NetworkFlowControl.DEFAULT);
+    static final long MIN_PAUSE_NANOS = 1_000_000L;
+
+    static {
+        MetricRegistry.DEFAULT.addCollector(DEFAULT::snapshot);
+    }
+
+    @Data
+    public static class UserRate {
+        String username;
+        int connections;
+        long uploadBytesPerSecond;
+        long downloadBytesPerSecond;
+        long uploadLimitBytesPerSecond;
+        long downloadLimitBytesPerSecond;
+    }
+
+    static final class UserBuckets {
+        final String username;
+        final TokenBucket upload = new TokenBucket(0L, 0L);
+        final TokenBucket download = new TokenBucket(0L, 0L);
+        final MetricRegistry.Gauge uploadBps;
+        final MetricRegistry.Gauge downloadBps;
+        final AtomicInteger connections = new AtomicInteger();
+        volatile NetworkTrafficConfig conf;
+        volatile long uploadKilobytesPerSecond;
+        volatile long downloadKilobytesPerSecond;
+        long lastUploadBytes;
+        long lastDownloadBytes;
+        long lastSnapshotNanos = System.nanoTime();
+
+        UserBuckets(String username) {
+            this.username = username;
+            String tags = "user=" + username;
+            uploadBps = MetricRegistry.DEFAULT.gauge("net.shaping.user.upload.bps", tags);
+            downloadBps = MetricRegistry.DEFAULT.gauge("net.shaping.user.download.bps", tags);
+        }
+
+        void configure(NetworkTrafficConfig conf, TrafficUser user) {
+            if (user != null) {
+                uploadKilobytesPerSecond = user.getUploadKilobytesPerSecond();
+                downloadKilobytesPerSecond = user.getDownloadKilobytesPerSecond();
+            }
+            long up = uploadKilobytesPerSecond > 0L ? uploadKilobytesPerSecond : conf.getUserUploadKilobytesPerSecond();
+            long down = downloadKilobytesPerSecond > 0L ? downloadKilobytesPerSecond : conf.getUserDownloadKilobytesPerSecond();
+            upload.configure(NetworkTrafficConfig.kilobytesToBytes(up), conf.getShapingBurstMillis());
+            download.configure(NetworkTrafficConfig.kilobytesToBytes(down), conf.getShapingBurstMillis());
+            this.conf = conf;
+        }
+
+        synchronized UserRate snapshot() {
+            long now = System.nanoTime();
+            long elapsed = Math.max(1L, now - lastSnapshotNanos);
+            long up = upload.consumedBytes(), down = download.consumedBytes();
+            UserRate rate = new UserRate();
+            rate.username = username;
+            rate.connections = connections.get();
+            rate.uploadBytesPerSecond = (long) ((up - lastUploadBytes) * 1e9 / elapsed);
+            rate.downloadBytesPerSecond = (long) ((down - lastDownloadBytes) * 1e9 / elapsed);
+            rate.uploadLimitBytesPerSecond = upload.getBytesPerSecond();
+            rate.downloadLimitBytesPerSecond = download.getBytesPerSecond();
+            lastUploadBytes = up;
+            lastDownloadBytes = down;
+            lastSnapshotNanos = now;
+            uploadBps.set(rate.uploadBytesPerSecond);
+            downloadBps.set(rate.downloadBytesPerSecond);
+            return rate;
+        }
+    }
+
+    static final class ConnectionBuckets {
+        final UserBuckets user;
+        final TokenBucket upload = new TokenBucket(0L, 0L);
+        final TokenBucket download = new TokenBucket(0L, 0L);
+        volatile NetworkTrafficConfig conf;
+        //each flag is only touched on the event loop of the channel it pauses
+        boolean uploadPaused;
+        boolean downloadPaused;
+
+        ConnectionBuckets(UserBuckets user, NetworkTrafficConfig conf) {
+            this.user = user;
+            configure(conf);
+        }
+
+        void configure(NetworkTrafficConfig conf) {
+            upload.configure(NetworkTrafficConfig.kilobytesToBytes(conf.getConnectionUploadKilobytesPerSecond()), conf.getShapingBurstMillis());
+            download.configure(NetworkTrafficConfig.kilobytesToBytes(conf.getConnectionDownloadKilobytesPerSecond()), conf.getShapingBurstMillis());
+            if (user != null && user.conf != conf) {
+                user.configure(conf, null);
+            }
+            this.conf = conf;
+        }
+    }
+
+    final NetworkFlowControl flowControl;
+    final Map<String, UserBuckets> users = new ConcurrentHashMap<>();
+
+    UserTrafficShaper(NetworkFlowControl flowControl) {
+        this.flowControl = flowControl;
+    }
+
+    public boolean isEnabled() {
+        return flowControl.config().isUserShapingEnabled();
+    }
+
+    /**
+     * 中继读取后调用，超出用户或连接速率时暂停 source 读取。
+     *
+     * @param source 本次读取的 channel
+     * @param upload source 为客户端侧时为 true
+     */
+    public void onRead(SocksContext sc, Channel source, boolean upload, long bytes) {
+        NetworkTrafficConfig conf = flowControl.config();
+        if (!conf.isUserShapingEnabled() || sc == null || bytes <= 0L) {
+            return;
+        }
+        ConnectionBuckets cb = sc.shaping;
+        if (cb == null) {
+            cb = attach(sc, conf);
+        } else if (cb.conf != conf) {
+            cb.configure(conf);
+        }
+
+        long now = System.nanoTime();
+        long delay = (upload ? cb.upload : cb.download).consume(bytes, now);
+        if (cb.user != null) {
+            delay = Math.max(delay, (upload ? cb.user.upload : cb.user.download).consume(bytes, now));
+        }
+        if (delay < MIN_PAUSE_NANOS) {
+            return;
+        }
+        pause(cb, source, upload, Math.min(delay, maxDelayNanos(conf)));
+    }
+
+    ConnectionBuckets attach(SocksContext sc, NetworkTrafficConfig conf) {
+        synchronized (sc) {
+            ConnectionBuckets cb = sc.shaping;
+            if (cb != null) {
+                return cb;
+            }
+            TrafficUser user = sc.getUser();
+            UserBuckets ub = null;
+            if (user != null && !user.isAnonymous() && sc.inbound != null) {
+                ub = users.compute(user.getUsername(), (k, v) -> {
+                    if (v == null) {
+                        v = new UserBuckets(k);
+                    }
+                    v.connections.incrementAndGet();
+                    return v;
+                });
+                ub.configure(conf, user);
+                UserBuckets fub = ub;
+                sc.inbound.closeFuture().addListener(f -> release(fub));
+            }
+            cb = new ConnectionBuckets(ub, conf);
+            sc.shaping = cb;
+            return cb;
+        }
+    }
+
+    void release(UserBuckets ub) {
+        users.computeIfPresent(ub.username, (k, v) -> {
+            if (v != ub || v.connections.decrementAndGet() > 0) {
+                return v;
+            }
+            //离线用户不再落库
+            v.uploadBps.set(Double.NaN);
+            v.downloadBps.set(Double.NaN);
+            return null;
+        });
+    }
+
+    static long maxDelayNanos(NetworkTrafficConfig conf) {
+        return TimeUnit.MILLISECONDS.toNanos(conf.getMaxDelayMillis());
+    }
+
+    void pause(ConnectionBuckets cb, Channel source, boolean upload, long delayNanos) {
+        if (upload ? cb.uploadPaused : cb.downloadPaused) {
+            return;
+        }
+        if (upload) {
+            cb.uploadPaused = true;
+        } else {
+            cb.downloadPaused = true;
+        }
+        Sockets.pauseRead(source, Sockets.READ_PAUSE_SHAPING);
+        source.eventLoop().schedule(() -> resume(cb, source, upload), delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void resume(ConnectionBuckets cb, Channel source, boolean upload) {
+        if (source.isActive()) {
+            //单次暂停被 maxDelayMillis 截断，桶内仍有欠账时继续暂停到还清
+            long now = System.nanoTime();
+            long debt = (upload ? cb.upload : cb.download).delay(now);
+            if (cb.user != null) {
+                debt = Math.max(debt, (upload ? cb.user.upload : cb.user.download).delay(now));
+            }
+            if (debt >= MIN_PAUSE_NANOS) {
+                source.eventLoop().schedule(() -> resume(cb, source, upload),
+                        Math.min(debt, maxDelayNanos(cb.conf)), TimeUnit.NANOSECONDS);
+                return;
+            }
+        }
+        if (upload) {
+            cb.uploadPaused = false;
+        } else {
+            cb.downloadPaused = false;
+        }
+        //仍有背压时由 TcpBackpressureHandler 解除后恢复
+        Sockets.resumeRead(source, Sockets.READ_PAUSE_SHAPING);
+    }
+
+    /**
+     * 各在线用户自上次调用以来的实际速率，同时刷新 net.shaping.user.*.bps gauge。
+     * <p>
+     * DEFAULT 实例由 {@link MetricRegistry#DEFAULT} 在每次 rollup 前调用，额外调用会把统计区间切短。
+     */
+    public List<UserRate> snapshot() {
+        List<UserRate> rows = new ArrayList<>(users.size());
+        for (UserBuckets ub : users.values()) {
+            rows.add(ub.snapshot());
+        }
+        return rows;
+    }
+}
@@ -56,6 +56,7 @@ public final class V2RayGeoManager implements Closeable {
     volatile List<? extends ScheduledFuture<?>> dailyTasks;
     volatile boolean closed;
     volatile int closeVersion;
+    volatile int generation;
     final boolean singleton;
 
     private V2RayGeoManager() {
@@ -331,6 +332,9 @@ public final class V2RayGeoManager implements Closeable {
                     directSiteExtraMatcher = newDirectSiteExtraMatcher;
                     newSiteIndex = null;
                 }
+                if (replaceIp || replaceSite) {
+                    generation++;
+                }
             }
             if (replaceIp) {
                 final V2RayGeoIpMatcher closeIpMatcher = oldIpMatcher;
@@ -352,6 +356,13 @@ public final class V2RayGeoManager implements Closeable {
         }
     }
 
+    /**
+     * geo 快照版本，每次替换或清理 GeoIP/GeoSite 数据时递增；依赖 geo 数据的缓存据此失效。
+     */
+    public int generation() {
+        return generation;
+    }
+
     public boolean matchSiteDirect(String domain) {
         ensureSiteLoaded();
         GeoSiteMatcher matcher = directSiteMatcher;
@@ -516,6 +527,7 @@ public final class V2RayGeoManager implements Closeable {
         siteIndex = null;
         directSiteMatcher = null;
         directSiteExtraMatcher = null;
+        generation++;
         tryClose(oldIpMatcher);
         tryClose(oldSiteIndex);
     }
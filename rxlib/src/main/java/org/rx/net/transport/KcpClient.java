@@ -22,6 +22,7 @@ import org.rx.core.NEventArgs;
 import org.rx.diagnostic.DiagnosticMetrics;
 import org.rx.exception.InvalidException;
 import org.rx.net.Sockets;
+import org.rx.net.transport.kcp.KcpTimingWheel;
 import org.rx.net.transport.kcp.RxKcp;
 import org.rx.net.transport.protocol.AckSync;
 import org.rx.net.transport.protocol.UdpMessage;
@@ -44,6 +45,7 @@ import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 import static org.rx.core.Extends.quietly;
 
@@ -111,6 +113,7 @@ public class KcpClient implements EventPublisher<KcpClient>, AutoCloseable {
     final class KcpSession {
         final SessionKey key;
         final RxKcp kcp;
+        final KcpTimingWheel.Entry<KcpSession> timer;
         final boolean initiator;
         volatile InetSocketAddress remoteAddress;
         volatile long lastActiveMillis;
@@ -132,6 +135,17 @@ public class KcpClient implements EventPublisher<KcpClient>, AutoCloseable {
             kcp.setWindowSize(config.getSendWindow(), config.getReceiveWindow());
             kcp.setNoDelay(config.getNoDelay(), config.getIntervalMillis(),
                     config.getFastResend(), config.getNoCongestionControl());
+            timer = sessionWheel.newEntry(this);
+            schedule(nowMillis);
+        }
+
+        //next kcp deadline or the idle timeout, whichever comes first
+        void schedule(long nowMillis) {
+            if (closed) {
+                return;
+            }
+            long deadline = Math.min(kcp.check(nowMillis), lastActiveMillis + config.getSessionIdleTimeoutMillis());
+            sessionWheel.schedule(timer, deadline);
         }
 
         void send(ByteBuf frame, long nowMillis) {
@@ -145,6 +159,7 @@ public class KcpClient implements EventPublisher<KcpClient>, AutoCloseable {
             if (config.isFlushOnSend()) {
                 kcp.flushNow(nowMillis);
             }
+            schedule(nowMillis);
         }
 
         void input(ByteBuf packet, long nowMillis) {
@@ -154,11 +169,13 @@ public class KcpClient implements EventPublisher<KcpClient>, AutoCloseable {
                 throw new InvalidException("Invalid KCP segment {} result={}", remoteAddress, result);
             }
             drainReceive();
+            schedule(nowMillis);
         }
 
         void update(long nowMillis) {
             kcp.update(nowMillis);
             drainReceive();
+            schedule(nowMillis);
         }
 
         void drainReceive() {
@@ -216,6 +233,7 @@ public class KcpClient implements EventPublisher<KcpClient>, AutoCloseable {
                 return;
             }
             closed = true;
+            sessionWheel.cancel(timer);
             kcp.release();
         }
     }
@@ -238,6 +256,7 @@ public class KcpClient implements EventPublisher<KcpClient>, AutoCloseable {
     static final int AUTH_DATAGRAM_HEADER_SIZE = AUTH_HEADER_SIZE + AUTH_TAG_SIZE;
     static final String AUTH_ALGORITHM = "HmacSHA256";
     static final int REJECT_METRIC_SAMPLE_RATE = 64;
+    static final int SESSION_WHEEL_SIZE = 512;
 
     static final short MESSAGE_MAGIC = (short) 0x4B4D; // KM
     static final byte MESSAGE_VERSION = 1;
@@ -284,6 +303,8 @@ public class KcpClient implements EventPublisher<KcpClient>, AutoCloseable {
     long rejectedPacketMetricCounter;
     final int effectiveKcpMtu;
     final int tickIntervalMillis;
+    final KcpTimingWheel<KcpSession> sessionWheel;
+    final Consumer<KcpSession> onSessionDue = this::onSessionDue;
     volatile ScheduledFuture<?> tickFuture;
     @Getter
     final InetSocketAddress localEndpoint;
@@ -304,6 +325,7 @@ public class KcpClient implements EventPublisher<KcpClient>, AutoCloseable {
         authenticationMac = newAuthenticationMac(authenticationKey);
         effectiveKcpMtu = effectiveKcpMtu(config);
         tickIntervalMillis = Math.max(10, Math.min(5000, config.getIntervalMillis()));
+        sessionWheel = new KcpTimingWheel<>(tickIntervalMillis, SESSION_WHEEL_SIZE, System.currentTimeMillis());
         // A KCP control block is EventLoop-affine; do not split one bound port over listeners.
         config.setReusePortBindCount(1);
         bootstrap = Sockets.udpBootstrap(config, ch -> ch.pipeline().addLast(HANDLER));
@@ -833,18 +855,24 @@ public class KcpClient implements EventPublisher<KcpClient>, AutoCloseable {
         if (closed.get()) {
             return;
         }
+        //only sessions whose kcp or idle deadline is due, idle sessions are not swept every tick
+        sessionWheel.advance(System.currentTimeMillis(), onSessionDue);
+    }
+
+    void onSessionDue(KcpSession session) {
+        if (session.closed) {
+            return;
+        }
         long now = System.currentTimeMillis();
-        for (KcpSession session : sessions.values()) {
-            try {
-                if (now - session.lastActiveMillis >= config.getSessionIdleTimeoutMillis()) {
-                    removeSession(session.key);
-                    continue;
-                }
-                session.update(now);
-            } catch (Throwable e) {
-                onHandlerError(e, session.remoteAddress);
+        try {
+            if (now - session.lastActiveMillis >= config.getSessionIdleTimeoutMillis()) {
                 removeSession(session.key);
+                return;
             }
+            session.update(now);
+        } catch (Throwable e) {
+            onHandlerError(e, session.remoteAddress);
+            removeSession(session.key);
         }
     }
 
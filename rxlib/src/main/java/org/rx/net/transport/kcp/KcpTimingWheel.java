@@ -0,0 +1,165 @@
+package org.rx.net.transport.kcp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel for KCP sessions, not thread safe, driven by the owner event loop tick.
+ * Only the due bucket is visited per tick, so idle sessions cost nothing until their deadline.
+ */
+public final class KcpTimingWheel<T> {
+    public static final class Entry<T> {
+        final T value;
+        long tick = NONE;
+        Entry<T> prev, next;
+        Bucket<T> bucket;
+
+        Entry(T value) {
+            this.value = value;
+        }
+
+        public boolean isScheduled() {
+            return tick != NONE;
+        }
+    }
+
+    static final class Bucket<T> {
+        Entry<T> head, tail;
+
+        void add(Entry<T> entry) {
+            entry.bucket = this;
+            entry.prev = tail;
+            if (tail == null) {
+                head = entry;
+            } else {
+                tail.next = entry;
+            }
+            tail = entry;
+        }
+
+        void remove(Entry<T> entry) {
+            if (entry.prev == null) {
+                head = entry.next;
+            } else {
+                entry.prev.next = entry.next;
+            }
+            if (entry.next == null) {
+                tail = entry.prev;
+            } else {
+                entry.next.prev = entry.prev;
+            }
+            entry.prev = entry.next = null;
+            entry.bucket = null;
+        }
+    }
+
+    static final long NONE = Long.MIN_VALUE;
+    final long tickMillis;
+    final Bucket<T>[] buckets;
+    final int mask;
+    final List<Entry<T>> due = new ArrayList<>();
+    long tick;
+    int size;
+
+    @SuppressWarnings("unchecked")
+    public KcpTimingWheel(long tickMillis, int wheelSize, long nowMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis");
+        }
+        int n = 1;
+        while (n < wheelSize) {
+            n <<= 1;
+        }
+        this.tickMillis = tickMillis;
+        buckets = new Bucket[n];
+        for (int i = 0; i < n; i++) {
+            buckets[i] = new Bucket<>();
+        }
+        mask = n - 1;
+        tick = nowMillis / tickMillis;
+    }
+
+    public Entry<T> newEntry(T value) {
+        return new Entry<>(value);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Keeps the earliest deadline, a later one is picked up when the entry fires and reschedules.
+     * {@link Long#MAX_VALUE} leaves the entry unscheduled.
+     */
+    public void schedule(Entry<T> entry, long deadlineMillis) {
+        if (deadlineMillis == Long.MAX_VALUE) {
+            return;
+        }
+        //due ticks go to the next one, the current has been or is being visited
+        long target = Math.max(tick + 1, (deadlineMillis + tickMillis - 1) / tickMillis);
+        if (entry.bucket != null) {
+            if (entry.tick <= target) {
+                return;
+            }
+            entry.bucket.remove(entry);
+            size--;
+        }
+        entry.tick = target;
+        buckets[(int) (target & mask)].add(entry);
+        size++;
+    }
+
+    public void cancel(Entry<T> entry) {
+        if (entry.bucket != null) {
+            entry.bucket.remove(entry);
+            size--;
+        }
+        entry.tick = NONE;
+    }
+
+    /**
+     * Fires every entry due up to nowMillis, returns the fired count.
+     */
+    public int advance(long nowMillis, Consumer<T> handler) {
+        long target = nowMillis / tickMillis;
+        if (target <= tick) {
+            return 0;
+        }
+        long from = tick + 1;
+        if (target - from > mask) {
+            //fell behind a whole round, every bucket once
+            from = target - mask;
+        }
+        for (long t = from; t <= target; t++) {
+            Bucket<T> bucket = buckets[(int) (t & mask)];
+            for (Entry<T> e = bucket.head; e != null; ) {
+                Entry<T> next = e.next;
+                if (e.tick <= target) {
+                    bucket.remove(e);
+                    size--;
+                    due.add(e);
+                }
+                e = next;
+            }
+        }
+        tick = target;
+
+        //detached first, handlers may cancel or reschedule any entry
+        int fired = 0;
+        try {
+            for (int i = 0; i < due.size(); i++) {
+                Entry<T> e = due.get(i);
+                if (e.bucket != null || e.tick == NONE) {
+                    continue;
+                }
+                e.tick = NONE;
+                fired++;
+                handler.accept(e.value);
+            }
+        } finally {
+            due.clear();
+        }
+        return fired;
+    }
+}
@@ -16,6 +16,10 @@ import java.util.List;
  * retains slices of the supplied payload; the caller keeps ownership of the
  * original buffer. {@link Output#write(ByteBuf)} receives ownership of each
  * encoded KCP datagram.</p>
+ *
+ * <p>One flush packs ACKs, probes and data segments into as few datagrams as
+ * the MTU allows; headers share one buffer per datagram and payloads stay
+ * zero-copy components.</p>
  */
 public final class RxKcp {
     public interface Output {
@@ -111,6 +115,15 @@ public final class RxKcp {
     long pendingBytes;
     int pendingMessages;
 
+    //datagram being packed by the current flush
+    ByteBuf packHeaders;
+    CompositeByteBuf packDatagram;
+    int packHeaderStart;
+    int packBytes;
+    int packSegments;
+    long outputDatagrams;
+    long outputSegments;
+
     public RxKcp(int conv, ByteBufAllocator allocator, Output output) {
         if (allocator == null || output == null) {
             throw new IllegalArgumentException("allocator/output must not be null");
@@ -132,6 +145,18 @@ public final class RxKcp {
         return pendingMessages;
     }
 
+    public long outputDatagrams() {
+        return outputDatagrams;
+    }
+
+    public long outputSegments() {
+        return outputSegments;
+    }
+
+    public double segmentsPerDatagram() {
+        return outputDatagrams == 0 ? 0D : (double) outputSegments / outputDatagrams;
+    }
+
     public boolean canSend(int payloadBytes, int maxPendingBytes, int maxPendingMessages) {
         if (payloadBytes < 0) {
             return false;
@@ -339,6 +364,36 @@ public final class RxKcp {
         }
     }
 
+    /**
+     * Next time {@link #update(long)} has work to do, like ikcp_check.
+     * Returns {@link Long#MAX_VALUE} while nothing is queued, in flight or owed to the peer,
+     * so idle sessions need no timer at all.
+     */
+    public long check(long nowMillis) {
+        if (closed || (sndBuf.isEmpty() && sndQueue.isEmpty() && ackCount == 0 && probe == 0)) {
+            return Long.MAX_VALUE;
+        }
+        if (!updated) {
+            return nowMillis;
+        }
+        int now = timestamp(nowMillis);
+        int slap = timediff(now, tsFlush);
+        if (slap >= 10000 || slap < -10000 || slap >= 0) {
+            return nowMillis;
+        }
+        int minimal = -slap;
+        for (Segment segment : sndBuf) {
+            int diff = timediff(segment.resendTs, now);
+            if (diff <= 0) {
+                return nowMillis;
+            }
+            if (diff < minimal) {
+                minimal = diff;
+            }
+        }
+        return nowMillis + Math.min(minimal, interval);
+    }
+
     public void flushNow(long nowMillis) {
         if (closed) {
             return;
@@ -375,9 +430,18 @@ public final class RxKcp {
         pendingBytes = 0;
         pendingMessages = 0;
         ackCount = 0;
+        discardPacked();
     }
 
     void flush() {
+        try {
+            flushSegments();
+        } finally {
+            flushPacked();
+        }
+    }
+
+    void flushSegments() {
         int unusedWindow = unusedWindow();
         for (int i = 0; i < ackCount; i++) {
             Segment ack = new Segment(null);
@@ -498,35 +562,77 @@ public final class RxKcp {
 
     void emit(Segment segment) {
         int payloadLength = segment.data == null ? 0 : segment.data.readableBytes();
-        ByteBuf header = allocator.ioBuffer(OVERHEAD);
-        ByteBuf datagram = null;
+        int size = OVERHEAD + payloadLength;
+        if (packHeaders != null && packBytes + size > mtu) {
+            flushPacked();
+        }
+        if (packHeaders == null) {
+            packHeaders = allocator.ioBuffer(Math.min(mtu, OVERHEAD * 8));
+        }
+        ByteBuf header = packHeaders;
+        header.writeIntLE(segment.conv);
+        header.writeByte(segment.cmd);
+        header.writeByte(segment.frg);
+        header.writeShortLE(segment.wnd);
+        header.writeIntLE(segment.ts);
+        header.writeIntLE(segment.sn);
+        header.writeIntLE(segment.una);
+        header.writeIntLE(payloadLength);
+        packBytes += size;
+        packSegments++;
+        if (payloadLength == 0) {
+            return;
+        }
+
+        if (packDatagram == null) {
+            packDatagram = allocator.compositeBuffer(Math.max(2, mtu / OVERHEAD));
+        }
+        int end = header.writerIndex();
+        packDatagram.addComponent(true, header.retainedSlice(packHeaderStart, end - packHeaderStart));
+        packHeaderStart = end;
+        packDatagram.addComponent(true, segment.data.retainedDuplicate());
+    }
+
+    void flushPacked() {
+        ByteBuf headers = packHeaders;
+        if (headers == null) {
+            return;
+        }
+        ByteBuf datagram = packDatagram;
+        int segments = packSegments;
+        int headerStart = packHeaderStart;
+        packHeaders = null;
+        packDatagram = null;
+        packHeaderStart = 0;
+        packBytes = 0;
+        packSegments = 0;
         try {
-            header.writeIntLE(segment.conv);
-            header.writeByte(segment.cmd);
-            header.writeByte(segment.frg);
-            header.writeShortLE(segment.wnd);
-            header.writeIntLE(segment.ts);
-            header.writeIntLE(segment.sn);
-            header.writeIntLE(segment.una);
-            header.writeIntLE(payloadLength);
-            if (payloadLength == 0) {
-                datagram = header;
-                header = null;
-            } else {
-                CompositeByteBuf composite = allocator.compositeBuffer(2);
-                datagram = composite;
-                composite.addComponent(true, header);
-                header = null;
-                composite.addComponent(true, segment.data.retainedDuplicate());
+            if (datagram == null) {
+                datagram = headers;
+                headers = null;
+            } else if (headers.writerIndex() > headerStart) {
+                ((CompositeByteBuf) datagram).addComponent(true, headers.retainedSlice(headerStart, headers.writerIndex() - headerStart));
             }
+            outputDatagrams++;
+            outputSegments += segments;
             output.write(datagram);
             datagram = null;
         } finally {
-            ReferenceCountUtil.safeRelease(header);
+            ReferenceCountUtil.safeRelease(headers);
             ReferenceCountUtil.safeRelease(datagram);
         }
     }
 
+    void discardPacked() {
+        ReferenceCountUtil.safeRelease(packHeaders);
+        ReferenceCountUtil.safeRelease(packDatagram);
+        packHeaders = null;
+        packDatagram = null;
+        packHeaderStart = 0;
+        packBytes = 0;
+        packSegments = 0;
+    }
+
     void updateAck(int rtt) {
         if (rxSrtt == 0) {
             rxSrtt = rtt;
@@ -0,0 +1,239 @@
+package org.rx.net.udp;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+/**
+ * FEC 编解码运算，XOR 与 GF(2^8) Reed–Solomon 共用，按 long 一次读写 8 字节，乘法查 64KB 乘法表。
+ * <p>
+ * RS 使用 Cauchy 矩阵：parity 行 i、data 列 j 的系数为 1 / ((128 + i) ^ j)，任意方阵子式可逆，
+ * 收到任意 k 个 data/parity shard 即可恢复；系数与分组实际 data 数无关，未满分组同样适用。
+ */
+final class FecCoder {
+    static final int MAX_PARITY_SHARDS = 8;
+    private static final int PARITY_BASE = 128;
+    private static final int POLY = 0x11D;
+    private static final int[] EXP = new int[510];
+    private static final int[] LOG = new int[256];
+    private static final byte[][] MUL_TABLE = new byte[256][256];
+
+    static {
+        int x = 1;
+        for (int i = 0; i < 255; i++) {
+            EXP[i] = x;
+            LOG[x] = i;
+            x <<= 1;
+            if (x >= 256) {
+                x ^= POLY;
+            }
+        }
+        for (int i = 255; i < EXP.length; i++) {
+            EXP[i] = EXP[i - 255];
+        }
+        for (int a = 0; a < 256; a++) {
+            for (int b = 0; b < 256; b++) {
+                MUL_TABLE[a][b] = (byte) mul(a, b);
+            }
+        }
+    }
+
+    private FecCoder() {
+    }
+
+    static int mul(int a, int b) {
+        return a == 0 || b == 0 ? 0 : EXP[LOG[a] + LOG[b]];
+    }
+
+    static int inverse(int a) {
+        if (a == 0) {
+            throw new ArithmeticException("GF(256) inverse of 0");
+        }
+        return EXP[255 - LOG[a]];
+    }
+
+    static int coefficient(int parityIdx, int dataIdx) {
+        return inverse((PARITY_BASE + parityIdx) ^ dataIdx);
+    }
+
+    /**
+     * dst[dstIndex, dstIndex + srcLen) ^= c * src[srcIndex, srcIndex + srcLen)，c = 1 即 XOR。
+     */
+    static void mulAdd(ByteBuf dst, int dstIndex, ByteBuf src, int srcIndex, int srcLen, int c) {
+        if (c == 0) {
+            return;
+        }
+        int longs = srcLen & ~7;
+        int i = 0;
+        if (c == 1) {
+            for (; i < longs; i += 8) {
+                dst.setLong(dstIndex + i, dst.getLong(dstIndex + i) ^ src.getLong(srcIndex + i));
+            }
+            for (; i < srcLen; i++) {
+                dst.setByte(dstIndex + i, dst.getByte(dstIndex + i) ^ src.getByte(srcIndex + i));
+            }
+            return;
+        }
+        //8 字节一组查表后拼回 long，减少 ByteBuf 边界检查
+        byte[] table = MUL_TABLE[c];
+        for (; i < longs; i += 8) {
+            long x = src.getLong(srcIndex + i);
+            long r = 0;
+            for (int b = 0; b < 64; b += 8) {
+                r |= (table[(int) (x >>> b) & 0xFF] & 0xFFL) << b;
+            }
+            dst.setLong(dstIndex + i, dst.getLong(dstIndex + i) ^ r);
+        }
+        for (; i < srcLen; i++) {
+            dst.setByte(dstIndex + i, dst.getByte(dstIndex + i) ^ table[src.getUnsignedByte(srcIndex + i)]);
+        }
+    }
+
+    static ByteBuf zeroBuffer(ByteBufAllocator alloc, int len) {
+        ByteBuf buf = alloc.directBuffer(len);
+        buf.writeZero(len);
+        return buf;
+    }
+
+    /**
+     * 生成 parityShards 个长度为 len 的 RS parity，短 block 视为尾部补 0。
+     */
+    static ByteBuf[] encode(ByteBufAllocator alloc, ByteBuf[] blocks, int count, int parityShards, int len) {
+        ByteBuf[] parity = new ByteBuf[parityShards];
+        try {
+            for (int p = 0; p < parityShards; p++) {
+                ByteBuf out = zeroBuffer(alloc, len);
+                parity[p] = out;
+                for (int j = 0; j < count; j++) {
+                    ByteBuf block = blocks[j];
+                    mulAdd(out, 0, block, block.readerIndex(), block.readableBytes(), coefficient(p, j));
+                }
+            }
+            return parity;
+        } catch (Throwable e) {
+            release(parity);
+            throw e;
+        }
+    }
+
+    /**
+     * 用收到的 parity 恢复缺失 data，恢复结果写入 blocks 对应位置（长度为 parity 长度）。
+     *
+     * @return 缺失数超过可用 parity 时返回 false
+     */
+    static boolean decode(ByteBufAllocator alloc, ByteBuf[] blocks, boolean[] received, int k,
+                          ByteBuf[] parity, int parityLen) {
+        int[] missing = new int[k];
+        int missingCount = 0;
+        for (int j = 0; j < k; j++) {
+            if (!received[j]) {
+                missing[missingCount++] = j;
+            }
+        }
+        if (missingCount == 0) {
+            return true;
+        }
+        int[] rows = new int[missingCount];
+        int rowCount = 0;
+        for (int p = 0; p < parity.length && rowCount < missingCount; p++) {
+            if (parity[p] != null) {
+                rows[rowCount++] = p;
+            }
+        }
+        if (rowCount < missingCount) {
+            return false;
+        }
+
+        //syndrome = parity - known data
+        ByteBuf[] syndromes = new ByteBuf[missingCount];
+        ByteBuf[] recovered = new ByteBuf[missingCount];
+        try {
+            for (int a = 0; a < missingCount; a++) {
+                ByteBuf source = parity[rows[a]];
+                ByteBuf syndrome = alloc.directBuffer(parityLen);
+                syndromes[a] = syndrome;
+                syndrome.writeBytes(source, source.readerIndex(), Math.min(parityLen, source.readableBytes()));
+                syndrome.writeZero(parityLen - syndrome.readableBytes());
+                for (int j = 0; j < k; j++) {
+                    if (!received[j]) {
+                        continue;
+                    }
+                    ByteBuf block = blocks[j];
+                    mulAdd(syndrome, 0, block, block.readerIndex(), Math.min(parityLen, block.readableBytes()),
+                            coefficient(rows[a], j));
+                }
+            }
+
+            int[][] matrix = new int[missingCount][missingCount];
+            for (int a = 0; a < missingCount; a++) {
+                for (int b = 0; b < missingCount; b++) {
+                    matrix[a][b] = coefficient(rows[a], missing[b]);
+                }
+            }
+            int[][] inverse = invert(matrix);
+            for (int b = 0; b < missingCount; b++) {
+                ByteBuf out = zeroBuffer(alloc, parityLen);
+                recovered[b] = out;
+                for (int a = 0; a < missingCount; a++) {
+                    mulAdd(out, 0, syndromes[a], 0, parityLen, inverse[b][a]);
+                }
+            }
+            for (int b = 0; b < missingCount; b++) {
+                blocks[missing[b]] = recovered[b];
+                recovered[b] = null;
+            }
+            return true;
+        } finally {
+            release(syndromes);
+            release(recovered);
+        }
+    }
+
+    static int[][] invert(int[][] matrix) {
+        int n = matrix.length;
+        int[][] work = new int[n][n * 2];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(matrix[i], 0, work[i], 0, n);
+            work[i][n + i] = 1;
+        }
+        for (int col = 0; col < n; col++) {
+            int pivot = col;
+            while (pivot < n && work[pivot][col] == 0) {
+                pivot++;
+            }
+            if (pivot == n) {
+                throw new ArithmeticException("Singular FEC matrix");
+            }
+            int[] tmp = work[col];
+            work[col] = work[pivot];
+            work[pivot] = tmp;
+
+            int scale = inverse(work[col][col]);
+            for (int j = 0; j < n * 2; j++) {
+                work[col][j] = mul(work[col][j], scale);
+            }
+            for (int row = 0; row < n; row++) {
+                int factor = work[row][col];
+                if (row == col || factor == 0) {
+                    continue;
+                }
+                for (int j = 0; j < n * 2; j++) {
+                    work[row][j] ^= mul(factor, work[col][j]);
+                }
+            }
+        }
+        int[][] inverse = new int[n][n];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(work[i], n, inverse[i], 0, n);
+        }
+        return inverse;
+    }
+
+    static void release(ByteBuf[] buffers) {
+        for (int i = 0; i < buffers.length; i++) {
+            if (buffers[i] != null) {
+                buffers[i].release();
+                buffers[i] = null;
+            }
+        }
+    }
+}
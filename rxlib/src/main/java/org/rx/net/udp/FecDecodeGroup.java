@@ -3,20 +3,30 @@ package org.rx.net.udp;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
- * 入站 XOR FEC 分组。DATA 立即透传，本对象只缓存恢复所需 block。
+ * 入站 FEC 分组。DATA 立即透传，本对象只缓存恢复所需 block，XOR 恢复 1 个、RS 恢复至多 parity 数个缺失 shard。
  */
 final class FecDecodeGroup {
     final FecGroupKey key;
     final long createTimeNanos = System.nanoTime();
+    final int codec;
     private final ByteBuf[] dataBlocks;
     private final boolean[] received;
+    private final ByteBuf[] parityBlocks = new ByteBuf[FecCoder.MAX_PARITY_SHARDS];
     private int effectiveShardK;
     private int receivedCount;
-    private ByteBuf parityBlock;
+    private int parityCount;
 
     FecDecodeGroup(FecGroupKey key, int maxDataShards, int shardK) {
+        this(key, maxDataShards, shardK, UdpResilienceHeader.CODEC_XOR);
+    }
+
+    FecDecodeGroup(FecGroupKey key, int maxDataShards, int shardK, int codec) {
         this.key = key;
+        this.codec = codec;
         this.dataBlocks = new ByteBuf[maxDataShards];
         this.received = new boolean[maxDataShards];
         this.effectiveShardK = Math.max(1, Math.min(maxDataShards, shardK));
@@ -34,6 +44,10 @@ final class FecDecodeGroup {
     }
 
     boolean addParity(ByteBuf block, int shardK) {
+        return addParity(block, shardK, 0);
+    }
+
+    boolean addParity(ByteBuf block, int shardK, int parityIdx) {
         int nextShardK = Math.max(1, Math.min(dataBlocks.length, shardK));
         for (int i = nextShardK; i < dataBlocks.length; i++) {
             if (received[i]) {
@@ -42,11 +56,12 @@ final class FecDecodeGroup {
             }
         }
         effectiveShardK = nextShardK;
-        if (parityBlock != null) {
+        if (parityIdx < 0 || parityIdx >= parityBlocks.length || parityBlocks[parityIdx] != null) {
             block.release();
             return false;
         }
-        parityBlock = block;
+        parityBlocks[parityIdx] = block;
+        parityCount++;
         return true;
     }
 
@@ -54,37 +69,62 @@ final class FecDecodeGroup {
         return receivedCount >= effectiveShardK;
     }
 
-    ByteBuf tryRecover(ByteBufAllocator alloc, int maxResiliencePayload) {
-        if (parityBlock == null || missingDataCount() != 1) {
+    /**
+     * 缺失 shard 数不超过已收 parity 数时恢复，返回按 shard 顺序排列的 payload。
+     */
+    ByteBuf[] tryRecover(ByteBufAllocator alloc, int maxResiliencePayload) {
+        int missing = missingDataCount();
+        if (missing == 0 || parityCount < missing) {
             return null;
         }
+        if (codec == UdpResilienceHeader.CODEC_XOR) {
+            ByteBuf payload = recoverXor(alloc, maxResiliencePayload);
+            return payload == null ? null : new ByteBuf[]{payload};
+        }
 
-        int parityReader = parityBlock.readerIndex();
+        int parityLen = 0;
+        for (ByteBuf parity : parityBlocks) {
+            if (parity != null) {
+                parityLen = Math.max(parityLen, parity.readableBytes());
+            }
+        }
+        if (!FecCoder.decode(alloc, dataBlocks, received, effectiveShardK, parityBlocks, parityLen)) {
+            return null;
+        }
+        List<ByteBuf> payloads = new ArrayList<>(missing);
+        for (int i = 0; i < effectiveShardK; i++) {
+            if (received[i]) {
+                continue;
+            }
+            //recovered blocks stay owned by the group
+            received[i] = true;
+            receivedCount++;
+            ByteBuf payload = unwrapBlock(dataBlocks[i], maxResiliencePayload);
+            if (payload != null) {
+                payloads.add(payload);
+            }
+        }
+        return payloads.isEmpty() ? null : payloads.toArray(new ByteBuf[0]);
+    }
+
+    private ByteBuf recoverXor(ByteBufAllocator alloc, int maxResiliencePayload) {
+        ByteBuf parityBlock = parityBlocks[0];
+        if (parityBlock == null) {
+            return null;
+        }
         int parityLen = parityBlock.readableBytes();
         ByteBuf recovered = alloc.directBuffer(parityLen);
         try {
-            recovered.writeBytes(parityBlock, parityReader, parityLen);
+            recovered.writeBytes(parityBlock, parityBlock.readerIndex(), parityLen);
             for (int i = 0; i < effectiveShardK; i++) {
                 if (!received[i]) {
                     continue;
                 }
                 ByteBuf block = dataBlocks[i];
-                int readerIndex = block.readerIndex();
-                int len = block.readableBytes();
-                for (int j = 0; j < len; j++) {
-                    recovered.setByte(j, recovered.getUnsignedByte(j) ^ block.getUnsignedByte(readerIndex + j));
-                }
-            }
-            if (recovered.readableBytes() < 2) {
-                recovered.release();
-                return null;
-            }
-            int originalLen = recovered.getUnsignedShort(recovered.readerIndex());
-            if (originalLen > maxResiliencePayload || originalLen > recovered.readableBytes() - 2) {
-                recovered.release();
-                return null;
+                FecCoder.mulAdd(recovered, recovered.readerIndex(), block, block.readerIndex(),
+                        Math.min(parityLen, block.readableBytes()), 1);
             }
-            ByteBuf payload = recovered.retainedSlice(recovered.readerIndex() + 2, originalLen);
+            ByteBuf payload = unwrapBlock(recovered, maxResiliencePayload);
             recovered.release();
             return payload;
         } catch (Throwable e) {
@@ -93,6 +133,18 @@ final class FecDecodeGroup {
         }
     }
 
+    //length-prefixed block -> retained payload slice
+    private static ByteBuf unwrapBlock(ByteBuf block, int maxResiliencePayload) {
+        if (block.readableBytes() < 2) {
+            return null;
+        }
+        int originalLen = block.getUnsignedShort(block.readerIndex());
+        if (originalLen > maxResiliencePayload || originalLen > block.readableBytes() - 2) {
+            return null;
+        }
+        return block.retainedSlice(block.readerIndex() + 2, originalLen);
+    }
+
     void release() {
         for (int i = 0; i < dataBlocks.length; i++) {
             ByteBuf block = dataBlocks[i];
@@ -101,10 +153,8 @@ final class FecDecodeGroup {
                 dataBlocks[i] = null;
             }
         }
-        if (parityBlock != null) {
-            parityBlock.release();
-            parityBlock = null;
-        }
+        FecCoder.release(parityBlocks);
+        parityCount = 0;
     }
 
     private int missingDataCount() {
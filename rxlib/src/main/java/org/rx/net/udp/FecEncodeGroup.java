@@ -4,7 +4,7 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 
 /**
- * 出站 XOR FEC 分组，缓存 length-prefixed block。
+ * 出站 FEC 分组，缓存 length-prefixed block，生成 XOR 或 Reed–Solomon parity。
  */
 final class FecEncodeGroup {
     final int groupId;
@@ -39,16 +39,11 @@ final class FecEncodeGroup {
     }
 
     ByteBuf buildParity(ByteBufAllocator alloc) {
-        ByteBuf parity = alloc.directBuffer(maxBlockLen);
+        ByteBuf parity = FecCoder.zeroBuffer(alloc, maxBlockLen);
         try {
-            parity.writeZero(maxBlockLen);
             for (int i = 0; i < count; i++) {
                 ByteBuf block = blocks[i];
-                int readerIndex = block.readerIndex();
-                int len = block.readableBytes();
-                for (int j = 0; j < len; j++) {
-                    parity.setByte(j, parity.getUnsignedByte(j) ^ block.getUnsignedByte(readerIndex + j));
-                }
+                FecCoder.mulAdd(parity, 0, block, block.readerIndex(), block.readableBytes(), 1);
             }
             return parity;
         } catch (Throwable e) {
@@ -57,6 +52,10 @@ final class FecEncodeGroup {
         }
     }
 
+    ByteBuf[] buildParity(ByteBufAllocator alloc, int parityShards) {
+        return FecCoder.encode(alloc, blocks, count, parityShards, maxBlockLen);
+    }
+
     void release() {
         for (int i = 0; i < blocks.length; i++) {
             ByteBuf block = blocks[i];
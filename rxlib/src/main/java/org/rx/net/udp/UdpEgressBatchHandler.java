@@ -0,0 +1,244 @@
+package org.rx.net.udp;
+
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.unix.SegmentedDatagramPacket;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.util.ReferenceCountUtil;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.rx.diagnostic.DiagnosticMetrics;
+import org.rx.diagnostic.MetricRegistry;
+import org.rx.net.UdpMetrics;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * UDP 出口批量写入，必须位于 pipeline 最前（最终 guard 之后、transport 之前）。
+ * <p>
+ * 一轮事件循环内首个待发包立即 flush，之后的 writeAndFlush 合并到本轮末尾的一次 flush，epoll 下由 sendmmsg 一次发送多包；
+ * 攒满 maxPackets 时立即 flush。
+ * 开启 GSO 时同目的地连续等长包再合并为一个 UDP_SEGMENT 分段包，由内核切分。
+ * GSO 发送失败后本 channel 退回多包 flush。
+ */
+@Slf4j
+public final class UdpEgressBatchHandler extends ChannelOutboundHandlerAdapter {
+    //linux UDP_MAX_SEGMENTS
+    static final int MAX_SEGMENTS = 64;
+    static final int MAX_SEGMENTED_BYTES = 65000;
+
+    private final int maxPackets;
+    //metricPrefix 为 null 时均为 null
+    private final MetricRegistry.Histogram gsoBatchPackets;
+    private final MetricRegistry.Histogram mmsgBatchPackets;
+    private final MetricRegistry.Counter gsoFallbacks;
+    private boolean gso;
+    private List<DatagramPacket> packets = new ArrayList<>();
+    private List<ChannelPromise> promises = new ArrayList<>();
+    private List<DatagramPacket> writingPackets = new ArrayList<>();
+    private List<ChannelPromise> writingPromises = new ArrayList<>();
+    private ChannelHandlerContext ctx;
+    private boolean flushScheduled;
+    private final Runnable flushTask = () -> {
+        flushScheduled = false;
+        flushPending(ctx);
+    };
+    @Getter
+    private long packetCount;
+    @Getter
+    private long flushCount;
+    @Getter
+    private long segmentedCount;
+
+    public UdpEgressBatchHandler(int maxPackets, boolean gso, String metricPrefix) {
+        this.maxPackets = Math.max(1, maxPackets);
+        this.gso = gso;
+        if (metricPrefix == null) {
+            gsoBatchPackets = mmsgBatchPackets = null;
+            gsoFallbacks = null;
+        } else {
+            gsoBatchPackets = UdpMetrics.of(metricPrefix, "mode=gso").histogram("egress.batch.packets");
+            mmsgBatchPackets = UdpMetrics.of(metricPrefix, "mode=mmsg").histogram("egress.batch.packets");
+            gsoFallbacks = UdpMetrics.of(metricPrefix, "mode=gso").counter("egress.gso.fallback.count");
+        }
+    }
+
+    public boolean isGso() {
+        return gso;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        releasePending();
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        if (!(msg instanceof DatagramPacket) || msg instanceof SegmentedDatagramPacket
+                || msg instanceof UdpMtuProbeDatagramPacket) {
+            //keep order with the batched ones
+            writePending(ctx);
+            ctx.write(msg, promise);
+            return;
+        }
+        packets.add((DatagramPacket) msg);
+        promises.add(promise);
+        if (packets.size() >= maxPackets) {
+            flushPending(ctx);
+        }
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) {
+        if (packets.isEmpty()) {
+            ctx.flush();
+            return;
+        }
+        if (flushScheduled) {
+            //joins the flush deferred to the end of the current io batch
+            return;
+        }
+        flushScheduled = true;
+        if (packets.size() == 1) {
+            //a lone packet is not delayed, only the writes that follow it in the same run are batched
+            flushPending(ctx);
+        }
+        ctx.executor().execute(flushTask);
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) {
+        flushPending(ctx);
+        ctx.close(promise);
+    }
+
+    void flushPending(ChannelHandlerContext ctx) {
+        if (packets.isEmpty()) {
+            return;
+        }
+        writePending(ctx);
+        ctx.flush();
+    }
+
+    void writePending(ChannelHandlerContext ctx) {
+        int size = packets.size();
+        if (size == 0) {
+            return;
+        }
+        //swapped out first, a write may re-enter this handler
+        List<DatagramPacket> batch = packets;
+        List<ChannelPromise> batchPromises = promises;
+        packets = writingPackets;
+        promises = writingPromises;
+        int segmented = 0;
+        try {
+            int start = 0;
+            while (start < size) {
+                int end = gso ? runEnd(batch, start, size) : start + 1;
+                if (end - start == 1) {
+                    ctx.write(batch.get(start), batchPromises.get(start));
+                } else {
+                    writeSegmented(ctx, batch, batchPromises, start, end);
+                    segmented++;
+                }
+                start = end;
+            }
+        } finally {
+            batch.clear();
+            batchPromises.clear();
+            writingPackets = batch;
+            writingPromises = batchPromises;
+        }
+        packetCount += size;
+        flushCount++;
+        segmentedCount += segmented;
+        if (mmsgBatchPackets != null && DiagnosticMetrics.isEnabled()) {
+            (segmented > 0 ? gsoBatchPackets : mmsgBatchPackets).record(size);
+        }
+    }
+
+    //consecutive packets to the same destination, every segment but the last of the same size
+    int runEnd(List<DatagramPacket> batch, int start, int size) {
+        DatagramPacket first = batch.get(start);
+        int segmentSize = first.content().readableBytes();
+        if (segmentSize == 0) {
+            return start + 1;
+        }
+        int bytes = segmentSize;
+        int end = start + 1;
+        while (end < size && end - start < MAX_SEGMENTS) {
+            DatagramPacket next = batch.get(end);
+            int nextBytes = next.content().readableBytes();
+            if (nextBytes == 0 || nextBytes > segmentSize || bytes + nextBytes > MAX_SEGMENTED_BYTES
+                    || !Objects.equals(first.recipient(), next.recipient())
+                    || !Objects.equals(first.sender(), next.sender())) {
+                break;
+            }
+            bytes += nextBytes;
+            end++;
+            if (nextBytes < segmentSize) {
+                break;
+            }
+        }
+        return end;
+    }
+
+    void writeSegmented(ChannelHandlerContext ctx, List<DatagramPacket> batch, List<ChannelPromise> batchPromises,
+                        int start, int end) {
+        DatagramPacket first = batch.get(start);
+        int segmentSize = first.content().readableBytes();
+        CompositeByteBuf content = ctx.alloc().compositeDirectBuffer(end - start);
+        for (int i = start; i < end; i++) {
+            //content ownership moves into the composite
+            content.addComponent(true, batch.get(i).content());
+        }
+        InetSocketAddress sender = first.sender();
+        DatagramPacket packet = sender == null
+                ? new SegmentedDatagramPacket(content, segmentSize, first.recipient())
+                : new SegmentedDatagramPacket(content, segmentSize, first.recipient(), sender);
+        List<ChannelPromise> targets = new ArrayList<>(batchPromises.subList(start, end));
+        ctx.write(packet).addListener((ChannelFutureListener) f -> {
+            if (!f.isSuccess() && gso) {
+                gso = false;
+                if (gsoFallbacks != null && DiagnosticMetrics.isEnabled()) {
+                    gsoFallbacks.increment();
+                }
+                log.warn("UDP GSO send fail channel={}, fallback to batched flush", ctx.channel(), f.cause());
+            }
+            for (ChannelPromise promise : targets) {
+                if (promise.isVoid()) {
+                    continue;
+                }
+                if (f.isSuccess()) {
+                    promise.trySuccess();
+                } else {
+                    promise.tryFailure(f.cause());
+                }
+            }
+        });
+    }
+
+    //same as final egress drops, write futures stay successful
+    void releasePending() {
+        for (int i = 0; i < packets.size(); i++) {
+            ReferenceCountUtil.safeRelease(packets.get(i));
+            ChannelPromise promise = promises.get(i);
+            if (!promise.isVoid()) {
+                promise.trySuccess();
+            }
+        }
+        packets.clear();
+        promises.clear();
+    }
+}
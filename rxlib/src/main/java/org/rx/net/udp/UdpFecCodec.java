@@ -0,0 +1,15 @@
+package org.rx.net.udp;
+
+/**
+ * UDP Resilience FEC 编码方式。
+ */
+public enum UdpFecCodec {
+    /**
+     * 单个 XOR parity，每组最多恢复 1 个丢包。
+     */
+    XOR,
+    /**
+     * GF(2^8) Reed–Solomon，每组最多恢复 fecParityShards 个丢包。
+     */
+    REED_SOLOMON
+}
@@ -12,6 +12,7 @@ import org.rx.net.NetworkFlowControl;
 import org.rx.net.NetworkFlowDiagnostics;
 import org.rx.net.SocketConfig;
 import org.rx.net.Sockets;
+import org.rx.net.UdpMetrics;
 
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
@@ -22,14 +23,27 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 @Slf4j
 public final class UdpFinalEgressGuardHandler extends ChannelDuplexHandler {
+    static final String METRIC_TAGS = "path=final-egress";
+
     private final SocketConfig config;
     private final boolean forceBackpressure;
+    //按生效 config 解析一次，config 变更时重新解析
+    private SocketConfig metricsConfig;
+    private UdpMetrics metrics;
 
     public UdpFinalEgressGuardHandler(SocketConfig config, boolean forceBackpressure) {
         this.config = config;
         this.forceBackpressure = forceBackpressure;
     }
 
+    private UdpMetrics metrics(SocketConfig effectiveConfig) {
+        if (metrics == null || metricsConfig != effectiveConfig) {
+            metrics = UdpMetrics.of(Sockets.udpFinalMetricPrefix(effectiveConfig), METRIC_TAGS);
+            metricsConfig = effectiveConfig;
+        }
+        return metrics;
+    }
+
     @Override
     public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
         if (!(msg instanceof DatagramPacket)) {
@@ -62,12 +76,11 @@ public final class UdpFinalEgressGuardHandler extends ChannelDuplexHandler {
     private void writeDatagram(ChannelHandlerContext ctx, DatagramPacket packet, ChannelPromise promise, boolean forceFlush) {
         Channel channel = ctx.channel();
         SocketConfig effectiveConfig = Sockets.udpEffectiveConfig(channel, config);
-        String metricPrefix = Sockets.udpFinalMetricPrefix(effectiveConfig);
-        String tags = "path=final-egress";
+        UdpMetrics metrics = metrics(effectiveConfig);
         int bytes = packet.content().readableBytes();
 
         if (!channel.isActive()) {
-            Sockets.releaseUdpPacket(packet, metricPrefix, tags, "final-inactive", 0, 0);
+            Sockets.releaseUdpPacket(packet, metrics, "final-inactive", 0, 0, 0, 0);
             debugDrop(channel, packet, "final-inactive", bytes, 0, 0, 0, 0, effectiveConfig);
             completeDroppedWrite(promise);
             return;
@@ -78,13 +91,13 @@ public final class UdpFinalEgressGuardHandler extends ChannelDuplexHandler {
         if (recipient != null && recipient.isUnresolved()) {
             Sockets.resolveUdpEndpointAsync(recipient, effectiveConfig)
                     .whenComplete((resolved, error) -> executeResolvedWrite(ctx, packet,
-                            recipient, resolved, error, promise, metricPrefix, tags, limitBytes));
+                            recipient, resolved, error, promise, metrics, limitBytes));
             return;
         }
 
         int udpMtu = effectiveConfig != null ? Math.max(0, effectiveConfig.getUdpMtu()) : 0;
         if (!(packet instanceof UdpMtuProbeDatagramPacket) && udpMtu > 0 && bytes > udpMtu) {
-            Sockets.releaseUdpPacketByMtu(packet, metricPrefix, tags, bytes, udpMtu);
+            Sockets.releaseUdpPacketByMtu(packet, metrics, bytes, udpMtu);
             debugDrop(channel, packet, "mtu-exceeded", bytes, bytes, udpMtu, 0, 0, effectiveConfig);
             completeDroppedWrite(promise);
             return;
@@ -104,7 +117,7 @@ public final class UdpFinalEgressGuardHandler extends ChannelDuplexHandler {
         UdpBackpressureDecision decision = udpPolicy.reserve(channel, bytes, pendingBytes, pendingPackets,
                 limitBytes, limitPackets, "final-");
         if (!decision.accepted) {
-            Sockets.releaseUdpPacket(packet, metricPrefix, tags, decision.reason, decision.queuedBytes,
+            Sockets.releaseUdpPacket(packet, metrics, decision.reason, decision.queuedBytes,
                     decision.limitBytes, decision.queuedPackets, decision.limitPackets);
             debugDrop(channel, packet, decision.reason, bytes, decision.queuedBytes,
                     decision.limitBytes, decision.queuedPackets, decision.limitPackets, effectiveConfig);
@@ -118,9 +131,9 @@ public final class UdpFinalEgressGuardHandler extends ChannelDuplexHandler {
                 udpPolicy.release(bytes, pendingBytes, pendingPackets, limitPackets);
             }
             if (!f.isSuccess()) {
-                Sockets.recordUdpMetric(metricPrefix, "drop.count",
-                        Sockets.appendUdpMetricTags(tags,
-                                "reason=final-write-fail,limitBucket=" + Sockets.udpLimitBucket(limitBytes)));
+                if (metrics != null) {
+                    metrics.recordDrop("final-write-fail", limitBytes, 0, 0, 0);
+                }
                 log.warn("UDP final write fail channel={} recipient={}", channel, packet.recipient(), f.cause());
             }
         });
@@ -131,9 +144,9 @@ public final class UdpFinalEgressGuardHandler extends ChannelDuplexHandler {
             if (!writePromise.tryFailure(e) && decision.tracked) {
                 udpPolicy.release(bytes, pendingBytes, pendingPackets, limitPackets);
             }
-            Sockets.recordUdpMetric(metricPrefix, "drop.count",
-                    Sockets.appendUdpMetricTags(tags,
-                            "reason=final-write-throw,limitBucket=" + Sockets.udpLimitBucket(limitBytes)));
+            if (metrics != null) {
+                metrics.recordDrop("final-write-throw", limitBytes, 0, 0, 0);
+            }
             log.warn("UDP final write throw channel={} recipient={}", channel, packet.recipient(), e);
         }
     }
@@ -141,12 +154,12 @@ public final class UdpFinalEgressGuardHandler extends ChannelDuplexHandler {
     private void executeResolvedWrite(ChannelHandlerContext ctx, DatagramPacket packet,
                                       InetSocketAddress originalRecipient, InetSocketAddress resolved,
                                       Throwable error, ChannelPromise promise,
-                                      String metricPrefix, String tags, int limitBytes) {
+                                      UdpMetrics metrics, int limitBytes) {
         try {
             ctx.executor().execute(() -> completeResolvedWrite(ctx, packet, originalRecipient, resolved, error,
-                    promise, metricPrefix, tags, limitBytes));
+                    promise, metrics, limitBytes));
         } catch (Throwable e) {
-            Sockets.releaseUdpPacket(packet, metricPrefix, tags, "final-unresolved-recipient", 0, limitBytes);
+            Sockets.releaseUdpPacket(packet, metrics, "final-unresolved-recipient", 0, limitBytes, 0, 0);
             debugDrop(ctx.channel(), packet, "final-unresolved-recipient", 0, 0, limitBytes, 0, 0,
                     Sockets.udpEffectiveConfig(ctx.channel(), config));
             failPromise(promise, e);
@@ -156,9 +169,9 @@ public final class UdpFinalEgressGuardHandler extends ChannelDuplexHandler {
     private void completeResolvedWrite(ChannelHandlerContext ctx, DatagramPacket packet,
                                        InetSocketAddress originalRecipient, InetSocketAddress resolved,
                                        Throwable error, ChannelPromise promise,
-                                       String metricPrefix, String tags, int limitBytes) {
+                                       UdpMetrics metrics, int limitBytes) {
         if (error != null || resolved == null || resolved.isUnresolved()) {
-            Sockets.releaseUdpPacket(packet, metricPrefix, tags, "final-unresolved-recipient", 0, limitBytes);
+            Sockets.releaseUdpPacket(packet, metrics, "final-unresolved-recipient", 0, limitBytes, 0, 0);
             log.warn("UDP final resolve recipient fail channel={} recipient={}",
                     ctx.channel(), originalRecipient, resolveError(originalRecipient, error));
             debugDrop(ctx.channel(), packet, "final-unresolved-recipient", 0, 0, limitBytes, 0, 0,
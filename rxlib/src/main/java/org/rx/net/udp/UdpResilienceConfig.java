@@ -7,7 +7,7 @@ import lombok.ToString;
 import java.io.Serializable;
 
 /**
- * UDP Resilience 配置。默认值面向低延迟游戏 UDP：XOR 3:1 FEC，冗余倍率默认 1。
+ * UDP Resilience 配置。默认值面向低延迟游戏 UDP：XOR 3:1 FEC，冗余倍率默认 1；多包连续丢失链路使用 Reed–Solomon。
  */
 @Getter
 @Setter
@@ -21,6 +21,10 @@ public class UdpResilienceConfig implements Serializable {
      */
     private boolean resilienceAll = true;
     private boolean fecEnabled = true;
+    /**
+     * XOR 只支持 1 个 parity；REED_SOLOMON 支持 [1, 8] 个 parity，每组可恢复同等数量丢包。
+     */
+    private UdpFecCodec fecCodec = UdpFecCodec.XOR;
     private int fecDataShards = 3;
     private int fecParityShards = 1;
     private int fecFlushTimeoutMs = 5;
@@ -50,6 +54,14 @@ public class UdpResilienceConfig implements Serializable {
         return config;
     }
 
+    public static UdpResilienceConfig multiLoss() {
+        UdpResilienceConfig config = new UdpResilienceConfig();
+        config.setFecCodec(UdpFecCodec.REED_SOLOMON);
+        config.setFecDataShards(6);
+        config.setFecParityShards(3);
+        return config;
+    }
+
     public static UdpResilienceConfig extremeLoss() {
         UdpResilienceConfig config = new UdpResilienceConfig();
         config.setFecDataShards(3);
@@ -70,7 +82,21 @@ public class UdpResilienceConfig implements Serializable {
     }
 
     public void setFecParityShards(int fecParityShards) {
-        this.fecParityShards = Math.max(0, Math.min(1, fecParityShards));
+        this.fecParityShards = Math.max(0, Math.min(FecCoder.MAX_PARITY_SHARDS, fecParityShards));
+    }
+
+    public void setFecCodec(UdpFecCodec fecCodec) {
+        this.fecCodec = fecCodec != null ? fecCodec : UdpFecCodec.XOR;
+    }
+
+    /**
+     * 实际生效的 parity 数，XOR 最多 1 个。
+     */
+    public int effectiveFecParityShards() {
+        if (!fecEnabled) {
+            return 0;
+        }
+        return fecCodec == UdpFecCodec.XOR ? Math.min(1, fecParityShards) : fecParityShards;
     }
 
     public void setFecFlushTimeoutMs(int fecFlushTimeoutMs) {
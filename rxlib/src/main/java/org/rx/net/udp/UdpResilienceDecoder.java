@@ -122,7 +122,7 @@ public class UdpResilienceDecoder extends ChannelInboundHandlerAdapter {
         if ((flags & UdpResilienceHeader.FLAG_DATA) != 0) {
             handleData(ctx, packet, content, payloadIndex, payloadLen, codec, shardK, shardIdx, groupKey);
         } else if ((flags & UdpResilienceHeader.FLAG_PARITY) != 0) {
-            handleParity(ctx, packet, content, payloadIndex, payloadBytes, shardK, groupKey);
+            handleParity(ctx, packet, content, payloadIndex, payloadBytes, codec, shardK, shardIdx, groupKey);
         } else {
             stats.recordDecodeDrop();
         }
@@ -146,20 +146,25 @@ public class UdpResilienceDecoder extends ChannelInboundHandlerAdapter {
         if (data == parity) {
             return false;
         }
-        if (parity && codec != UdpResilienceHeader.CODEC_XOR) {
+        if (parity && codec == UdpResilienceHeader.CODEC_NONE) {
             return false;
         }
-        if (codec != UdpResilienceHeader.CODEC_NONE && codec != UdpResilienceHeader.CODEC_XOR) {
+        if (codec != UdpResilienceHeader.CODEC_NONE && codec != UdpResilienceHeader.CODEC_XOR
+                && codec != UdpResilienceHeader.CODEC_RS) {
             return false;
         }
         if (codec == UdpResilienceHeader.CODEC_XOR && (shardK <= 0 || shardK > config.getFecDataShards() || shardP != 1)) {
             return false;
         }
+        if (codec == UdpResilienceHeader.CODEC_RS && (shardK <= 0 || shardK > config.getFecDataShards()
+                || shardP <= 0 || shardP > FecCoder.MAX_PARITY_SHARDS)) {
+            return false;
+        }
         if (data) {
             return shardIdx >= 0 && shardIdx < Math.max(1, shardK)
                     && payloadLen <= payloadBytes && payloadLen <= config.getMaxResiliencePayload();
         }
-        return payloadBytes > 0 && shardIdx >= shardK;
+        return payloadBytes > 0 && shardIdx >= shardK && shardIdx < shardK + shardP;
     }
 
     private void handleData(ChannelHandlerContext ctx, DatagramPacket packet, ByteBuf content,
@@ -169,10 +174,10 @@ public class UdpResilienceDecoder extends ChannelInboundHandlerAdapter {
         ctx.fireChannelRead(new DatagramPacket(payload, packet.recipient(), packet.sender()));
         stats.recordDelivered();
 
-        if (!config.isFecEnabled() || codec != UdpResilienceHeader.CODEC_XOR) {
+        if (!config.isFecEnabled() || codec == UdpResilienceHeader.CODEC_NONE) {
             return;
         }
-        FecDecodeGroup group = groupFor(groupKey, shardK);
+        FecDecodeGroup group = groupFor(groupKey, shardK, codec);
         if (group == null) {
             stats.recordGroupLimitDrop();
             return;
@@ -193,11 +198,12 @@ public class UdpResilienceDecoder extends ChannelInboundHandlerAdapter {
     }
 
     private void handleParity(ChannelHandlerContext ctx, DatagramPacket packet, ByteBuf content,
-                              int payloadIndex, int payloadBytes, int shardK, FecGroupKey groupKey) {
+                              int payloadIndex, int payloadBytes, int codec, int shardK, int shardIdx,
+                              FecGroupKey groupKey) {
         if (!config.isFecEnabled()) {
             return;
         }
-        FecDecodeGroup group = groupFor(groupKey, shardK);
+        FecDecodeGroup group = groupFor(groupKey, shardK, codec);
         if (group == null) {
             stats.recordGroupLimitDrop();
             return;
@@ -206,7 +212,7 @@ public class UdpResilienceDecoder extends ChannelInboundHandlerAdapter {
         ByteBuf block = ctx.alloc().directBuffer(payloadBytes);
         try {
             block.writeBytes(content, payloadIndex, payloadBytes);
-            group.addParity(block, shardK);
+            group.addParity(block, shardK, shardIdx - shardK);
             block = null;
         } finally {
             if (block != null) {
@@ -218,11 +224,13 @@ public class UdpResilienceDecoder extends ChannelInboundHandlerAdapter {
 
     private void tryRecoverOrComplete(ChannelHandlerContext ctx, DatagramPacket packet,
                                       FecGroupKey groupKey, FecDecodeGroup group) {
-        ByteBuf recovered = group.tryRecover(ctx.alloc(), config.getMaxResiliencePayload());
+        ByteBuf[] recovered = group.tryRecover(ctx.alloc(), config.getMaxResiliencePayload());
         if (recovered != null) {
-            ctx.fireChannelRead(new DatagramPacket(recovered, packet.recipient(), packet.sender()));
-            stats.recordRecovered();
-            stats.recordDelivered();
+            for (ByteBuf payload : recovered) {
+                ctx.fireChannelRead(new DatagramPacket(payload, packet.recipient(), packet.sender()));
+                stats.recordRecovered();
+                stats.recordDelivered();
+            }
             completeGroup(groupKey);
             return;
         }
@@ -247,10 +255,10 @@ public class UdpResilienceDecoder extends ChannelInboundHandlerAdapter {
         return window;
     }
 
-    private FecDecodeGroup groupFor(FecGroupKey key, int shardK) {
+    private FecDecodeGroup groupFor(FecGroupKey key, int shardK, int codec) {
         FecDecodeGroup group = groups.get(key);
         if (group != null) {
-            return group;
+            return group.codec == codec ? group : null;
         }
         PeerSessionKey peer = new PeerSessionKey(key.getSender(), key.getSessionId());
         Integer count = groupCounts.get(peer);
@@ -258,7 +266,7 @@ public class UdpResilienceDecoder extends ChannelInboundHandlerAdapter {
         if (current >= config.getMaxGroupsPerPeer()) {
             return null;
         }
-        group = new FecDecodeGroup(key, config.getFecDataShards(), shardK);
+        group = new FecDecodeGroup(key, config.getFecDataShards(), shardK, codec);
         groups.put(key, group);
         groupCounts.put(peer, current + 1);
         return group;
@@ -86,7 +86,7 @@ public class UdpResilienceEncoder extends ChannelDuplexHandler {
                 return;
             }
 
-            if (config.isFecEnabled() && config.getFecParityShards() == 1) {
+            if (config.effectiveFecParityShards() > 0) {
                 writeFecData(ctx, packet, state, flowId, promise);
             } else {
                 writeDataOnly(ctx, packet, state, flowId, promise);
@@ -113,7 +113,7 @@ public class UdpResilienceEncoder extends ChannelDuplexHandler {
     }
 
     private boolean shouldApplyPayload() {
-        return (config.isFecEnabled() && config.getFecParityShards() == 1)
+        return config.effectiveFecParityShards() > 0
                 || (config.isRedundantEnabled() && effectiveDataMultiplier() > 1);
     }
 
@@ -129,8 +129,8 @@ public class UdpResilienceEncoder extends ChannelDuplexHandler {
         }
         int shardIdx = group.count();
         int seq = state.nextSeq++;
-        ByteBuf resilienceBuf = encodePacket(ctx, UdpResilienceHeader.FLAG_DATA, UdpResilienceHeader.CODEC_XOR,
-                group.capacity(), 1, shardIdx, flowId, seq, group.groupId,
+        ByteBuf resilienceBuf = encodePacket(ctx, UdpResilienceHeader.FLAG_DATA, fecCodecId(),
+                group.capacity(), config.effectiveFecParityShards(), shardIdx, flowId, seq, group.groupId,
                 payloadLen, content, payloadIndex, payloadLen);
         writeResilience(ctx, resilienceBuf, packet.recipient(), effectiveDataMultiplier(), promise);
         stats.recordResilienceData();
@@ -173,20 +173,42 @@ public class UdpResilienceEncoder extends ChannelDuplexHandler {
             return;
         }
 
-        ByteBuf parity = group.buildParity(ctx.alloc());
+        if (config.getFecCodec() == UdpFecCodec.XOR) {
+            ByteBuf parity = group.buildParity(ctx.alloc());
+            try {
+                writeParity(ctx, state, flowId, group, UdpResilienceHeader.CODEC_XOR, 1, 0, parity);
+            } finally {
+                parity.release();
+            }
+            return;
+        }
+
+        int parityShards = config.effectiveFecParityShards();
+        ByteBuf[] parity = group.buildParity(ctx.alloc(), parityShards);
         try {
-            int parityLen = parity.readableBytes();
-            int seq = state.nextSeq++;
-            ByteBuf resilienceBuf = encodePacket(ctx, UdpResilienceHeader.FLAG_PARITY, UdpResilienceHeader.CODEC_XOR,
-                    group.count(), 1, group.count(), flowId, seq, group.groupId,
-                    parityLen, parity, parity.readerIndex(), parityLen);
-            writeResilience(ctx, resilienceBuf, state.recipient, effectiveParityMultiplier(), ctx.voidPromise());
-            stats.recordParity();
+            for (int i = 0; i < parityShards; i++) {
+                writeParity(ctx, state, flowId, group, UdpResilienceHeader.CODEC_RS, parityShards, i, parity[i]);
+            }
         } finally {
-            parity.release();
+            FecCoder.release(parity);
         }
     }
 
+    private void writeParity(ChannelHandlerContext ctx, PeerState state, int flowId, FecEncodeGroup group,
+                             int codec, int parityShards, int parityIdx, ByteBuf parity) {
+        int parityLen = parity.readableBytes();
+        int seq = state.nextSeq++;
+        ByteBuf resilienceBuf = encodePacket(ctx, UdpResilienceHeader.FLAG_PARITY, codec,
+                group.count(), parityShards, group.count() + parityIdx, flowId, seq, group.groupId,
+                parityLen, parity, parity.readerIndex(), parityLen);
+        writeResilience(ctx, resilienceBuf, state.recipient, effectiveParityMultiplier(), ctx.voidPromise());
+        stats.recordParity();
+    }
+
+    private int fecCodecId() {
+        return config.getFecCodec() == UdpFecCodec.XOR ? UdpResilienceHeader.CODEC_XOR : UdpResilienceHeader.CODEC_RS;
+    }
+
     private ByteBuf encodePacket(ChannelHandlerContext ctx, int flags, int codec, int shardK, int shardP,
                                  int shardIdx, int flowId, int seq, int groupId, int payloadLen,
                                  ByteBuf payload, int payloadIndex, int payloadBytes) {
@@ -16,6 +16,7 @@ public final class UdpResilienceHeader {
 
     public static final int CODEC_NONE = 0;
     public static final int CODEC_XOR = 1;
+    public static final int CODEC_RS = 2;
 
     private UdpResilienceHeader() {
     }
@@ -428,6 +428,9 @@ public final class RssClient {
         conf.rpcAutoWhiteListSeconds = Math.max(0, conf.rpcAutoWhiteListSeconds);
         conf.shadowDnsPort = Math.max(1, conf.shadowDnsPort);
         conf.dnsTtlMinutes = Math.max(1, conf.dnsTtlMinutes);
+        if (conf.traffic != null) {
+            conf.traffic.normalize();
+        }
         resolveNameserverConfig(conf);
 
         if (Strings.isEmpty(conf.socksPwd) || CollectionUtils.isEmpty(conf.shadowUsers) || CollectionUtils.isEmpty(conf.socksServers)) {
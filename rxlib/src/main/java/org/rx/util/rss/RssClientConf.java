@@ -8,6 +8,7 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
 import org.rx.net.AuthenticEndpoint;
+import org.rx.net.NetworkTrafficConfig;
 import org.rx.net.Sockets;
 import org.rx.net.nameserver.NameserverConfig;
 
@@ -74,6 +75,8 @@ public class RssClientConf {
     public NameserverConfig nameserver = new NameserverConfig();
     public int trafficRetentionDays = 60;
     public int memoryRetentionHours = RssAuthenticator.DEFAULT_MEMORY_RETENTION_HOURS;
+    // 全局/用户/连接限速；为空时沿用 app.net.globalTraffic
+    public NetworkTrafficConfig traffic;
 
     // rrp
     public String rrpToken;
@@ -37,6 +37,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 public class RssClientHttpHandler implements HttpServer.Handler {
     public static final String SHADOW_USERS_PAGE_PATH = "/ss-users";
@@ -215,7 +216,7 @@ public class RssClientHttpHandler implements HttpServer.Handler {
         vars.put("memoryRetentionHours", effectiveMemoryRetentionHours);
         vars.put("memoryResetPolicy", "用户开始有连接后按 " + effectiveMemoryRetentionHours + " 小时窗口保留登录 IP；无连接用户不更新内存统计窗口。");
         vars.put("stats", buildStats(userRows.size(), protocolRows.size(), loginIpRows.size(), liveIpRows.size(),
-                historyUsers, query, trafficStore, effectiveMemoryRetentionHours, upstreamRows));
+                historyUsers, query, trafficStore, effectiveMemoryRetentionHours, upstreamRows, routeStats(shadowStore)));
         vars.put("hasUpstreams", !upstreamRows.isEmpty());
         vars.put("upstreams", upstreamRows);
         vars.put("hasHistoryUsers", !userRows.isEmpty());
@@ -236,7 +237,8 @@ public class RssClientHttpHandler implements HttpServer.Handler {
 
     private static List<Map<String, Object>> buildStats(int userCount, int protocolRowCount, int historyIpCount, int liveIpCount,
                                                         List<UserTrafficSummary> historyUsers, Query query, RssUserTrafficStore trafficStore,
-                                                        int memoryRetentionHours, List<Map<String, Object>> upstreamRows) {
+                                                        int memoryRetentionHours, List<Map<String, Object>> upstreamRows,
+                                                        UserRuleMatcher.Stats routeStats) {
         long totalReadBytes = 0L;
         long totalWriteBytes = 0L;
         long totalActiveSeconds = 0L;
@@ -262,7 +264,7 @@ public class RssClientHttpHandler implements HttpServer.Handler {
             }
         }
 
-        List<Map<String, Object>> stats = new ArrayList<Map<String, Object> >(8);
+        List<Map<String, Object>> stats = new ArrayList<Map<String, Object> >(9);
         stats.add(summaryItem("查询范围", formatDateTime(new Date(query.fromMillis)) + " - " + formatDateTime(new Date(query.toMillis)),
                 "默认近 1 个月，历史数据按 H2 查询。"));
         stats.add(summaryItem("H2 保留期", trafficStore == null ? "-" : trafficStore.retentionDays() + " 天",
@@ -272,6 +274,9 @@ public class RssClientHttpHandler implements HttpServer.Handler {
         stats.add(summaryItem("上游健康/连接", healthyUpstreams + "/" + (upstreamRows == null ? 0 : upstreamRows.size())
                         + " / " + activeUpstreamConnections,
                 "可用上游数 / 展示上游数 / 当前活跃上游连接数，含等待释放旧配置。"));
+        stats.add(summaryItem("路由缓存命中率/耗时", String.format("%.1f%% / %.2fus", routeStats.getHitRatio() * 100D,
+                        routeStats.getAvgMatchMicros()),
+                "默认路由与用户路由决策缓存，" + routeStats.getMatches() + " 次匹配，配置重载后重新计数。"));
         stats.add(summaryItem("历史用户数", userCount, "H2 中命中的用户聚合数量。"));
         stats.add(summaryItem("历史下行/上行", Bytes.readableByteSize(totalReadBytes) + " / " + Bytes.readableByteSize(totalWriteBytes),
                 "按所选时间范围聚合的总流量。"));
@@ -428,6 +433,24 @@ public class RssClientHttpHandler implements HttpServer.Handler {
         return rt == null ? Collections.<RssRuntime.UpstreamSnapshot>emptyList() : rt.upstreamSnapshots();
     }
 
+    static UserRuleMatcher.Stats routeStats(Map<String, ShadowUser> shadowStore) {
+        UserRuleMatcher.Stats stats = new UserRuleMatcher.Stats();
+        Set<UserRuleMatcher> seen = Collections.newSetFromMap(new IdentityHashMap<UserRuleMatcher, Boolean>());
+        RssClientConf conf = RssClient.rssConf;
+        if (conf != null && conf.defaultRouteMatcher != null && seen.add(conf.defaultRouteMatcher)) {
+            stats.add(conf.defaultRouteMatcher.stats());
+        }
+        if (shadowStore != null) {
+            for (ShadowUser user : shadowStore.values()) {
+                UserRuleMatcher matcher = user == null ? null : user.getRouteMatcher();
+                if (matcher != null && seen.add(matcher)) {
+                    stats.add(matcher.stats());
+                }
+            }
+        }
+        return stats;
+    }
+
     private static Map<String, Object> summaryItem(String label, Object value, String meta) {
         LinkedHashMap<String, Object> row = new LinkedHashMap<String, Object>(3);
         row.put("label", label);
@@ -8,6 +8,7 @@ import org.rx.core.Strings;
 import org.rx.core.Tasks;
 import org.rx.exception.InvalidException;
 import org.rx.net.AuthenticEndpoint;
+import org.rx.net.NetworkFlowControl;
 import org.rx.net.Sockets;
 import org.rx.net.dns.DnsResolveInterceptor;
 import org.rx.net.dns.DnsServer;
@@ -94,6 +95,7 @@ final class RssRuntime implements AutoCloseable {
 
         activeConf = conf;
         rssConf = conf;
+        applyTrafficConfig(conf);
         applyShadowServersPlan(buildShadowServers(conf, inServer, inUdp2rawServer, true));
         clientInit(authenticator);
         addPublicIpWhiteList();
@@ -457,6 +459,15 @@ final class RssRuntime implements AutoCloseable {
     private void applyLiveConfig(RssClientConf conf) {
         applyInServerConfig(conf, inServer);
         applyInServerConfig(conf, inUdp2rawServer);
+        applyTrafficConfig(conf);
+    }
+
+    private void applyTrafficConfig(RssClientConf conf) {
+        if (conf.traffic != null) {
+            NetworkFlowControl.DEFAULT.refresh(conf.traffic);
+        } else {
+            NetworkFlowControl.refresh();
+        }
     }
 
     private void applyInServerConfig(RssClientConf conf, RssInServer server) {
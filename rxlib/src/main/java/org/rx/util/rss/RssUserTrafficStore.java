@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicReference;
@@ -168,6 +169,8 @@ public class RssUserTrafficStore implements SocksUserTraffic.Recorder, AutoClose
     private final int retentionDays;
     private final AtomicReference<Map<String, Counter>> counters = new AtomicReference<>(new ConcurrentHashMap<String, Counter>());
     private final AtomicReference<Map<String, LoginIpCounter>> loginIpCounters = new AtomicReference<>(new ConcurrentHashMap<String, LoginIpCounter>());
+    // 连接级累加器，flush 时 drain 进小时聚合，连接关闭时自行 drain 并移除
+    private final Set<SocksUserTraffic.Accumulator> accumulators = ConcurrentHashMap.newKeySet();
     private volatile ScheduledFuture<?> flushTask;
     private volatile long lastCleanupHourEpoch = Long.MIN_VALUE;
 
@@ -193,6 +196,21 @@ public class RssUserTrafficStore implements SocksUserTraffic.Recorder, AutoClose
         }
     }
 
+    @Override
+    public boolean isAccumulating() {
+        return true;
+    }
+
+    @Override
+    public void track(SocksUserTraffic.Accumulator accumulator) {
+        accumulators.add(accumulator);
+    }
+
+    @Override
+    public void untrack(SocksUserTraffic.Accumulator accumulator) {
+        accumulators.remove(accumulator);
+    }
+
     @Override
     public void record(TrafficUser user, InetSocketAddress remoteAddress, long readBytes, long writeBytes, long readPackets, long writePackets) {
         record(user, remoteAddress, SocksUserTraffic.PROTOCOL_TCP, readBytes, writeBytes, readPackets, writePackets);
@@ -267,6 +285,9 @@ public class RssUserTrafficStore implements SocksUserTraffic.Recorder, AutoClose
     }
 
     public void flush() {
+        for (SocksUserTraffic.Accumulator accumulator : accumulators) {
+            accumulator.drainTo(this);
+        }
         Map<String, Counter> pending = counters.getAndSet(new ConcurrentHashMap<String, Counter>());
         Map<String, LoginIpCounter> pendingLoginIps = loginIpCounters.getAndSet(new ConcurrentHashMap<String, LoginIpCounter>());
         if (pending.isEmpty() && pendingLoginIps.isEmpty()) {
@@ -38,6 +38,9 @@ public class ShadowUser implements Serializable, TrafficUser {
     @ToString.Exclude
     transient UserRuleMatcher routeMatcher;
     int ipLimit = -1;
+    // 用户级限速，0 表示使用全局 NetworkTrafficConfig 默认值
+    long uploadKilobytesPerSecond;
+    long downloadKilobytesPerSecond;
     DateTime lastResetTime;
     final Map<InetAddress, TrafficLoginInfo> loginIps = new ConcurrentHashMap<>(4);
 
@@ -18,4 +18,8 @@ public class UserRule implements Serializable {
     public int srcSteeringTTL;
     // 有序规则，格式："<目标规则> <动作>"，例如 "srcIp 192.168.31.7 direct"、"dstPort 443 proxy"。
     public List<String> rules;
+    // 路由决策缓存槽位数，0 使用默认值，负数关闭。
+    public int decisionCacheSize;
+    // 相邻且动作相同的域名规则合并为一个匹配自动机，null 视为开启。
+    public Boolean mergeDomainRules;
 }
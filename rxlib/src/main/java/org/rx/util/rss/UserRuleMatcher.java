@@ -1,6 +1,8 @@
 package org.rx.util.rss;
 
 import io.netty.util.NetUtil;
+import lombok.Getter;
+import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.CollectionUtils;
 import org.rx.core.Strings;
@@ -15,48 +17,113 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.TimeUnit;
-
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 有序路由规则，首条命中生效。
+ * <p>
+ * 匹配结果按 (host, 规则实际依赖的 dst/src 字段) 缓存在定长直接映射表中，geo 数据重载后按
+ * {@link V2RayGeoManager#generation()} 失效；规则变更会重新 compile 出新实例，缓存随之丢弃。
+ */
 @Slf4j
 public final class UserRuleMatcher {
     static final long GEO_MATCHER_RETRY_NANOS = TimeUnit.SECONDS.toNanos(1);
+    static final int DEFAULT_DECISION_CACHE_SIZE = 1024;
+    static final int INPUT_DST_IP = 1;
+    static final int INPUT_DST_PORT = 1 << 1;
+    static final int INPUT_SRC_IP = 1 << 2;
+    static final int INPUT_SRC_PORT = 1 << 3;
     private static final List<String> DEFAULT_ROUTE_RULES = Collections.unmodifiableList(Arrays.asList(
             "geosite:cn direct",
             "geoip:cn direct",
             "default proxy"));
     private static final CompiledRule[] EMPTY_RULES = new CompiledRule[0];
 
+    @Getter
+    @ToString
+    public static final class Stats {
+        long hits;
+        long misses;
+        long matchNanos;
+
+        public long getMatches() {
+            return hits + misses;
+        }
+
+        public double getHitRatio() {
+            long total = getMatches();
+            return total == 0L ? 0D : (double) hits / total;
+        }
+
+        public double getAvgMatchMicros() {
+            long total = getMatches();
+            return total == 0L ? 0D : matchNanos / 1000D / total;
+        }
+
+        public Stats add(Stats other) {
+            if (other != null) {
+                hits += other.hits;
+                misses += other.misses;
+                matchNanos += other.matchNanos;
+            }
+            return this;
+        }
+    }
+
     private final CompiledRule[] rules;
+    private final CompiledRule[] geoRules;
+    private final V2RayGeoManager geoManager;
+    private final int inputs;
     private final boolean requiresSourceIp;
+    private final Decision[] decisions;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder matchNanos = new LongAdder();
 
-    private UserRuleMatcher(CompiledRule[] rules) {
+    private UserRuleMatcher(CompiledRule[] rules, V2RayGeoManager geoManager, int decisionCacheSize) {
         this.rules = rules == null ? EMPTY_RULES : rules;
-        boolean sourceIp = false;
+        this.geoManager = geoManager;
+        int in = 0;
+        ArrayList<CompiledRule> geo = new ArrayList<CompiledRule>();
         for (CompiledRule rule : this.rules) {
-            if (rule.requiresSourceIp()) {
-                sourceIp = true;
-                break;
+            in |= rule.inputs();
+            if (rule instanceof GeoSiteCodeRule || rule instanceof GeoIpCodeRule) {
+                geo.add(rule);
             }
         }
-        this.requiresSourceIp = sourceIp;
+        this.inputs = in;
+        this.requiresSourceIp = (in & INPUT_SRC_IP) != 0;
+        this.geoRules = geo.toArray(new CompiledRule[geo.size()]);
+        if (decisionCacheSize < 0) {
+            decisions = null;
+        } else {
+            int size = decisionCacheSize == 0 ? DEFAULT_DECISION_CACHE_SIZE : decisionCacheSize;
+            int capacity = 1;
+            while (capacity < size && capacity < (1 << 20)) {
+                capacity <<= 1;
+            }
+            decisions = new Decision[capacity];
+        }
     }
 
     public static UserRuleMatcher compile(UserRule rule, V2RayGeoManager manager, String username) {
         if (rule == null || Boolean.FALSE.equals(rule.getEnabled()) || CollectionUtils.isEmpty(rule.getRules())) {
             return null;
         }
-        return compileRules(rule.getRules(), manager, username);
+        return compileRules(rule.getRules(), manager, username, rule);
     }
 
     public static UserRuleMatcher compileDefaultRoute(UserRule rule, V2RayGeoManager manager) {
         if (rule == null) {
-            return compileRules(DEFAULT_ROUTE_RULES, manager, "defaultRoute");
+            return compileRules(DEFAULT_ROUTE_RULES, manager, "defaultRoute", null);
         }
         if (Boolean.FALSE.equals(rule.getEnabled())) {
             return null;
         }
         return compileRules(CollectionUtils.isEmpty(rule.getRules()) ? DEFAULT_ROUTE_RULES : rule.getRules(),
-                manager, "defaultRoute");
+                manager, "defaultRoute", rule);
     }
 
     static UserRule defaultRoute() {
@@ -66,7 +133,7 @@ public final class UserRuleMatcher {
         return rule;
     }
 
-    private static UserRuleMatcher compileRules(List<String> lines, V2RayGeoManager manager, String name) {
+    private static UserRuleMatcher compileRules(List<String> lines, V2RayGeoManager manager, String name, UserRule options) {
         V2RayGeoManager geoManager = manager == null ? V2RayGeoManager.INSTANCE : manager;
         ArrayList<CompiledRule> compiled = new ArrayList<CompiledRule>(lines.size() + 1);
         boolean hasDefaultRule = false;
@@ -80,7 +147,46 @@ public final class UserRuleMatcher {
         if (!hasDefaultRule) {
             compiled.add(new DefaultRule(RouteAction.PROXY));
         }
-        return new UserRuleMatcher(compiled.toArray(new CompiledRule[compiled.size()]));
+        if (options == null || !Boolean.FALSE.equals(options.getMergeDomainRules())) {
+            compiled = mergeDomainRules(compiled);
+        }
+        return new UserRuleMatcher(compiled.toArray(new CompiledRule[compiled.size()]), geoManager,
+                options == null ? 0 : options.getDecisionCacheSize());
+    }
+
+    /**
+     * 相邻且动作相同的域名规则命中任一即返回同一动作，合并为一个 GeoSiteMatcher 不改变首条命中语义。
+     */
+    static ArrayList<CompiledRule> mergeDomainRules(ArrayList<CompiledRule> compiled) {
+        ArrayList<CompiledRule> merged = new ArrayList<CompiledRule>(compiled.size());
+        for (int i = 0, size = compiled.size(); i < size; ) {
+            CompiledRule rule = compiled.get(i);
+            int end = i + 1;
+            if (rule instanceof DomainMatcherRule) {
+                while (end < size && compiled.get(end) instanceof DomainMatcherRule && compiled.get(end).action == rule.action) {
+                    end++;
+                }
+            }
+            if (end - i == 1) {
+                merged.add(rule);
+            } else {
+                ArrayList<String> patterns = new ArrayList<String>();
+                for (int j = i; j < end; j++) {
+                    patterns.addAll(((DomainMatcherRule) compiled.get(j)).patterns);
+                }
+                merged.add(new DomainMatcherRule(rule.action, patterns));
+            }
+            i = end;
+        }
+        return merged;
+    }
+
+    public Stats stats() {
+        Stats stats = new Stats();
+        stats.hits = hits.sum();
+        stats.misses = misses.sum();
+        stats.matchNanos = matchNanos.sum();
+        return stats;
     }
 
     public boolean isEnabled() {
@@ -100,6 +206,7 @@ public final class UserRuleMatcher {
     }
 
     public RouteAction match(String host, byte[] ipBytes, int dstPort, InetSocketAddress srcEp) {
+        long start = System.nanoTime();
         byte[] address = ipBytes;
         boolean ipLiteral = false;
         boolean hasHost = !Strings.isBlank(host);
@@ -125,6 +232,37 @@ public final class UserRuleMatcher {
             }
         }
 
+        RouteAction action;
+        Decision[] table = decisions;
+        if (table == null) {
+            misses.increment();
+            action = evaluate(host, domainTarget, address, dstPort, sourceAddress, srcPort);
+        } else {
+            //ipBytes 为空时目标地址完全由 host 决定
+            byte[] keyDstIp = (inputs & INPUT_DST_IP) != 0 ? ipBytes : null;
+            int keyDstPort = (inputs & INPUT_DST_PORT) != 0 ? dstPort : -1;
+            int keySrcPort = (inputs & INPUT_SRC_PORT) != 0 ? srcPort : -1;
+            int generation = geoManager.generation();
+            int slot = Decision.hash(host, keyDstIp, keyDstPort, sourceAddress, keySrcPort) & (table.length - 1);
+            Decision decision = table[slot];
+            if (decision != null && decision.generation == generation
+                    && decision.matches(host, keyDstIp, keyDstPort, sourceAddress, keySrcPort)) {
+                hits.increment();
+                action = decision.action;
+            } else {
+                misses.increment();
+                action = evaluate(host, domainTarget, address, dstPort, sourceAddress, srcPort);
+                if (isGeoSettled()) {
+                    table[slot] = new Decision(host, keyDstIp == null ? null : keyDstIp.clone(), keyDstPort,
+                            sourceAddress, keySrcPort, generation, action);
+                }
+            }
+        }
+        matchNanos.add(System.nanoTime() - start);
+        return action;
+    }
+
+    private RouteAction evaluate(String host, boolean domainTarget, byte[] address, int dstPort, byte[] sourceAddress, int srcPort) {
         for (CompiledRule rule : rules) {
             if (rule.matches(host, domainTarget, address, dstPort, sourceAddress, srcPort)) {
                 return rule.action;
@@ -133,6 +271,16 @@ public final class UserRuleMatcher {
         return RouteAction.PROXY;
     }
 
+    //geo 数据未就绪时规则暂按未命中处理，此时的结果不能缓存
+    private boolean isGeoSettled() {
+        for (CompiledRule rule : geoRules) {
+            if (!rule.isSettled()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     static boolean mayBeIpLiteral(String host) {
         if (host == null || host.isEmpty()) {
             return false;
@@ -217,7 +365,7 @@ public final class UserRuleMatcher {
         if (startsWithIgnoreCase(value, "domain:")) {
             value = value.substring(7);
         }
-        return new DomainMatcherRule(action, new GeoSiteMatcher(java.util.Collections.singleton(value).iterator()));
+        return new DomainMatcherRule(action, Collections.singletonList(value));
     }
 
     private static CompiledRule compileEndpointRule(RouteAction action, String target) {
@@ -412,8 +560,12 @@ public final class UserRuleMatcher {
             this.action = action;
         }
 
-        boolean requiresSourceIp() {
-            return false;
+        int inputs() {
+            return 0;
+        }
+
+        boolean isSettled() {
+            return true;
         }
 
         abstract boolean matches(String host, boolean domainTarget, byte[] dstIpBytes,
@@ -421,11 +573,13 @@ public final class UserRuleMatcher {
     }
 
     private static final class DomainMatcherRule extends CompiledRule {
+        final List<String> patterns;
         final GeoSiteMatcher matcher;
 
-        DomainMatcherRule(RouteAction action, GeoSiteMatcher matcher) {
+        DomainMatcherRule(RouteAction action, List<String> patterns) {
             super(action);
-            this.matcher = matcher;
+            this.patterns = patterns;
+            this.matcher = new GeoSiteMatcher(patterns.iterator());
         }
 
         @Override
@@ -451,12 +605,14 @@ public final class UserRuleMatcher {
         final V2RayGeoManager manager;
         final String code;
         volatile GeoSiteMatcher matcher;
+        volatile int generation;
         volatile long nextTryNanos;
 
         GeoSiteCodeRule(RouteAction action, V2RayGeoManager manager, String code) {
             super(action);
             this.manager = manager;
             this.code = code;
+            this.generation = manager.generation();
             this.matcher = manager.tryCompileGeoSiteMatcher(code);
             if (matcher == null) {
                 nextTryNanos = System.nanoTime() + GEO_MATCHER_RETRY_NANOS;
@@ -464,6 +620,11 @@ public final class UserRuleMatcher {
             }
         }
 
+        @Override
+        boolean isSettled() {
+            return matcher != null;
+        }
+
         @Override
         boolean matches(String host, boolean domainTarget, byte[] dstIpBytes,
                         int dstPort, byte[] srcIpBytes, int srcPort) {
@@ -471,14 +632,20 @@ public final class UserRuleMatcher {
                 return false;
             }
             GeoSiteMatcher m = matcher;
-            if (m == null) {
-                long now = System.nanoTime();
-                if (now < nextTryNanos) {
-                    return false;
-                }
-                nextTryNanos = now + GEO_MATCHER_RETRY_NANOS;
-                matcher = m = manager.tryCompileGeoSiteMatcher(code);
+            int gen = manager.generation();
+            if (m == null || gen != generation) {
                 if (m == null) {
+                    long now = System.nanoTime();
+                    if (now < nextTryNanos) {
+                        return false;
+                    }
+                    nextTryNanos = now + GEO_MATCHER_RETRY_NANOS;
+                }
+                generation = gen;
+                GeoSiteMatcher next = manager.tryCompileGeoSiteMatcher(code);
+                if (next != null) {
+                    matcher = m = next;
+                } else if (m == null) {
                     requestReload(manager);
                 }
             }
@@ -490,12 +657,14 @@ public final class UserRuleMatcher {
         final V2RayGeoManager manager;
         final String code;
         volatile V2RayGeoIpMatcher.CodeMatcher matcher;
+        volatile int generation;
         volatile long nextTryNanos;
 
         GeoIpCodeRule(RouteAction action, V2RayGeoManager manager, String code) {
             super(action);
             this.manager = manager;
             this.code = code;
+            this.generation = manager.generation();
             this.matcher = manager.tryCompileGeoIpMatcher(code);
             if (matcher == null) {
                 nextTryNanos = System.nanoTime() + GEO_MATCHER_RETRY_NANOS;
@@ -503,6 +672,16 @@ public final class UserRuleMatcher {
             }
         }
 
+        @Override
+        int inputs() {
+            return INPUT_DST_IP;
+        }
+
+        @Override
+        boolean isSettled() {
+            return matcher != null;
+        }
+
         @Override
         boolean matches(String host, boolean domainTarget, byte[] dstIpBytes,
                         int dstPort, byte[] srcIpBytes, int srcPort) {
@@ -510,14 +689,20 @@ public final class UserRuleMatcher {
                 return false;
             }
             V2RayGeoIpMatcher.CodeMatcher m = matcher;
-            if (m == null) {
-                long now = System.nanoTime();
-                if (now < nextTryNanos) {
-                    return false;
-                }
-                nextTryNanos = now + GEO_MATCHER_RETRY_NANOS;
-                matcher = m = manager.tryCompileGeoIpMatcher(code);
+            int gen = manager.generation();
+            if (m == null || gen != generation) {
                 if (m == null) {
+                    long now = System.nanoTime();
+                    if (now < nextTryNanos) {
+                        return false;
+                    }
+                    nextTryNanos = now + GEO_MATCHER_RETRY_NANOS;
+                }
+                generation = gen;
+                V2RayGeoIpMatcher.CodeMatcher next = manager.tryCompileGeoIpMatcher(code);
+                if (next != null) {
+                    matcher = m = next;
+                } else if (m == null) {
                     requestReload(manager);
                 }
             }
@@ -530,6 +715,11 @@ public final class UserRuleMatcher {
             super(action);
         }
 
+        @Override
+        int inputs() {
+            return INPUT_DST_IP;
+        }
+
         @Override
         boolean matches(String host, boolean domainTarget, byte[] dstIpBytes,
                         int dstPort, byte[] srcIpBytes, int srcPort) {
@@ -602,8 +792,8 @@ public final class UserRuleMatcher {
         }
 
         @Override
-        boolean requiresSourceIp() {
-            return source;
+        int inputs() {
+            return source ? INPUT_SRC_IP : INPUT_DST_IP;
         }
 
         @Override
@@ -625,6 +815,11 @@ public final class UserRuleMatcher {
             this.max = max;
         }
 
+        @Override
+        int inputs() {
+            return source ? INPUT_SRC_PORT : INPUT_DST_PORT;
+        }
+
         @Override
         boolean matches(String host, boolean domainTarget, byte[] dstIpBytes,
                         int dstPort, byte[] srcIpBytes, int srcPort) {
@@ -633,6 +828,40 @@ public final class UserRuleMatcher {
         }
     }
 
+    private static final class Decision {
+        final String host;
+        final byte[] dstIp;
+        final int dstPort;
+        final byte[] srcIp;
+        final int srcPort;
+        final int generation;
+        final RouteAction action;
+
+        Decision(String host, byte[] dstIp, int dstPort, byte[] srcIp, int srcPort, int generation, RouteAction action) {
+            this.host = host;
+            this.dstIp = dstIp;
+            this.dstPort = dstPort;
+            this.srcIp = srcIp;
+            this.srcPort = srcPort;
+            this.generation = generation;
+            this.action = action;
+        }
+
+        static int hash(String host, byte[] dstIp, int dstPort, byte[] srcIp, int srcPort) {
+            int h = host == null ? 0 : host.hashCode();
+            h = 31 * h + Arrays.hashCode(dstIp);
+            h = 31 * h + dstPort;
+            h = 31 * h + Arrays.hashCode(srcIp);
+            h = 31 * h + srcPort;
+            return h ^ (h >>> 16);
+        }
+
+        boolean matches(String host, byte[] dstIp, int dstPort, byte[] srcIp, int srcPort) {
+            return this.dstPort == dstPort && this.srcPort == srcPort && Objects.equals(this.host, host)
+                    && Arrays.equals(this.dstIp, dstIp) && Arrays.equals(this.srcIp, srcIp);
+        }
+    }
+
     private static final class EndpointTarget {
         final boolean source;
         final boolean ipRule;
@@ -0,0 +1,54 @@
+package org.rx.core;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.rx.io.JdkAndJsonSerializer;
+import org.rx.net.socks.SocksConfig;
+import org.rx.net.udp.UdpPortHoppingConfig;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class DeepClonerBenchmark {
+    SocksConfig config;
+
+    @Setup
+    public void setup() {
+        config = new SocksConfig(1080);
+        config.setCipherKey(new byte[32]);
+        config.setUdp2rawClient(new InetSocketAddress("127.0.0.1", 9000));
+        UdpPortHoppingConfig hopping = new UdpPortHoppingConfig();
+        hopping.setEnabled(true);
+        config.setUdpPortHopping(hopping);
+    }
+
+    @Benchmark
+    public SocksConfig deepCloner() {
+        return DeepCloner.DEFAULT.clone(config);
+    }
+
+    @Benchmark
+    public Object serializer() {
+        return JdkAndJsonSerializer.DEFAULT.deserialize(JdkAndJsonSerializer.DEFAULT.serialize(config));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(DeepClonerBenchmark.class.getSimpleName())
+                .warmupIterations(2)
+                .warmupTime(TimeValue.seconds(3))
+                .measurementIterations(3)
+                .measurementTime(TimeValue.seconds(3))
+                .forks(1)
+                .output("./benchmark.log")
+                .build();
+        new Runner(opt).run();
+    }
+}
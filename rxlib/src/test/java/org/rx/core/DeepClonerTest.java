@@ -0,0 +1,163 @@
+package org.rx.core;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.junit.jupiter.api.Test;
+import org.rx.net.socks.SocksConfig;
+import org.rx.net.udp.UdpPortHoppingConfig;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeepClonerTest {
+    @Getter
+    @Setter
+    public static class Node implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private String name;
+        private Node next;
+        private List<Node> children = new ArrayList<>();
+        private Map<String, Object> attrs = new LinkedHashMap<>();
+        private int[] weights;
+        private transient String cached = "init";
+    }
+
+    @Getter
+    @Setter
+    public static class Hooked implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private int value;
+        private transient String cached = "init";
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+        }
+    }
+
+    @Test
+    public void clonesSocksConfig() {
+        SocksConfig config = new SocksConfig(1080);
+        config.setCipherKey(new byte[]{1, 2, 3});
+        config.setReadTimeoutSeconds(30);
+        config.setUdp2rawClient(new InetSocketAddress("127.0.0.1", 9000));
+        UdpPortHoppingConfig hopping = new UdpPortHoppingConfig();
+        hopping.setEnabled(true);
+        config.setUdpPortHopping(hopping);
+
+        assertNotSame(DeepCloner.SERIALIZE, DeepCloner.DEFAULT.copier(SocksConfig.class));
+        SocksConfig copy = Sys.deepClone(config);
+        assertNotSame(config, copy);
+        assertEquals(config.toString(), copy.toString());
+        assertNotSame(config.getCipherKey(), copy.getCipherKey());
+        assertArrayEquals(config.getCipherKey(), copy.getCipherKey());
+        assertNotSame(config.getUdpPortHopping(), copy.getUdpPortHopping());
+        assertTrue(copy.getUdpPortHopping().isEnabled());
+        //不可变类型共享
+        assertSame(config.getUdp2rawClient(), copy.getUdp2rawClient());
+
+        copy.getCipherKey()[0] = 9;
+        assertEquals(1, config.getCipherKey()[0]);
+    }
+
+    @Test
+    public void doesNotTriggerLazyGetters() {
+        SocksConfig config = new SocksConfig(1080);
+        SocksConfig copy = DeepCloner.DEFAULT.clone(config);
+        assertNotSame(config, copy);
+        assertNull(Reflects.readField(config, "cipherKey"));
+        assertNull(Reflects.readField(config, "transportFlags"));
+        assertNull(Reflects.readField(copy, "cipherKey"));
+        assertNull(Reflects.readField(copy, "transportFlags"));
+    }
+
+    @Test
+    public void clonesCollectionsAndArrays() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("list", new ArrayList<>(java.util.Arrays.asList(1, "a", new int[]{1, 2})));
+        map.put("set", new TreeSet<>(Comparator.reverseOrder()));
+        map.put("cow", new CopyOnWriteArrayList<>(java.util.Arrays.asList(new Date(0L))));
+        map.put("chm", new ConcurrentHashMap<>(Collections.singletonMap("k", new BigDecimal("1.5"))));
+        map.put("objects", new Object[]{"x", new ArrayList<>()});
+        ((TreeSet<Integer>) map.get("set")).addAll(java.util.Arrays.asList(1, 3, 2));
+
+        Map<String, Object> copy = DeepCloner.DEFAULT.clone(map);
+        assertNotSame(map, copy);
+        List<?> list = (List<?>) copy.get("list");
+        assertNotSame(map.get("list"), list);
+        assertArrayEquals(new int[]{1, 2}, (int[]) list.get(2));
+        assertNotSame(((List<?>) map.get("list")).get(2), list.get(2));
+        TreeSet<?> set = (TreeSet<?>) copy.get("set");
+        assertEquals(java.util.Arrays.asList(3, 2, 1), new ArrayList<>(set));
+        Date date = (Date) ((List<?>) copy.get("cow")).get(0);
+        assertEquals(new Date(0L), date);
+        assertNotSame(((List<?>) map.get("cow")).get(0), date);
+        assertTrue(copy.get("chm") instanceof ConcurrentHashMap);
+        Object[] objects = (Object[]) copy.get("objects");
+        assertSame("x", objects[0]);
+        assertNotSame(((Object[]) map.get("objects"))[1], objects[1]);
+
+        String s = "immutable";
+        assertSame(s, DeepCloner.DEFAULT.clone(s));
+        assertNull(DeepCloner.DEFAULT.clone(null));
+    }
+
+    @Test
+    public void preservesSharedAndCyclicReferences() {
+        Node root = new Node();
+        root.setName("root");
+        root.setWeights(new int[]{1});
+        root.setCached("runtime");
+        Node child = new Node();
+        child.setName("child");
+        child.setNext(root);
+        root.setNext(child);
+        root.getChildren().add(child);
+        root.getChildren().add(child);
+        root.getAttrs().put("self", root);
+
+        Node copy = DeepCloner.DEFAULT.clone(root);
+        assertNotSame(root, copy);
+        assertEquals("root", copy.getName());
+        Node childCopy = copy.getNext();
+        assertNotSame(child, childCopy);
+        assertSame(copy, childCopy.getNext());
+        assertSame(childCopy, copy.getChildren().get(0));
+        assertSame(childCopy, copy.getChildren().get(1));
+        assertSame(copy, copy.getAttrs().get("self"));
+        assertNotSame(root.getWeights(), copy.getWeights());
+        //transient 字段取字段初始值
+        assertEquals("init", copy.getCached());
+    }
+
+    @Test
+    public void transientFieldsKeepInitializerValues() {
+        Node node = new Node();
+        node.setCached("runtime");
+        assertSame(DeepCloner.SERIALIZE, DeepCloner.DEFAULT.copier(Hooked.class));
+        assertNotSame(DeepCloner.SERIALIZE, DeepCloner.DEFAULT.copier(Node.class));
+        assertEquals("init", DeepCloner.DEFAULT.clone(node).getCached());
+
+        //退回序列化时不执行字段初始化
+        Hooked hooked = new Hooked();
+        hooked.setCached("runtime");
+        assertNull(DeepCloner.DEFAULT.clone(hooked).getCached());
+    }
+
+    @Test
+    public void serializationHookFallsBack() {
+        assertSame(DeepCloner.SERIALIZE, DeepCloner.DEFAULT.copier(Hooked.class));
+        Hooked hooked = new Hooked();
+        hooked.setValue(7);
+        Hooked copy = DeepCloner.DEFAULT.clone(hooked);
+        assertNotSame(hooked, copy);
+        assertEquals(7, copy.getValue());
+    }
+}
@@ -0,0 +1,111 @@
+package org.rx.core;
+
+import org.junit.jupiter.api.Test;
+import org.rx.annotation.Subscribe;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventBusTest {
+    static class Base {
+    }
+
+    static class Child extends Base {
+    }
+
+    static class Listener {
+        final AtomicInteger base = new AtomicInteger();
+        final AtomicInteger child = new AtomicInteger();
+        final AtomicInteger topic = new AtomicInteger();
+        volatile String thread;
+
+        @Subscribe
+        private void onBase(Base e) {
+            base.incrementAndGet();
+            thread = Thread.currentThread().getName();
+        }
+
+        @Subscribe
+        void onChild(Child e) {
+            child.incrementAndGet();
+        }
+
+        @Subscribe("t1")
+        public int onTopic(Child e) {
+            return topic.incrementAndGet();
+        }
+    }
+
+    @Test
+    void publish_usesCachedDispatchAndInvalidatesOnRegister() {
+        EventBus bus = new EventBus();
+        AtomicInteger dead = new AtomicInteger();
+        bus.setOnDeadEvent(e -> dead.incrementAndGet());
+
+        bus.publish(new Child());
+        assertEquals(1, dead.get());
+
+        Listener listener = new Listener();
+        bus.register(listener);
+        for (int i = 0; i < 3; i++) {
+            bus.publish(new Child());
+        }
+        assertEquals(3, listener.base.get());
+        assertEquals(3, listener.child.get());
+        assertEquals(3, listener.topic.get());
+        assertSame(bus.resolve(Child.class, null), bus.resolve(Child.class, null));
+
+        bus.publish(new Child(), "t1");
+        assertEquals(3, listener.base.get());
+        assertEquals(4, listener.topic.get());
+
+        bus.publish(new Base());
+        assertEquals(4, listener.base.get());
+        assertEquals(3, listener.child.get());
+
+        bus.unregister(listener, "t1");
+        bus.publish(new Child(), "t1");
+        assertEquals(4, listener.topic.get());
+        assertEquals(2, dead.get());
+
+        bus.unregister(listener);
+        bus.publish(new Child());
+        assertEquals(4, listener.base.get());
+        assertEquals(3, dead.get());
+    }
+
+    @Test
+    void resolve_cachesOnlyLiveSubscribers() throws Exception {
+        EventBus bus = new EventBus();
+        bus.setOnDeadEvent(e -> {
+        });
+        for (int i = 0; i < 100; i++) {
+            bus.publish(new Child(), "dead" + i);
+        }
+        assertTrue(bus.dispatchTable.isEmpty());
+
+        Listener listener = new Listener();
+        bus.register(listener);
+        for (int i = 0; i < EventBus.DISPATCH_TOPICS_CAPACITY * 2; i++) {
+            bus.publish(new Child(), i == 0 ? "t1" : "dead" + i);
+        }
+        assertEquals(1, listener.topic.get());
+        assertEquals(1, bus.dispatchTable.get(Child.class).size());
+        assertSame(bus.resolve(Child.class, "t1"), bus.resolve(Child.class, "t1"));
+        assertTrue(EventBus.INVOKER_FACTORIES.get(Listener.class).containsKey(Listener.class.getDeclaredMethod("onTopic", Child.class)));
+    }
+
+    @Test
+    void publishAsync_dispatchesOnAsyncPool() throws Exception {
+        EventBus bus = new EventBus();
+        bus.setAsyncPool(ThreadPool.fixed("EventBusTest", 1, 16));
+        Listener listener = new Listener();
+        bus.register(listener);
+
+        bus.publishAsync(new Base()).get(5, TimeUnit.SECONDS);
+        assertEquals(1, listener.base.get());
+        assertTrue(listener.thread.contains("EventBusTest"), listener.thread);
+    }
+}
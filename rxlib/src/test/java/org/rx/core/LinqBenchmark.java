@@ -0,0 +1,62 @@
+package org.rx.core;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class LinqBenchmark {
+    @Param({"1000", "100000"})
+    int size;
+    List<Integer> source;
+
+    @Setup
+    public void setup() {
+        source = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            source.add(i);
+        }
+    }
+
+    @Benchmark
+    public List<String> eagerChain() {
+        return Linq.from(source).where(p -> (p & 1) == 0).select(p -> p * 3).where(p -> p % 5 != 0).select(p -> p + 1).select(String::valueOf).toList();
+    }
+
+    @Benchmark
+    public List<String> lazyChain() {
+        return Linq.from(source).lazy().where(p -> (p & 1) == 0).select(p -> p * 3).where(p -> p % 5 != 0).select(p -> p + 1).select(String::valueOf).toList();
+    }
+
+    @Benchmark
+    public Integer eagerFirst() {
+        return Linq.from(source).select(p -> p * 3).where(p -> p > 300).take(10).first();
+    }
+
+    @Benchmark
+    public Integer lazyFirst() {
+        return Linq.from(source).lazy().select(p -> p * 3).where(p -> p > 300).take(10).first();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(LinqBenchmark.class.getSimpleName())
+                .warmupIterations(2)
+                .warmupTime(TimeValue.seconds(3))
+                .measurementIterations(3)
+                .measurementTime(TimeValue.seconds(3))
+                .forks(1)
+                .output("./benchmark.log")
+                .build();
+        new Runner(opt).run();
+    }
+}
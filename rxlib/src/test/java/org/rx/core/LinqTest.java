@@ -82,6 +82,74 @@ class LinqTest {
         assertEquals(1, iteratorCalls.get());
     }
 
+    @Test
+    void hashJoinShouldMatchNestedLoopJoin() {
+        List<Integer> small = Arrays.asList(3, 1, 2, null, 3);
+        List<Integer> large = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            large.add(i % 5);
+        }
+        large.add(null);
+
+        //build on inner
+        List<String> expected = Linq.from(large).join(small, (l, r) -> l != null && Objects.equals(l, r), (l, r) -> l + ":" + r).toList();
+        assertEquals(expected, Linq.from(large).join(small, p -> p, p -> p, (l, r) -> l + ":" + r).toList());
+        assertEquals(expected, Linq.from(large, true).join(small, p -> p, p -> p, (l, r) -> l + ":" + r).toList());
+        //build on outer
+        expected = Linq.from(small).join(large, (l, r) -> l != null && Objects.equals(l, r), (l, r) -> l + ":" + r).toList();
+        assertEquals(expected, Linq.from(small).join(large, p -> p, p -> p, (l, r) -> l + ":" + r).toList());
+
+        expected = Linq.from(small).leftJoin(large, (l, r) -> l != null && Objects.equals(l, r), (l, r) -> l + ":" + r).toList();
+        assertEquals(expected, Linq.from(small).leftJoin(large, p -> p, p -> p, (l, r) -> l + ":" + r).toList());
+        assertEquals(expected, Linq.from(small, true).leftJoin(large, p -> p, p -> p, (l, r) -> l + ":" + r).toList());
+        assertEquals(Arrays.asList("5:null", "1:1"), Linq.from(5, 1).leftJoin(Arrays.asList(1, 2, 3), p -> p, p -> p, (l, r) -> l + ":" + r).toList());
+    }
+
+    @Test
+    void groupJoinShouldKeepOuterOrder() {
+        List<String> inner = Arrays.asList("a1", "b1", "a2", "c1");
+
+        List<String> result = Linq.from("c", "a", "d")
+                .groupJoin(inner, p -> p, p -> p.substring(0, 1), (l, g) -> l + "=" + g.toJoinString(","))
+                .toList();
+        assertEquals(Arrays.asList("c=c1", "a=a1,a2", "d="), result);
+
+        result = Linq.from(Arrays.asList("c", "a", "d"), true)
+                .groupJoin(inner, p -> p, p -> p.substring(0, 1), (l, g) -> l + "=" + g.count())
+                .toList();
+        assertEquals(Arrays.asList("c=1", "a=2", "d=0"), result);
+    }
+
+    @Test
+    void lazyShouldMatchEagerAndShortCircuit() {
+        List<Integer> source = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            source.add(i);
+        }
+        AtomicInteger calls = new AtomicInteger();
+        Linq<Integer> q = Linq.from(source).lazy()
+                .where(p -> p % 3 == 0)
+                .select(p -> {
+                    calls.incrementAndGet();
+                    return p * 2;
+                })
+                .skipWhile(p -> p < 12)
+                .take(5);
+        assertEquals(0, calls.get());
+
+        assertEquals(Integer.valueOf(12), q.first());
+        assertTrue(calls.get() < 10);
+        List<Integer> expected = Linq.from(source).where(p -> p % 3 == 0).select(p -> p * 2).skipWhile(p -> p < 12).take(5).toList();
+        assertEquals(expected, q.toList());
+        //re-iterable
+        assertEquals(expected, q.toList());
+        assertEquals(5, q.count());
+
+        assertEquals(Arrays.asList(3, 2, 1), Linq.from(1, 2, 2, 3).lazy().distinct().orderByDescending(p -> p).toList());
+        assertEquals(Arrays.asList(1, 2, 3, 4), Linq.from(Arrays.asList(1, 2), true).lazy().concat(Arrays.asList(3, 4)).orderBy(p -> p).toList());
+        assertEquals(Arrays.asList("1:1", "2:2"), Linq.from(1, 2, 3).lazy().join(Arrays.asList(1, 2), p -> p, p -> p, (l, r) -> l + ":" + r).toList());
+    }
+
     @Test
     void reverseShouldReverseEncounterOrder() {
         assertEquals(Arrays.asList(3, 1, 2), Linq.from(2, 1, 3).reverse().toList());
@@ -38,6 +38,8 @@ public class H2StoreCacheTest extends AbstractTester {
     static class InstrumentedEntityDatabase extends EntityDatabaseImpl {
         final AtomicInteger findByCalls = new AtomicInteger();
         final AtomicInteger deleteCalls = new AtomicInteger();
+        final AtomicInteger mergeBatchCalls = new AtomicInteger();
+        final AtomicInteger deleteBatchCalls = new AtomicInteger();
         volatile boolean blockDelete;
         CountDownLatch deleteStarted = new CountDownLatch(1);
         CountDownLatch allowDelete = new CountDownLatch(1);
@@ -51,6 +53,12 @@ public class H2StoreCacheTest extends AbstractTester {
             allowDelete = new CountDownLatch(1);
         }
 
+        @Override
+        public <T> int[] mergeBatch(List<T> entities) {
+            mergeBatchCalls.incrementAndGet();
+            return super.mergeBatch(entities);
+        }
+
         @Override
         public <T> List<T> findBy(EntityQueryLambda<T> query) {
             findByCalls.incrementAndGet();
@@ -60,21 +68,27 @@ public class H2StoreCacheTest extends AbstractTester {
         @Override
         public <T> boolean deleteById(Class<T> entityType, Serializable id) {
             deleteCalls.incrementAndGet();
-            if (blockDelete) {
-                deleteStarted.countDown();
-                try {
-                    assertTrue(allowDelete.await(2, TimeUnit.SECONDS));
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    fail(e);
-                }
-            }
+            awaitDelete();
             return super.deleteById(entityType, id);
         }
 
+        @Override
+        public int[] executeBatch(String sql, List<List<Object>> argsList) {
+            if (sql.startsWith("DELETE")) {
+                deleteBatchCalls.incrementAndGet();
+                awaitDelete();
+            }
+            return super.executeBatch(sql, argsList);
+        }
+
         @Override
         public <T> long delete(EntityQueryLambda<T> query) {
             deleteCalls.incrementAndGet();
+            awaitDelete();
+            return super.delete(query);
+        }
+
+        void awaitDelete() {
             if (blockDelete) {
                 deleteStarted.countDown();
                 try {
@@ -84,7 +98,6 @@ public class H2StoreCacheTest extends AbstractTester {
                     fail(e);
                 }
             }
-            return super.delete(query);
         }
     }
 
@@ -702,6 +715,44 @@ public class H2StoreCacheTest extends AbstractTester {
         assertEquals(0, cache.pendingWriteCount());
     }
 
+    @Test
+    public void testBurstFlushUsesBatchedMergeAndDelete() {
+        InstrumentedEntityDatabase db = new InstrumentedEntityDatabase(path("h2/batch_flush_" + UUID.randomUUID()));
+        H2StoreCache<String, String> cache = new H2StoreCache<>(db, 64, 1);
+        try {
+            cache.setFlushBatchSize(64);
+            cache.setFlushBatchLatencyMillis(20);
+            int count = 500;
+            for (int i = 0; i < count; i++) {
+                cache.fastPut("batch-" + i, "v" + i);
+            }
+            cache.flush();
+            assertTrue(db.mergeBatchCalls.get() < count / 2, "burst should be merged in batches");
+
+            for (int i = 0; i < count; i += 5) {
+                cache.fastRemove("batch-" + i);
+            }
+            cache.fastPut("batch-1", "v1-new");
+            cache.flush();
+            assertEquals(0, db.deleteCalls.get());
+            assertTrue(db.deleteBatchCalls.get() > 0);
+
+            H2StoreCache<String, String> reader = new H2StoreCache<>(db, 64, 1);
+            try {
+                for (int i = 0; i < count; i++) {
+                    String expected = i % 5 == 0 ? null : i == 1 ? "v1-new" : "v" + i;
+                    assertEquals(expected, reader.get("batch-" + i));
+                }
+                assertEquals(count - count / 5, db.count(new EntityQueryLambda<>(H2CacheItem.class)));
+            } finally {
+                reader.close();
+            }
+        } finally {
+            cache.close();
+            db.close();
+        }
+    }
+
     @Test
     public void testConcurrentMissUsesSingleDbLoadPerKey() throws Exception {
         TrackingEntityDatabase db = new TrackingEntityDatabase();
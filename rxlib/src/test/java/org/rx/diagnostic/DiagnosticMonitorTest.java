@@ -161,6 +161,51 @@ public class DiagnosticMonitorTest {
         }
     }
 
+    @Test
+    public void registryRollupPersistsOneRowPerInterval() throws Exception {
+        DiagnosticConfig config = memConfig("diag_metric_rollup");
+        config.setSampleIntervalMillis(60000L);
+        DiagnosticMonitor monitor = new DiagnosticMonitor(config);
+        monitor.start();
+        try {
+            MetricRegistry.Counter counter = DiagnosticMetrics.counter("rollup.counter", "k=v");
+            for (int i = 0; i < 1000; i++) {
+                counter.increment();
+            }
+            monitor.rollupMetrics();
+            assertTrue(monitor.getStore().flush(5000L));
+            assertEquals(1, countWhere(config, "diag_metric_sample", "metric='rollup.counter' AND tags='k=v' AND metric_value=1000"));
+        } finally {
+            monitor.close();
+        }
+    }
+
+    @Test
+    public void entityDatabaseSqlMetricsRollUpPerInterval() throws Exception {
+        DiagnosticConfig config = memConfig("diag_metric_sql_rollup");
+        config.setSampleIntervalMillis(60000L);
+        DiagnosticMonitor monitor = new DiagnosticMonitor(config);
+        monitor.start();
+        String jdbcUrl = "jdbc:h2:mem:diag_sql_rollup_" + System.nanoTime()
+                + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;MODE=MySQL";
+        EntityDatabaseImpl db = new EntityDatabaseImpl(jdbcUrl, null, 1, true);
+        try {
+            db.executeUpdate("CREATE TABLE diag_sql_rollup(id INT PRIMARY KEY)");
+            monitor.rollupMetrics();
+            for (int i = 0; i < 50; i++) {
+                db.executeUpdate("INSERT INTO diag_sql_rollup(id) VALUES (" + i + ")");
+            }
+            monitor.rollupMetrics();
+            assertTrue(monitor.getStore().flush(5000L));
+            assertEquals(1, countWhere(config, "diag_metric_sample", "metric='rx.entity_db.sql.count' AND tags='db=jdbc' AND metric_value>=50"));
+            assertTrue(countWhere(config, "diag_metric_sample", "metric='rx.entity_db.sql.elapsed.millis.p99'") >= 1);
+            assertEquals(0, countWhere(config, "diag_metric_sample", "metric='rx.entity_db.sql.elapsed.millis'"));
+        } finally {
+            db.close();
+            monitor.close();
+        }
+    }
+
     @Test
     public void diagnosticRecordFailuresDoNotAffectBusinessFlow() {
         DiagnosticConfig config = memConfig("diag_record_failure_isolation");
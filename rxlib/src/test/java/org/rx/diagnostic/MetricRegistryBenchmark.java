@@ -0,0 +1,52 @@
+package org.rx.diagnostic;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.rx.net.UdpMetrics;
+
+/**
+ * Per-event recording cost: pre-registered handles vs the cached
+ * reason/bucket lookup used by UDP drop paths.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class MetricRegistryBenchmark {
+    final MetricRegistry registry = new MetricRegistry();
+    final MetricRegistry.Counter counter = registry.counter("bench.counter", "k=v");
+    final MetricRegistry.Histogram histogram = registry.histogram("bench.histogram", "k=v");
+    long value;
+
+    @Benchmark
+    public void counterIncrement() {
+        counter.increment();
+    }
+
+    @Benchmark
+    public void histogramRecord() {
+        histogram.record(++value & 0xFFFFF);
+    }
+
+    @Benchmark
+    public void udpDropLookup() {
+        UdpMetrics.of("bench.udp", "path=bench").dropMetrics("write-fail", 128, 0).drops.increment();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(MetricRegistryBenchmark.class.getSimpleName())
+                .threads(4)
+                .warmupIterations(2)
+                .warmupTime(TimeValue.seconds(2))
+                .measurementIterations(3)
+                .measurementTime(TimeValue.seconds(3))
+                .forks(1)
+                .output("./benchmark.log")
+                .build();
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,90 @@
+package org.rx.diagnostic;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricRegistryTest {
+    @Test
+    public void counterRollsUpIntervalDelta() {
+        MetricRegistry registry = new MetricRegistry();
+        MetricRegistry.Counter counter = registry.counter("udp", "drop.count", "reason=a");
+        assertSame(counter, registry.counter("udp", "drop.count", "reason=a"));
+        assertEquals("udp.drop.count", counter.getName());
+        counter.add(3);
+        counter.increment();
+
+        List<DiagnosticMetric> rows = registry.rollup(1L);
+        assertEquals(1, rows.size());
+        assertEquals(4D, rows.get(0).getValue());
+        assertEquals("reason=a", rows.get(0).getTags());
+        //no delta, no row
+        assertTrue(registry.rollup(2L).isEmpty());
+        counter.increment();
+        assertEquals(1D, registry.rollup(3L).get(0).getValue());
+    }
+
+    @Test
+    public void gaugeReportsLatestValue() {
+        MetricRegistry registry = new MetricRegistry();
+        MetricRegistry.Gauge gauge = registry.gauge("queue.size", null);
+        assertTrue(registry.rollup(1L).isEmpty());
+        gauge.set(5);
+        gauge.set(7);
+        assertEquals(7D, registry.rollup(2L).get(0).getValue());
+        assertThrows(IllegalArgumentException.class, () -> registry.counter("queue.size", null));
+    }
+
+    @Test
+    public void collectorsRunBeforeRollup() {
+        MetricRegistry registry = new MetricRegistry();
+        MetricRegistry.Gauge gauge = registry.gauge("rate.bps", null);
+        int[] calls = {0};
+        registry.addCollector(() -> gauge.set(++calls[0] * 10));
+        registry.addCollector(() -> {
+            throw new IllegalStateException("skipped");
+        });
+        assertEquals(10D, registry.rollup(1L).get(0).getValue());
+        assertEquals(20D, registry.rollup(2L).get(0).getValue());
+    }
+
+    @Test
+    public void histogramBucketsAreContiguous() {
+        for (int i = 0; i < MetricRegistry.Histogram.BUCKETS - 1; i++) {
+            assertEquals(MetricRegistry.Histogram.upperBound(i) + 1, MetricRegistry.Histogram.lowerBound(i + 1), "bucket " + i);
+        }
+        long[] samples = {0, 1, 15, 16, 17, 1000, 123456789L, Long.MAX_VALUE};
+        for (long v : samples) {
+            int index = MetricRegistry.Histogram.index(v);
+            assertTrue(MetricRegistry.Histogram.lowerBound(index) <= v && v <= MetricRegistry.Histogram.upperBound(index), String.valueOf(v));
+        }
+    }
+
+    @Test
+    public void histogramPercentilesWithinBucketError() {
+        MetricRegistry registry = new MetricRegistry();
+        MetricRegistry.Histogram histogram = registry.histogram("latency.micros");
+        for (int i = 1; i <= 10000; i++) {
+            histogram.record(i);
+        }
+        List<DiagnosticMetric> rows = registry.rollup(1L);
+        assertEquals(6, rows.size());
+        assertEquals(10000D, value(rows, "latency.micros.count"));
+        assertEquals(5000.5D, value(rows, "latency.micros.avg"), 0.001D);
+        assertEquals(5000D, value(rows, "latency.micros.p50"), 5000D / MetricRegistry.Histogram.SUB_BUCKETS);
+        assertEquals(9900D, value(rows, "latency.micros.p99"), 9900D / MetricRegistry.Histogram.SUB_BUCKETS);
+        assertTrue(value(rows, "latency.micros.max") >= 10000D);
+        assertTrue(registry.rollup(2L).isEmpty());
+    }
+
+    static double value(List<DiagnosticMetric> rows, String name) {
+        for (DiagnosticMetric row : rows) {
+            if (row.getName().equals(name)) {
+                return row.getValue();
+            }
+        }
+        throw new AssertionError(name);
+    }
+}
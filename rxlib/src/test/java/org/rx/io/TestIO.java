@@ -15,6 +15,7 @@ import org.rx.annotation.DbColumn;
 import org.rx.bean.*;
 import org.rx.core.*;
 import org.rx.exception.TraceHandler;
+import org.rx.net.http.HttpClient;
 import org.rx.net.socks.SocksUser;
 import org.rx.test.GirlBean;
 import org.rx.test.PersonBean;
@@ -23,6 +24,7 @@ import org.rx.test.PersonGender;
 import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.io.Serializable;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
@@ -33,8 +35,12 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -236,6 +242,438 @@ public class TestIO extends AbstractTester {
         kv.close();
     }
 
+    @Test
+    public void kvCompact() {
+        KeyValueStoreConfig conf = kvConf();
+        conf.setDirectoryPath(path("kvCompact/"));
+        conf.setCompactPeriodMillis(0);
+        KeyValueStore<Integer, String> kv = new KeyValueStore<>(conf);
+        kv.clear();
+
+        int c = 100;
+        for (int r = 0; r < 3; r++) {
+            for (int i = 0; i < c; i++) {
+                kv.fastPut(i, i + "-" + r);
+            }
+        }
+        for (int i = 0; i < 10; i++) {
+            kv.fastRemove(i);
+        }
+        assert kv.size() == c - 10;
+        log.info("before compact logBytes={} deadRatio={}", kv.getLogBytes(), kv.getDeadRatio());
+        assert kv.getDeadRatio() > 0.6f;
+
+        long logBytes = kv.getLogBytes();
+        long reclaimed = kv.compact();
+        log.info("after compact reclaimed={} logBytes={}", reclaimed, kv.getLogBytes());
+        assert reclaimed > 0 && kv.getLogBytes() < logBytes;
+        assert kv.getDeadRatio() == 0;
+        assert kv.size() == c - 10;
+        for (int i = 0; i < c; i++) {
+            assert i < 10 ? kv.get(i) == null : kv.get(i).equals(i + "-2");
+        }
+
+        kv.fastPut(1, "1-3");
+        kv.close();
+
+        kv = new KeyValueStore<>(conf);
+        assert kv.size() == c - 9;
+        assert kv.get(1).equals("1-3");
+        assert kv.get(50).equals("50-2");
+        kv.close();
+    }
+
+    @SneakyThrows
+    @Test
+    public void kvCompactReindexCompressed() {
+        KeyValueStoreConfig conf = kvConf();
+        conf.setDirectoryPath(path("kvCompactReindex/"));
+        conf.setCompactPeriodMillis(0);
+        KeyValueStore<Integer, PersonBean> kv = new KeyValueStore<>(conf);
+        kv.clear();
+
+        int c = 50;
+        for (int r = 0; r < 2; r++) {
+            for (int i = 0; i < c; i++) {
+                kv.fastPut(i, i % 2 == 0 ? PersonBean.LeZhi : PersonBean.YouFan);
+            }
+        }
+        kv.fastRemove(0);
+        assert kv.compact() > 0;
+        kv.close();
+
+        //interrupted compaction, the index is rebuilt by a forward scan over gzip records
+        assert kv.segmentFile(KeyValueStore.REINDEX_EXT).createNewFile();
+        kv = new KeyValueStore<>(conf);
+        assert !kv.segmentFile(KeyValueStore.REINDEX_EXT).exists();
+        assert kv.size() == c - 1;
+        assert kv.get(0) == null;
+        for (int i = 1; i < c; i++) {
+            assert kv.get(i).equals(i % 2 == 0 ? PersonBean.LeZhi : PersonBean.YouFan);
+        }
+        kv.close();
+    }
+
+    @SneakyThrows
+    @Test
+    public void kvCheckpoint() {
+        KeyValueStoreConfig conf = kvConf();
+        conf.setDirectoryPath(path("kvCheckpoint/"));
+        conf.setCompactPeriodMillis(0);
+        conf.setCheckpointPeriodMillis(0);
+        KeyValueStore<Integer, String> kv = new KeyValueStore<>(conf);
+        kv.clear();
+
+        for (int i = 0; i < 50; i++) {
+            kv.fastPut(i, "v" + i);
+        }
+        kv.checkpoint();
+        File ckp = kv.segmentFile(KeyValueStore.CHECKPOINT_EXT);
+        byte[] staleCkp = java.nio.file.Files.readAllBytes(ckp.toPath());
+        for (int i = 50; i < 100; i++) {
+            kv.fastPut(i, "v" + i);
+        }
+        kv.fastRemove(0);
+        kv.close();
+
+        kv = new KeyValueStore<>(conf);
+        assert kv.getRecoveryBytes() == 0;
+        kv.close();
+
+        //roll back the checkpoint, the tail after it is replayed
+        java.nio.file.Files.write(ckp.toPath(), staleCkp);
+        kv = new KeyValueStore<>(conf);
+        log.info("recovery {} bytes in {}ms", kv.getRecoveryBytes(), kv.getRecoveryMillis());
+        assert kv.getRecoveryBytes() > 0;
+        assert kv.size() == 99;
+        assert kv.get(0) == null;
+        for (int i = 1; i < 100; i++) {
+            assert kv.get(i).equals("v" + i);
+        }
+        kv.close();
+    }
+
+    @SneakyThrows
+    @Test
+    public void kvRecoveryStopsAtCorruptRecord() {
+        KeyValueStoreConfig conf = kvConf();
+        conf.setDirectoryPath(path("kvCorrupt/"));
+        conf.setCompactPeriodMillis(0);
+        conf.setCheckpointPeriodMillis(0);
+        KeyValueStore<Integer, String> kv = new KeyValueStore<>(conf);
+        kv.clear();
+
+        for (int i = 0; i < 10; i++) {
+            kv.fastPut(i, "v" + i);
+        }
+        kv.checkpoint();
+        long ckpPos = kv.wal.getPosition();
+        File ckp = kv.segmentFile(KeyValueStore.CHECKPOINT_EXT);
+        byte[] staleCkp = java.nio.file.Files.readAllBytes(ckp.toPath());
+        long corruptPos = 0;
+        for (int i = 10; i < 20; i++) {
+            if (i == 15) {
+                corruptPos = kv.wal.getPosition();
+            }
+            kv.fastPut(i, "v" + i);
+        }
+        String logPath = kv.wal.file.getPath();
+        kv.close();
+
+        java.nio.file.Files.write(ckp.toPath(), staleCkp);
+        try (RandomAccessFile raf = new RandomAccessFile(logPath, "rw")) {
+            long p = corruptPos + KeyValueStore.RECORD_HEADER_SIZE + 2;
+            raf.seek(p);
+            int b = raf.read();
+            raf.seek(p);
+            raf.write(b ^ 0xFF);
+        }
+
+        kv = new KeyValueStore<>(conf);
+        //replay ends at the record failing its checksum, payload bytes never pass for a record end
+        assert kv.getRecoveryBytes() == corruptPos - ckpPos;
+        assert kv.get(14).equals("v14");
+        assert kv.get(15) == null;
+        kv.close();
+    }
+
+    @SneakyThrows
+    @Test
+    public void kvRemoveReplayedFromCheckpoint() {
+        KeyValueStoreConfig conf = kvConf();
+        conf.setDirectoryPath(path("kvRemoveReplay/"));
+        conf.setCompactPeriodMillis(0);
+        conf.setCheckpointPeriodMillis(0);
+        KeyValueStore<Integer, String> kv = new KeyValueStore<>(conf);
+        kv.clear();
+
+        for (int i = 0; i < 20; i++) {
+            kv.fastPut(i, "v" + i);
+        }
+        kv.checkpoint();
+        File ckp = kv.segmentFile(KeyValueStore.CHECKPOINT_EXT), idx = kv.segmentFile("idx");
+        byte[] staleCkp = java.nio.file.Files.readAllBytes(ckp.toPath());
+        byte[] staleIdx = java.nio.file.Files.readAllBytes(idx.toPath());
+        long removedPos = kv.indexer.find(3).logPosition;
+        kv.fastRemove(3);
+        kv.fastPut(20, "v20");
+        String logPath = kv.wal.file.getPath();
+        kv.close();
+
+        //crash before the index and the in-place tombstone reached the disk
+        java.nio.file.Files.write(ckp.toPath(), staleCkp);
+        java.nio.file.Files.write(idx.toPath(), staleIdx);
+        try (RandomAccessFile raf = new RandomAccessFile(logPath, "rw")) {
+            raf.seek(removedPos);
+            raf.write(0);
+        }
+
+        kv = new KeyValueStore<>(conf);
+        assert kv.get(3) == null;
+        assert kv.size() == 20;
+        assert kv.get(20).equals("v20");
+        kv.close();
+
+        kv = new KeyValueStore<>(conf);
+        assert kv.get(3) == null;
+        assert kv.size() == 20;
+        kv.close();
+    }
+
+    @Test
+    public void kvUpgradeLegacyLog() {
+        KeyValueStoreConfig conf = kvConf();
+        conf.setDirectoryPath(path("kvLegacy/"));
+        conf.setCompactPeriodMillis(0);
+        conf.setCheckpointPeriodMillis(0);
+        writeLegacyLog(conf);
+
+        assertLegacyUpgraded(new KeyValueStore<>(conf));
+    }
+
+    @Test
+    public void kvUpgradeLegacyLogWithoutIndex() {
+        KeyValueStoreConfig conf = kvConf();
+        conf.setDirectoryPath(path("kvLegacyNoIdx/"));
+        conf.setCompactPeriodMillis(0);
+        conf.setCheckpointPeriodMillis(0);
+        File idx = writeLegacyLog(conf);
+        assert idx.delete();
+
+        assertLegacyUpgraded(new KeyValueStore<>(conf));
+    }
+
+    /**
+     * Unframed records as written before RECORD_FORMAT: 0..19 with a checkpoint, then 3 removed, 5 removed with the
+     * index update lost and 7 put again with the in-place tombstone and the index update lost.
+     */
+    File writeLegacyLog(KeyValueStoreConfig conf) {
+        KeyValueStore<Integer, String> legacy = new KeyValueStore<>(conf);
+        legacy.clear();
+        WALFileStream wal = legacy.wal;
+        Map<Integer, Long> positions = new HashMap<>();
+        wal.lock.writeInvoke(() -> {
+            for (int i = 0; i < 20; i++) {
+                long pos = writeLegacyRecord(legacy, i, "v" + i);
+                positions.put(i, pos);
+                KeyIndexer.KeyEntity<Integer> key = legacy.indexer.newKey(i);
+                key.logPosition = pos;
+                legacy.indexer.save(key);
+            }
+            wal.setSize(20, 20);
+        }, WALFileStream.HEADER_SIZE);
+        wal.setFormatVersion(0);
+        legacy.checkpoint();
+
+        wal.lock.writeInvoke(() -> {
+            long end = wal.getPosition();
+            for (int k : new int[]{3, 5}) {
+                wal.setPosition(positions.get(k));
+                wal.write(KeyValueStore.TOMB_MARK);
+            }
+            wal.setPosition(end);
+            KeyIndexer.KeyEntity<Integer> key = legacy.indexer.find(3);
+            key.logPosition = KeyValueStore.TOMB_MARK;
+            legacy.indexer.save(key);
+
+            writeLegacyRecord(legacy, 7, "v7|");
+            wal.setSize(19, 21);
+        }, WALFileStream.HEADER_SIZE);
+        File idx = legacy.segmentFile("idx");
+        legacy.close();
+        return idx;
+    }
+
+    long writeLegacyRecord(KeyValueStore<Integer, String> kv, int k, String v) {
+        long pos = kv.wal.getPosition();
+        kv.wal.write(0);
+        kv.serializer.serialize(new KeyValueStore.Entry<>(k, v), kv.wal);
+        kv.wal.writeInt((int) (kv.wal.getPosition() - pos));
+        return pos;
+    }
+
+    void assertLegacyUpgraded(KeyValueStore<Integer, String> kv) {
+        assert kv.wal.getFormatVersion() == KeyValueStore.RECORD_FORMAT;
+        assert kv.size() == 18;
+        for (int i = 0; i < 20; i++) {
+            String v = kv.get(i);
+            assert i == 3 || i == 5 ? v == null : v.equals(i == 7 ? "v7|" : "v" + i);
+        }
+        Set<Integer> keys = new HashSet<>();
+        kv.scan().forEachRemaining(e -> keys.add(e.getKey()));
+        assert keys.size() == 18;
+        kv.close();
+    }
+
+    @Test
+    public void kvHashIndex() {
+        KeyValueStoreConfig conf = kvConf();
+        conf.setDirectoryPath(path("kvHashIndex/"));
+        conf.setIndexerType(KeyValueStoreConfig.IndexerType.HASH);
+        conf.setCompactPeriodMillis(0);
+        KeyValueStore<Integer, String> kv = new KeyValueStore<>(conf);
+        kv.clear();
+
+        int c = 2000;
+        for (int i = 0; i < c; i++) {
+            kv.fastPut(i, "v" + i);
+        }
+        HashKeyIndexer<Integer> indexer = (HashKeyIndexer<Integer>) kv.indexer;
+        log.info("idx {}", indexer);
+        assert indexer.size() == c && indexer.capacity > c;
+        for (int i = 0; i < c; i += 2) {
+            kv.fastRemove(i);
+        }
+        kv.fastPut(1, "v1|");
+        assert kv.size() == c / 2;
+        assert kv.get(0) == null;
+        assert kv.get(1).equals("v1|");
+        assert kv.get(c - 1).equals("v" + (c - 1));
+
+        kv.compact();
+        assert kv.get(1).equals("v1|");
+        assert kv.get(3).equals("v3");
+        kv.close();
+
+        kv = new KeyValueStore<>(conf);
+        assert kv.size() == c / 2;
+        assert kv.get(2) == null;
+        assert kv.get(1).equals("v1|");
+        assert kv.get(c - 1).equals("v" + (c - 1));
+        kv.close();
+    }
+
+    @SneakyThrows
+    @Test
+    public void kvWriteBatch() {
+        KeyValueStoreConfig conf = kvConf();
+        conf.setDirectoryPath(path("kvWriteBatch/"));
+        conf.setCompactPeriodMillis(0);
+        KeyValueStore<Integer, String> kv = new KeyValueStore<>(conf);
+        kv.clear();
+
+        kv.fastPut(0, "v0");
+        kv.newBatch().put(1, "v1").put(2, "v2").put(1, "v1|").remove(0).remove(9).commit();
+        assert kv.size() == 2;
+        assert kv.get(0) == null;
+        assert kv.get(1).equals("v1|");
+        assert kv.get(2).equals("v2");
+
+        int threads = 8, c = 500;
+        CountDownLatch latch = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int n = t;
+            KeyValueStore<Integer, String> store = kv;
+            Tasks.run(() -> {
+                try {
+                    for (int i = 0; i < c; i += 50) {
+                        KeyValueStore<Integer, String>.WriteBatch batch = store.newBatch();
+                        for (int j = i; j < i + 50; j++) {
+                            int k = n * c + j;
+                            batch.put(k, "v" + k);
+                        }
+                        batch.commit();
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+        assert kv.size() == threads * c;
+        assert kv.get(1).equals("v1");
+        assert kv.get(threads * c - 1).equals("v" + (threads * c - 1));
+
+        Map<Integer, String> m = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            m.put(i, "m" + i);
+        }
+        kv.putAll(m);
+        assert kv.size() == threads * c;
+        assert kv.get(99).equals("m99");
+        //unchanged values are not rewritten
+        long appendCount = kv.wal.getAppendCount();
+        m.put(1, "m1|");
+        kv.putAll(m);
+        assert kv.wal.getAppendCount() == appendCount + 1;
+        assert kv.get(1).equals("m1|");
+        kv.close();
+
+        kv = new KeyValueStore<>(conf);
+        assert kv.size() == threads * c;
+        assert kv.get(0).equals("m0");
+        assert kv.get(1).equals("m1|");
+        assert kv.get(100).equals("v100");
+        kv.close();
+    }
+
+    @Test
+    public void kvScan() {
+        KeyValueStoreConfig conf = KeyValueStoreConfig.newConfig(String.class, String.class);
+        conf.setLogGrowSize(Constants.KB * 64);
+        conf.setIndexBufferSize(Constants.KB * 4);
+        conf.setDirectoryPath(path("kvScan/"));
+        conf.setCompactPeriodMillis(0);
+        conf.setIteratorPrefetchCount(8);
+        conf.setApiPort(8071);
+        KeyValueStore<String, String> kv = new KeyValueStore<>(conf);
+        kv.clear();
+
+        int c = 200;
+        KeyValueStore<String, String>.WriteBatch batch = kv.newBatch();
+        for (int i = 0; i < c; i++) {
+            batch.put(String.format("k%03d", i), "v" + i);
+        }
+        batch.put("a0", "a0").remove("k000").put("k001", "v1|");
+        batch.commit();
+
+        Map<String, String> all = new HashMap<>();
+        kv.scan().forEachRemaining(e -> all.put(e.getKey(), e.getValue()));
+        assert all.size() == c;
+        assert !all.containsKey("k000");
+        assert all.get("k001").equals("v1|");
+
+        List<String> prefix = new ArrayList<>();
+        kv.scanPrefix("k1").forEachRemaining(e -> prefix.add(e.getKey()));
+        assert prefix.size() == 100;
+
+        List<String> range = new ArrayList<>();
+        kv.scanRange("k010", "k020").forEachRemaining(e -> range.add(e.getValue()));
+        assert range.size() == 10 && range.contains("v15");
+
+        try (HttpClient client = new HttpClient()) {
+            Map<String, Object> req = new HashMap<>();
+            req.put("prefix", "k19");
+            try (HttpClient.Response res = client.postJson("http://127.0.0.1:8071/scan", req)) {
+                String[] lines = res.bodyAsString().split("\n");
+                log.info("scan lines {}", lines.length);
+                assert lines.length == 10;
+                assert lines[0].contains("\"key\":\"k19");
+            }
+        }
+        kv.close();
+    }
+
     private KeyValueStoreConfig kvConf() {
         KeyValueStoreConfig conf = KeyValueStoreConfig.newConfig(Object.class, Object.class);
         conf.setLogGrowSize(Constants.KB * 64);
@@ -270,6 +708,34 @@ public class TestIO extends AbstractTester {
         log.info("{}", indexer);
     }
 
+    @Test
+    public void kvsIdxScanByRange() {
+        ExternalSortingIndexer<Long> indexer = new ExternalSortingIndexer<>(new File(path("tstScan.idx")), 1024, 1);
+        indexer.clear();
+        //uncached partitions are read by cursor range
+        indexer.setEnableCache(false);
+        int c = 300;
+        for (long i = 1; i <= c; i++) {
+            KeyIndexer.KeyEntity<Long> k = indexer.newKey(i);
+            k.logPosition = i;
+            indexer.save(k);
+        }
+        assert indexer.partitions.size() > 1;
+
+        Set<Long> all = new HashSet<>();
+        indexer.forEach(k -> all.add(k.logPosition));
+        assert all.size() == c;
+        List<Long> scanned = new ArrayList<>();
+        long cursor = 0;
+        do {
+            cursor = indexer.scan(cursor, 7, k -> scanned.add(k.logPosition));
+        }
+        while (cursor != Constants.IO_EOF);
+        assert scanned.size() == c;
+        assert new HashSet<>(scanned).equals(all);
+        indexer.close();
+    }
+
     @Test
     public void kvsIdx() {
         ExternalSortingIndexer<Long> indexer = new ExternalSortingIndexer<>(new File("./data/tst.idx"), 1024, 1);
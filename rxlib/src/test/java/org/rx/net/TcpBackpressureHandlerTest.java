@@ -72,6 +72,39 @@ public class TcpBackpressureHandlerTest {
         }
     }
 
+    @SneakyThrows
+    @Test
+    public void backpressureEndKeepsShapingPause() {
+        EmbeddedChannel left = new EmbeddedChannel();
+        EmbeddedChannel right = new EmbeddedChannel();
+        right.config().setOption(ChannelOption.WRITE_BUFFER_WATER_MARK, WriteBufferWaterMark.DEFAULT);
+
+        try {
+            TcpBackpressureHandler.installIfAbsent(left, right);
+            TcpBackpressureHandler handler = right.pipeline().get(TcpBackpressureHandler.class);
+            Sockets.pauseRead(left, Sockets.READ_PAUSE_SHAPING);
+            assertFalse(left.config().isAutoRead());
+
+            right.unsafe().outboundBuffer().setUserDefinedWritability(1, false);
+            right.pipeline().fireChannelWritabilityChanged();
+            assertTrue(handler.isPaused());
+            assertEquals(Sockets.READ_PAUSE_SHAPING | Sockets.READ_PAUSE_BACKPRESSURE, Sockets.getReadPauseReasons(left));
+
+            Thread.sleep(TcpBackpressureHandler.COOLDOWN_MILLIS + 20);
+            right.unsafe().outboundBuffer().setUserDefinedWritability(1, true);
+            right.pipeline().fireChannelWritabilityChanged();
+            assertFalse(handler.isPaused());
+            //限速暂停未到期，不能被背压恢复打开
+            assertFalse(left.config().isAutoRead());
+
+            assertTrue(Sockets.resumeRead(left, Sockets.READ_PAUSE_SHAPING));
+            assertTrue(left.config().isAutoRead());
+        } finally {
+            right.finishAndReleaseAll();
+            left.finishAndReleaseAll();
+        }
+    }
+
     @SneakyThrows
     @Test
     public void testFlow() {
@@ -0,0 +1,57 @@
+package org.rx.net;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+    static final long MS = 1_000_000L;
+
+    @Test
+    void unlimited_neverDelays() {
+        TokenBucket bucket = new TokenBucket(0L, 0L);
+        assertFalse(bucket.isLimited());
+        assertEquals(0L, bucket.consume(Long.MAX_VALUE / 4, 0L));
+        assertEquals(Long.MAX_VALUE / 4, bucket.consumedBytes());
+    }
+
+    @Test
+    void burstIsFreeThenDebtDelays() {
+        //1000 B/s, 100ms burst => 100 bytes pass immediately
+        TokenBucket bucket = new TokenBucket(1000L, 100L);
+        long now = System.nanoTime();
+        assertEquals(0L, bucket.consume(100L, now));
+        assertEquals(100L * MS, bucket.consume(100L, now));
+        assertEquals(200L * MS, bucket.consume(100L, now));
+        assertEquals(300L, bucket.consumedBytes());
+    }
+
+    @Test
+    void idleRefills() {
+        TokenBucket bucket = new TokenBucket(1000L, 0L);
+        long now = System.nanoTime();
+        assertEquals(500L * MS, bucket.consume(500L, now));
+        //debt repaid after 500ms, an idle bucket only charges the new read
+        assertEquals(MS, bucket.consume(1L, now + 2000L * MS));
+    }
+
+    @Test
+    void reconfigureAppliesNewRate() {
+        TokenBucket bucket = new TokenBucket(1000L, 0L);
+        long now = System.nanoTime();
+        bucket.configure(2000L, 0L);
+        assertEquals(2000L, bucket.getBytesPerSecond());
+        assertEquals(500L * MS, bucket.consume(1000L, now));
+    }
+
+    @Test
+    void delayReportsDebtWithoutConsuming() {
+        TokenBucket bucket = new TokenBucket(1000L, 0L);
+        long now = System.nanoTime();
+        assertEquals(0L, bucket.delay(now));
+        assertEquals(500L * MS, bucket.consume(500L, now));
+        assertEquals(300L * MS, bucket.delay(now + 200L * MS));
+        assertEquals(0L, bucket.delay(now + 600L * MS));
+        assertEquals(500L, bucket.consumedBytes());
+    }
+}
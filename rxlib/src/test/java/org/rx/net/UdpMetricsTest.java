@@ -0,0 +1,43 @@
+package org.rx.net;
+
+import org.junit.jupiter.api.Test;
+import org.rx.diagnostic.DiagnosticMetrics;
+import org.rx.diagnostic.MetricRegistry;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+public class UdpMetricsTest {
+    @Test
+    public void handlesResolvedOncePerReasonAndBucket() {
+        UdpMetrics metrics = UdpMetrics.of("test.udpmetrics", "case=handles");
+        assertSame(metrics, UdpMetrics.of("test.udpmetrics", "case=handles"));
+        assertNull(UdpMetrics.of(null, "case=handles"));
+
+        UdpMetrics.DropMetrics drop = metrics.dropMetrics("write-fail", 128, 0);
+        assertSame(drop, metrics.dropMetrics("write-fail", 64 * 1024, 0));
+        assertSame(drop.drops, MetricRegistry.DEFAULT.counter("test.udpmetrics", "drop.count",
+                "case=handles,reason=write-fail,limitBucket=lte64k"));
+        assertEquals("case=handles,reason=write-fail,limitBucket=lte64k", drop.drops.getTags());
+        assertEquals("test.udpmetrics.pending.write.bytes", drop.pendingBytes.getName());
+
+        UdpMetrics.DropMetrics packets = metrics.dropMetrics("write-fail", 128, 100);
+        assertNotSame(drop, packets);
+        assertEquals("case=handles,reason=write-fail,limitBucket=lte64k,packetLimitBucket=lte128", packets.drops.getTags());
+        assertEquals("case=handles,reason=x,limitBucket=gt1m",
+                UdpMetrics.of("test.udpmetrics", "case=handles").dropMetrics("x", 2 * 1024 * 1024, 0).drops.getTags());
+        assertEquals("reason=x,limitBucket=lte256k",
+                UdpMetrics.of("test.udpmetrics", null).dropMetrics("x", 128 * 1024, 0).drops.getTags());
+    }
+
+    @Test
+    public void recordingGatedOnMonitor() {
+        assumeFalse(DiagnosticMetrics.isEnabled());
+        UdpMetrics metrics = UdpMetrics.of("test.udpmetrics", "case=gate");
+        metrics.recordDrop("inactive", 0, 0, 10, 1);
+        metrics.recordMtuDrop(1300, 1400);
+        metrics.add("any.count", 1);
+        assertEquals(0L, metrics.dropMetrics("inactive", 0, 0).drops.sum());
+        assertEquals(0L, metrics.counter("any.count").sum());
+    }
+}
@@ -0,0 +1,119 @@
+package org.rx.net.dns;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.dns.*;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.rx.core.RxConfig;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+
+/**
+ * UDP query QPS against a local DnsServer whose response cache is pre-filled,
+ * comparing the wire-format hit path with DnsResponse rebuild + encode.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class DnsCacheHitBenchmark {
+    static final String DOMAIN = "bench.example.com";
+
+    @State(Scope.Thread)
+    public static class Client {
+        DatagramSocket socket;
+        byte[] query;
+        final byte[] reply = new byte[512];
+        int id;
+
+        @Setup
+        public void setup() throws Exception {
+            socket = new DatagramSocket();
+            socket.setSoTimeout(2000);
+            ByteBuf buf = Unpooled.buffer(64);
+            DoHMessageCodec.encodeQuery(buf, 0, DOMAIN, DnsRecordType.A);
+            query = new byte[buf.readableBytes()];
+            buf.readBytes(query);
+            buf.release();
+        }
+
+        @TearDown
+        public void tearDown() {
+            socket.close();
+        }
+    }
+
+    @Param({"true", "false"})
+    boolean wireFormat;
+    boolean cacheEnabled;
+    boolean wireFormatBefore;
+    DnsServer server;
+    InetSocketAddress endpoint;
+
+    @Setup
+    public void setup() throws Exception {
+        RxConfig.DnsCacheConfig config = RxConfig.INSTANCE.getNet().getDns().getCache();
+        cacheEnabled = config.isCacheEnabled();
+        wireFormatBefore = config.isWireFormat();
+        config.setCacheEnabled(true);
+        config.setWireFormat(wireFormat);
+        int port = DnsOptimizationTest.freePort();
+        server = new DnsServer(port, Collections.singletonList(new InetSocketAddress("127.0.0.1", 9)));
+        endpoint = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+
+        DefaultDnsResponse response = new DefaultDnsResponse(1, DnsOpCode.QUERY, DnsResponseCode.NOERROR);
+        response.setRecursionAvailable(true);
+        for (int i = 1; i <= 4; i++) {
+            response.addRecord(DnsSection.ANSWER, new DefaultDnsRawRecord(DOMAIN + ".", DnsRecordType.A,
+                    DnsRecord.CLASS_IN, 86400, Unpooled.wrappedBuffer(new byte[]{(byte) 198, 51, 100, (byte) i})));
+        }
+        try {
+            DnsResolveCore.cacheUpstreamResponse(server, server.responseCacheKey(DOMAIN, DnsRecordType.A, DnsRecord.CLASS_IN),
+                    response, config);
+        } finally {
+            ReferenceCountUtil.release(response);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+        RxConfig.DnsCacheConfig config = RxConfig.INSTANCE.getNet().getDns().getCache();
+        config.setCacheEnabled(cacheEnabled);
+        config.setWireFormat(wireFormatBefore);
+    }
+
+    @Benchmark
+    public int query(Client client) throws Exception {
+        int id = client.id = (client.id + 1) & 0xffff;
+        client.query[0] = (byte) (id >>> 8);
+        client.query[1] = (byte) id;
+        client.socket.send(new DatagramPacket(client.query, client.query.length, endpoint));
+        DatagramPacket packet = new DatagramPacket(client.reply, client.reply.length);
+        client.socket.receive(packet);
+        return packet.getLength();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(DnsCacheHitBenchmark.class.getSimpleName())
+                .threads(4)
+                .warmupIterations(2)
+                .warmupTime(TimeValue.seconds(3))
+                .measurementIterations(3)
+                .measurementTime(TimeValue.seconds(5))
+                .forks(1)
+                .output("./benchmark.log")
+                .build();
+        new Runner(opt).run();
+    }
+}
@@ -1,6 +1,8 @@
 package org.rx.net.dns;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.channel.AddressedEnvelope;
 import io.netty.channel.DefaultAddressedEnvelope;
 import io.netty.handler.codec.dns.DefaultDnsQuery;
@@ -509,6 +511,86 @@ class DnsOptimizationTest {
         }
     }
 
+    @Test
+    void upstreamResponseCache_wireHitPatchesIdQuestionAndTtl() throws Exception {
+        DefaultDnsResponse response = new DefaultDnsResponse(7, io.netty.handler.codec.dns.DnsOpCode.QUERY, DnsResponseCode.NOERROR);
+        response.setRecursionAvailable(true);
+        response.addRecord(DnsSection.ANSWER, new DefaultDnsRawRecord("www.example.com.", DnsRecordType.A,
+                io.netty.handler.codec.dns.DnsRecord.CLASS_IN, 300, Unpooled.wrappedBuffer(new byte[]{1, 2, 3, 4})));
+        DnsResponseCacheEntry entry;
+        try {
+            entry = DnsResponseCacheEntry.tryCreate(response, 5);
+        } finally {
+            ReferenceCountUtil.release(response);
+        }
+        assertNotNull(entry);
+
+        DefaultDnsQuery query = new DefaultDnsQuery(0x1234);
+        query.addRecord(DnsSection.QUESTION, new DefaultDnsQuestion("www.example.com.", DnsRecordType.A));
+        DefaultDnsQuery mixedCase = new DefaultDnsQuery(0x4321);
+        mixedCase.addRecord(DnsSection.QUESTION, new DefaultDnsQuestion("WwW.ExAmple.com.", DnsRecordType.A));
+        ByteBuf first = entry.writeFreshWire(UnpooledByteBufAllocator.DEFAULT, query, false, entry.createdMillis);
+        ByteBuf second = entry.writeFreshWire(UnpooledByteBufAllocator.DEFAULT, mixedCase, true, entry.createdMillis + 100_000L);
+        try {
+            assertEquals(Collections.singletonList(InetAddress.getByName("1.2.3.4")),
+                    DoHMessageCodec.decodeAddresses(first.duplicate(), 0x1234));
+            assertEquals(300L, firstAnswerTtl(first));
+
+            assertEquals(second.readableBytes() - 2, second.getUnsignedShort(0), "TCP 长度前缀");
+            ByteBuf body = second.slice(2, second.readableBytes() - 2);
+            assertEquals(1, DoHMessageCodec.decodeAddresses(body.duplicate(), 0x4321).size());
+            assertEquals('W', body.getByte(DoHMessageCodec.DNS_HEADER_BYTES + 1), "问题名按查询原样回写");
+            assertEquals(200L, firstAnswerTtl(body), "TTL 按已过秒数递减");
+        } finally {
+            first.release();
+            second.release();
+            ReferenceCountUtil.release(query);
+            ReferenceCountUtil.release(mixedCase);
+        }
+    }
+
+    @Test
+    void upstreamResponseCache_wireFreshHitSkipsResponseObjects() throws Exception {
+        DnsCacheConfigState state = new DnsCacheConfigState();
+        state.configure(true, false, 10, false, 0, 30, 0);
+        DnsServer server = new DnsServer(freePort(), Collections.emptyList());
+        StubDnsClient upstream = new StubDnsClient();
+        try {
+            String host = "upstream-wire-" + UUID.randomUUID() + ".example";
+            InetAddress firstIp = InetAddress.getByName("198.51.100.41");
+            upstream.nextIp = firstIp.getHostAddress();
+            upstream.ttlSeconds = 30;
+            ReferenceCountUtil.release(resolveOnce(server, upstream, host, DnsRecordType.A));
+
+            DefaultDnsQuery query = new DefaultDnsQuery(9);
+            query.addRecord(DnsSection.QUESTION, new DefaultDnsQuestion(host, DnsRecordType.A));
+            ByteBuf wire = DnsResolveCore.resolveCachedWire(server, upstream, query, false, UnpooledByteBufAllocator.DEFAULT);
+            try {
+                assertNotNull(wire, "fresh cache 应走 wire 路径");
+                assertEquals(Collections.singletonList(firstIp), DoHMessageCodec.decodeAddresses(wire.duplicate(), 9));
+            } finally {
+                ReferenceCountUtil.release(wire);
+                ReferenceCountUtil.release(query);
+            }
+            assertEquals(1, upstream.queryCalls.get());
+            assertEquals(1, server.responseCacheWireHits.get());
+        } finally {
+            upstream.close();
+            server.close();
+            state.restore();
+        }
+    }
+
+    static long firstAnswerTtl(ByteBuf wire) {
+        ByteBuf in = wire.duplicate();
+        in.skipBytes(DoHMessageCodec.DNS_HEADER_BYTES);
+        DoHMessageCodec.readName(in);
+        in.skipBytes(4);
+        DoHMessageCodec.readName(in);
+        in.skipBytes(4);
+        return in.readUnsignedInt();
+    }
+
     @Test
     @Timeout(10)
     void upstreamResponseCache_serveExpiredOnUpstreamTimeoutAndRefreshesCache() throws Exception {
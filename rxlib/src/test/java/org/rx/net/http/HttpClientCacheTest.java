@@ -0,0 +1,217 @@
+package org.rx.net.http;
+
+import io.netty.handler.codec.http.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.rx.io.HybridStream;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HttpClientCacheTest {
+    File cacheDir;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        cacheDir = Files.createTempDirectory("http-client-cache-index").toFile();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        new HttpClientCache().setDirectory(cacheDir).closeIndex();
+        org.rx.io.Files.delete(cacheDir.getAbsolutePath());
+    }
+
+    @Test
+    public void journalRestoresIndexAndLruOrder() {
+        HttpClientCache cache = new HttpClientCache().setDirectory(cacheDir).setMaxBytes(1024L * 1024L);
+        store(cache, "http://a/1", null, "one");
+        store(cache, "http://a/2", null, "two");
+        store(cache, "http://a/3", null, "three");
+        assertNotNull(cache.get("http://a/1"));
+        long total = cache.totalBytes();
+        cache.closeIndex();
+
+        HttpClientCache reopened = new HttpClientCache(cache);
+        HttpClientCache.Index index = reopened.index();
+        assertEquals(3, index.size());
+        assertEquals(total, reopened.totalBytes());
+        //1 最近被访问，LRU 最老的是 2
+        assertEquals(HttpClientCache.entryKey("http://a/2"), index.entries.keySet().iterator().next());
+        HttpClientCache.CacheEntry entry = reopened.get("http://a/3");
+        assertNotNull(entry);
+        assertEquals("http://a/3", entry.metadata.url);
+        assertTrue(entry.isFresh(System.currentTimeMillis()));
+    }
+
+    @Test
+    public void missingJournalRebuildsFromDirectory() {
+        HttpClientCache cache = new HttpClientCache().setDirectory(cacheDir).setMaxBytes(1024L * 1024L);
+        store(cache, "http://b/1", null, "one");
+        store(cache, "http://b/2", null, "two");
+        cache.closeIndex();
+        assertTrue(new File(cacheDir, HttpClientCache.JOURNAL_FILE_NAME).delete());
+
+        HttpClientCache reopened = new HttpClientCache(cache);
+        assertEquals(2, reopened.index().size());
+        assertNotNull(reopened.get("http://b/2"));
+        assertTrue(new File(cacheDir, HttpClientCache.JOURNAL_FILE_NAME).isFile());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedWithinBudget() {
+        HttpClientCache cache = new HttpClientCache().setDirectory(cacheDir).setMaxBytes(1024L * 1024L);
+        String body = repeat('x', 1000);
+        store(cache, "http://c/1", null, body);
+        store(cache, "http://c/2", null, body);
+        assertNotNull(cache.get("http://c/1"));
+        long oneEntry = cache.index().entries.get(HttpClientCache.entryKey("http://c/1")).size;
+        cache.setMaxBytes(oneEntry * 2 + 400L);
+        store(cache, "http://c/3", null, body);
+
+        assertNotNull(cache.get("http://c/1"));
+        assertNull(cache.get("http://c/2"));
+        assertNotNull(cache.get("http://c/3"));
+        assertFalse(new File(cacheDir, HttpClientCache.entryKey("http://c/2")).exists());
+        assertTrue(cache.totalBytes() <= cache.getMaxBytes());
+    }
+
+    @Test
+    public void varyKeysSeparateVariants() {
+        HttpClientCache cache = new HttpClientCache().setDirectory(cacheDir).setMaxBytes(1024L * 1024L);
+        String url = "http://d/lang";
+        HttpHeaders en = new DefaultHttpHeaders().set(HttpHeaderNames.ACCEPT_LANGUAGE, "en");
+        HttpHeaders zh = new DefaultHttpHeaders().set(HttpHeaderNames.ACCEPT_LANGUAGE, "zh");
+        store(cache, url, null, "plain");
+        store(cache, url, en, "hello", HttpHeaderNames.VARY.toString(), "Accept-Language");
+        store(cache, url, zh, "nihao", HttpHeaderNames.VARY.toString(), "Accept-Language");
+
+        assertEquals(Arrays.asList("accept-language"), cache.index().varyNames(HttpClientCache.entryKey(url)));
+        assertEquals(2, cache.index().size());
+        assertEquals("hello", body(cache.get(url, en)));
+        assertEquals("nihao", body(cache.get(url, zh)));
+        assertNull(cache.get(url, new DefaultHttpHeaders().set(HttpHeaderNames.ACCEPT_LANGUAGE, "fr")));
+
+        cache.closeIndex();
+        assertEquals("nihao", body(new HttpClientCache(cache).get(url, zh)));
+
+        assertFalse(cache.storeable(url, response("x", HttpHeaderNames.VARY.toString(), "*")));
+    }
+
+    @Test
+    public void staleWhileRevalidateWindow() {
+        HttpClientCache cache = new HttpClientCache().setDirectory(cacheDir).setMaxBytes(1024L * 1024L);
+        store(cache, "http://e/swr", null, "v1", HttpHeaderNames.CACHE_CONTROL.toString(), "max-age=1, stale-while-revalidate=30");
+        store(cache, "http://e/must", null, "v1", HttpHeaderNames.CACHE_CONTROL.toString(), "max-age=1, stale-while-revalidate=30, must-revalidate");
+        long later = System.currentTimeMillis() + 2000L;
+
+        HttpClientCache.CacheEntry swr = cache.get("http://e/swr");
+        assertFalse(swr.isFresh(later));
+        assertTrue(swr.isStaleWhileRevalidate(later));
+        assertFalse(swr.isStaleWhileRevalidate(later + 30000L));
+        assertFalse(cache.get("http://e/must").isStaleWhileRevalidate(later));
+
+        assertTrue(cache.beginRefresh(swr));
+        assertFalse(new HttpClientCache(cache).beginRefresh(swr));
+        cache.endRefresh(swr);
+        assertTrue(cache.beginRefresh(swr));
+        cache.endRefresh(swr);
+    }
+
+    @Test
+    public void journalCompactsRedundantRecords() throws Exception {
+        HttpClientCache cache = new HttpClientCache().setDirectory(cacheDir).setMaxBytes(1024L * 1024L);
+        store(cache, "http://f/1", null, "one");
+        store(cache, "http://f/2", null, "two");
+        HttpClientCache.Index index = cache.index();
+        long baseBytes = index.journalBytes;
+        int accessLineBytes = ("A " + HttpClientCache.entryKey("http://f/1") + "\n").length();
+        //交替命中，每次都改变 LRU 顺序
+        for (int i = 0; i < HttpClientCache.JOURNAL_COMPACT_THRESHOLD * 2; i++) {
+            assertNotNull(cache.get(i % 2 == 0 ? "http://f/1" : "http://f/2"));
+        }
+        assertTrue(index.redundantOps < HttpClientCache.JOURNAL_COMPACT_THRESHOLD);
+        //未压缩时为 baseBytes + 2 * THRESHOLD * accessLineBytes
+        assertTrue(index.journalBytes <= baseBytes + (long) HttpClientCache.JOURNAL_COMPACT_THRESHOLD * accessLineBytes);
+        cache.closeIndex();
+        List<String> lines = Files.readAllLines(new File(cacheDir, HttpClientCache.JOURNAL_FILE_NAME).toPath());
+        assertTrue(lines.size() <= HttpClientCache.JOURNAL_COMPACT_THRESHOLD + 3);
+        assertEquals(2, new HttpClientCache(cache).index().size());
+    }
+
+    @Test
+    public void hitsOnMostRecentEntryAppendNoAccessRecord() {
+        HttpClientCache cache = new HttpClientCache().setDirectory(cacheDir).setMaxBytes(1024L * 1024L);
+        store(cache, "http://g/1", null, "one");
+        store(cache, "http://g/2", null, "two");
+        HttpClientCache.Index index = cache.index();
+        long baseBytes = index.journalBytes;
+        for (int i = 0; i < 100; i++) {
+            assertNotNull(cache.get("http://g/2"));
+        }
+        assertEquals(baseBytes, index.journalBytes);
+
+        assertNotNull(cache.get("http://g/1"));
+        assertEquals(baseBytes + ("A " + HttpClientCache.entryKey("http://g/1") + "\n").length(), index.journalBytes);
+        assertNotNull(cache.get("http://g/1"));
+        assertEquals(HttpClientCache.entryKey("http://g/2"), index.entries.keySet().iterator().next());
+    }
+
+    @Test
+    public void openDeletesEntryDirectoriesMissingFromJournal() throws Exception {
+        HttpClientCache cache = new HttpClientCache().setDirectory(cacheDir).setMaxBytes(1024L * 1024L);
+        store(cache, "http://h/1", null, "one");
+        cache.closeIndex();
+        //目录已写入、C 记录尚未追加时进程中断
+        File orphan = new File(cacheDir, HttpClientCache.entryKey("http://h/2"));
+        assertTrue(orphan.mkdirs());
+        Files.write(new File(orphan, "body.bin").toPath(), "two".getBytes(StandardCharsets.UTF_8));
+
+        HttpClientCache reopened = new HttpClientCache(cache);
+        assertEquals(1, reopened.index().size());
+        assertFalse(orphan.exists());
+        assertNotNull(reopened.get("http://h/1"));
+        assertNull(reopened.get("http://h/2"));
+    }
+
+    static void store(HttpClientCache cache, String url, HttpHeaders requestHeaders, String body, String... headers) {
+        HybridStream stream = new HybridStream();
+        stream.write(body.getBytes(StandardCharsets.UTF_8));
+        try {
+            cache.store(url, requestHeaders, response(body, headers), stream);
+        } finally {
+            stream.close();
+        }
+    }
+
+    static HttpResponse response(String body, String... headers) {
+        HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        response.headers().set(HttpHeaderNames.CACHE_CONTROL, "public, max-age=60");
+        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, body.length());
+        for (int i = 0; i + 1 < headers.length; i += 2) {
+            response.headers().set(headers[i], headers[i + 1]);
+        }
+        return response;
+    }
+
+    static String body(HttpClientCache.CacheEntry entry) {
+        assertNotNull(entry);
+        try {
+            return new String(Files.readAllBytes(entry.bodyFile.toPath()), StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String repeat(char ch, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, ch);
+        return new String(chars);
+    }
+}
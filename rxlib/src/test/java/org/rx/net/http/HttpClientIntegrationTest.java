@@ -42,6 +42,7 @@ public class HttpClientIntegrationTest {
     private static volatile CountDownLatch slowStarted;
     private static final AtomicInteger staticCacheHits = new AtomicInteger();
     private static final AtomicInteger revalidateCacheHits = new AtomicInteger();
+    private static final AtomicInteger swrCacheHits = new AtomicInteger();
 
     @BeforeAll
     public static void setup() throws Exception {
@@ -102,6 +103,12 @@ public class HttpClientIntegrationTest {
             res.setContentType(ServerResponse.TEXT_HTML.toString());
             res.htmlBody("cache-revalidate-v1");
         });
+        server.requestMapping("/cache-swr", (req, res) -> {
+            int hits = swrCacheHits.incrementAndGet();
+            res.getHeaders().set(HttpHeaderNames.CACHE_CONTROL, "public, max-age=1, stale-while-revalidate=30");
+            res.setContentType(ServerResponse.TEXT_HTML.toString());
+            res.htmlBody("swr-" + hits);
+        });
         server.requestMapping("/cache-trim-a", (req, res) -> {
             res.getHeaders().set(HttpHeaderNames.CACHE_CONTROL, "public, max-age=60");
             res.setContentType(ServerResponse.TEXT_HTML.toString());
@@ -317,6 +324,39 @@ public class HttpClientIntegrationTest {
         }
     }
 
+    @Test
+    public void staleWhileRevalidateServesStaleAndRefreshesInBackground() throws Exception {
+        swrCacheHits.set(0);
+        File cacheDir = java.nio.file.Files.createTempDirectory("http-client-cache-swr").toFile();
+        try (HttpClient client = new HttpClient(new HttpClientConfig()
+                .setCookieJar(null)
+                .setEnableLog(false)
+                .setCache(new HttpClientCache().setDirectory(cacheDir).setMaxBytes(4L * 1024L)))) {
+            try (HttpClient.Response first = client.get(baseUrl + "/cache-swr")) {
+                assertEquals("swr-1", first.bodyAsString());
+            }
+            Thread.sleep(1100L);
+            try (HttpClient.Response stale = client.get(baseUrl + "/cache-swr")) {
+                assertEquals("swr-1", stale.bodyAsString());
+            }
+            String refreshed = null;
+            long deadline = System.currentTimeMillis() + 5000L;
+            while (System.currentTimeMillis() < deadline) {
+                try (HttpClient.Response response = client.get(baseUrl + "/cache-swr")) {
+                    refreshed = response.bodyAsString();
+                }
+                if ("swr-2".equals(refreshed)) {
+                    break;
+                }
+                Thread.sleep(20L);
+            }
+            assertEquals("swr-2", refreshed);
+            assertEquals(2, swrCacheHits.get());
+        } finally {
+            org.rx.io.Files.delete(cacheDir.getAbsolutePath());
+        }
+    }
+
     @Test
     public void cacheDirectoryTrimsOldestEntriesWhenSizeExceeded() throws Exception {
         File cacheDir = java.nio.file.Files.createTempDirectory("http-client-cache-trim").toFile();
@@ -0,0 +1,146 @@
+package org.rx.net.http;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HttpServerRoutingTest {
+    static final int STREAM_LINES = 20000;
+    private static HttpServer server;
+    private static String baseUrl;
+    private static File file;
+
+    @BeforeAll
+    public static void setup() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        baseUrl = "http://127.0.0.1:" + port;
+        file = File.createTempFile("rx-http-file", ".txt");
+        file.deleteOnExit();
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            content.append("line-").append(i).append('\n');
+        }
+        Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+
+        server = new HttpServer(port, false);
+        server.requestMapping("/users/me", (req, res) -> res.htmlBody("me"));
+        server.requestMapping("/users/{id}", (req, res) -> res.htmlBody("user:" + req.getPathParam("id")));
+        server.requestMapping("/users/{id}/orders/{orderId}", (req, res) ->
+                res.htmlBody(req.getPathParam("id") + "/" + req.getPathParam("orderId")));
+        server.requestMount("/static", (req, res) -> res.htmlBody("static:" + req.getPathParam("**")));
+        server.requestMapping("/stream", (req, res) -> {
+            int[] next = new int[1];
+            res.streamBody("text/plain; charset=UTF-8", stream -> {
+                int end = Math.min(next[0] + 1000, STREAM_LINES);
+                for (; next[0] < end; next[0]++) {
+                    stream.write("row-" + next[0] + "\n");
+                }
+                return next[0] < STREAM_LINES;
+            });
+        });
+        server.requestMapping("/stream-fail", (req, res) -> res.streamBody("text/plain; charset=UTF-8", stream -> {
+            throw new IllegalStateException("stream-fail");
+        }));
+        server.requestMapping("/file", (req, res) -> res.fileBody(file, "text/plain; charset=UTF-8"));
+        server.requestMapping("/missing-file", (req, res) -> res.fileBody(new File(file.getPath() + ".missing")));
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void routeTrie_prefersStaticThenParamThenMount() {
+        HttpServer.Mapping exact = new HttpServer.Mapping((req, res) -> {
+        }, false);
+        HttpServer.Mapping param = new HttpServer.Mapping((req, res) -> {
+        }, false);
+        HttpServer.Mapping mount = new HttpServer.Mapping((req, res) -> {
+        }, false);
+        RouteTrie trie = new RouteTrie();
+        trie.add("/a/b/c", exact);
+        trie.add("/a/{x}/c", param);
+        trie.add("/a/**", mount);
+
+        assertSame(exact, trie.match("/a/b/c").mapping);
+        RouteTrie.Match m = trie.match("/a/z/c");
+        assertSame(param, m.mapping);
+        assertEquals("z", m.params.get("x"));
+        //static branch fails at the last segment, backtracks to the mount
+        m = trie.match("/a/b/d");
+        assertSame(mount, m.mapping);
+        assertEquals("b/d", m.params.get(RouteTrie.WILDCARD));
+        assertEquals("", trie.match("/a").params.get(RouteTrie.WILDCARD));
+        assertNull(trie.match("/b"));
+        assertThrows(IllegalArgumentException.class, () -> trie.add("/a/{y}/d", exact));
+    }
+
+    @Test
+    public void routes_exactParamAndMount() {
+        try (HttpClient client = new HttpClient()) {
+            assertEquals("me", get(client, "/users/me"));
+            assertEquals("user:42", get(client, "/users/42"));
+            assertEquals("42/7", get(client, "/users/42/orders/7"));
+            assertEquals("static:css/site.css", get(client, "/static/css/site.css"));
+            try (HttpClient.Response response = client.get(baseUrl + "/nope/1")) {
+                assertEquals(404, response.code());
+            }
+        }
+    }
+
+    @Test
+    public void streamBody_writesAllChunks() {
+        try (HttpClient client = new HttpClient()) {
+            String body = get(client, "/stream");
+            assertTrue(body.startsWith("row-0\n"));
+            assertTrue(body.endsWith("row-" + (STREAM_LINES - 1) + "\n"));
+            assertEquals(STREAM_LINES, body.split("\n").length);
+            //connection is reusable after the stream ends
+            assertEquals("me", get(client, "/users/me"));
+        }
+    }
+
+    @Test
+    public void streamBody_writerFailureClosesConnection() {
+        try (HttpClient client = new HttpClient()) {
+            assertThrows(Throwable.class, () -> get(client, "/stream-fail"));
+            assertEquals("me", get(client, "/users/me"));
+        }
+    }
+
+    @Test
+    public void fileBody_sendsWholeFile() throws Exception {
+        String expected = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        try (HttpClient client = new HttpClient()) {
+            try (HttpClient.Response response = client.get(baseUrl + "/file")) {
+                assertNull(response.headers().get(HttpHeaderNames.CONTENT_ENCODING));
+                assertEquals(expected, response.bodyAsString());
+            }
+            assertEquals(expected, get(client, "/file"));
+            assertEquals(expected, get(client, "/file"));
+            try (HttpClient.Response response = client.get(baseUrl + "/missing-file")) {
+                assertEquals(404, response.code());
+            }
+        }
+    }
+
+    String get(HttpClient client, String path) {
+        try (HttpClient.Response response = client.get(baseUrl + path)) {
+            return response.bodyAsString();
+        }
+    }
+}
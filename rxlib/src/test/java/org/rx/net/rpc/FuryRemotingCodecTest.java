@@ -5,16 +5,20 @@ import io.netty.buffer.Unpooled;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.ResourceLeakDetector;
+import org.apache.fury.Fury;
 import org.junit.jupiter.api.Test;
 import org.rx.bean.DateTime;
 import org.rx.core.Sys;
+import org.rx.net.FuryCodecSupport;
 import org.rx.net.transport.TcpChannelCodec;
 import org.rx.net.transport.TcpClientConfig;
+import org.rx.net.rpc.protocol.MetadataMessage;
 import org.rx.net.rpc.protocol.MethodMessage;
 import org.rx.net.transport.protocol.PingPacket;
 import org.rx.test.PersonBean;
 import org.rx.test.UserEventArgs;
 
+import java.io.Serializable;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
@@ -23,6 +27,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.TimeZone;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -72,6 +77,89 @@ class FuryRemotingCodecTest {
         assertEquals("ok", pack.parameters[0]);
     }
 
+    @Test
+    void roundTripMethodIdAndMetadataTable() {
+        FuryRemotingCodecFactory factory = FuryRemotingCodecFactory.createDefault();
+        List<String> allowedPrefixes = new ArrayList<>(factory.allowedClassPrefixes);
+        RpcClientConfig<Object> config = RpcClientConfig.statefulMode(new InetSocketAddress("127.0.0.1", 9528), 1);
+
+        Object decoded = roundTrip(factory.newClientCodec(config), allowedPrefixes, new MethodMessage(12, 3, new Object[]{"ok"}, "trace-12"));
+        MethodMessage pack = assertInstanceOf(MethodMessage.class, decoded);
+        assertNull(pack.methodName);
+        assertEquals(3, pack.methodId);
+
+        decoded = roundTrip(factory.newClientCodec(config), allowedPrefixes, new MetadataMessage(2, new String[]{"a()", "b(int)"}));
+        MetadataMessage meta = assertInstanceOf(MetadataMessage.class, decoded);
+        assertArrayEquals(new String[]{"a()", "b(int)"}, meta.getMethods());
+    }
+
+    //MethodMessage as sent by a client built before methodId was added
+    static class LegacyMethodMessage implements Serializable {
+        private static final long serialVersionUID = -1424164254938438910L;
+        final int id;
+        final String methodName;
+        final Object[] parameters;
+        final String traceId;
+        Object returnValue;
+        String errorMessage;
+
+        LegacyMethodMessage(int id, String methodName, Object[] parameters, String traceId) {
+            this.id = id;
+            this.methodName = methodName;
+            this.parameters = parameters;
+            this.traceId = traceId;
+        }
+    }
+
+    @Test
+    void olderClientMessagesDecodeOnNewerServer() {
+        FuryRemotingCodecFactory factory = FuryRemotingCodecFactory.createDefault();
+        List<String> allowedPrefixes = new ArrayList<>(factory.allowedClassPrefixes);
+        Fury legacy = FuryCodecSupport.newFury(FuryRemotingCodecTest.class, allowedPrefixes, FuryRemotingCodecFactory.COMPATIBLE_MODE,
+                fury -> fury.register(LegacyMethodMessage.class, (short) (FuryRemotingCodecFactory.REGISTER_BASE_ID + 4)));
+
+        ByteBuf frame = Unpooled.buffer();
+        frame.writeShort(FuryRemotingCodecFactory.FRAME_MAGIC);
+        frame.writeByte(FuryRemotingCodecFactory.FRAME_VERSION);
+        frame.writeByte(FuryRemotingCodecFactory.CODEC_ID_FURY);
+        byte[] payload = legacy.serializeJavaObjectAndClass(new LegacyMethodMessage(21, "echo", new Object[]{"a"}, "trace-21"));
+        frame.writeInt(payload.length);
+        frame.writeBytes(payload);
+        EmbeddedChannel inbound = new EmbeddedChannel(new FuryRemotingCodecFactory.FuryMessageDecoder(
+                new FuryRemotingCodecFactory.FuryRemotingSupport(new ArrayList<>(allowedPrefixes))));
+        try {
+            assertTrue(inbound.writeInbound(frame));
+            MethodMessage pack = assertInstanceOf(MethodMessage.class, inbound.readInbound());
+            assertEquals(21, pack.id);
+            //no methodId on the wire, the server dispatches by name
+            assertEquals("echo", pack.methodName);
+            assertArrayEquals(new Object[]{"a"}, pack.parameters);
+            assertEquals("trace-21", pack.traceId);
+
+            //and the reply, which carries methodId, still reads on the older client
+            pack.returnValue = "s:a";
+            EmbeddedChannel outbound = new EmbeddedChannel(new FuryRemotingCodecFactory.FuryMessageEncoder(
+                    new FuryRemotingCodecFactory.FuryRemotingSupport(new ArrayList<>(allowedPrefixes))));
+            try {
+                assertTrue(outbound.writeOutbound(pack));
+                ByteBuf reply = outbound.readOutbound();
+                try {
+                    reply.skipBytes(8);
+                    LegacyMethodMessage legacyReply = assertInstanceOf(LegacyMethodMessage.class,
+                            legacy.deserializeJavaObjectAndClass(FuryCodecSupport.toMemoryBuffer(reply, reply.readerIndex(), reply.readableBytes())));
+                    assertEquals(21, legacyReply.id);
+                    assertEquals("s:a", legacyReply.returnValue);
+                } finally {
+                    reply.release();
+                }
+            } finally {
+                outbound.finishAndReleaseAll();
+            }
+        } finally {
+            inbound.finishAndReleaseAll();
+        }
+    }
+
     @Test
     void equivalentRemotingCodecsReuseSharedFuryLocal() {
         FuryRemotingCodecFactory factory = FuryRemotingCodecFactory.createDefault();
@@ -1,11 +1,13 @@
 package org.rx.net.rpc;
 
+import io.netty.util.internal.ThreadExecutorMap;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.*;
 import org.rx.AbstractTester;
 import org.rx.bean.ULID;
 import org.rx.core.EventArgs;
 import org.rx.core.EventPublisher;
+import org.rx.core.Tasks;
 import org.rx.exception.InvalidException;
 import org.rx.net.transport.ClientDisconnectedException;
 import org.rx.net.transport.TcpServer;
@@ -21,8 +23,10 @@ import java.net.ServerSocket;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -51,6 +55,60 @@ public class RemotingTest extends AbstractTester {
         }
     }
 
+    public interface OverloadService {
+        String echo(String value);
+
+        String echo(int value);
+
+        void touch(int value);
+    }
+
+    public static class OverloadServiceImpl implements OverloadService {
+        final AtomicInteger touched = new AtomicInteger();
+
+        @Override
+        public String echo(String value) {
+            return "s:" + value;
+        }
+
+        @Override
+        public String echo(int value) {
+            return "i:" + value;
+        }
+
+        @Override
+        public void touch(int value) {
+            touched.addAndGet(value);
+        }
+
+        //not on the contract, must not take a method id
+        public String alpha() {
+            return "alpha";
+        }
+    }
+
+    public interface AsyncService {
+        CompletableFuture<String> echoAsync(String value, int delayMillis);
+
+        CompletableFuture<Integer> failAsync(String message);
+    }
+
+    public static class AsyncServiceImpl implements AsyncService {
+        @Override
+        public CompletableFuture<String> echoAsync(String value, int delayMillis) {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            Tasks.setTimeout(() -> future.complete("async:" + value), delayMillis);
+            return future;
+        }
+
+        @Override
+        public CompletableFuture<Integer> failAsync(String message) {
+            CompletableFuture<Integer> future = new CompletableFuture<>();
+            future.completeExceptionally(new InvalidException(message));
+            return future;
+        }
+    }
+
     public interface DirectedEventService extends EventPublisher<DirectedEventService>, AutoCloseable {
         default void close() {
         }
@@ -304,6 +362,64 @@ public class RemotingTest extends AbstractTester {
                 "断链时应保留客户端断开异常，不能被连接池重复回收异常覆盖");
     }
 
+    @Test
+    @Order(6)
+    @Timeout(30)
+    void methodIdDispatch_resolvesOverloadsOnce() throws Exception {
+        RemotingMethodTable table = RemotingMethodTable.of(OverloadServiceImpl.class);
+        assertArrayEquals(new String[]{"echo(int)", "echo(java.lang.String)", "touch(int)"}, table.signatures);
+        OverloadServiceImpl impl = new OverloadServiceImpl();
+        Map<String, Integer> ids = RemotingMethodTable.toIdMap(table.signatures);
+        assertEquals("i:1", table.invoke(ids.get(RemotingMethodTable.signature(OverloadService.class.getMethod("echo", int.class))), impl, new Object[]{1}));
+
+        InetSocketAddress endpoint = new InetSocketAddress("127.0.0.1", freePort());
+        startServer(impl, endpoint);
+        OverloadService facade = Remoting.createFacade(OverloadService.class, RpcClientConfig.statefulMode(endpoint, 0));
+        //first call may go by name before the handshake reply
+        assertEquals("s:a", facade.echo("a"));
+        HybridClient client = Remoting.facadeRefs.get(facade).sync.v;
+        long deadline = System.currentTimeMillis() + 5000;
+        while (client.session().attr(Remoting.METHOD_IDS_KEY) == null && System.currentTimeMillis() < deadline) {
+            sleep(20);
+        }
+        assertNotNull(client.session().attr(Remoting.METHOD_IDS_KEY));
+
+        assertEquals("s:b", facade.echo("b"));
+        assertEquals("i:2", facade.echo(2));
+        facade.touch(5);
+        assertEquals(5, impl.touched.get());
+    }
+
+    @Test
+    @Order(6)
+    @Timeout(30)
+    void asyncMethod_completesWithoutBlockingCaller() throws Exception {
+        InetSocketAddress endpoint = new InetSocketAddress("127.0.0.1", freePort());
+        startServer(new AsyncServiceImpl(), endpoint);
+        AsyncService facade = Remoting.createFacade(AsyncService.class, RpcClientConfig.statefulMode(endpoint, 0));
+
+        int count = 200;
+        List<CompletableFuture<String>> futures = new ArrayList<>(count);
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            futures.add(facade.echoAsync(String.valueOf(i), 500));
+        }
+        //every call returns before the server side completes
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 500 * 4);
+        for (int i = 0; i < count; i++) {
+            assertEquals("async:" + i, futures.get(i).get(10, TimeUnit.SECONDS));
+        }
+        assertFalse(Remoting.hasPendingWaitBeans(Remoting.facadeRefs.get(facade).sync.v));
+
+        //a dependent stage attached before the reply runs on the completing thread
+        CompletableFuture<Boolean> onEventLoop = facade.echoAsync("loop", 200).thenApply(r -> ThreadExecutorMap.currentExecutor() != null);
+        assertFalse(onEventLoop.get(10, TimeUnit.SECONDS));
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> facade.failAsync("boom").get(10, TimeUnit.SECONDS));
+        assertInstanceOf(RemotingException.class, e.getCause());
+        assertTrue(e.getCause().getMessage().contains("boom"));
+    }
+
     @Test
     @Order(6)
     @Timeout(20)
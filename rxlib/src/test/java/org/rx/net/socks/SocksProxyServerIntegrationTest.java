@@ -5,6 +5,7 @@ import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.*;
+import io.netty.channel.epoll.Epoll;
 import io.netty.channel.local.LocalAddress;
 import io.netty.channel.local.LocalChannel;
 import io.netty.channel.socket.DatagramPacket;
@@ -291,6 +292,222 @@ class SocksProxyServerIntegrationTest {
         }
     }
 
+    @Test
+    @SneakyThrows
+    @Timeout(value = 30)
+    void socks5TcpConnect_splice_keepsTrafficAccounting_e2e() {
+        if (!Epoll.isAvailable()) {
+            return;
+        }
+        int proxyPort = 15297;
+        SocksUser usr = new SocksUser("splice-u1");
+        usr.setPassword("p1");
+        SocksProxyServerTest.TestTrafficUser trafficUser = new SocksProxyServerTest.TestTrafficUser("splice-u1");
+        Authenticator authenticator = new Authenticator() {
+            @Override
+            public SocksUser login(String username, String password) {
+                return usr.getUsername().equals(username) && usr.getPassword().equals(password) ? usr : null;
+            }
+
+            @Override
+            public AuthResult loginResult(String username, String password) {
+                SocksUser user = login(username, password);
+                return user == null ? null : new AuthResult(user, trafficUser);
+            }
+        };
+
+        SocksConfig config = new SocksConfig(proxyPort);
+        config.setTcpSplice(true);
+        SocksProxyServer proxy = new SocksProxyServer(config, authenticator);
+        int total = 4 * 1024 * 1024;
+        try {
+            Thread.sleep(500);
+            try (Socket s = new Socket("127.0.0.1", proxyPort)) {
+                s.setSoTimeout(8000);
+                OutputStream out = s.getOutputStream();
+                InputStream in = s.getInputStream();
+                out.write(new byte[]{0x05, 0x01, 0x02});
+                assertArrayEquals(new byte[]{0x05, 0x02}, readExact(in, 2, 5000));
+                out.write(new byte[]{0x01, 9, 's', 'p', 'l', 'i', 'c', 'e', '-', 'u', '1', 2, 'p', '1'});
+                assertArrayEquals(new byte[]{0x01, 0x00}, readExact(in, 2, 5000));
+                out.write(buildSocks5ConnectReqIpv4("127.0.0.1", TCP_ECHO_PORT));
+                byte[] conn = readExact(in, 10, 5000);
+                assertEquals(0x00, conn[1] & 0xFF);
+                long deadline = System.currentTimeMillis() + 3000;
+                while (proxy.splicedChannelCount() == 0 && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(10);
+                }
+                assertEquals(1, proxy.splicedChannelCount());
+
+                byte[] chunk = new byte[64 * 1024];
+                Thread writer = new Thread(() -> {
+                    try {
+                        for (int sent = 0; sent < total; sent += chunk.length) {
+                            for (int i = 0; i < chunk.length; i++) {
+                                chunk[i] = (byte) ((sent + i) * 31);
+                            }
+                            out.write(chunk);
+                        }
+                        out.flush();
+                    } catch (Exception e) {
+                        log.warn("splice writer", e);
+                    }
+                });
+                writer.start();
+                byte[] back = readExact(in, total, 20000);
+                writer.join();
+                for (int i = 0; i < total; i++) {
+                    if (back[i] != (byte) (i * 31)) {
+                        fail("mismatch at " + i);
+                    }
+                }
+            }
+            long deadline = System.currentTimeMillis() + 3000;
+            while ((trafficUser.getTotalWriteBytes() < total || trafficUser.getTotalReadBytes() < total)
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(total, trafficUser.getTotalWriteBytes());
+            assertEquals(total, trafficUser.getTotalReadBytes());
+        } finally {
+            proxy.close();
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    @Timeout(value = 30)
+    void socks5TcpConnect_splice_keepsServerFirstBanner_e2e() {
+        if (!Epoll.isAvailable()) {
+            return;
+        }
+        int proxyPort = 15298;
+        int bannerSize = 4 * 1024 * 1024;
+        byte[] banner = new byte[bannerSize];
+        for (int i = 0; i < bannerSize; i++) {
+            banner[i] = (byte) (i * 17);
+        }
+        SocksConfig config = new SocksConfig(proxyPort);
+        config.setTcpSplice(true);
+        SocksProxyServer proxy = new SocksProxyServer(config, null);
+        try (ServerSocket bannerServer = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            Thread server = new Thread(() -> {
+                try (Socket peer = bannerServer.accept()) {
+                    //服务端先发，客户端读取前大部分 banner 仍留在代理用户态出站缓冲
+                    OutputStream out = peer.getOutputStream();
+                    out.write(banner);
+                    out.flush();
+                    InputStream in = peer.getInputStream();
+                    byte[] buf = new byte[1024];
+                    int n;
+                    while ((n = in.read(buf)) > 0) {
+                        out.write(buf, 0, n);
+                        out.flush();
+                    }
+                } catch (Exception e) {
+                    log.warn("banner server", e);
+                }
+            });
+            server.start();
+            Thread.sleep(500);
+            try (Socket s = new Socket("127.0.0.1", proxyPort)) {
+                s.setSoTimeout(8000);
+                OutputStream out = s.getOutputStream();
+                InputStream in = s.getInputStream();
+                out.write(new byte[]{0x05, 0x01, 0x00});
+                assertArrayEquals(new byte[]{0x05, 0x00}, readExact(in, 2, 5000));
+                out.write(buildSocks5ConnectReqIpv4("127.0.0.1", bannerServer.getLocalPort()));
+                byte[] conn = readExact(in, 10, 5000);
+                assertEquals(0x00, conn[1] & 0xFF);
+                Thread.sleep(200);
+
+                byte[] received = readExact(in, bannerSize, 20000);
+                for (int i = 0; i < bannerSize; i++) {
+                    if (received[i] != banner[i]) {
+                        fail("banner mismatch at " + i);
+                    }
+                }
+                byte[] msg = "after-banner".getBytes(StandardCharsets.UTF_8);
+                out.write(msg);
+                out.flush();
+                assertArrayEquals(msg, readExact(in, msg.length, 5000));
+                assertEquals(1, proxy.splicedChannelCount());
+            }
+            server.join(5000);
+        } finally {
+            proxy.close();
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    @Timeout(value = 30)
+    void spliceRelay_writesPendingTargetBytesBeforeSplicedOnes() {
+        if (!Epoll.isAvailable()) {
+            return;
+        }
+        SocksConfig config = new SocksConfig(15290);
+        config.setTcpSplice(true);
+        SocksProxyServer proxy = new SocksProxyServer(config, null);
+        EventLoopGroup group = new io.netty.channel.epoll.EpollEventLoopGroup(1);
+        int prefixSize = 2 * 1024 * 1024;
+        byte[] suffix = "spliced-after-prefix".getBytes(StandardCharsets.UTF_8);
+        try (ServerSocket targetPeer = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            AtomicReference<Channel> inboundRef = new AtomicReference<>();
+            Channel acceptor = new ServerBootstrap().group(group).channel(io.netty.channel.epoll.EpollServerSocketChannel.class)
+                    .childHandler(new ChannelInitializer<Channel>() {
+                        @Override
+                        protected void initChannel(Channel ch) {
+                            inboundRef.set(ch);
+                        }
+                    }).bind(InetAddress.getLoopbackAddress(), 0).syncUninterruptibly().channel();
+            Channel outbound = new Bootstrap().group(group).channel(io.netty.channel.epoll.EpollSocketChannel.class)
+                    .handler(new ChannelInitializer<Channel>() {
+                        @Override
+                        protected void initChannel(Channel ch) {
+                        }
+                    })
+                    .connect(targetPeer.getLocalSocketAddress()).syncUninterruptibly().channel();
+            try (Socket target = targetPeer.accept();
+                 Socket source = new Socket(InetAddress.getLoopbackAddress(), ((InetSocketAddress) acceptor.localAddress()).getPort())) {
+                long deadline = System.currentTimeMillis() + 3000;
+                while (inboundRef.get() == null && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(10);
+                }
+                Channel inbound = inboundRef.get();
+                assertNotNull(inbound);
+
+                byte[] prefix = new byte[prefixSize];
+                for (int i = 0; i < prefixSize; i++) {
+                    prefix[i] = (byte) (i * 13);
+                }
+                //queued in the target's user space outbound buffer, not flushed yet
+                boolean started = group.submit(() -> {
+                    outbound.write(Unpooled.wrappedBuffer(prefix));
+                    return SocksTcpSpliceRelay.tryStart(inbound, outbound, SocksContext.getCtx(null, null), proxy);
+                }).get();
+                assertTrue(started);
+                source.getOutputStream().write(suffix);
+                source.getOutputStream().flush();
+
+                target.setSoTimeout(8000);
+                byte[] received = readExact(target.getInputStream(), prefixSize + suffix.length, 20000);
+                for (int i = 0; i < prefixSize; i++) {
+                    if (received[i] != prefix[i]) {
+                        fail("prefix mismatch at " + i);
+                    }
+                }
+                assertArrayEquals(suffix, Arrays.copyOfRange(received, prefixSize, received.length));
+            } finally {
+                outbound.close().syncUninterruptibly();
+                acceptor.close().syncUninterruptibly();
+            }
+        } finally {
+            group.shutdownGracefully();
+            proxy.close();
+        }
+    }
+
     @Test
     @SneakyThrows
     @Timeout(value = 15)
@@ -25,6 +25,7 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -247,6 +248,63 @@ class SocksProxyServerTest {
         }
     }
 
+    @Test
+    @Order(8)
+    void testAccumulatedTrafficSurvivesConcurrentClose() throws Exception {
+        AtomicLong recordedBytes = new AtomicLong();
+        AtomicLong recordedPackets = new AtomicLong();
+        SocksUserTraffic.registerRecorder(new SocksUserTraffic.Recorder() {
+            @Override
+            public void record(TrafficUser user, InetSocketAddress remoteAddress, long readBytes, long writeBytes, long readPackets, long writePackets) {
+                recordedBytes.addAndGet(writeBytes);
+                recordedPackets.addAndGet(writePackets);
+            }
+
+            @Override
+            public boolean isAccumulating() {
+                return true;
+            }
+        });
+        int threads = 4, writes = 500, rounds = 50;
+        try {
+            for (int r = 0; r < rounds; r++) {
+                EmbeddedChannel inbound = new EmbeddedChannel();
+                EmbeddedChannel outbound = new EmbeddedChannel();
+                SocksContext context = SocksContext.getCtx(new InetSocketAddress("127.0.0.1", 1300), new InetSocketAddress("127.0.0.1", 80));
+                SocksContext.markCtx(inbound, outbound, context);
+                SocksUserTraffic.attach(context, new TestTrafficUser("shadow-close-" + r), new TrafficLoginInfo());
+
+                CountDownLatch start = new CountDownLatch(1);
+                Thread[] writers = new Thread[threads];
+                for (int t = 0; t < threads; t++) {
+                    writers[t] = new Thread(() -> {
+                        try {
+                            start.await();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        for (int i = 0; i < writes; i++) {
+                            SocksUserTraffic.recordWrite(context, 3L, 1L);
+                        }
+                    });
+                    writers[t].start();
+                }
+                start.countDown();
+                inbound.close();
+                for (Thread writer : writers) {
+                    writer.join();
+                }
+                inbound.finishAndReleaseAll();
+                outbound.finishAndReleaseAll();
+            }
+            long expectedPackets = (long) rounds * threads * writes;
+            assertEquals(expectedPackets, recordedPackets.get());
+            assertEquals(expectedPackets * 3L, recordedBytes.get());
+        } finally {
+            SocksUserTraffic.clearRecorder();
+        }
+    }
+
     private void runSocks5NettyClientTest(Channel ch, String message) throws InterruptedException {
         CountDownLatch hsLatch = new CountDownLatch(1);
         CountDownLatch connLatch = new CountDownLatch(1);
@@ -0,0 +1,114 @@
+package org.rx.net.socks;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.rx.net.SocketConfig;
+import org.rx.net.Sockets;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bursts of small writes echoed through a local SOCKS5 tunnel, per relay flush mode.
+ * SampleTime reports p99 round trip; echoReads counts echo server reads per op,
+ * i.e. the write syscalls the relay issued towards the backend.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class SocksTcpRelayFlushBenchmark {
+    static final int BURST = 32;
+    static final int MESSAGE_BYTES = 128;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Syscalls {
+        public long echoReads;
+    }
+
+    @Param({"IMMEDIATE", "READ_COMPLETE"})
+    SocketConfig.TcpRelayFlushMode mode;
+    SocksProxyServer proxy;
+    Channel echo;
+    final AtomicLong echoReads = new AtomicLong();
+    Socket client;
+    OutputStream out;
+    InputStream in;
+    final byte[] burst = new byte[BURST * MESSAGE_BYTES];
+    final byte[] back = new byte[BURST * MESSAGE_BYTES];
+
+    @Setup
+    public void setup() throws Exception {
+        echo = Sockets.serverBootstrap(ch -> ch.pipeline().addLast(new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                echoReads.incrementAndGet();
+                ctx.writeAndFlush(msg);
+            }
+        })).bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+        SocksConfig config = new SocksConfig(0);
+        config.setTcpRelayFlushMode(mode);
+        config.setReadTimeoutSeconds(0);
+        proxy = new SocksProxyServer(config);
+        int proxyPort = ((InetSocketAddress) proxy.tcpChannels.get(0).localAddress()).getPort();
+
+        client = new Socket("127.0.0.1", proxyPort);
+        client.setTcpNoDelay(true);
+        out = client.getOutputStream();
+        in = client.getInputStream();
+        out.write(new byte[]{0x05, 0x01, 0x00});
+        SocksProxyServerIntegrationTest.readExact(in, 2, 5000);
+        int port = ((InetSocketAddress) echo.localAddress()).getPort();
+        out.write(SocksProxyServerIntegrationTest.buildSocks5ConnectReqIpv4("127.0.0.1", port));
+        SocksProxyServerIntegrationTest.readExact(in, 10, 5000);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        client.close();
+        proxy.close();
+        echo.close().sync();
+    }
+
+    @Benchmark
+    public int burst(Syscalls syscalls) throws Exception {
+        long reads = echoReads.get();
+        for (int i = 0; i < BURST; i++) {
+            out.write(burst, i * MESSAGE_BYTES, MESSAGE_BYTES);
+        }
+        int n = 0;
+        while (n < back.length) {
+            int r = in.read(back, n, back.length - n);
+            if (r < 0) {
+                throw new IllegalStateException("closed");
+            }
+            n += r;
+        }
+        syscalls.echoReads += echoReads.get() - reads;
+        return n;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(SocksTcpRelayFlushBenchmark.class.getSimpleName())
+                .warmupIterations(2)
+                .warmupTime(TimeValue.seconds(3))
+                .measurementIterations(3)
+                .measurementTime(TimeValue.seconds(3))
+                .forks(1)
+                .output("./benchmark.log")
+                .build();
+        new Runner(opt).run();
+    }
+}
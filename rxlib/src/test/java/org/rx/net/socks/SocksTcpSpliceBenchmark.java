@@ -0,0 +1,113 @@
+package org.rx.net.socks;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.rx.net.Sockets;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 16MB upload through a local SOCKS5 tunnel into a discarding server, user-space relay against splice.
+ * cpuMillis sums the process CPU (proxy, sink and client) over an iteration, compare it per op.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class SocksTcpSpliceBenchmark {
+    static final int TRANSFER_BYTES = 16 * 1024 * 1024;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Cpu {
+        public long cpuMillis;
+    }
+
+    @Param({"false", "true"})
+    boolean splice;
+    SocksProxyServer proxy;
+    Channel sink;
+    final AtomicLong received = new AtomicLong();
+    Socket client;
+    OutputStream out;
+    byte[] chunk = new byte[64 * 1024];
+
+    @Setup
+    public void setup() throws Exception {
+        sink = Sockets.serverBootstrap(ch -> ch.pipeline().addLast(new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                received.addAndGet(((ByteBuf) msg).readableBytes());
+                ReferenceCountUtil.release(msg);
+            }
+        })).bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+        SocksConfig config = new SocksConfig(0);
+        config.setTcpSplice(splice);
+        config.setReadTimeoutSeconds(0);
+        proxy = new SocksProxyServer(config);
+        InetSocketAddress proxyEp = new InetSocketAddress("127.0.0.1", ((InetSocketAddress) proxy.tcpChannels.get(0).localAddress()).getPort());
+
+        client = new Socket(proxyEp.getAddress(), proxyEp.getPort());
+        out = client.getOutputStream();
+        InputStream in = client.getInputStream();
+        out.write(new byte[]{0x05, 0x01, 0x00});
+        SocksProxyServerIntegrationTest.readExact(in, 2, 5000);
+        int port = ((InetSocketAddress) sink.localAddress()).getPort();
+        out.write(SocksProxyServerIntegrationTest.buildSocks5ConnectReqIpv4("127.0.0.1", port));
+        SocksProxyServerIntegrationTest.readExact(in, 10, 5000);
+        Thread.sleep(200);
+        if (splice != (proxy.splicedChannelCount() == 1)) {
+            throw new IllegalStateException("splice=" + splice + " spliced=" + proxy.splicedChannelCount());
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        client.close();
+        proxy.close();
+        sink.close().sync();
+    }
+
+    @Benchmark
+    public long upload(Cpu cpu) throws Exception {
+        com.sun.management.OperatingSystemMXBean os = (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        long cpuStart = os.getProcessCpuTime();
+        long target = received.get() + TRANSFER_BYTES;
+        for (int sent = 0; sent < TRANSFER_BYTES; sent += chunk.length) {
+            out.write(chunk);
+        }
+        out.flush();
+        while (received.get() < target) {
+            LockSupport.parkNanos(100_000);
+        }
+        cpu.cpuMillis += (os.getProcessCpuTime() - cpuStart) / 1000_000L;
+        return target;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(SocksTcpSpliceBenchmark.class.getSimpleName())
+                .warmupIterations(2)
+                .warmupTime(TimeValue.seconds(3))
+                .measurementIterations(3)
+                .measurementTime(TimeValue.seconds(3))
+                .forks(1)
+                .output("./benchmark.log")
+                .build();
+        new Runner(opt).run();
+    }
+}
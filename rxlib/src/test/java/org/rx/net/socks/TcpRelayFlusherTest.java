@@ -0,0 +1,115 @@
+package org.rx.net.socks;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+import org.rx.net.SocketConfig;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TcpRelayFlusherTest {
+    static EmbeddedChannel countingChannel(AtomicInteger flushes) {
+        return new EmbeddedChannel(new ChannelOutboundHandlerAdapter() {
+            @Override
+            public void flush(ChannelHandlerContext ctx) throws Exception {
+                flushes.incrementAndGet();
+                super.flush(ctx);
+            }
+        });
+    }
+
+    static void releaseOutbound(EmbeddedChannel channel) {
+        ByteBuf buf;
+        while ((buf = channel.readOutbound()) != null) {
+            buf.release();
+        }
+    }
+
+    @Test
+    void immediate_flushesEveryWrite() {
+        EmbeddedChannel source = new EmbeddedChannel();
+        AtomicInteger flushes = new AtomicInteger();
+        EmbeddedChannel target = countingChannel(flushes);
+
+        TcpRelayFlusher flusher = TcpRelayFlusher.of(source, new SocketConfig());
+        assertSame(TcpRelayFlusher.IMMEDIATE, flusher);
+        flusher.write(target, Unpooled.wrappedBuffer(new byte[8]));
+        flusher.write(target, Unpooled.wrappedBuffer(new byte[8]));
+        assertEquals(2, flushes.get());
+        releaseOutbound(target);
+    }
+
+    @Test
+    void readComplete_flushesOncePerBurst() {
+        SocketConfig config = new SocketConfig();
+        config.setTcpRelayFlushMode(SocketConfig.TcpRelayFlushMode.READ_COMPLETE);
+        EmbeddedChannel source = new EmbeddedChannel();
+        AtomicInteger flushes = new AtomicInteger();
+        EmbeddedChannel target = countingChannel(flushes);
+
+        TcpRelayFlusher flusher = TcpRelayFlusher.of(source, config);
+        for (int i = 0; i < 5; i++) {
+            flusher.write(target, Unpooled.wrappedBuffer(new byte[8]));
+        }
+        assertEquals(0, flushes.get());
+        assertNull(target.readOutbound());
+
+        TcpRelayFlusher.flush(source);
+        assertEquals(1, flushes.get());
+        TcpRelayFlusher.flush(source);
+        assertEquals(1, flushes.get());
+        int bytes = 0;
+        ByteBuf buf;
+        while ((buf = target.readOutbound()) != null) {
+            bytes += buf.readableBytes();
+            buf.release();
+        }
+        assertEquals(40, bytes);
+    }
+
+    @Test
+    void readComplete_flushBytesThresholdFlushesEarly() {
+        SocketConfig config = new SocketConfig();
+        config.setTcpRelayFlushMode(SocketConfig.TcpRelayFlushMode.READ_COMPLETE);
+        config.setTcpRelayFlushBytes(16);
+        EmbeddedChannel source = new EmbeddedChannel();
+        AtomicInteger flushes = new AtomicInteger();
+        EmbeddedChannel target = countingChannel(flushes);
+
+        TcpRelayFlusher flusher = TcpRelayFlusher.of(source, config);
+        flusher.write(target, Unpooled.wrappedBuffer(new byte[8]));
+        assertEquals(0, flushes.get());
+        flusher.write(target, Unpooled.wrappedBuffer(new byte[8]));
+        assertEquals(1, flushes.get());
+        flusher.write(target, Unpooled.wrappedBuffer(new byte[8]));
+        assertEquals(1, flushes.get());
+        TcpRelayFlusher.flush(source);
+        assertEquals(2, flushes.get());
+        releaseOutbound(target);
+    }
+
+    @Test
+    void readComplete_flushesEveryTarget() {
+        SocketConfig config = new SocketConfig();
+        config.setTcpRelayFlushMode(SocketConfig.TcpRelayFlushMode.READ_COMPLETE);
+        EmbeddedChannel source = new EmbeddedChannel();
+        AtomicInteger flushes1 = new AtomicInteger(), flushes2 = new AtomicInteger();
+        EmbeddedChannel target1 = countingChannel(flushes1);
+        EmbeddedChannel target2 = countingChannel(flushes2);
+
+        TcpRelayFlusher flusher = TcpRelayFlusher.of(source, config);
+        flusher.write(target1, Unpooled.wrappedBuffer(new byte[8]));
+        flusher.write(target2, Unpooled.wrappedBuffer(new byte[8]));
+        flusher.write(target1, Unpooled.wrappedBuffer(new byte[8]));
+        TcpRelayFlusher.flush(source);
+        assertEquals(1, flushes1.get());
+        assertEquals(1, flushes2.get());
+        releaseOutbound(target1);
+        releaseOutbound(target2);
+    }
+}
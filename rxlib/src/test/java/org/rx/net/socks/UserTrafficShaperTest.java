@@ -0,0 +1,73 @@
+package org.rx.net.socks;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+import org.rx.diagnostic.MetricRegistry;
+import org.rx.net.NetworkFlowControl;
+import org.rx.net.NetworkTrafficConfig;
+import org.rx.net.Sockets;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserTrafficShaperTest {
+    static NetworkTrafficConfig config(long connectionUploadKilobytesPerSecond) {
+        NetworkTrafficConfig conf = new NetworkTrafficConfig();
+        conf.setUserShapingEnabled(true);
+        conf.setConnectionUploadKilobytesPerSecond(connectionUploadKilobytesPerSecond);
+        conf.setShapingBurstMillis(1L);
+        conf.setMaxDelayMillis(5L);
+        return conf;
+    }
+
+    @SneakyThrows
+    @Test
+    public void resumeRepausesWhileDebtRemains() {
+        UserTrafficShaper shaper = new UserTrafficShaper(NetworkFlowControl.DEFAULT);
+        UserTrafficShaper.ConnectionBuckets cb = new UserTrafficShaper.ConnectionBuckets(null, config(1L));
+        EmbeddedChannel source = new EmbeddedChannel();
+        try {
+            //1 KB/s 下 10KB 欠账约 10s，远超 maxDelayMillis
+            long delay = cb.upload.consume(10 * 1024L, System.nanoTime());
+            assertTrue(delay > UserTrafficShaper.maxDelayNanos(cb.conf));
+            shaper.pause(cb, source, true, UserTrafficShaper.maxDelayNanos(cb.conf));
+            assertFalse(source.config().isAutoRead());
+
+            Thread.sleep(20L);
+            source.runScheduledPendingTasks();
+            assertTrue(cb.uploadPaused);
+            assertFalse(source.config().isAutoRead());
+
+            //提速后欠账清零，下一次定时恢复读取
+            cb.configure(config(0L));
+            Thread.sleep(20L);
+            source.runScheduledPendingTasks();
+            assertFalse(cb.uploadPaused);
+            assertTrue(source.config().isAutoRead());
+            assertEquals(0, Sockets.getReadPauseReasons(source));
+        } finally {
+            source.finishAndReleaseAll();
+        }
+    }
+
+    @Test
+    public void snapshotRefreshesUserGauges() {
+        UserTrafficShaper shaper = new UserTrafficShaper(NetworkFlowControl.DEFAULT);
+        UserTrafficShaper.UserBuckets ub = shaper.users.computeIfAbsent("shaper-test", UserTrafficShaper.UserBuckets::new);
+        ub.connections.set(1);
+        ub.upload.consume(4096L, System.nanoTime());
+
+        List<UserTrafficShaper.UserRate> rates = shaper.snapshot();
+        assertEquals(1, rates.size());
+        assertEquals(1, rates.get(0).getConnections());
+        MetricRegistry.Gauge gauge = MetricRegistry.DEFAULT.gauge("net.shaping.user.upload.bps", "user=shaper-test");
+        assertSame(ub.uploadBps, gauge);
+        assertTrue(gauge.get() > 0D);
+
+        shaper.release(ub);
+        assertTrue(shaper.users.isEmpty());
+        assertTrue(Double.isNaN(gauge.get()));
+    }
+}
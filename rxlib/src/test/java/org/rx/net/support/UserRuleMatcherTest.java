@@ -194,4 +194,74 @@ public class UserRuleMatcherTest {
         assertEquals(RouteAction.PROXY,
                 matcher.match("1.1.1.1", 53, InetSocketAddress.createUnresolved("192.168.31.7", 41000)));
     }
+
+    @Test
+    public void matchCachesDecisionsUntilGeoGenerationChanges() {
+        V2RayGeoManager manager = new V2RayGeoManager(false);
+        try {
+            manager.siteIndex = new V2RayGeoSiteReader().read(V2RayGeoDataTestUtil.geoSiteList(
+                    V2RayGeoDataTestUtil.geoSiteEntry("cn",
+                            V2RayGeoDataTestUtil.domain(V2RayGeoDataReader.DOMAIN_TYPE_ROOT_DOMAIN, "baidu.com"))));
+            UserRule rule = new UserRule();
+            rule.setRules(Arrays.asList(
+                    "geosite:cn direct",
+                    "default proxy"));
+            UserRuleMatcher matcher = UserRuleMatcher.compile(rule, manager, "ss-rocky");
+
+            assertEquals(RouteAction.DIRECT, matcher.match("www.baidu.com"));
+            assertEquals(RouteAction.DIRECT, matcher.match("www.baidu.com"));
+            assertEquals(1L, matcher.stats().getHits());
+            assertEquals(1L, matcher.stats().getMisses());
+
+            manager.siteIndex = new V2RayGeoSiteReader().read(V2RayGeoDataTestUtil.geoSiteList(
+                    V2RayGeoDataTestUtil.geoSiteEntry("cn",
+                            V2RayGeoDataTestUtil.domain(V2RayGeoDataReader.DOMAIN_TYPE_ROOT_DOMAIN, "qq.com"))));
+            manager.generation++;
+            assertEquals(RouteAction.PROXY, matcher.match("www.baidu.com"));
+            assertEquals(RouteAction.DIRECT, matcher.match("www.qq.com"));
+            assertEquals(1L, matcher.stats().getHits());
+        } finally {
+            manager.close();
+        }
+    }
+
+    @Test
+    public void matchCacheKeysIncludeEndpointInputs() {
+        UserRule rule = new UserRule();
+        rule.setRules(Arrays.asList(
+                "dstPort 443 direct",
+                "srcIp 192.168.31.7 block",
+                "default proxy"));
+        UserRuleMatcher matcher = UserRuleMatcher.compile(rule, null, "ss-rocky");
+        InetSocketAddress lan = new InetSocketAddress("192.168.31.7", 41000);
+        InetSocketAddress other = new InetSocketAddress("192.168.31.8", 41000);
+
+        assertEquals(RouteAction.DIRECT, matcher.match("api.example.com", 443, other));
+        assertEquals(RouteAction.PROXY, matcher.match("api.example.com", 80, other));
+        assertEquals(RouteAction.BLOCK, matcher.match("api.example.com", 80, lan));
+        assertEquals(RouteAction.BLOCK, matcher.match("api.example.com", 80, lan));
+        assertEquals(1L, matcher.stats().getHits());
+    }
+
+    @Test
+    public void matchMergedDomainRulesKeepFirstMatchOrder() {
+        UserRule rule = new UserRule();
+        rule.setRules(Arrays.asList(
+                "full:api.example.com block",
+                "domain:example.com direct",
+                "keyword:video direct",
+                "example.org block",
+                "default proxy"));
+        UserRuleMatcher merged = UserRuleMatcher.compile(rule, null, "ss-rocky");
+        rule.setMergeDomainRules(Boolean.FALSE);
+        rule.setDecisionCacheSize(-1);
+        UserRuleMatcher plain = UserRuleMatcher.compile(rule, null, "ss-rocky");
+
+        for (String host : Arrays.asList("api.example.com", "www.example.com", "video.site", "cdn.example.org", "unknown.net")) {
+            assertEquals(plain.match(host), merged.match(host), host);
+        }
+        assertEquals(RouteAction.BLOCK, merged.match("api.example.com"));
+        assertEquals(RouteAction.DIRECT, merged.match("video.site"));
+        assertEquals(0L, plain.stats().getHits());
+    }
 }
@@ -0,0 +1,95 @@
+package org.rx.net.transport.kcp;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Tick cost against session count, 1% of the sessions have a segment in flight.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class KcpTickBenchmark {
+    static final int TICK_MILLIS = 10;
+    static final long IDLE_TIMEOUT_MILLIS = 60_000;
+
+    @Param({"1000", "10000", "100000"})
+    int sessions;
+    RxKcp[] kcps;
+    KcpTimingWheel<RxKcp> wheel;
+    KcpTimingWheel.Entry<RxKcp>[] entries;
+    Consumer<RxKcp> onDue;
+    long now;
+
+    @SuppressWarnings("unchecked")
+    @Setup
+    public void setup() {
+        now = 1000;
+        kcps = new RxKcp[sessions];
+        wheel = new KcpTimingWheel<>(TICK_MILLIS, 512, now);
+        entries = new KcpTimingWheel.Entry[sessions];
+        onDue = kcp -> {
+            kcp.update(now);
+            wheel.schedule(entries[kcp.conv], Math.min(kcp.check(now), now + IDLE_TIMEOUT_MILLIS));
+        };
+        for (int i = 0; i < sessions; i++) {
+            RxKcp kcp = new RxKcp(i, ByteBufAllocator.DEFAULT, ReferenceCountUtil::release);
+            kcp.setNoDelay(1, TICK_MILLIS, 2, 1);
+            if (i % 100 == 0) {
+                ByteBuf payload = Unpooled.wrappedBuffer(new byte[64]);
+                kcp.send(payload);
+                payload.release();
+            }
+            kcp.update(now);
+            kcps[i] = kcp;
+            entries[i] = wheel.newEntry(kcp);
+            wheel.schedule(entries[i], Math.min(kcp.check(now), now + IDLE_TIMEOUT_MILLIS));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (RxKcp kcp : kcps) {
+            kcp.release();
+        }
+    }
+
+    //previous KcpClient tick, every session is updated
+    @Benchmark
+    public void sweep() {
+        now += TICK_MILLIS;
+        for (RxKcp kcp : kcps) {
+            kcp.update(now);
+        }
+    }
+
+    @Benchmark
+    public int wheel() {
+        now += TICK_MILLIS;
+        return wheel.advance(now, onDue);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(KcpTickBenchmark.class.getSimpleName())
+                .warmupIterations(2)
+                .warmupTime(TimeValue.seconds(3))
+                .measurementIterations(3)
+                .measurementTime(TimeValue.seconds(3))
+                .forks(1)
+                .output("./benchmark.log")
+                .build();
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,68 @@
+package org.rx.net.transport.kcp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KcpTimingWheelTest {
+    @Test
+    void advance_firesOnlyDueEntries() {
+        KcpTimingWheel<String> wheel = new KcpTimingWheel<>(10, 8, 0);
+        KcpTimingWheel.Entry<String> a = wheel.newEntry("a");
+        KcpTimingWheel.Entry<String> b = wheel.newEntry("b");
+        KcpTimingWheel.Entry<String> c = wheel.newEntry("c");
+        wheel.schedule(a, 25);
+        wheel.schedule(b, 500);
+        wheel.schedule(c, Long.MAX_VALUE);
+        assertEquals(2, wheel.size());
+        assertFalse(c.isScheduled());
+
+        List<String> fired = new ArrayList<>();
+        assertEquals(0, wheel.advance(20, fired::add));
+        assertEquals(1, wheel.advance(30, fired::add));
+        assertEquals("a", fired.get(0));
+        assertFalse(a.isScheduled());
+
+        //same bucket several rounds ahead is kept until its tick
+        assertEquals(0, wheel.advance(490, fired::add));
+        assertTrue(b.isScheduled());
+        assertEquals(1, wheel.advance(500, fired::add));
+        assertEquals("b", fired.get(1));
+
+        //earlier deadline wins, a later one is ignored
+        wheel.schedule(b, 900);
+        wheel.schedule(b, 600);
+        wheel.schedule(b, 800);
+        assertEquals(1, wheel.size());
+        assertEquals(1, wheel.advance(600, fired::add));
+        assertEquals(0, wheel.size());
+        assertEquals(0, wheel.advance(1000, fired::add));
+    }
+
+    @Test
+    void advance_allowsHandlersToCancelAndReschedule() {
+        KcpTimingWheel<Integer> wheel = new KcpTimingWheel<>(10, 4, 0);
+        List<KcpTimingWheel.Entry<Integer>> entries = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            KcpTimingWheel.Entry<Integer> entry = wheel.newEntry(i);
+            entries.add(entry);
+            wheel.schedule(entry, 10);
+        }
+        List<Integer> fired = new ArrayList<>();
+        assertEquals(2, wheel.advance(10, i -> {
+            fired.add(i);
+            if (i == 0) {
+                wheel.cancel(entries.get(1));
+                wheel.schedule(entries.get(2), 10);
+            }
+        }));
+        //2 moved to the next tick
+        assertEquals(2, fired.size());
+        assertEquals(1, wheel.size());
+        assertEquals(1, wheel.advance(1000, fired::add));
+        assertEquals(2, fired.get(2).intValue());
+    }
+}
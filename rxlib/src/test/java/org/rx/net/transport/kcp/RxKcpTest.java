@@ -0,0 +1,144 @@
+package org.rx.net.transport.kcp;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RxKcpTest {
+    static RxKcp newKcp(List<ByteBuf> wire) {
+        RxKcp kcp = new RxKcp(7, ByteBufAllocator.DEFAULT, wire::add);
+        kcp.setMtu(200);
+        kcp.setNoDelay(1, 10, 2, 1);
+        return kcp;
+    }
+
+    static void deliver(List<ByteBuf> wire, RxKcp to, long now) {
+        for (ByteBuf datagram : wire) {
+            try {
+                assertEquals(0, to.input(datagram, now));
+            } finally {
+                ReferenceCountUtil.release(datagram);
+            }
+        }
+        wire.clear();
+    }
+
+    @Test
+    void flush_packsSegmentsAndAcksIntoMtuBoundedDatagrams() {
+        List<ByteBuf> toServer = new ArrayList<>();
+        List<ByteBuf> toClient = new ArrayList<>();
+        RxKcp client = newKcp(toServer);
+        RxKcp server = newKcp(toClient);
+        try {
+            int count = 20;
+            for (int i = 0; i < count; i++) {
+                ByteBuf payload = Unpooled.copiedBuffer("msg-" + i, CharsetUtil.UTF_8);
+                client.send(payload);
+                payload.release();
+            }
+            client.flushNow(1000);
+            //(24 + 5..6) bytes per segment, 6 per 200 bytes datagram
+            assertEquals(count, client.outputSegments());
+            assertTrue(toServer.size() < count / 2, "datagrams=" + toServer.size());
+            assertEquals(toServer.size(), client.outputDatagrams());
+            for (ByteBuf datagram : toServer) {
+                assertTrue(datagram.readableBytes() <= 200);
+            }
+
+            deliver(toServer, server, 1005);
+            for (int i = 0; i < count; i++) {
+                ByteBuf received = server.receive();
+                assertNotNull(received);
+                assertEquals("msg-" + i, received.toString(CharsetUtil.UTF_8));
+                received.release();
+            }
+
+            server.flushNow(1010);
+            //20 acks of 24 bytes
+            assertEquals(count, server.outputSegments());
+            assertEquals(3, server.outputDatagrams());
+            deliver(toClient, client, 1015);
+            assertEquals(0, client.pendingMessages());
+            assertEquals(0, client.pendingBytes());
+            assertTrue(client.segmentsPerDatagram() > 1D);
+        } finally {
+            client.release();
+            server.release();
+        }
+    }
+
+    @Test
+    void flush_keepsFullSizeSegmentsInSeparateDatagrams() {
+        List<ByteBuf> toServer = new ArrayList<>();
+        List<ByteBuf> toClient = new ArrayList<>();
+        RxKcp client = newKcp(toServer);
+        RxKcp server = newKcp(toClient);
+        try {
+            byte[] bytes = new byte[client.mss * 3];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) i;
+            }
+            ByteBuf payload = Unpooled.wrappedBuffer(bytes);
+            client.send(payload);
+            payload.release();
+            client.flushNow(1000);
+            assertEquals(3, toServer.size());
+            for (ByteBuf datagram : toServer) {
+                assertEquals(200, datagram.readableBytes());
+            }
+
+            deliver(toServer, server, 1005);
+            ByteBuf received = server.receive();
+            assertNotNull(received);
+            assertArrayEquals(bytes, ByteBufUtil.getBytes(received));
+            received.release();
+        } finally {
+            client.release();
+            server.release();
+        }
+    }
+
+    @Test
+    void check_reportsNextDeadlineAndIdle() {
+        List<ByteBuf> toServer = new ArrayList<>();
+        List<ByteBuf> toClient = new ArrayList<>();
+        RxKcp client = newKcp(toServer);
+        RxKcp server = newKcp(toClient);
+        try {
+            assertEquals(Long.MAX_VALUE, client.check(1000));
+            ByteBuf payload = Unpooled.copiedBuffer("ping", CharsetUtil.UTF_8);
+            client.send(payload);
+            payload.release();
+            //queued before the first update
+            assertEquals(1000, client.check(1000));
+
+            client.update(1000);
+            assertEquals(1, toServer.size());
+            long deadline = client.check(1001);
+            assertTrue(deadline > 1001 && deadline <= 1010, "deadline=" + deadline);
+
+            deliver(toServer, server, 1005);
+            //ack owed to the client
+            assertTrue(server.check(1005) <= 1005 + 10);
+            server.update(1005);
+            deliver(toClient, client, 1006);
+            ByteBuf received = server.receive();
+            assertNotNull(received);
+            received.release();
+            assertEquals(Long.MAX_VALUE, client.check(1007));
+            assertEquals(Long.MAX_VALUE, server.check(1007));
+        } finally {
+            client.release();
+            server.release();
+        }
+    }
+}
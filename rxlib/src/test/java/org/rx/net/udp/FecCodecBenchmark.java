@@ -0,0 +1,108 @@
+package org.rx.net.udp;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parity cost per group, XOR k=3 against RS k=3/p=1 and k=6/p=3, plus RS recovery of p lost shards.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class FecCodecBenchmark {
+    static final ByteBufAllocator ALLOC = ByteBufAllocator.DEFAULT;
+
+    @Param({"256", "1200"})
+    int payload;
+    FecEncodeGroup xorGroup;
+    ByteBuf[] blocks;
+    ByteBuf[] rsParity;
+    boolean[] received;
+    int len;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1);
+        blocks = new ByteBuf[6];
+        for (int i = 0; i < blocks.length; i++) {
+            byte[] bytes = new byte[payload];
+            random.nextBytes(bytes);
+            blocks[i] = ALLOC.directBuffer(2 + payload);
+            blocks[i].writeShort(payload).writeBytes(bytes);
+        }
+        len = 2 + payload;
+        xorGroup = new FecEncodeGroup(0, 3);
+        for (int i = 0; i < 3; i++) {
+            xorGroup.add(blocks[i].retainedDuplicate());
+        }
+        rsParity = FecCoder.encode(ALLOC, blocks, 6, 3, len);
+        received = new boolean[]{true, false, true, false, true, false};
+    }
+
+    @TearDown
+    public void tearDown() {
+        xorGroup.release();
+        FecCoder.release(rsParity);
+        FecCoder.release(blocks);
+    }
+
+    @Benchmark
+    public int xorEncode3() {
+        ByteBuf parity = xorGroup.buildParity(ALLOC);
+        int r = parity.readableBytes();
+        parity.release();
+        return r;
+    }
+
+    @Benchmark
+    public int rsEncode3x1() {
+        ByteBuf[] parity = FecCoder.encode(ALLOC, blocks, 3, 1, len);
+        int r = parity[0].readableBytes();
+        FecCoder.release(parity);
+        return r;
+    }
+
+    @Benchmark
+    public int rsEncode6x3() {
+        ByteBuf[] parity = FecCoder.encode(ALLOC, blocks, 6, 3, len);
+        int r = parity[2].readableBytes();
+        FecCoder.release(parity);
+        return r;
+    }
+
+    @Benchmark
+    public int rsDecode6x3() {
+        ByteBuf[] in = blocks.clone();
+        in[1] = in[3] = in[5] = null;
+        ByteBuf[] parity = new ByteBuf[FecCoder.MAX_PARITY_SHARDS];
+        System.arraycopy(rsParity, 0, parity, 0, 3);
+        FecCoder.decode(ALLOC, in, received, 6, parity, len);
+        int r = in[5].readableBytes();
+        in[1].release();
+        in[3].release();
+        in[5].release();
+        return r;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(FecCodecBenchmark.class.getSimpleName())
+                .warmupIterations(2)
+                .warmupTime(TimeValue.seconds(3))
+                .measurementIterations(3)
+                .measurementTime(TimeValue.seconds(3))
+                .forks(1)
+                .output("./benchmark.log")
+                .build();
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,88 @@
+package org.rx.net.udp;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FecCoderTest {
+    static final ByteBufAllocator ALLOC = ByteBufAllocator.DEFAULT;
+
+    @Test
+    void mulAddMatchesScalarMultiply() {
+        Random random = new Random(1);
+        byte[] src = new byte[29];
+        byte[] dst = new byte[29];
+        for (int c = 0; c < 256; c++) {
+            random.nextBytes(src);
+            random.nextBytes(dst);
+            ByteBuf out = Unpooled.copiedBuffer(dst);
+            FecCoder.mulAdd(out, 0, Unpooled.wrappedBuffer(src), 0, src.length, c);
+            for (int i = 0; i < src.length; i++) {
+                assertEquals((dst[i] & 0xFF) ^ FecCoder.mul(src[i] & 0xFF, c), out.getUnsignedByte(i), "c=" + c);
+            }
+            out.release();
+        }
+    }
+
+    @Test
+    void anyLossUpToParityCountIsRecovered() {
+        int k = 6, p = 3;
+        Random random = new Random(2);
+        ByteBuf[] data = new ByteBuf[k];
+        int len = 0;
+        for (int i = 0; i < k; i++) {
+            byte[] bytes = new byte[37 + random.nextInt(64)];
+            random.nextBytes(bytes);
+            data[i] = Unpooled.wrappedBuffer(bytes);
+            len = Math.max(len, bytes.length);
+        }
+        ByteBuf[] parity = FecCoder.encode(ALLOC, data, k, p, len);
+        try {
+            //every loss pattern of data + parity with at most p shards missing
+            for (int mask = 0; mask < 1 << (k + p); mask++) {
+                if (Integer.bitCount(mask) > p) {
+                    continue;
+                }
+                ByteBuf[] blocks = new ByteBuf[k];
+                boolean[] received = new boolean[k];
+                ByteBuf[] parityIn = new ByteBuf[FecCoder.MAX_PARITY_SHARDS];
+                for (int i = 0; i < k; i++) {
+                    if ((mask & (1 << i)) == 0) {
+                        blocks[i] = data[i];
+                        received[i] = true;
+                    }
+                }
+                for (int i = 0; i < p; i++) {
+                    if ((mask & (1 << (k + i))) == 0) {
+                        parityIn[i] = parity[i];
+                    }
+                }
+                assertTrue(FecCoder.decode(ALLOC, blocks, received, k, parityIn, len), "mask=" + mask);
+                for (int i = 0; i < k; i++) {
+                    if (received[i]) {
+                        continue;
+                    }
+                    int size = data[i].readableBytes();
+                    assertEquals(data[i], blocks[i].slice(0, size), "mask=" + mask + " shard=" + i);
+                    for (int j = size; j < len; j++) {
+                        assertEquals(0, blocks[i].getByte(j));
+                    }
+                    blocks[i].release();
+                }
+            }
+
+            ByteBuf[] parityIn = new ByteBuf[FecCoder.MAX_PARITY_SHARDS];
+            parityIn[0] = parity[0];
+            boolean[] received = {true, true, false, false, true, true};
+            assertFalse(FecCoder.decode(ALLOC, data.clone(), received, k, parityIn, len));
+        } finally {
+            FecCoder.release(parity);
+            FecCoder.release(data);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package org.rx.net.udp;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.channel.unix.SegmentedDatagramPacket;
+import org.junit.jupiter.api.Test;
+import org.rx.net.SocketConfig;
+import org.rx.net.Sockets;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UdpEgressBatchHandlerTest {
+    static final InetSocketAddress A = new InetSocketAddress("127.0.0.1", 22001);
+    static final InetSocketAddress B = new InetSocketAddress("127.0.0.1", 22002);
+
+    static DatagramPacket packet(int size, int fill, InetSocketAddress recipient) {
+        ByteBuf buf = Unpooled.buffer(size);
+        for (int i = 0; i < size; i++) {
+            buf.writeByte(fill);
+        }
+        return new DatagramPacket(buf, recipient);
+    }
+
+    @Test
+    void flush_coalescesSameDestinationRunsIntoSegmentedPacket() {
+        UdpEgressBatchHandler handler = new UdpEgressBatchHandler(64, true, "udp");
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+        try {
+            List<ChannelFuture> futures = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                futures.add(channel.pipeline().writeAndFlush(packet(100, i, A)));
+            }
+            futures.add(channel.pipeline().writeAndFlush(packet(40, 5, A)));
+            futures.add(channel.pipeline().writeAndFlush(packet(100, 6, B)));
+            //the first packet is not delayed
+            DatagramPacket first = channel.readOutbound();
+            assertFalse(first instanceof SegmentedDatagramPacket);
+            assertEquals(0, first.content().getByte(0));
+            first.release();
+            assertTrue(futures.get(0).isSuccess());
+            assertNull(channel.readOutbound(), "flush must wait for the event loop batch");
+            assertFalse(futures.get(1).isDone());
+
+            channel.runPendingTasks();
+            DatagramPacket gso = channel.readOutbound();
+            assertTrue(gso instanceof SegmentedDatagramPacket);
+            assertEquals(100, ((SegmentedDatagramPacket) gso).segmentSize());
+            assertEquals(A, gso.recipient());
+            assertEquals(440, gso.content().readableBytes());
+            assertEquals(4, gso.content().getByte(350));
+            assertEquals(5, gso.content().getByte(439));
+            gso.release();
+
+            DatagramPacket single = channel.readOutbound();
+            assertFalse(single instanceof SegmentedDatagramPacket);
+            assertEquals(B, single.recipient());
+            single.release();
+            assertNull(channel.readOutbound());
+            for (ChannelFuture future : futures) {
+                assertTrue(future.isSuccess());
+            }
+            assertEquals(7, handler.getPacketCount());
+            assertEquals(2, handler.getFlushCount());
+            assertEquals(1, handler.getSegmentedCount());
+
+            //sparse traffic, every packet leaves on its own flush
+            channel.pipeline().writeAndFlush(packet(100, 7, A));
+            channel.runPendingTasks();
+            channel.pipeline().writeAndFlush(packet(100, 8, A));
+            for (int i = 7; i <= 8; i++) {
+                DatagramPacket out = channel.readOutbound();
+                assertEquals(i, out.content().getByte(0));
+                out.release();
+            }
+            assertEquals(4, handler.getFlushCount());
+        } finally {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    @Test
+    void flush_withoutGsoKeepsPacketsAndOrder() {
+        UdpEgressBatchHandler handler = new UdpEgressBatchHandler(4, false, "udp");
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+        try {
+            for (int i = 0; i < 6; i++) {
+                channel.pipeline().writeAndFlush(packet(100, i, i % 2 == 0 ? A : B));
+            }
+            //batch limit reached, first 4 are already on the wire
+            assertTrue(channel.outboundMessages().size() >= 4);
+            channel.runPendingTasks();
+            for (int i = 0; i < 6; i++) {
+                DatagramPacket out = channel.readOutbound();
+                assertFalse(out instanceof SegmentedDatagramPacket);
+                assertEquals(i, out.content().getByte(0));
+                out.release();
+            }
+            assertTrue(handler.getFlushCount() >= 2);
+            assertEquals(0, handler.getSegmentedCount());
+        } finally {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    @Test
+    void epollBurstIsDeliveredThroughBatchedEgress() throws Exception {
+        if (!Epoll.isAvailable()) {
+            return;
+        }
+        int count = 40;
+        CountDownLatch received = new CountDownLatch(count);
+        AtomicInteger bytes = new AtomicInteger();
+        SocketConfig config = new SocketConfig();
+        assertFalse(config.isUdpGso());
+        config.setUdpGso(true);
+        Channel server = Sockets.udpBootstrap(config, ch -> ch.pipeline().addLast(new SimpleChannelInboundHandler<DatagramPacket>() {
+            @Override
+            protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket msg) {
+                bytes.addAndGet(msg.content().readableBytes());
+                received.countDown();
+            }
+        })).bind(new InetSocketAddress("127.0.0.1", 0)).syncUninterruptibly().channel();
+        Channel client = Sockets.udpBootstrap(config, null)
+                .bind(new InetSocketAddress("127.0.0.1", 0)).syncUninterruptibly().channel();
+        try {
+            UdpEgressBatchHandler handler = client.pipeline().get(UdpEgressBatchHandler.class);
+            assertNotNull(handler);
+            InetSocketAddress target = (InetSocketAddress) server.localAddress();
+            client.eventLoop().submit(() -> {
+                for (int i = 0; i < count; i++) {
+                    Sockets.writeUdp(client, packet(i == count - 1 ? 200 : 1000, i, target), "udp", "path=test");
+                }
+            }).syncUninterruptibly();
+
+            assertTrue(received.await(5, TimeUnit.SECONDS), "left=" + received.getCount());
+            assertEquals(1000 * (count - 1) + 200, bytes.get());
+            assertEquals(count, handler.getPacketCount());
+            //the first packet inline, the rest of the burst in one flush
+            assertEquals(2, handler.getFlushCount());
+            //no gso fallback on loopback
+            assertEquals(EpollDatagramChannel.isSegmentedDatagramPacketSupported(), handler.isGso());
+            if (handler.isGso()) {
+                assertEquals(1, handler.getSegmentedCount());
+            }
+        } finally {
+            client.close().syncUninterruptibly();
+            server.close().syncUninterruptibly();
+        }
+    }
+}
@@ -21,6 +21,8 @@ import org.rx.net.Sockets;
 import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
@@ -107,6 +109,63 @@ public class UdpResilienceTest {
         }
     }
 
+    @Test
+    public void testReedSolomonRecoversMultipleLostShards() {
+        UdpResilienceConfig config = config(6);
+        config.setFecCodec(UdpFecCodec.REED_SOLOMON);
+        config.setFecParityShards(3);
+        EmbeddedChannel encoder = new EmbeddedChannel(new UdpResilienceEncoder(config));
+        String[] values = {"a", "bb", "ccc", "dddd", "eeeee", "ffffff"};
+        for (String value : values) {
+            encoder.writeOutbound(datagram(value, REMOTE_A));
+        }
+        encoder.flush();
+        List<DatagramPacket> encoded = drainOutbound(encoder);
+        EmbeddedChannel decoder = new EmbeddedChannel(new UdpResilienceDecoder(config));
+        try {
+            assertEquals(9, encoded.size());
+            assertEquals(3, config.stats().parityPackets());
+            ByteBuf parity = encoded.get(8).content();
+            assertEquals(UdpResilienceHeader.CODEC_RS, UdpResilienceHeader.codec(parity, parity.readerIndex()));
+            assertEquals(8, UdpResilienceHeader.shardIdx(parity, parity.readerIndex()));
+
+            //3 data lost
+            for (int i : new int[]{0, 3, 6, 5, 8, 7}) {
+                writeInboundCopy(decoder, encoded.get(i), REMOTE_A);
+            }
+            List<String> received = drainInboundStrings(decoder);
+            assertEquals(Arrays.asList("a", "dddd", "ffffff", "bb", "ccc", "eeeee"), received);
+            assertEquals(3, config.stats().recoveredPackets());
+
+            //group completed, late shard is dropped as duplicate
+            writeInboundCopy(decoder, encoded.get(1), REMOTE_A);
+            assertNull(decoder.readInbound());
+        } finally {
+            release(encoded);
+            decoder.finishAndReleaseAll();
+        }
+    }
+
+    @Test
+    public void testReedSolomonTooManyLossesDeliversReceivedOnly() {
+        UdpResilienceConfig config = config(3);
+        config.setFecCodec(UdpFecCodec.REED_SOLOMON);
+        config.setFecParityShards(2);
+        List<DatagramPacket> encoded = encode(config, REMOTE_A, "aa", "bbbb", "ccc");
+        EmbeddedChannel decoder = new EmbeddedChannel(new UdpResilienceDecoder(config));
+        try {
+            assertEquals(5, encoded.size());
+            writeInboundCopy(decoder, encoded.get(1), REMOTE_A);
+            writeInboundCopy(decoder, encoded.get(4), REMOTE_A);
+
+            assertEquals(Collections.singletonList("bbbb"), drainInboundStrings(decoder));
+            assertEquals(0, config.stats().recoveredPackets());
+        } finally {
+            release(encoded);
+            decoder.finishAndReleaseAll();
+        }
+    }
+
     @Test
     public void testEncoderKeepsPeerGroupsIsolated() {
         UdpResilienceConfig config = config(2);
@@ -25,6 +25,7 @@ import org.rx.core.YamlConfiguration;
 import org.rx.exception.InvalidException;
 import org.rx.io.EntityDatabaseImpl;
 import org.rx.net.AuthenticEndpoint;
+import org.rx.net.NetworkTrafficConfig;
 import org.rx.net.OptimalSettings;
 import org.rx.net.Sockets;
 import org.rx.net.TransportFlags;
@@ -1139,6 +1140,9 @@ public class RssTest extends AbstractTester {
         conf.ddnsJobSeconds = 60;
         conf.ddnsApiKey = "k";
         conf.ddnsDomains = Collections.singletonList("a.example.com");
+        conf.traffic = new NetworkTrafficConfig();
+        conf.traffic.setUserUploadKilobytesPerSecond(-1L);
+        conf.traffic.setShapingBurstMillis(0L);
 
         assertTrue(RssClient.normalizeAndValidateRssConfig(conf));
 
@@ -1148,6 +1152,8 @@ public class RssTest extends AbstractTester {
         assertEquals(4, conf.rpcMaxSize);
         assertEquals(1, conf.connectTimeoutSeconds);
         assertEquals(1, conf.socksServers.size());
+        assertEquals(0L, conf.traffic.getUserUploadKilobytesPerSecond());
+        assertEquals(200L, conf.traffic.getShapingBurstMillis());
     }
 
     @Test
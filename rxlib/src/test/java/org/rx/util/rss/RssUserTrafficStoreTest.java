@@ -1,8 +1,12 @@
 package org.rx.util.rss;
 
+import io.netty.channel.embedded.EmbeddedChannel;
 import org.junit.jupiter.api.Test;
 import org.rx.AbstractTester;
 import org.rx.io.EntityDatabaseImpl;
+import org.rx.net.socks.SocksContext;
+import org.rx.net.socks.SocksUserTraffic;
+import org.rx.net.socks.TrafficLoginInfo;
 
 import java.net.InetSocketAddress;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -118,4 +122,57 @@ public class RssUserTrafficStoreTest extends AbstractTester {
             db.close();
         }
     }
+
+    @Test
+    public void accumulatesChannelTrafficUntilFlushOrClose() {
+        EntityDatabaseImpl db = new EntityDatabaseImpl(path("h2/rss_user_traffic_accumulate"), null);
+        EmbeddedChannel inbound = new EmbeddedChannel();
+        EmbeddedChannel outbound = new EmbeddedChannel();
+        try {
+            RssUserTrafficStore store = new RssUserTrafficStore(db);
+            SocksUserTraffic.registerRecorder(store);
+            ShadowUser user = new ShadowUser();
+            user.setUsername("rocky");
+            user.setSocksUser("socks-rocky");
+            InetSocketAddress remote = new InetSocketAddress("127.0.0.1", 1200);
+            SocksContext context = SocksContext.getCtx(remote, new InetSocketAddress("127.0.0.1", 80));
+            SocksContext.markCtx(inbound, outbound, context);
+            SocksUserTraffic.attach(context, user, new TrafficLoginInfo());
+
+            for (int i = 0; i < 10; i++) {
+                SocksUserTraffic.recordWrite(context, 100L, 1L);
+                SocksUserTraffic.recordRead(context, 50L, 1L);
+            }
+            long hourEpoch = System.currentTimeMillis() / RssUserTrafficStore.ONE_HOUR_MILLIS;
+            String id = RssUserTrafficStore.HourlyTrafficEntity.idOf("rocky", hourEpoch);
+            store.flush();
+            RssUserTrafficStore.HourlyTrafficEntity entity = db.findById(RssUserTrafficStore.HourlyTrafficEntity.class, id);
+            assertNotNull(entity);
+            assertEquals(500L, entity.getReadBytes());
+            assertEquals(1000L, entity.getWriteBytes());
+            assertEquals(10L, entity.getReadPackets());
+            assertEquals(10L, entity.getWritePackets());
+
+            SocksUserTraffic.recordWrite(context, 7L, 1L);
+            inbound.close();
+            store.flush();
+            entity = db.findById(RssUserTrafficStore.HourlyTrafficEntity.class, id);
+            assertEquals(1007L, entity.getWriteBytes());
+            assertEquals(11L, entity.getWritePackets());
+
+            RssUserTrafficStore.HourlyLoginIpTrafficEntity loginIpEntity = db.findById(
+                    RssUserTrafficStore.HourlyLoginIpTrafficEntity.class,
+                    RssUserTrafficStore.HourlyLoginIpTrafficEntity.idOf("rocky", "127.0.0.1", "tcp", hourEpoch));
+            assertNotNull(loginIpEntity);
+            assertEquals(500L, loginIpEntity.getReadBytes());
+            assertEquals(1007L, loginIpEntity.getWriteBytes());
+        } finally {
+            SocksUserTraffic.clearRecorder();
+            inbound.finishAndReleaseAll();
+            outbound.finishAndReleaseAll();
+            db.dropMapping(RssUserTrafficStore.HourlyLoginIpTrafficEntity.class);
+            db.dropMapping(RssUserTrafficStore.HourlyTrafficEntity.class);
+            db.close();
+        }
+    }
 }